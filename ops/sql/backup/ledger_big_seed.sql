@@ -10,6 +10,7 @@
 USE ledger;
 
 SET FOREIGN_KEY_CHECKS=0;
+TRUNCATE TABLE ledger_changes;
 TRUNCATE TABLE settlements;
 TRUNCATE TABLE attachments;
 TRUNCATE TABLE budgets;
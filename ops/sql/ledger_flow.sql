@@ -17,6 +17,7 @@ DROP TABLE IF EXISTS
     budgets,
     attachments,
     settlements,
+    settlement_batches,
     ledger_user_balances,
     debt_edges,
     transaction_splits,
@@ -25,6 +26,7 @@ DROP TABLE IF EXISTS
     ledger_members,
     ledgers,
     users,
+    exchange_rates,
     currency,
     import_jobs;
 
@@ -44,6 +46,26 @@ INSERT INTO currency (code, exponent) VALUES
     ('USD', 2) -- Default currency for ledgers
     ON DUPLICATE KEY UPDATE exponent = VALUES(exponent);
 
+-- ------------------------------------------------------------
+-- Exchange rates (server-side, effective-dated)
+-- ------------------------------------------------------------
+CREATE TABLE exchange_rates (
+                                id              BIGINT UNSIGNED PRIMARY KEY AUTO_INCREMENT,
+                                base_currency   CHAR(3) NOT NULL,
+                                quote_currency  CHAR(3) NOT NULL,
+                                rate            DECIMAL(24,12) NOT NULL
+                                    COMMENT 'Units of quote_currency per one unit of base_currency.',
+                                effective_from  DATETIME NOT NULL
+                                    COMMENT 'The rate applies from this instant until a later row for the same pair.',
+                                created_at      DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                                UNIQUE KEY uk_rate_pair_effective (base_currency, quote_currency, effective_from),
+                                CONSTRAINT fk_rate_base FOREIGN KEY (base_currency) REFERENCES currency(code),
+                                CONSTRAINT fk_rate_quote FOREIGN KEY (quote_currency) REFERENCES currency(code),
+                                CONSTRAINT ck_rate_positive CHECK (rate > 0),
+                                CONSTRAINT ck_rate_pair CHECK (base_currency <> quote_currency)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
+COMMENT='Conversion rates used when debt edges and ledgers differ in currency. Reverse and cross rates are derived.';
+
 -- ------------------------------------------------------------
 -- Users
 -- ------------------------------------------------------------
@@ -74,6 +96,12 @@ CREATE TABLE ledgers (
                              COMMENT 'Ledger’s accounting currency. All balances reported in this.',
                          share_start_date DATE NULL
                       COMMENT 'Only records on/after this date are visible to members (privacy boundary).',
+                         plan_version    BIGINT UNSIGNED NOT NULL DEFAULT 0
+                             COMMENT 'Bumped by every write that can change balances or membership; keys cached settlement plans.',
+                         change_seq      BIGINT UNSIGNED NOT NULL DEFAULT 0
+                             COMMENT 'Last sequence number handed out in ledger_changes.',
+                         balances_initialized TINYINT(1) NOT NULL DEFAULT 0
+                             COMMENT '1 once ledger_user_balances holds every member; until then it is seeded from debt_edges before the first delta.',
                          created_at      DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
                          updated_at      DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
                          CONSTRAINT fk_ledgers_owner FOREIGN KEY (owner_id) REFERENCES users(id),
@@ -193,7 +221,10 @@ CREATE TABLE debt_edges (
                             CONSTRAINT fk_debt_to FOREIGN KEY (to_user_id) REFERENCES users(id),
                             CONSTRAINT fk_debt_currency FOREIGN KEY (edge_currency) REFERENCES currency(code),
                             CONSTRAINT ck_debt_positive CHECK (amount > 0),
-                            INDEX idx_debt_ledger_parties (ledger_id, to_user_id, from_user_id)
+                            INDEX idx_debt_ledger_parties (ledger_id, to_user_id, from_user_id),
+                            -- Covering indexes for the per-member net sums the settlement planner reads
+                            INDEX idx_debt_ledger_creditor_sum (ledger_id, from_user_id, edge_currency, amount),
+                            INDEX idx_debt_ledger_debtor_sum (ledger_id, to_user_id, edge_currency, amount)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
 COMMENT='Directed debts A->B. Used by DEBT_NETWORK and by simplified edges from shared bills for settlement optimization.';
 
@@ -212,6 +243,23 @@ CREATE TABLE ledger_user_balances (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
 COMMENT='Snapshot of per-user net balances for GROUP_BALANCE view; recompute after changes.';
 
+-- ------------------------------------------------------------
+-- Settlement batches (one executed settlement plan per ledger plan version)
+-- ------------------------------------------------------------
+CREATE TABLE settlement_batches (
+                                    id              BIGINT UNSIGNED PRIMARY KEY AUTO_INCREMENT,
+                                    ledger_id       BIGINT UNSIGNED NOT NULL,
+                                    plan_version    BIGINT UNSIGNED NOT NULL
+                                        COMMENT 'ledgers.plan_version the executed plan was computed at.',
+                                    executed_by     BIGINT UNSIGNED NOT NULL,
+                                    transfer_count  INT UNSIGNED NOT NULL,
+                                    created_at      DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                                    UNIQUE KEY uk_batch_ledger_version (ledger_id, plan_version),
+                                    CONSTRAINT fk_batch_ledger FOREIGN KEY (ledger_id) REFERENCES ledgers(id) ON DELETE CASCADE,
+                                    CONSTRAINT fk_batch_user FOREIGN KEY (executed_by) REFERENCES users(id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
+COMMENT='Executed settlement plans. The unique key makes executing a plan version idempotent.';
+
 -- ------------------------------------------------------------
 -- Settlement transfers (executed minimal-transfer solutions)
 -- ------------------------------------------------------------
@@ -231,8 +279,10 @@ CREATE TABLE settlements (
                              CONSTRAINT fk_settle_from FOREIGN KEY (from_user_id) REFERENCES users(id),
                              CONSTRAINT fk_settle_to FOREIGN KEY (to_user_id) REFERENCES users(id),
                              CONSTRAINT fk_settle_currency FOREIGN KEY (currency) REFERENCES currency(code),
+                             CONSTRAINT fk_settle_batch FOREIGN KEY (plan_batch_id) REFERENCES settlement_batches(id) ON DELETE CASCADE,
                              CONSTRAINT ck_settle_positive CHECK (amount > 0),
-                             INDEX idx_settle_ledger_time (ledger_id, settled_at)
+                             INDEX idx_settle_ledger_time (ledger_id, settled_at),
+                             INDEX idx_settle_batch (plan_batch_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
 COMMENT='Actual transfers recorded when settling up. Supports grouping via plan_batch_id.';
 
@@ -258,10 +308,15 @@ CREATE TABLE import_jobs (
                              id              BIGINT UNSIGNED PRIMARY KEY AUTO_INCREMENT,
                              user_id         BIGINT UNSIGNED NOT NULL,
                              ledger_id       BIGINT UNSIGNED NULL,
-                             source_type     ENUM('TEXT','IMAGE','RECEIPT','CSV') NOT NULL,
-                             status          ENUM('PENDING','PARSED','CONFIRMED','DISCARDED') NOT NULL DEFAULT 'PENDING',
+                             source_type     ENUM('TEXT','IMAGE','RECEIPT','CSV','NDJSON') NOT NULL,
+                             status          ENUM('PENDING','PARSED','CONFIRMED','DISCARDED','RUNNING','COMPLETED','FAILED') NOT NULL DEFAULT 'PENDING',
                              raw_payload     MEDIUMTEXT NULL COMMENT 'Original text or metadata blob. Do NOT store binaries here.',
                              parsed_json     JSON NULL COMMENT 'Extracted candidates: amount, currency, datetime, category, participants, etc.',
+                             total_rows      INT UNSIGNED NOT NULL DEFAULT 0 COMMENT 'Bulk imports: data rows read so far',
+                             imported_rows   INT UNSIGNED NOT NULL DEFAULT 0 COMMENT 'Bulk imports: rows written as transactions',
+                             failed_rows     INT UNSIGNED NOT NULL DEFAULT 0 COMMENT 'Bulk imports: rows rejected by validation',
+                             error_json      JSON NULL COMMENT 'Bulk imports: first rejected rows as [{row, message}] and any job-level error',
+                             finished_at     DATETIME NULL,
                              created_at      DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
                              updated_at      DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
                              CONSTRAINT fk_imp_user FOREIGN KEY (user_id) REFERENCES users(id),
@@ -288,6 +343,66 @@ CREATE TABLE budgets (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
 COMMENT='Monthly budgets per ledger/category. Used only for budget checks; settlements do not change budgets.';
 
+-- ------------------------------------------------------------
+-- Change feed (per-ledger sequence of compact deltas for client sync)
+-- ------------------------------------------------------------
+CREATE TABLE ledger_changes (
+                                ledger_id    BIGINT UNSIGNED NOT NULL,
+                                seq          BIGINT UNSIGNED NOT NULL
+                                    COMMENT 'From ledgers.change_seq, advanced under the ledger row lock: gapless and in commit order.',
+                                entity_type  ENUM('TRANSACTION','MEMBER','BUDGET') NOT NULL,
+                                entity_id    BIGINT UNSIGNED NOT NULL COMMENT 'Transaction ID, member user ID or budget ID.',
+                                op           ENUM('UPSERT','DELETE') NOT NULL,
+                                visible_to   BIGINT UNSIGNED NULL COMMENT 'Private transactions: only this user and OWNER/ADMIN see the change.',
+                                txn_at       DATETIME NULL COMMENT 'Transaction time, checked against the share start date.',
+                                actor_id     BIGINT UNSIGNED NULL,
+                                payload      JSON NULL COMMENT 'Entity state after an UPSERT; NULL for DELETE.',
+                                created_at   DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                                PRIMARY KEY (ledger_id, seq),
+                                CONSTRAINT fk_change_ledger FOREIGN KEY (ledger_id) REFERENCES ledgers(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
+COMMENT='Transaction, member and budget changes per ledger; clients read everything after the last seq they saw.';
+
+-- ------------------------------------------------------------
+-- Backfill of ledger_user_balances for ledgers with existing debt edges
+-- ------------------------------------------------------------
+-- Databases created before these ledgers columns existed need them added first, in this order:
+--   ALTER TABLE ledgers ADD COLUMN plan_version BIGINT UNSIGNED NOT NULL DEFAULT 0 AFTER share_start_date;
+--   ALTER TABLE ledgers ADD COLUMN change_seq BIGINT UNSIGNED NOT NULL DEFAULT 0 AFTER plan_version;
+--   ALTER TABLE ledgers ADD COLUMN balances_initialized TINYINT(1) NOT NULL DEFAULT 0;
+-- They also need the ledger_changes table created above, whose rows change_seq numbers.
+-- Re-run these statements after bulk-loading debt_edges (e.g. ops/sql/backup/ledger_big_seed.sql).
+-- They only touch unseeded ledgers whose edges are all in base currency; the application seeds
+-- any other ledger, with exchange rates, under the ledger row lock on its first balance write.
+UPDATE ledger_user_balances b
+    JOIN ledgers l ON l.id = b.ledger_id
+SET b.net_amount_base = 0, b.recalculated_at = NOW()
+WHERE l.balances_initialized = 0
+  AND NOT EXISTS (SELECT 1 FROM debt_edges e
+                  WHERE e.ledger_id = l.id AND e.edge_currency <> l.base_currency);
+
+INSERT INTO ledger_user_balances (ledger_id, user_id, net_amount_base, recalculated_at)
+SELECT sides.ledger_id, sides.user_id, SUM(sides.amount), NOW()
+FROM (
+    SELECT ledger_id, from_user_id AS user_id, amount FROM debt_edges
+    UNION ALL
+    SELECT ledger_id, to_user_id AS user_id, -amount FROM debt_edges
+) sides
+    JOIN ledgers l ON l.id = sides.ledger_id
+WHERE l.balances_initialized = 0
+  AND NOT EXISTS (SELECT 1 FROM debt_edges e
+                  WHERE e.ledger_id = l.id AND e.edge_currency <> l.base_currency)
+GROUP BY sides.ledger_id, sides.user_id
+ON DUPLICATE KEY UPDATE
+    net_amount_base = VALUES(net_amount_base),
+    recalculated_at = VALUES(recalculated_at);
+
+UPDATE ledgers l
+SET l.balances_initialized = 1, l.updated_at = l.updated_at
+WHERE l.balances_initialized = 0
+  AND NOT EXISTS (SELECT 1 FROM debt_edges e
+                  WHERE e.ledger_id = l.id AND e.edge_currency <> l.base_currency);
+
 -- ------------------------------------------------------------
 -- Practical indexes for analytics
 -- ------------------------------------------------------------
@@ -0,0 +1,341 @@
+package dev.coms4156.project.groupproject.mapper;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the transaction visibility filter that looked up the caller's role and the ledger's
+ * share start date in correlated subqueries for every row against the one that takes both as
+ * resolved parameters, for the first list page, the page count and the by-ID lookup.
+ *
+ * <p>Runs against a MySQL database loaded with {@code ops/sql/ledger_flow.sql} and {@code
+ * ops/sql/backup/ledger_big_seed.sql}, reached through {@code DB_URL}, {@code DB_USER} and {@code
+ * DB_PASS}. The seed's Apartment Demo ledger is padded with {@code extraRows} synthetic rows (IDs
+ * from {@value #FIRST_SYNTHETIC_ID}, removed again after the trial), a tenth of them private and
+ * some before the share start date. Both variants bind the same values; the role and share start
+ * date lookups the service performs once per request are common to both and left out.
+ *
+ * <pre>
+ * DB_URL=jdbc:mysql://localhost:3306/ledger mvn -Pjmh test-compile exec:exec \
+ *     -Djmh.includes=TransactionVisibilityBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionVisibilityBenchmark {
+
+  private static final long LEDGER_ID = 2L;
+  private static final long FIRST_SYNTHETIC_ID = 1_000_000L;
+  private static final int PAGE_SIZE = 20;
+  private static final int INSERT_BATCH = 1000;
+
+  /** Visibility as it was: two role EXISTS and two share_start_date subqueries per row. */
+  private static final String CORRELATED_VISIBILITY =
+      " AND (t.is_private = false OR t.created_by = ?"
+          + " OR EXISTS (SELECT 1 FROM ledger_members lm WHERE lm.ledger_id = t.ledger_id"
+          + " AND lm.user_id = ? AND lm.role IN ('OWNER', 'ADMIN')))"
+          + " AND ((SELECT l.share_start_date FROM ledgers l WHERE l.id = t.ledger_id) IS NULL"
+          + " OR t.txn_at >= (SELECT l.share_start_date FROM ledgers l WHERE l.id = t.ledger_id)"
+          + " OR EXISTS (SELECT 1 FROM ledger_members lm WHERE lm.ledger_id = t.ledger_id"
+          + " AND lm.user_id = ? AND lm.role IN ('OWNER', 'ADMIN')))";
+
+  /** List filter as it was, with NULL-tolerant comparisons for absent filters. */
+  private static final String CORRELATED_FILTER =
+      " WHERE t.ledger_id = ?"
+          + " AND t.txn_at >= COALESCE(?, '1900-01-01')"
+          + " AND t.txn_at < COALESCE(?, '2100-01-01')"
+          + " AND (? IS NULL OR t.type = ?)"
+          + " AND (? IS NULL OR t.created_by = ?)"
+          + CORRELATED_VISIBILITY;
+
+  /** Filter as TransactionMapper.xml renders it for a non-privileged caller without filters. */
+  private static final String RESOLVED_VISIBILITY =
+      " AND (t.is_private = false OR t.created_by = ?) AND t.txn_at >= ?";
+
+  /** Seed members of the Apartment Demo ledger: 4 is its OWNER, 5 an EDITOR. */
+  @Param({"5", "4"})
+  private long viewerId;
+
+  @Param({"0", "100000"})
+  private int extraRows;
+
+  private Connection connection;
+  private boolean privileged;
+  private LocalDate shareStartDate;
+  private long[] transactionIds;
+  private int next;
+
+  private PreparedStatement correlatedPage;
+  private PreparedStatement correlatedCount;
+  private PreparedStatement correlatedById;
+  private PreparedStatement resolvedPage;
+  private PreparedStatement resolvedCount;
+  private PreparedStatement resolvedById;
+
+  /** Connect, pad the ledger and resolve the viewer's role and the share start date once. */
+  @Setup
+  public void setUp() throws SQLException {
+    connection =
+        DriverManager.getConnection(
+            env("DB_URL", "jdbc:mysql://localhost:3306/ledger"),
+            env("DB_USER", "root"),
+            env("DB_PASS", ""));
+    deleteSyntheticRows();
+    insertSyntheticRows();
+
+    try (PreparedStatement ps =
+        connection.prepareStatement("SELECT share_start_date FROM ledgers WHERE id = ?")) {
+      ps.setLong(1, LEDGER_ID);
+      try (ResultSet rs = ps.executeQuery()) {
+        rs.next();
+        Date date = rs.getDate(1);
+        shareStartDate = date != null ? date.toLocalDate() : null;
+      }
+    }
+    try (PreparedStatement ps =
+        connection.prepareStatement(
+            "SELECT role FROM ledger_members WHERE ledger_id = ? AND user_id = ?")) {
+      ps.setLong(1, LEDGER_ID);
+      ps.setLong(2, viewerId);
+      try (ResultSet rs = ps.executeQuery()) {
+        if (!rs.next()) {
+          throw new IllegalStateException("User " + viewerId + " is not a member of the ledger");
+        }
+        privileged = "OWNER".equals(rs.getString(1)) || "ADMIN".equals(rs.getString(1));
+      }
+    }
+    try (Statement st = connection.createStatement();
+        ResultSet rs =
+            st.executeQuery(
+                "SELECT id FROM transactions WHERE ledger_id = " + LEDGER_ID + " ORDER BY id")) {
+      List<Long> ids = new ArrayList<>();
+      while (rs.next()) {
+        ids.add(rs.getLong(1));
+      }
+      transactionIds = ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    correlatedPage =
+        connection.prepareStatement(
+            "SELECT t.* FROM transactions t"
+                + CORRELATED_FILTER
+                + " ORDER BY t.txn_at DESC, t.id DESC LIMIT "
+                + PAGE_SIZE);
+    correlatedCount =
+        connection.prepareStatement("SELECT COUNT(*) FROM transactions t" + CORRELATED_FILTER);
+    correlatedById =
+        connection.prepareStatement(
+            "SELECT t.* FROM transactions t WHERE t.id = ?" + CORRELATED_VISIBILITY);
+
+    String resolved = privileged || shareStartDate == null ? "" : RESOLVED_VISIBILITY;
+    resolvedPage =
+        connection.prepareStatement(
+            "SELECT t.* FROM transactions t WHERE t.ledger_id = ?"
+                + resolved
+                + " ORDER BY t.txn_at DESC, t.id DESC LIMIT "
+                + PAGE_SIZE);
+    resolvedCount =
+        connection.prepareStatement(
+            "SELECT COUNT(*) FROM transactions t WHERE t.ledger_id = ?" + resolved);
+    resolvedById =
+        connection.prepareStatement("SELECT t.* FROM transactions t WHERE t.id = ?" + resolved);
+  }
+
+  /** Remove the synthetic rows and close the connection. */
+  @TearDown
+  public void tearDown() throws SQLException {
+    deleteSyntheticRows();
+    connection.close();
+  }
+
+  /**
+   * First page, filter with per-row subqueries.
+   *
+   * @return rows read
+   */
+  @Benchmark
+  public int pageCorrelated() throws SQLException {
+    bindCorrelatedFilter(correlatedPage);
+    return drain(correlatedPage);
+  }
+
+  /**
+   * First page, filter with resolved role and share start date.
+   *
+   * @return rows read
+   */
+  @Benchmark
+  public int pageResolved() throws SQLException {
+    bindResolved(resolvedPage, 1, LEDGER_ID);
+    return drain(resolvedPage);
+  }
+
+  /**
+   * Total for the page header, filter with per-row subqueries.
+   *
+   * @return visible rows
+   */
+  @Benchmark
+  public int countCorrelated() throws SQLException {
+    bindCorrelatedFilter(correlatedCount);
+    return count(correlatedCount);
+  }
+
+  /**
+   * Total for the page header, filter with resolved role and share start date.
+   *
+   * @return visible rows
+   */
+  @Benchmark
+  public int countResolved() throws SQLException {
+    bindResolved(resolvedCount, 1, LEDGER_ID);
+    return count(resolvedCount);
+  }
+
+  /**
+   * Single transaction, visibility with per-row subqueries.
+   *
+   * @return rows read
+   */
+  @Benchmark
+  public int byIdCorrelated() throws SQLException {
+    correlatedById.setLong(1, nextId());
+    correlatedById.setLong(2, viewerId);
+    correlatedById.setLong(3, viewerId);
+    correlatedById.setLong(4, viewerId);
+    return drain(correlatedById);
+  }
+
+  /**
+   * Single transaction, visibility with resolved role and share start date.
+   *
+   * @return rows read
+   */
+  @Benchmark
+  public int byIdResolved() throws SQLException {
+    bindResolved(resolvedById, 1, nextId());
+    return drain(resolvedById);
+  }
+
+  private void bindCorrelatedFilter(PreparedStatement ps) throws SQLException {
+    ps.setLong(1, LEDGER_ID);
+    ps.setTimestamp(2, null);
+    ps.setTimestamp(3, null);
+    ps.setString(4, null);
+    ps.setString(5, null);
+    ps.setObject(6, null);
+    ps.setObject(7, null);
+    ps.setLong(8, viewerId);
+    ps.setLong(9, viewerId);
+    ps.setLong(10, viewerId);
+  }
+
+  private void bindResolved(PreparedStatement ps, int index, long key) throws SQLException {
+    ps.setLong(index, key);
+    if (!privileged && shareStartDate != null) {
+      ps.setLong(index + 1, viewerId);
+      ps.setDate(index + 2, Date.valueOf(shareStartDate));
+    }
+  }
+
+  private long nextId() {
+    next = (next + 1) % transactionIds.length;
+    return transactionIds[next];
+  }
+
+  private static int drain(PreparedStatement ps) throws SQLException {
+    int rows = 0;
+    try (ResultSet rs = ps.executeQuery()) {
+      while (rs.next()) {
+        rows++;
+      }
+    }
+    return rows;
+  }
+
+  private static int count(PreparedStatement ps) throws SQLException {
+    try (ResultSet rs = ps.executeQuery()) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+  private void insertSyntheticRows() throws SQLException {
+    if (extraRows == 0) {
+      return;
+    }
+    Random random = new Random(extraRows);
+    LocalDateTime start = LocalDateTime.of(2024, 7, 1, 0, 0);
+    String sql =
+        "INSERT INTO transactions (id, ledger_id, created_by, txn_at, type, payer_id,"
+            + " amount_total, currency, note, is_private) VALUES (?, ?, ?, ?, 'EXPENSE', ?, ?,"
+            + " 'USD', 'Synthetic', ?)";
+    boolean autoCommit = connection.getAutoCommit();
+    connection.setAutoCommit(false);
+    try (PreparedStatement ps = connection.prepareStatement(sql)) {
+      for (int i = 0; i < extraRows; i++) {
+        long member = 4 + random.nextInt(4);
+        ps.setLong(1, FIRST_SYNTHETIC_ID + i);
+        ps.setLong(2, LEDGER_ID);
+        ps.setLong(3, member);
+        ps.setTimestamp(4, Timestamp.valueOf(start.plusMinutes(random.nextInt(700_000))));
+        ps.setLong(5, member);
+        ps.setBigDecimal(6, BigDecimal.valueOf(100 + random.nextInt(20_000), 2));
+        ps.setBoolean(7, random.nextInt(10) == 0);
+        ps.addBatch();
+        if ((i + 1) % INSERT_BATCH == 0) {
+          ps.executeBatch();
+        }
+      }
+      ps.executeBatch();
+      connection.commit();
+    } finally {
+      connection.setAutoCommit(autoCommit);
+    }
+    try (Statement st = connection.createStatement()) {
+      st.execute("ANALYZE TABLE transactions");
+    }
+  }
+
+  private void deleteSyntheticRows() throws SQLException {
+    try (PreparedStatement ps =
+        connection.prepareStatement("DELETE FROM transactions WHERE id >= ?")) {
+      ps.setLong(1, FIRST_SYNTHETIC_ID);
+      ps.executeUpdate();
+    }
+  }
+
+  private static String env(String name, String fallback) {
+    String value = System.getenv(name);
+    return value != null && !value.isEmpty() ? value : fallback;
+  }
+}
@@ -0,0 +1,176 @@
+package dev.coms4156.project.groupproject.settlement;
+
+import dev.coms4156.project.groupproject.dto.SettlementConfig;
+import dev.coms4156.project.groupproject.dto.SettlementPlanResponse;
+import dev.coms4156.project.groupproject.dto.UserView;
+import dev.coms4156.project.groupproject.entity.Currency;
+import dev.coms4156.project.groupproject.entity.Ledger;
+import dev.coms4156.project.groupproject.entity.LedgerMember;
+import dev.coms4156.project.groupproject.entity.LedgerUserBalance;
+import dev.coms4156.project.groupproject.entity.User;
+import dev.coms4156.project.groupproject.mapper.CategoryMapper;
+import dev.coms4156.project.groupproject.mapper.CurrencyMapper;
+import dev.coms4156.project.groupproject.mapper.DebtEdgeMapper;
+import dev.coms4156.project.groupproject.mapper.ExchangeRateMapper;
+import dev.coms4156.project.groupproject.mapper.LedgerMemberMapper;
+import dev.coms4156.project.groupproject.mapper.LedgerUserBalanceMapper;
+import dev.coms4156.project.groupproject.mapper.SettlementBatchMapper;
+import dev.coms4156.project.groupproject.mapper.SettlementMapper;
+import dev.coms4156.project.groupproject.mapper.UserMapper;
+import dev.coms4156.project.groupproject.service.impl.LedgerServiceImpl;
+import dev.coms4156.project.groupproject.utils.CurrencyRegistry;
+import dev.coms4156.project.groupproject.utils.CurrentUserContext;
+import dev.coms4156.project.groupproject.utils.ExchangeRateRegistry;
+import dev.coms4156.project.groupproject.utils.LedgerMembershipCache;
+import dev.coms4156.project.groupproject.utils.UserNameCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Compares the heap-greedy and min-cost flow settlement paths end to end through {@link
+ * LedgerServiceImpl#getSettlementPlan(Long, SettlementConfig)}. Mappers are in-memory proxies and
+ * the plan cache is disabled so only the planning work is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SettlementPlanBenchmark {
+
+  private static final long LEDGER_ID = 1L;
+
+  @Param({"50", "200", "1000"})
+  private int members;
+
+  @Param({"0", "250.00"})
+  private String maxTransfer;
+
+  private LedgerServiceImpl service;
+  private SettlementConfig greedyConfig;
+  private SettlementConfig flowConfig;
+
+  /** Build a zero-sum ledger with a fixed seed and a service wired to in-memory mappers. */
+  @Setup
+  public void setUp() {
+    Random random = new Random(members);
+    List<LedgerUserBalance> balances = new ArrayList<>(members);
+    long sum = 0;
+    for (int i = 1; i <= members; i++) {
+      long cents = i == members ? -sum : random.nextInt(200_001) - 100_000;
+      sum += cents;
+      LedgerUserBalance row = new LedgerUserBalance(); // NOPMD - Must create new object in loop
+      row.setLedgerId(LEDGER_ID);
+      row.setUserId((long) i);
+      row.setNetAmountBase(BigDecimal.valueOf(cents, 2));
+      balances.add(row);
+    }
+
+    Ledger ledger = new Ledger();
+    ledger.setId(LEDGER_ID);
+    ledger.setBaseCurrency("USD");
+    LedgerMember owner = new LedgerMember();
+    owner.setLedgerId(LEDGER_ID);
+    owner.setUserId(1L);
+    owner.setRole("OWNER");
+    Currency usd = new Currency();
+    usd.setCode("USD");
+    usd.setExponent(2);
+
+    UserMapper userMapper = mapper(UserMapper.class, "selectBatchIds", args -> users(args[0]));
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    service =
+        new LedgerServiceImpl(
+            mapper(LedgerMemberMapper.class, "selectOne", args -> owner),
+            userMapper,
+            mapper(DebtEdgeMapper.class, "sumNetByLedgerId", args -> List.of()),
+            new CurrencyRegistry(mapper(CurrencyMapper.class, "selectList", args -> List.of(usd))),
+            mapper(CategoryMapper.class, "selectList", args -> List.of()),
+            mapper(LedgerUserBalanceMapper.class, "findByLedgerId", args -> balances),
+            new SettlementPlanCache(registry, 0),
+            new UserNameCache(userMapper, registry, 10_000),
+            new LedgerMembershipCache(registry, new StringRedisTemplate(), 0, 300),
+            new ZeroSumSubsetSolver(24, 250),
+            mapper(SettlementMapper.class, "insertBatch", args -> 0),
+            mapper(SettlementBatchMapper.class, "findByLedgerAndVersion", args -> null),
+            ForkJoinPool.commonPool(),
+            new IncrementalSettlementPlanner(registry, 0, 2),
+            new ExchangeRateRegistry(
+                mapper(ExchangeRateMapper.class, "findEffectiveAt", args -> List.of())),
+            null) { // planning never writes to the change feed
+          @Override
+          public Ledger getById(Serializable id) {
+            return ledger;
+          }
+        };
+
+    BigDecimal cap = new BigDecimal(maxTransfer);
+    greedyConfig = new SettlementConfig();
+    flowConfig = new SettlementConfig();
+    flowConfig.setForceMinCostFlow(true);
+    if (cap.signum() > 0) {
+      greedyConfig.setMaxTransferAmount(cap);
+      flowConfig.setMaxTransferAmount(cap);
+    }
+
+    CurrentUserContext.set(new UserView(1L, "User 1"));
+  }
+
+  @TearDown
+  public void tearDown() {
+    CurrentUserContext.clear();
+  }
+
+  @Benchmark
+  public SettlementPlanResponse heapGreedy() {
+    return service.getSettlementPlan(LEDGER_ID, greedyConfig);
+  }
+
+  @Benchmark
+  public SettlementPlanResponse minCostFlow() {
+    return service.getSettlementPlan(LEDGER_ID, flowConfig);
+  }
+
+  private static List<User> users(Object ids) {
+    List<User> users = new ArrayList<>();
+    for (Object id : (Collection<?>) ids) {
+      User user = new User(); // NOPMD - Must create new object in loop
+      user.setId((Long) id);
+      user.setName("User " + id);
+      users.add(user);
+    }
+    return users;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T mapper(Class<T> type, String method, Function<Object[], Object> answer) {
+    return (T)
+        Proxy.newProxyInstance(
+            type.getClassLoader(),
+            new Class<?>[] {type},
+            (proxy, m, args) -> m.getName().equals(method) ? answer.apply(args) : null);
+  }
+}
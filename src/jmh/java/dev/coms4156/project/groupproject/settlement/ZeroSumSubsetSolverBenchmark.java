@@ -0,0 +1,54 @@
+package dev.coms4156.project.groupproject.settlement;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures one exact zero-sum partition at the member counts the EXACT settlement algorithm
+ * accepts. Balances are random with no opposite pairs, so nothing is peeled off before the solve.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZeroSumSubsetSolverBenchmark {
+
+  @Param({"12", "18", "22", "24"})
+  private int members;
+
+  private ZeroSumSubsetSolver solver;
+  private long[] balances;
+
+  /** Build a zero-sum balance vector with a fixed seed. */
+  @Setup
+  public void setUp() {
+    solver = new ZeroSumSubsetSolver(members, TimeUnit.MINUTES.toMillis(1));
+    Random random = new Random(members);
+    balances = new long[members];
+    long sum = 0;
+    for (int i = 0; i < members - 1; i++) {
+      long units = 1 + random.nextInt(1_000_000);
+      balances[i] = random.nextBoolean() ? units : -units;
+      sum += balances[i];
+    }
+    balances[members - 1] = sum == 0 ? 1 : -sum;
+  }
+
+  @Benchmark
+  public int[][] partition() {
+    return solver.partition(balances);
+  }
+}
@@ -0,0 +1,95 @@
+package dev.coms4156.project.groupproject.split;
+
+import dev.coms4156.project.groupproject.utils.MinorUnits;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures one split of an awkward total (not divisible by the participant count, with cents) for
+ * each split method, from 2 to 500 participants. {@code shares} is the largest-remainder step
+ * alone; {@code split} adds rounding to cents and the PAYER tail, which is what a transaction
+ * create runs. Run with {@code -prof gc} to confirm neither allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SplitEngineBenchmark {
+
+  private static final long UNIT = MinorUnits.pow10(MinorUnits.STORAGE_SCALE);
+
+  @Param({"2", "10", "50", "200", "500"})
+  private int participants;
+
+  @Param({"EQUAL", "PERCENT", "WEIGHT", "EXACT"})
+  private String method;
+
+  private final SplitEngine engine = new SplitEngine();
+  private long total;
+  private long[] shares;
+  private long[] out;
+
+  /** Build the participants' shares with a fixed seed. */
+  @Setup
+  public void setUp() {
+    Random random = new Random(participants);
+    total = 1_234_574L * UNIT / 100; // 12,345.74
+    shares = new long[participants];
+    out = new long[participants];
+    switch (method) {
+      case "PERCENT":
+        // 100% at two decimals, spread unevenly so remainders differ
+        long left = 10_000;
+        for (int i = 0; i < participants - 1; i++) {
+          long pct = Math.max(0, Math.min(left, left / (participants - i) + random.nextInt(3) - 1));
+          shares[i] = pct * UNIT / 100;
+          left -= pct;
+        }
+        shares[participants - 1] = left * UNIT / 100;
+        break;
+      case "WEIGHT":
+        for (int i = 0; i < participants; i++) {
+          shares[i] = (1 + random.nextInt(20)) * UNIT / 2;
+        }
+        break;
+      case "EXACT":
+        long each = total / participants / 1_000_000 * 1_000_000;
+        for (int i = 0; i < participants; i++) {
+          shares[i] = each;
+        }
+        shares[participants - 1] += total - each * participants;
+        break;
+      default:
+        break;
+    }
+  }
+
+  @Benchmark
+  public long[] shares() {
+    engine.shares(method, total, shares, participants, out);
+    return out;
+  }
+
+  @Benchmark
+  public long[] split() {
+    engine.shares(method, total, shares, participants, out);
+    int scale = SplitEngine.scaleFor(total, 2, RoundingMode.HALF_UP);
+    long tail = SplitEngine.round(out, participants, total, 2, RoundingMode.HALF_UP, scale);
+    out[0] += tail;
+    return out;
+  }
+}
@@ -0,0 +1,33 @@
+package dev.coms4156.project.groupproject.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** Bounded pool running bulk transaction imports in the background. */
+@Configuration
+public class ImportExecutorConfig {
+
+  /**
+   * Fixed-size pool for import jobs. Each job holds one DB connection per chunk, so the pool is
+   * kept small; jobs beyond it wait in the queue as PENDING.
+   *
+   * @param parallelism number of jobs running at once
+   * @return executor service, shut down with the context
+   */
+  @Bean(name = "importExecutor", destroyMethod = "shutdown")
+  public ExecutorService importExecutor(@Value("${ledger.import.parallelism:2}") int parallelism) {
+    AtomicInteger count = new AtomicInteger();
+    ThreadFactory threads =
+        task -> {
+          Thread thread = new Thread(task, "import-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        };
+    return Executors.newFixedThreadPool(Math.max(1, parallelism), threads);
+  }
+}
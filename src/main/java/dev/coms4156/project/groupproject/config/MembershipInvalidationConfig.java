@@ -0,0 +1,84 @@
+package dev.coms4156.project.groupproject.config;
+
+import dev.coms4156.project.groupproject.utils.LedgerMembershipCache;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Redis subscription that keeps every instance's membership cache in step. The listener is not
+ * started with the context, so an unreachable Redis does not block startup; {@link #subscribe()}
+ * starts it and keeps retrying until it listens. Until then the cache TTL bounds staleness.
+ */
+@Configuration
+public class MembershipInvalidationConfig {
+  private static final Logger log = LoggerFactory.getLogger(MembershipInvalidationConfig.class);
+
+  private final ObjectProvider<RedisMessageListenerContainer> listener;
+
+  /**
+   * Constructor for MembershipInvalidationConfig.
+   *
+   * @param listener the listener container defined below, resolved when first subscribed
+   */
+  @Autowired
+  public MembershipInvalidationConfig(
+      @Qualifier("membershipInvalidationListener")
+          ObjectProvider<RedisMessageListenerContainer> listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Listen for membership invalidations published by any instance and evict them locally.
+   *
+   * @param connectionFactory Redis connection factory
+   * @param membershipCache cache the invalidations apply to
+   * @return listener container, started by {@link #subscribe()} and stopped with the context
+   */
+  @Bean
+  public RedisMessageListenerContainer membershipInvalidationListener(
+      RedisConnectionFactory connectionFactory, LedgerMembershipCache membershipCache) {
+    RedisMessageListenerContainer container =
+        new RedisMessageListenerContainer() {
+          @Override
+          public boolean isAutoStartup() {
+            return false;
+          }
+        };
+    container.setConnectionFactory(connectionFactory);
+    container.addMessageListener(
+        (message, pattern) ->
+            membershipCache.onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+        new ChannelTopic(LedgerMembershipCache.INVALIDATION_CHANNEL));
+    return container;
+  }
+
+  /** Start the listener if it is not listening, on startup and then on the configured delay. */
+  @Scheduled(
+      fixedDelayString = "${ledger.membership-cache.subscribe-retry-seconds:30}",
+      timeUnit = TimeUnit.SECONDS)
+  public void subscribe() {
+    RedisMessageListenerContainer container = listener.getObject();
+    if (container.isListening()) {
+      return;
+    }
+    try {
+      // A failed start leaves the container marked running, so reset it before starting again
+      container.stop();
+      container.start();
+      log.info("Subscribed to membership invalidations");
+    } catch (RuntimeException e) {
+      log.warn("Membership invalidation subscribe failed, will retry: {}", e.getMessage());
+    }
+  }
+}
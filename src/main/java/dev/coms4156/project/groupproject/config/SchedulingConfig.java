@@ -0,0 +1,9 @@
+package dev.coms4156.project.groupproject.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/** Enables {@code @Scheduled} background jobs. Each job is disabled unless its cron is set. */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {}
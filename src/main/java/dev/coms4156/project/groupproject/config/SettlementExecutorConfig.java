@@ -0,0 +1,34 @@
+package dev.coms4156.project.groupproject.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** Bounded pool for computing settlement plans of several ledgers at once. */
+@Configuration
+public class SettlementExecutorConfig {
+
+  /**
+   * Fixed-size pool shared by settlement work that fans out over ledgers. Tasks read the database,
+   * so the pool is kept small and separate from the common fork-join pool.
+   *
+   * @param parallelism number of worker threads
+   * @return executor service, shut down with the context
+   */
+  @Bean(name = "settlementExecutor", destroyMethod = "shutdown")
+  public ExecutorService settlementExecutor(
+      @Value("${ledger.settlement.parallelism:4}") int parallelism) {
+    AtomicInteger count = new AtomicInteger();
+    ThreadFactory threads =
+        task -> {
+          Thread thread = new Thread(task, "settlement-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        };
+    return Executors.newFixedThreadPool(Math.max(1, parallelism), threads);
+  }
+}
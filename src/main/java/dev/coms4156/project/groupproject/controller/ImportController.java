@@ -0,0 +1,91 @@
+package dev.coms4156.project.groupproject.controller;
+
+import dev.coms4156.project.groupproject.dto.ImportJobResponse;
+import dev.coms4156.project.groupproject.dto.Result;
+import dev.coms4156.project.groupproject.service.ImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.IOException;
+import java.io.InputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+/** Controller for bulk transaction imports. Files are imported asynchronously as import jobs. */
+@RestController
+@RequestMapping("/api/v1/ledgers/{ledgerId}/imports")
+@Tag(name = "Import APIs")
+@SecurityRequirement(name = "X-Auth-Token")
+public class ImportController {
+
+  private final ImportService importService;
+
+  @Autowired
+  public ImportController(ImportService importService) {
+    this.importService = importService;
+  }
+
+  /**
+   * Upload a CSV or NDJSON file of transactions and import it in the background.
+   *
+   * @param ledgerId ledger ID
+   * @param format input format, CSV or NDJSON
+   * @param file file to import
+   * @return the queued import job
+   */
+  @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  @Operation(
+      summary = "Start a bulk transaction import",
+      description =
+          "Queue a CSV or NDJSON file for import. Rows are validated and written in chunks; "
+              + "poll the returned job for progress and rejected rows.")
+  public Result<ImportJobResponse> startImport(
+      @Parameter(description = "Ledger ID", example = "456", required = true)
+          @PathVariable("ledgerId")
+          Long ledgerId,
+      @Parameter(description = "Input format: CSV or NDJSON", example = "CSV")
+          @RequestParam(value = "format", defaultValue = "CSV")
+          String format,
+      @Parameter(description = "File to import", required = true) @RequestParam("file")
+          MultipartFile file) {
+
+    try (InputStream content = file.getInputStream()) {
+      return Result.ok(importService.startImport(ledgerId, format, content));
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read import file", e);
+    }
+  }
+
+  /**
+   * Get the progress of an import job.
+   *
+   * @param ledgerId ledger ID
+   * @param jobId import job ID
+   * @return job status, row counts and rejected rows
+   */
+  @GetMapping("/{jobId}")
+  @Operation(
+      summary = "Get import job status",
+      description = "Get the status, row counts and first rejected rows of an import job.")
+  public Result<ImportJobResponse> getImportJob(
+      @Parameter(description = "Ledger ID", example = "456", required = true)
+          @PathVariable("ledgerId")
+          Long ledgerId,
+      @Parameter(description = "Import job ID", example = "42", required = true)
+          @PathVariable("jobId")
+          Long jobId) {
+
+    return Result.ok(importService.getImportJob(ledgerId, jobId));
+  }
+}
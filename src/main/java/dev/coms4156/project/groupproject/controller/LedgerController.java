@@ -1,14 +1,23 @@
 package dev.coms4156.project.groupproject.controller;
 
 import dev.coms4156.project.groupproject.dto.AddLedgerMemberRequest;
+import dev.coms4156.project.groupproject.dto.BalanceRebuildReport;
+import dev.coms4156.project.groupproject.dto.ChangeFeedResponse;
 import dev.coms4156.project.groupproject.dto.CreateLedgerRequest;
+import dev.coms4156.project.groupproject.dto.ExecuteSettlementRequest;
+import dev.coms4156.project.groupproject.dto.GlobalSettleUpRequest;
+import dev.coms4156.project.groupproject.dto.GlobalSettleUpResponse;
 import dev.coms4156.project.groupproject.dto.LedgerMemberResponse;
 import dev.coms4156.project.groupproject.dto.LedgerResponse;
 import dev.coms4156.project.groupproject.dto.ListLedgerMembersResponse;
 import dev.coms4156.project.groupproject.dto.MyLedgersResponse;
 import dev.coms4156.project.groupproject.dto.Result;
+import dev.coms4156.project.groupproject.dto.SettlementComparisonRequest;
+import dev.coms4156.project.groupproject.dto.SettlementComparisonResponse;
 import dev.coms4156.project.groupproject.dto.SettlementConfig;
+import dev.coms4156.project.groupproject.dto.SettlementExecutionResponse;
 import dev.coms4156.project.groupproject.dto.SettlementPlanResponse;
+import dev.coms4156.project.groupproject.service.ChangeFeedService;
 import dev.coms4156.project.groupproject.service.LedgerService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -22,6 +31,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -33,10 +43,12 @@ import org.springframework.web.bind.annotation.RestController;
 public class LedgerController {
 
   private final LedgerService ledgerService;
+  private final ChangeFeedService changeFeedService;
 
   @Autowired
-  public LedgerController(LedgerService ledgerService) {
+  public LedgerController(LedgerService ledgerService, ChangeFeedService changeFeedService) {
     this.ledgerService = ledgerService;
+    this.changeFeedService = changeFeedService;
   }
 
   @PostMapping
@@ -72,6 +84,29 @@ public class LedgerController {
     return Result.ok(ledgerService.listMembers(ledgerId));
   }
 
+  /**
+   * Changes to a ledger's transactions, members and budgets after a sequence number.
+   *
+   * @param ledgerId the ID of the ledger
+   * @param since last sequence number the client has applied
+   * @param limit maximum number of changes
+   * @return changes in sequence order
+   */
+  @GetMapping("/{ledgerId}/changes")
+  @Operation(
+      summary = "Ledger change feed",
+      description =
+          "Returns transaction, member and budget changes after 'since' in sequence order, "
+              + "each an UPSERT with the entity's new state or a DELETE. Apply them in order "
+              + "and pass nextSince on the next call; while hasMore is true another page is "
+              + "waiting. Private transactions follow the usual visibility rules.")
+  public Result<ChangeFeedResponse> listChanges(
+      @PathVariable Long ledgerId,
+      @RequestParam(value = "since", defaultValue = "0") Long since,
+      @RequestParam(value = "limit", defaultValue = "200") Integer limit) {
+    return Result.ok(changeFeedService.listChanges(ledgerId, since, limit));
+  }
+
   @DeleteMapping("/{ledgerId}/members/{userId}")
   @ResponseStatus(HttpStatus.NO_CONTENT)
   @Operation(summary = "Remove a member from a ledger")
@@ -80,6 +115,25 @@ public class LedgerController {
     return Result.ok();
   }
 
+  /**
+   * Nets the current user's positions across all of their group ledgers.
+   *
+   * @param req target currency and conversion rates
+   * @return consolidated transfers with per-ledger allocations
+   */
+  @PostMapping("/settle-up")
+  @Operation(
+      summary = "Settle up across all ledgers",
+      description =
+          "Computes the settlement plan of every GROUP_BALANCE ledger the current user belongs "
+              + "to and nets the user's transfers per counterparty into one transfer each, "
+              + "converted to the requested currency. Each transfer lists the ledger plan "
+              + "amounts it settles.")
+  public Result<GlobalSettleUpResponse> getGlobalSettleUp(
+      @Valid @RequestBody GlobalSettleUpRequest req) {
+    return Result.ok(ledgerService.getGlobalSettleUp(req));
+  }
+
   @GetMapping("/{ledgerId}/settlement-plan")
   @Operation(
       summary = "Get minimal settlement plan for N-party debts",
@@ -113,4 +167,63 @@ public class LedgerController {
     }
     return Result.ok(ledgerService.getSettlementPlan(ledgerId));
   }
+
+  /**
+   * Evaluates several settlement configurations side by side.
+   *
+   * @param ledgerId the ID of the ledger
+   * @param req configurations to evaluate
+   * @return one plan per configuration with its metrics
+   */
+  @PostMapping("/{ledgerId}/settlement-plan/compare")
+  @Operation(
+      summary = "Compare settlement plans under several configurations",
+      description =
+          "Loads the ledger's net balances once and solves every configuration in parallel. "
+              + "Returns the plans in request order with transfer count, total volume and solve "
+              + "time. Nothing is cached or recorded.")
+  public Result<SettlementComparisonResponse> compareSettlementPlans(
+      @PathVariable Long ledgerId, @Valid @RequestBody SettlementComparisonRequest req) {
+    return Result.ok(ledgerService.compareSettlementPlans(ledgerId, req));
+  }
+
+  /**
+   * Executes the ledger's settlement plan at a given plan version.
+   *
+   * @param ledgerId the ID of the ledger
+   * @param req plan version, settlement config and payment details
+   * @return recorded settlements
+   */
+  @PostMapping("/{ledgerId}/settlement-plan/execute")
+  @Operation(
+      summary = "Execute settlement plan",
+      description =
+          "Records every transfer of the settlement plan computed at plan_version as a "
+              + "settlement and cancels the settled debts, all in one transaction. Repeating the "
+              + "call for an executed version returns the recorded batch. "
+              + "Only OWNER or ADMIN can call this.")
+  public Result<SettlementExecutionResponse> executeSettlementPlan(
+      @PathVariable Long ledgerId, @Valid @RequestBody ExecuteSettlementRequest req) {
+    return Result.ok(ledgerService.executeSettlementPlan(ledgerId, req));
+  }
+
+  /**
+   * Verifies the ledger's materialized member balances against its debt edges and repairs drift.
+   *
+   * @param ledgerId the ID of the ledger
+   * @param dryRun if true, only report drift without writing
+   * @return drift report
+   */
+  @PostMapping("/{ledgerId}/balances/rebuild")
+  @Operation(
+      summary = "Verify and rebuild member balances",
+      description =
+          "Recomputes per-member net balances from debt edges, reports any drift from the "
+              + "stored balances and overwrites drifted rows unless dry_run is set. "
+              + "Only OWNER or ADMIN can call this.")
+  public Result<BalanceRebuildReport> rebuildBalances(
+      @PathVariable Long ledgerId,
+      @RequestParam(value = "dry_run", defaultValue = "false") boolean dryRun) {
+    return Result.ok(ledgerService.rebuildBalances(ledgerId, dryRun));
+  }
 }
@@ -1,23 +1,30 @@
 package dev.coms4156.project.groupproject.controller;
 
+import dev.coms4156.project.groupproject.dto.BulkDeleteTransactionsResponse;
 import dev.coms4156.project.groupproject.dto.CreateTransactionRequest;
 import dev.coms4156.project.groupproject.dto.CreateTransactionResponse;
 import dev.coms4156.project.groupproject.dto.ListTransactionsResponse;
 import dev.coms4156.project.groupproject.dto.Result;
 import dev.coms4156.project.groupproject.dto.TransactionResponse;
+import dev.coms4156.project.groupproject.dto.UpdateTransactionRequest;
+import dev.coms4156.project.groupproject.dto.UpdateTransactionResponse;
 import dev.coms4156.project.groupproject.service.TransactionService;
+import dev.coms4156.project.groupproject.utils.IdempotencyStore;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -34,16 +41,21 @@ import org.springframework.web.bind.annotation.RestController;
 public class TransactionController {
 
   private final TransactionService transactionService;
+  private final IdempotencyStore idempotencyStore;
 
   @Autowired
-  public TransactionController(TransactionService transactionService) {
+  public TransactionController(
+      TransactionService transactionService, IdempotencyStore idempotencyStore) {
     this.transactionService = transactionService;
+    this.idempotencyStore = idempotencyStore;
   }
 
   /**
-   * Create a new transaction with splits and debt edges.
+   * Create a new transaction with splits and debt edges. A retry carrying the same Idempotency-Key
+   * returns the first response instead of creating the transaction again.
    *
    * @param ledgerId ledger ID
+   * @param idempotencyKey optional client-generated key identifying this create
    * @param request transaction creation request
    * @return created transaction response
    */
@@ -58,9 +70,20 @@ public class TransactionController {
       @Parameter(description = "Ledger ID", example = "456", required = true)
           @PathVariable("ledgerId")
           Long ledgerId,
+      @Parameter(description = "Client-generated key; retries with the same key are deduplicated")
+          @RequestHeader(value = IdempotencyStore.HEADER, required = false)
+          String idempotencyKey,
       @Valid @RequestBody CreateTransactionRequest request) {
 
-    CreateTransactionResponse response = transactionService.createTransaction(ledgerId, request);
+    CreateTransactionResponse response =
+        idempotencyKey == null
+            ? transactionService.createTransaction(ledgerId, request)
+            : idempotencyStore.execute(
+                "transactions:" + ledgerId,
+                idempotencyKey,
+                request.toString(),
+                CreateTransactionResponse.class,
+                () -> transactionService.createTransaction(ledgerId, request));
     return Result.ok(response);
   }
 
@@ -97,6 +120,9 @@ public class TransactionController {
    * @param toDate end date filter (ISO 8601 format)
    * @param type transaction type filter (EXPENSE, INCOME, LOAN)
    * @param createdBy created by user ID filter
+   * @param cursor next-cursor of the previous page; switches to keyset paging when present
+   * @param includeTotal whether cursor mode also counts all matching transactions
+   * @param include details to attach to each item: splits, edges
    * @return paginated transaction list
    */
   @GetMapping
@@ -104,7 +130,10 @@ public class TransactionController {
       summary = "List transactions",
       description =
           "Get paginated list of transactions with optional filtering by date, type, "
-              + "creator, and category.")
+              + "creator, and category. Pass cursor (empty for the first page) to page by "
+              + "keyset instead of offset and follow nextCursor; the total is then only "
+              + "computed with include_total=true. Pass include=splits,edges to attach each "
+              + "item's splits and debt edges, loaded for the whole page at once.")
   public Result<ListTransactionsResponse> listTransactions(
       @Parameter(description = "Ledger ID", example = "456", required = true)
           @PathVariable("ledgerId")
@@ -126,19 +155,127 @@ public class TransactionController {
           String type,
       @Parameter(description = "Created by user ID filter", example = "111")
           @RequestParam(value = "created_by", required = false)
-          Long createdBy) {
+          Long createdBy,
+      @Parameter(description = "Keyset cursor (empty for the first page)", example = "")
+          @RequestParam(value = "cursor", required = false)
+          String cursor,
+      @Parameter(description = "Count all matches in cursor mode", example = "false")
+          @RequestParam(value = "include_total", defaultValue = "false")
+          boolean includeTotal,
+      @Parameter(description = "Details to attach to each item: splits, edges", example = "splits")
+          @RequestParam(value = "include", required = false)
+          List<String> include) {
 
     // Validate page size
     if (size > 200) {
       size = 200;
     }
 
+    if (cursor != null) {
+      return Result.ok(
+          transactionService.listTransactionsAfter(
+              ledgerId, cursor, size, fromDate, toDate, type, createdBy, includeTotal, include));
+    }
+
     ListTransactionsResponse response =
         transactionService.listTransactions(
-            ledgerId, page, size, fromDate, toDate, type, createdBy);
+            ledgerId, page, size, fromDate, toDate, type, createdBy, include);
     return Result.ok(response);
   }
 
+  /**
+   * Search transaction notes.
+   *
+   * @param ledgerId ledger ID
+   * @param query words to find; each must start a word of the note
+   * @param size page size (max: 200, default: 50)
+   * @param fromDate start date filter (ISO 8601 format)
+   * @param toDate end date filter (ISO 8601 format)
+   * @param type transaction type filter (EXPENSE, INCOME, LOAN)
+   * @param createdBy created by user ID filter
+   * @param cursor next-cursor of the previous page; omit for the first page
+   * @param include details to attach to each item: splits, edges
+   * @return page of matching transactions, newest first
+   */
+  @GetMapping("/search")
+  @Operation(
+      summary = "Search transactions",
+      description =
+          "Find transactions whose note contains every word of q, each as a word prefix "
+              + "('star cof' matches 'Starbucks coffee'); case and punctuation are ignored. "
+              + "Combines with the list filters and pages by keyset like the list endpoint: "
+              + "follow nextCursor.")
+  public Result<ListTransactionsResponse> searchTransactions(
+      @Parameter(description = "Ledger ID", example = "456", required = true)
+          @PathVariable("ledgerId")
+          Long ledgerId,
+      @Parameter(description = "Search text", example = "coffee", required = true)
+          @RequestParam("q")
+          String query,
+      @Parameter(description = "Page size (max 200)", example = "50")
+          @RequestParam(value = "size", defaultValue = "50")
+          Integer size,
+      @Parameter(description = "Start date filter (ISO 8601)", example = "2025-10-01T00:00:00")
+          @RequestParam(value = "from", required = false)
+          String fromDate,
+      @Parameter(description = "End date filter (ISO 8601)", example = "2025-10-31T23:59:59")
+          @RequestParam(value = "to", required = false)
+          String toDate,
+      @Parameter(description = "Transaction type filter", example = "EXPENSE")
+          @RequestParam(value = "type", required = false)
+          String type,
+      @Parameter(description = "Created by user ID filter", example = "111")
+          @RequestParam(value = "created_by", required = false)
+          Long createdBy,
+      @Parameter(description = "Keyset cursor of the next page", example = "")
+          @RequestParam(value = "cursor", required = false)
+          String cursor,
+      @Parameter(description = "Details to attach to each item: splits, edges", example = "splits")
+          @RequestParam(value = "include", required = false)
+          List<String> include) {
+
+    return Result.ok(
+        transactionService.searchTransactions(
+            ledgerId,
+            query,
+            cursor,
+            Math.min(size, 200),
+            fromDate,
+            toDate,
+            type,
+            createdBy,
+            include));
+  }
+
+  /**
+   * Partially update a transaction. Splits and debt edges are recomputed and only changed rows are
+   * written.
+   *
+   * @param ledgerId ledger ID
+   * @param transactionId transaction ID
+   * @param request fields to change
+   * @return rows written or removed and an optional budget alert
+   */
+  @PatchMapping("/{transactionId}")
+  @Operation(
+      summary = "Update transaction",
+      description =
+          "Change any subset of a transaction's fields. Omitted fields keep their value; "
+              + "'splits', when present, replaces the whole split. Only split and debt edge "
+              + "rows whose values change are written, and balances move by the difference. "
+              + "Only creator or OWNER/ADMIN can update transactions.")
+  public Result<UpdateTransactionResponse> updateTransaction(
+      @Parameter(description = "Ledger ID", example = "456", required = true)
+          @PathVariable("ledgerId")
+          Long ledgerId,
+      @Parameter(description = "Transaction ID", example = "1001", required = true)
+          @PathVariable("transactionId")
+          Long transactionId,
+      @Valid @RequestBody UpdateTransactionRequest request) {
+
+    return Result.ok(transactionService.updateTransaction(ledgerId, transactionId, request));
+  }
+
   /**
    * Delete a transaction and its associated splits and debt edges.
    *
@@ -163,4 +300,43 @@ public class TransactionController {
     transactionService.deleteTransaction(ledgerId, transactionId);
     return Result.ok();
   }
+
+  /**
+   * Delete every transaction matching the listing filters.
+   *
+   * @param ledgerId ledger ID
+   * @param fromDate start date filter
+   * @param toDate end date filter
+   * @param type transaction type filter
+   * @param createdBy created by user ID filter
+   * @return number of transactions deleted
+   */
+  @DeleteMapping
+  @Operation(
+      summary = "Bulk delete transactions",
+      description =
+          "Delete every transaction matching the same filters as the listing, together with "
+              + "its splits and debt edges, in chunks that each commit on their own. At least "
+              + "one filter is required. OWNER/ADMIN may delete any member's transactions; "
+              + "other members only their own.")
+  public Result<BulkDeleteTransactionsResponse> deleteTransactions(
+      @Parameter(description = "Ledger ID", example = "456", required = true)
+          @PathVariable("ledgerId")
+          Long ledgerId,
+      @Parameter(description = "Start date filter (ISO 8601)", example = "2025-10-01T00:00:00")
+          @RequestParam(value = "from", required = false)
+          String fromDate,
+      @Parameter(description = "End date filter (ISO 8601)", example = "2025-10-31T23:59:59")
+          @RequestParam(value = "to", required = false)
+          String toDate,
+      @Parameter(description = "Transaction type filter", example = "EXPENSE")
+          @RequestParam(value = "type", required = false)
+          String type,
+      @Parameter(description = "Created by user ID filter", example = "111")
+          @RequestParam(value = "created_by", required = false)
+          Long createdBy) {
+
+    return Result.ok(
+        transactionService.deleteTransactions(ledgerId, fromDate, toDate, type, createdBy));
+  }
 }
@@ -0,0 +1,46 @@
+package dev.coms4156.project.groupproject.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Result of verifying (and optionally rebuilding) a ledger's materialized member balances. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Drift report for materialized ledger member balances")
+public class BalanceRebuildReport {
+  @Schema(description = "Ledger ID", example = "456")
+  private Long ledgerId;
+
+  @Schema(description = "Number of members whose balance was checked", example = "5")
+  private Integer membersChecked;
+
+  @Schema(description = "Number of members whose stored balance drifted", example = "1")
+  private Integer driftCount;
+
+  @Schema(description = "Whether drifted balances were overwritten with recomputed values")
+  private Boolean repaired;
+
+  @Schema(description = "Members whose stored balance differs from the debt edge total")
+  private List<DriftItem> drifts;
+
+  /** A single member whose stored balance differs from the recomputed one. */
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @Schema(description = "Balance drift for one member")
+  public static class DriftItem {
+    @Schema(description = "User ID", example = "111")
+    private Long userId;
+
+    @Schema(description = "Balance stored in ledger_user_balances", example = "20.00")
+    private BigDecimal storedAmount;
+
+    @Schema(description = "Balance recomputed from debt_edges", example = "25.00")
+    private BigDecimal recomputedAmount;
+  }
+}
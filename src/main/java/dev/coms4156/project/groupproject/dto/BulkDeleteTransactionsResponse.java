@@ -0,0 +1,16 @@
+package dev.coms4156.project.groupproject.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/** Response for a bulk transaction delete. */
+@Data
+@Schema(description = "Response for bulk transaction delete")
+public class BulkDeleteTransactionsResponse {
+
+  @Schema(description = "Transactions deleted", example = "1200")
+  private Long deleted;
+
+  @Schema(description = "DB transactions the delete was split into", example = "3")
+  private Integer chunks;
+}
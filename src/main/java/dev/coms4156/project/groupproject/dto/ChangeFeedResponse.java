@@ -0,0 +1,53 @@
+package dev.coms4156.project.groupproject.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.Data;
+
+/** A page of a ledger's change feed. */
+@Data
+@Schema(description = "Changes of a ledger after a sequence number")
+public class ChangeFeedResponse {
+
+  @Schema(description = "Changes in sequence order")
+  private List<ChangeItem> changes;
+
+  @Schema(description = "Pass as 'since' on the next call", example = "1042")
+  private Long nextSince;
+
+  @Schema(description = "Whether more changes are waiting beyond this page", example = "false")
+  private Boolean hasMore;
+
+  /** One change: which entity, what happened, and for an UPSERT its new state. */
+  @Data
+  @Schema(description = "Single change feed entry")
+  public static class ChangeItem {
+
+    @Schema(description = "Sequence number within the ledger", example = "1041")
+    private Long seq;
+
+    @Schema(description = "TRANSACTION, MEMBER or BUDGET", example = "TRANSACTION")
+    private String entityType;
+
+    @Schema(description = "Transaction ID, member user ID or budget ID", example = "1001")
+    private Long entityId;
+
+    @Schema(description = "UPSERT or DELETE", example = "UPSERT")
+    private String op;
+
+    @Schema(description = "User who made the change", example = "111")
+    private Long actorId;
+
+    @Schema(description = "When the change was made", example = "2025-10-10T20:15:00")
+    private LocalDateTime changedAt;
+
+    @JsonRawValue
+    @Schema(
+        description =
+            "Entity after an UPSERT: TransactionSummary, LedgerMemberResponse or budget; null"
+                + " for DELETE")
+    private String data;
+  }
+}
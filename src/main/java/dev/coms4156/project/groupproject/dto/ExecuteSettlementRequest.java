@@ -0,0 +1,36 @@
+package dev.coms4156.project.groupproject.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/** Request DTO for executing a ledger's settlement plan. */
+@Data
+@Schema(description = "Request to execute the settlement plan at a given plan version")
+public class ExecuteSettlementRequest {
+
+  @NotNull(message = "Plan version is required")
+  @Schema(
+      description = "Plan version returned with the settlement plan being executed",
+      example = "17",
+      required = true)
+  private Long planVersion;
+
+  @Schema(description = "Settlement configuration the plan was computed with (optional)")
+  private SettlementConfig config;
+
+  @Pattern(
+      regexp = "CASH|BANK|THIRD_PARTY|OTHER",
+      message = "Method must be CASH, BANK, THIRD_PARTY, or OTHER")
+  @Schema(
+      description = "Payment method recorded on every settlement",
+      example = "BANK",
+      allowableValues = {"CASH", "BANK", "THIRD_PARTY", "OTHER"})
+  private String method;
+
+  @Size(max = 500, message = "Note must be at most 500 characters")
+  @Schema(description = "Note recorded on every settlement", example = "Trip settle-up")
+  private String note;
+}
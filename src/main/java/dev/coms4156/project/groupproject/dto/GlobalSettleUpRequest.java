@@ -0,0 +1,27 @@
+package dev.coms4156.project.groupproject.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import java.math.BigDecimal;
+import java.util.Map;
+import lombok.Data;
+
+/** Request DTO for settling up with every counterparty across all of a user's ledgers. */
+@Data
+@Schema(description = "Request to net the current user's positions across all group ledgers")
+public class GlobalSettleUpRequest {
+
+  @NotNull(message = "Currency is required")
+  @Pattern(regexp = "[A-Z]{3}", message = "Currency must be a 3-letter code")
+  @Schema(description = "Currency of the consolidated transfers", example = "USD", required = true)
+  private String currency;
+
+  @Schema(
+      description =
+          "Conversion rates from each ledger's base currency (fromCurrency-toCurrency -> rate); "
+              + "the reverse rate is used when only that one is given, and the server-side "
+              + "exchange rates when neither is",
+      example = "{\"EUR-USD\": 1.08}")
+  private Map<String, BigDecimal> currencyRates;
+}
@@ -0,0 +1,81 @@
+package dev.coms4156.project.groupproject.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Response for a user's consolidated settle-up across all shared group ledgers. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "One net transfer per counterparty across every shared group ledger")
+public class GlobalSettleUpResponse {
+  @Schema(description = "User the plan is for", example = "111")
+  private Long userId;
+
+  @Schema(description = "Currency of the consolidated transfers", example = "USD")
+  private String currency;
+
+  @Schema(description = "Number of group ledgers included", example = "10")
+  private Integer ledgerCount;
+
+  @Schema(description = "Total number of consolidated transfers", example = "2")
+  private Integer transferCount;
+
+  @Schema(description = "Consolidated transfers, each with its per-ledger allocation")
+  private List<Transfer> transfers;
+
+  /** Net transfer between the user and one counterparty. */
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @Schema(description = "Net transfer between the user and one counterparty")
+  public static class Transfer {
+    @Schema(description = "Payer user ID (who pays)", example = "222")
+    private Long fromUserId;
+
+    @Schema(description = "Payer user name", example = "Bob")
+    private String fromUserName;
+
+    @Schema(description = "Receiver user ID (who receives)", example = "111")
+    private Long toUserId;
+
+    @Schema(description = "Receiver user name", example = "Alice")
+    private String toUserName;
+
+    @Schema(description = "Transfer amount in the requested currency", example = "42.50")
+    private BigDecimal amount;
+
+    @Schema(description = "Ledger plan transfers this net transfer settles")
+    private List<Allocation> allocations;
+  }
+
+  /** Share of one ledger in a consolidated transfer. */
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @Schema(description = "Share of one ledger in a consolidated transfer")
+  public static class Allocation {
+    @Schema(description = "Ledger ID", example = "456")
+    private Long ledgerId;
+
+    @Schema(description = "Ledger name", example = "Ski trip")
+    private String ledgerName;
+
+    @Schema(description = "Ledger base currency", example = "EUR")
+    private String ledgerCurrency;
+
+    @Schema(
+        description =
+            "Ledger plan amount in the ledger currency: positive in the direction of the "
+                + "consolidated transfer, negative if it was netted against it",
+        example = "30.00")
+    private BigDecimal amount;
+
+    @Schema(description = "Amount converted to the requested currency", example = "32.40")
+    private BigDecimal convertedAmount;
+  }
+}
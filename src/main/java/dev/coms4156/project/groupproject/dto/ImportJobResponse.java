@@ -0,0 +1,64 @@
+package dev.coms4156.project.groupproject.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Status and progress of a bulk transaction import. */
+@Data
+@Schema(description = "Status and progress of a bulk transaction import")
+public class ImportJobResponse {
+  @Schema(description = "Import job ID", example = "42")
+  private Long jobId;
+
+  @Schema(description = "Ledger ID", example = "456")
+  private Long ledgerId;
+
+  @Schema(
+      description = "Input format",
+      example = "CSV",
+      allowableValues = {"CSV", "NDJSON"})
+  private String sourceType;
+
+  @Schema(
+      description = "Job status",
+      example = "RUNNING",
+      allowableValues = {"PENDING", "RUNNING", "COMPLETED", "FAILED"})
+  private String status;
+
+  @Schema(description = "Data rows read so far", example = "1500")
+  private Integer totalRows;
+
+  @Schema(description = "Rows written as transactions", example = "1497")
+  private Integer importedRows;
+
+  @Schema(description = "Rows rejected by validation", example = "3")
+  private Integer failedRows;
+
+  @Schema(description = "First rejected rows; an entry without a row number failed the whole job")
+  private List<RowError> errors;
+
+  @Schema(description = "When the job was submitted")
+  private LocalDateTime createdAt;
+
+  @Schema(description = "When the job completed or failed")
+  private LocalDateTime finishedAt;
+
+  /** One rejected row, or a job-level failure when {@code row} is null. */
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @Schema(description = "Rejected import row")
+  public static class RowError {
+    @Schema(
+        description = "1-based data row number (header and blank lines excluded)",
+        example = "7")
+    private Integer row;
+
+    @Schema(description = "Why the row was rejected", example = "Currency mismatch")
+    private String message;
+  }
+}
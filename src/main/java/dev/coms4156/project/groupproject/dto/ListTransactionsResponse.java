@@ -9,15 +9,22 @@ import lombok.Data;
 @Schema(description = "Paginated list of transactions")
 public class ListTransactionsResponse {
 
-  @Schema(description = "Current page number (1-based)", example = "1")
+  @Schema(description = "Current page number (1-based); absent in cursor mode", example = "1")
   private Integer page;
 
   @Schema(description = "Page size", example = "50")
   private Integer size;
 
-  @Schema(description = "Total number of transactions", example = "123")
+  @Schema(
+      description = "Total number of transactions; in cursor mode only if include_total is set",
+      example = "123")
   private Long total;
 
+  @Schema(
+      description = "Opaque cursor of the next page in cursor mode; absent on the last page",
+      example = "MjAyNS0xMC0xMFQyMDoxNTowMHwxMDAx")
+  private String nextCursor;
+
   @Schema(description = "List of transaction summaries")
   private List<TransactionSummary> items;
 }
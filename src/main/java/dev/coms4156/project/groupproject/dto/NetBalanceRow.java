@@ -0,0 +1,12 @@
+package dev.coms4156.project.groupproject.dto;
+
+import java.math.BigDecimal;
+import lombok.Data;
+
+/** One member's net debt edge total in one currency: positive if owed, negative if owing. */
+@Data
+public class NetBalanceRow {
+  private Long userId;
+  private String edgeCurrency;
+  private BigDecimal netAmount;
+}
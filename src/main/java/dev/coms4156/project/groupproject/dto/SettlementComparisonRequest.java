@@ -0,0 +1,20 @@
+package dev.coms4156.project.groupproject.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.Data;
+
+/** Request DTO for evaluating several settlement configurations against one ledger. */
+@Data
+@Schema(description = "Settlement configurations to evaluate side by side")
+public class SettlementComparisonRequest {
+
+  @NotEmpty(message = "At least one config is required")
+  @Size(max = 16, message = "At most 16 configs can be compared at once")
+  @Schema(
+      description = "Configurations to evaluate; results come back in the same order",
+      required = true)
+  private List<SettlementConfig> configs;
+}
@@ -0,0 +1,52 @@
+package dev.coms4156.project.groupproject.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Response with one settlement plan per evaluated configuration. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Settlement plans of one ledger under several configurations")
+public class SettlementComparisonResponse {
+  @Schema(description = "Ledger ID", example = "456")
+  private Long ledgerId;
+
+  @Schema(description = "Ledger base currency", example = "USD")
+  private String currency;
+
+  @Schema(description = "Ledger plan version every variant was computed at", example = "17")
+  private Long planVersion;
+
+  @Schema(description = "One entry per requested config, in request order")
+  private List<Variant> variants;
+
+  /** Plan and its metrics under one configuration. */
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @Schema(description = "Settlement plan and its metrics under one configuration")
+  public static class Variant {
+    @Schema(description = "The evaluated configuration")
+    private SettlementConfig config;
+
+    @Schema(description = "Number of transfers in the plan", example = "4")
+    private Integer transferCount;
+
+    @Schema(description = "Sum of all transfer amounts", example = "312.50")
+    private BigDecimal totalVolume;
+
+    @Schema(description = "Wall-clock time spent solving this variant, in ms", example = "1.27")
+    private BigDecimal solveTimeMs;
+
+    @Schema(description = "Transfers of the plan")
+    private List<SettlementPlanResponse.TransferItem> transfers;
+
+    @Schema(description = "Balances the plan leaves open")
+    private List<SettlementPlanResponse.UnsettledItem> unsettled;
+  }
+}
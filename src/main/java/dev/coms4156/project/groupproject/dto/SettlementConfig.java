@@ -51,8 +51,18 @@ public class SettlementConfig {
 
   @Schema(
       description =
-          "Currency conversion rates map (fromCurrency-toCurrency -> rate). If not "
-              + "provided, assumes 1:1 for same currency or throws error for different currencies.",
+          "Settlement algorithm: AUTO (heap-greedy, with the min-cost flow options above) or EXACT "
+              + "(provably minimum number of transfers via zero-sum subset partitioning). EXACT "
+              + "falls back to AUTO for ledgers with too many non-zero members or when the solver "
+              + "runs out of time.",
+      example = "AUTO")
+  private String algorithm = "AUTO";
+
+  @Schema(
+      description =
+          "Currency conversion rates map (fromCurrency-toCurrency -> rate). Pairs not "
+              + "provided use the server-side exchange rates; a pair with no rate at all fails "
+              + "with CURRENCY_RATE_MISSING.",
       example = "{\"EUR-USD\": 1.1, \"GBP-USD\": 1.25}")
   private Map<String, BigDecimal> currencyRates;
 }
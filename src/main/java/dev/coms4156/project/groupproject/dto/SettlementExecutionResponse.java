@@ -0,0 +1,35 @@
+package dev.coms4156.project.groupproject.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Response for an executed settlement plan. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Settlements recorded for an executed settlement plan")
+public class SettlementExecutionResponse {
+  @Schema(description = "Ledger ID", example = "456")
+  private Long ledgerId;
+
+  @Schema(description = "Settlement batch ID shared by every recorded settlement", example = "12")
+  private Long batchId;
+
+  @Schema(description = "Plan version that was executed", example = "17")
+  private Long planVersion;
+
+  @Schema(description = "Currency of the settlements", example = "USD")
+  private String currency;
+
+  @Schema(
+      description =
+          "True if this plan version had already been executed and the stored batch is returned",
+      example = "false")
+  private Boolean replayed;
+
+  @Schema(description = "Recorded transfers (who paid whom how much)")
+  private List<SettlementPlanResponse.TransferItem> transfers;
+}
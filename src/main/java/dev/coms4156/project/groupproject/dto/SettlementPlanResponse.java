@@ -19,12 +19,24 @@ public class SettlementPlanResponse {
   @Schema(description = "Currency of the settlement", example = "USD")
   private String currency;
 
+  @Schema(
+      description =
+          "Ledger plan version the plan was computed at; pass it back to execute the plan",
+      example = "17")
+  private Long planVersion;
+
   @Schema(description = "Total number of transfers in the plan", example = "3")
   private Integer transferCount;
 
   @Schema(description = "List of transfer instructions (who pays whom how much)")
   private List<TransferItem> transfers;
 
+  @Schema(
+      description =
+          "Balances the plan leaves open because payment channels or the transfer cap prevent "
+              + "settling them. Empty when the plan settles everything.")
+  private List<UnsettledItem> unsettled;
+
   /** Represents a single transfer in the settlement plan. */
   @Data
   @NoArgsConstructor
@@ -46,4 +58,22 @@ public class SettlementPlanResponse {
     @Schema(description = "Transfer amount (always positive)", example = "25.50")
     private BigDecimal amount;
   }
+
+  /** Represents a balance the settlement plan could not settle. */
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @Schema(description = "Open balance left by the settlement plan")
+  public static class UnsettledItem {
+    @Schema(description = "User ID", example = "222")
+    private Long userId;
+
+    @Schema(description = "User name", example = "Bob")
+    private String userName;
+
+    @Schema(
+        description = "Open amount: positive if still owed money, negative if still owing",
+        example = "-25.00")
+    private BigDecimal amount;
+  }
 }
@@ -3,6 +3,7 @@ package dev.coms4156.project.groupproject.dto;
 import io.swagger.v3.oas.annotations.media.Schema;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 import lombok.Data;
 
 /** Summary view of a transaction for list responses. */
@@ -33,4 +34,10 @@ public class TransactionSummary {
 
   @Schema(description = "Transaction note", example = "Dinner")
   private String note;
+
+  @Schema(description = "Splits; only with include=splits")
+  private List<SplitView> splits;
+
+  @Schema(description = "Generated debt edges; only with include=edges")
+  private List<EdgePreview> edgesPreview;
 }
@@ -0,0 +1,73 @@
+package dev.coms4156.project.groupproject.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * Partial update of a transaction. Fields left null keep their current value; splits, when given,
+ * replace the whole split list.
+ */
+@Data
+@Schema(description = "Partial update of a transaction; omitted fields are left unchanged")
+public class UpdateTransactionRequest {
+
+  @Schema(description = "When the transaction occurred", example = "2025-10-10T20:15:00Z")
+  private LocalDateTime txnAt;
+
+  @Pattern(regexp = "EXPENSE|INCOME", message = "Type must be EXPENSE or INCOME")
+  @Schema(
+      description = "Transaction type",
+      example = "EXPENSE",
+      allowableValues = {"EXPENSE", "INCOME"})
+  private String type;
+
+  @Pattern(regexp = "^[A-Z]{3}$", message = "Currency must be a 3-letter code")
+  @Schema(description = "Transaction currency (ISO 4217)", example = "USD")
+  private String currency;
+
+  @DecimalMin(value = "0.01", message = "Amount must be positive")
+  @Schema(description = "Total transaction amount", example = "120.00")
+  private BigDecimal amountTotal;
+
+  @Schema(description = "Category ID", example = "1")
+  private Long categoryId;
+
+  @Size(max = 500, message = "Note cannot exceed 500 characters")
+  @Schema(description = "Transaction note", example = "Dinner", maxLength = 500)
+  private String note;
+
+  @Schema(description = "User ID who paid upfront", example = "111")
+  private Long payerId;
+
+  @Schema(description = "Whether transaction is private", example = "false")
+  private Boolean isPrivate;
+
+  @Pattern(
+      regexp = "NONE|ROUND_HALF_UP|TRIM_TO_UNIT",
+      message = "Rounding strategy must be NONE, ROUND_HALF_UP, or TRIM_TO_UNIT")
+  @Schema(
+      description = "Rounding strategy",
+      example = "ROUND_HALF_UP",
+      allowableValues = {"NONE", "ROUND_HALF_UP", "TRIM_TO_UNIT"})
+  private String roundingStrategy;
+
+  @Pattern(
+      regexp = "PAYER|LARGEST_SHARE|CREATOR",
+      message = "Tail allocation must be PAYER, LARGEST_SHARE, or CREATOR")
+  @Schema(
+      description = "Tail allocation strategy",
+      example = "PAYER",
+      allowableValues = {"PAYER", "LARGEST_SHARE", "CREATOR"})
+  private String tailAllocation;
+
+  @Valid
+  @Schema(description = "New split list; replaces the current splits when present")
+  private List<SplitItem> splits;
+}
@@ -0,0 +1,30 @@
+package dev.coms4156.project.groupproject.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/** Response for a transaction update, with the number of rows it had to write. */
+@Data
+@Schema(description = "Response for transaction update")
+public class UpdateTransactionResponse {
+
+  @Schema(description = "Updated transaction ID", example = "1001")
+  private Long transactionId;
+
+  @Schema(description = "Split rows inserted or changed", example = "1")
+  private Integer splitsWritten;
+
+  @Schema(description = "Split rows removed", example = "0")
+  private Integer splitsDeleted;
+
+  @Schema(description = "Debt edges inserted or changed", example = "1")
+  private Integer edgesWritten;
+
+  @Schema(description = "Debt edges removed", example = "0")
+  private Integer edgesDeleted;
+
+  @Schema(
+      description = "Budget alert message (null unless amount, category, date or type changed)",
+      example = "Budget warning: Food budget at 90%, approaching limit")
+  private String budgetAlert;
+}
@@ -0,0 +1,26 @@
+package dev.coms4156.project.groupproject.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * Exchange rate entity mapping table 'exchange_rates'. One unit of base currency buys {@code rate}
+ * units of quote currency from {@code effectiveFrom} until the next row for the same pair.
+ */
+@Data
+@TableName("exchange_rates")
+public class ExchangeRate {
+
+  @TableId(type = IdType.AUTO)
+  private Long id;
+
+  private String baseCurrency;
+  private String quoteCurrency;
+  private BigDecimal rate;
+  private LocalDateTime effectiveFrom;
+  private LocalDateTime createdAt;
+}
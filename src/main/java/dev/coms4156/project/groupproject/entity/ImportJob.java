@@ -0,0 +1,33 @@
+package dev.coms4156.project.groupproject.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * Import job entity mapping table 'import_jobs'. Bulk CSV/NDJSON imports move from PENDING through
+ * RUNNING to COMPLETED or FAILED and record their row counts and rejected rows as they go.
+ */
+@Data
+@TableName("import_jobs")
+public class ImportJob {
+
+  @TableId(type = IdType.AUTO)
+  private Long id;
+
+  private Long userId;
+  private Long ledgerId;
+  private String sourceType;
+  private String status;
+  private String rawPayload;
+  private String parsedJson;
+  private Integer totalRows;
+  private Integer importedRows;
+  private Integer failedRows;
+  private String errorJson;
+  private LocalDateTime finishedAt;
+  private LocalDateTime createdAt;
+  private LocalDateTime updatedAt;
+}
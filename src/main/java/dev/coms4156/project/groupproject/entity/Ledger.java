@@ -19,6 +19,8 @@ public class Ledger {
   private String ledgerType;
   private String baseCurrency;
   private LocalDate shareStartDate;
+  private Long planVersion;
+  private Boolean balancesInitialized;
   private LocalDateTime createdAt;
   private LocalDateTime updatedAt;
 }
@@ -0,0 +1,24 @@
+package dev.coms4156.project.groupproject.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * One entry of a ledger's change feed, mapping table 'ledger_changes'. An UPSERT carries the
+ * entity's state after the write as JSON; a DELETE only names the entity.
+ */
+@Data
+@TableName("ledger_changes")
+public class LedgerChange {
+  private Long ledgerId;
+  private Long seq;
+  private String entityType;
+  private Long entityId;
+  private String op;
+  private Long visibleTo;
+  private LocalDateTime txnAt;
+  private Long actorId;
+  private String payload;
+  private LocalDateTime createdAt;
+}
@@ -0,0 +1,19 @@
+package dev.coms4156.project.groupproject.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * Materialized per-user net balance mapping table 'ledger_user_balances'. Positive means the user
+ * is owed money (creditor), negative means the user owes money (debtor), in ledger base currency.
+ */
+@Data
+@TableName("ledger_user_balances")
+public class LedgerUserBalance {
+  private Long ledgerId;
+  private Long userId;
+  private BigDecimal netAmountBase;
+  private LocalDateTime recalculatedAt;
+}
@@ -0,0 +1,30 @@
+package dev.coms4156.project.groupproject.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * Settlement entity mapping table 'settlements'. Records an actual transfer from a debtor
+ * (from_user_id) to a creditor (to_user_id) made while settling up.
+ */
+@Data
+@TableName("settlements")
+public class Settlement {
+
+  @TableId(type = IdType.AUTO)
+  private Long id;
+
+  private Long ledgerId;
+  private Long fromUserId; // Payer
+  private Long toUserId; // Receiver
+  private BigDecimal amount;
+  private String currency;
+  private String method;
+  private LocalDateTime settledAt;
+  private String note;
+  private Long planBatchId;
+}
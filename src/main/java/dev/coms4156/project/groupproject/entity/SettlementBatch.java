@@ -0,0 +1,25 @@
+package dev.coms4156.project.groupproject.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * Settlement batch entity mapping table 'settlement_batches'. One row per executed settlement plan;
+ * (ledger_id, plan_version) is unique so a plan version can only be executed once.
+ */
+@Data
+@TableName("settlement_batches")
+public class SettlementBatch {
+
+  @TableId(type = IdType.AUTO)
+  private Long id;
+
+  private Long ledgerId;
+  private Long planVersion;
+  private Long executedBy;
+  private Integer transferCount;
+  private LocalDateTime createdAt;
+}
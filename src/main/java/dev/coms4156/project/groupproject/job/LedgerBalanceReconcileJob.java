@@ -0,0 +1,67 @@
+package dev.coms4156.project.groupproject.job;
+
+import dev.coms4156.project.groupproject.dto.BalanceRebuildReport;
+import dev.coms4156.project.groupproject.mapper.LedgerUserBalanceMapper;
+import dev.coms4156.project.groupproject.service.LedgerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically recomputes every ledger's member balances from debt edges and reports drift from the
+ * incrementally maintained ledger_user_balances snapshot. Runs only when {@code
+ * ledger.balances.reconcile-cron} is set; repairs drift when {@code
+ * ledger.balances.reconcile-repair} is true. Also serves as the one-off backfill for ledgers that
+ * predate the snapshot.
+ */
+@Component
+public class LedgerBalanceReconcileJob {
+  private static final Logger log = LoggerFactory.getLogger(LedgerBalanceReconcileJob.class);
+
+  private final LedgerService ledgerService;
+  private final LedgerUserBalanceMapper ledgerUserBalanceMapper;
+  private final boolean repair;
+
+  /**
+   * Constructor for LedgerBalanceReconcileJob.
+   *
+   * @param ledgerService ledger service
+   * @param ledgerUserBalanceMapper member balance mapper
+   * @param repair whether drifted balances are overwritten
+   */
+  @Autowired
+  public LedgerBalanceReconcileJob(
+      LedgerService ledgerService,
+      LedgerUserBalanceMapper ledgerUserBalanceMapper,
+      @Value("${ledger.balances.reconcile-repair:false}") boolean repair) {
+    this.ledgerService = ledgerService;
+    this.ledgerUserBalanceMapper = ledgerUserBalanceMapper;
+    this.repair = repair;
+  }
+
+  /** Reconcile all ledgers, one DB transaction per ledger. */
+  @Scheduled(cron = "${ledger.balances.reconcile-cron:-}")
+  public void run() {
+    int drifted = 0;
+    for (Long ledgerId : ledgerUserBalanceMapper.findLedgerIdsWithBalances()) {
+      try {
+        BalanceRebuildReport report = ledgerService.reconcileBalances(ledgerId, repair);
+        if (report.getDriftCount() > 0) {
+          drifted++;
+          log.warn(
+              "Ledger {} balance drift on {} member(s), repaired={}: {}",
+              ledgerId,
+              report.getDriftCount(),
+              report.getRepaired(),
+              report.getDrifts());
+        }
+      } catch (RuntimeException e) {
+        log.error("Balance reconcile failed for ledger {}", ledgerId, e);
+      }
+    }
+    log.info("Balance reconcile finished, {} ledger(s) drifted", drifted);
+  }
+}
@@ -1,7 +1,9 @@
 package dev.coms4156.project.groupproject.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import dev.coms4156.project.groupproject.dto.NetBalanceRow;
 import dev.coms4156.project.groupproject.entity.DebtEdge;
+import java.util.Collection;
 import java.util.List;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
@@ -18,6 +20,16 @@ public interface DebtEdgeMapper extends BaseMapper<DebtEdge> {
    */
   List<DebtEdge> findByTransactionId(@Param("transactionId") Long transactionId);
 
+  /**
+   * Find the debt edges of several transactions of a ledger in one query.
+   *
+   * @param ledgerId ledger ID
+   * @param transactionIds transaction IDs; must not be empty
+   * @return debt edges ordered by transaction ID, then edge ID
+   */
+  List<DebtEdge> findByLedgerAndTransactionIds(
+      @Param("ledgerId") Long ledgerId, @Param("transactionIds") Collection<Long> transactionIds);
+
   /**
    * Delete debt edges by transaction ID.
    *
@@ -26,6 +38,16 @@ public interface DebtEdgeMapper extends BaseMapper<DebtEdge> {
    */
   int deleteByTransactionId(@Param("transactionId") Long transactionId);
 
+  /**
+   * Delete the debt edges of several transactions of a ledger in one statement.
+   *
+   * @param ledgerId ledger ID
+   * @param transactionIds transaction IDs; must not be empty
+   * @return number of deleted edges
+   */
+  int deleteByLedgerAndTransactionIds(
+      @Param("ledgerId") Long ledgerId, @Param("transactionIds") Collection<Long> transactionIds);
+
   /**
    * Insert multiple debt edges in batch.
    *
@@ -34,6 +56,24 @@ public interface DebtEdgeMapper extends BaseMapper<DebtEdge> {
    */
   int insertBatch(@Param("edges") List<DebtEdge> edges);
 
+  /**
+   * Insert edges, or overwrite the amount and currency of existing ones, keyed by uk_debt_unique.
+   *
+   * @param edges edges to write
+   * @return affected row count as reported by MySQL
+   */
+  int upsertBatch(@Param("edges") List<DebtEdge> edges);
+
+  /**
+   * Delete some edges of a transaction by ID.
+   *
+   * @param transactionId transaction ID
+   * @param ids edge IDs; must not be empty
+   * @return number of deleted edges
+   */
+  int deleteByTransactionIdAndIds(
+      @Param("transactionId") Long transactionId, @Param("ids") Collection<Long> ids);
+
   /**
    * Find debt edges by ledger ID.
    *
@@ -41,4 +81,14 @@ public interface DebtEdgeMapper extends BaseMapper<DebtEdge> {
    * @return list of debt edges for the ledger
    */
   List<DebtEdge> findByLedgerId(@Param("ledgerId") Long ledgerId);
+
+  /**
+   * Sum a ledger's debt edges into per-member net amounts per edge currency. Creditors count an
+   * edge positive and debtors negative; the result has one row per (member, currency) pair however
+   * long the edge history is.
+   *
+   * @param ledgerId ledger ID
+   * @return net amounts ordered by user ID and currency
+   */
+  List<NetBalanceRow> sumNetByLedgerId(@Param("ledgerId") Long ledgerId);
 }
@@ -0,0 +1,39 @@
+package dev.coms4156.project.groupproject.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import dev.coms4156.project.groupproject.entity.ExchangeRate;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+/** MyBatis mapper for ExchangeRate entity. */
+@Mapper
+public interface ExchangeRateMapper extends BaseMapper<ExchangeRate> {
+
+  /**
+   * Latest rate of every currency pair that is in effect at a given time.
+   *
+   * @param at point in time
+   * @return one row per pair with a rate effective at {@code at}
+   */
+  @Select(
+      "SELECT r.* FROM exchange_rates r"
+          + " JOIN (SELECT base_currency, quote_currency, MAX(effective_from) AS effective_from"
+          + " FROM exchange_rates WHERE effective_from <= #{at}"
+          + " GROUP BY base_currency, quote_currency) latest"
+          + " ON r.base_currency = latest.base_currency"
+          + " AND r.quote_currency = latest.quote_currency"
+          + " AND r.effective_from = latest.effective_from")
+  List<ExchangeRate> findEffectiveAt(@Param("at") LocalDateTime at);
+
+  /**
+   * Earliest time after {@code at} at which some rate changes.
+   *
+   * @param at point in time
+   * @return next effective time, or null if no later rate is scheduled
+   */
+  @Select("SELECT MIN(effective_from) FROM exchange_rates WHERE effective_from > #{at}")
+  LocalDateTime findNextEffectiveAfter(@Param("at") LocalDateTime at);
+}
@@ -0,0 +1,9 @@
+package dev.coms4156.project.groupproject.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import dev.coms4156.project.groupproject.entity.ImportJob;
+import org.apache.ibatis.annotations.Mapper;
+
+/** MyBatis mapper for ImportJob entity. */
+@Mapper
+public interface ImportJobMapper extends BaseMapper<ImportJob> {}
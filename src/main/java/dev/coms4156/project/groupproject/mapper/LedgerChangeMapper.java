@@ -0,0 +1,42 @@
+package dev.coms4156.project.groupproject.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import dev.coms4156.project.groupproject.entity.LedgerChange;
+import java.time.LocalDate;
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/** MyBatis mapper for LedgerChange entity. */
+@Mapper
+public interface LedgerChangeMapper extends BaseMapper<LedgerChange> {
+
+  /**
+   * Insert multiple changes in batch.
+   *
+   * @param changes changes with their sequence numbers assigned
+   * @return number of inserted changes
+   */
+  int insertBatch(@Param("changes") List<LedgerChange> changes);
+
+  /**
+   * Changes of a ledger in a sequence range, filtered by the same visibility as transaction reads.
+   *
+   * @param ledgerId ledger ID
+   * @param since exclusive lower bound on seq
+   * @param upTo inclusive upper bound on seq
+   * @param currentUserId current user ID
+   * @param privileged whether the current user is an OWNER or ADMIN of the ledger
+   * @param shareStartDate ledger share start date, or null
+   * @param limit maximum number of changes
+   * @return changes ordered by seq
+   */
+  List<LedgerChange> findByLedgerAfter(
+      @Param("ledgerId") Long ledgerId,
+      @Param("since") long since,
+      @Param("upTo") long upTo,
+      @Param("currentUserId") Long currentUserId,
+      @Param("privileged") boolean privileged,
+      @Param("shareStartDate") LocalDate shareStartDate,
+      @Param("limit") int limit);
+}
@@ -2,6 +2,90 @@ package dev.coms4156.project.groupproject.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import dev.coms4156.project.groupproject.entity.Ledger;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 /** Mapper for the Ledger entity. */
-public interface LedgerMapper extends BaseMapper<Ledger> {}
+public interface LedgerMapper extends BaseMapper<Ledger> {
+
+  /**
+   * Increment the ledger's plan version so cached settlement plans for older versions stop
+   * matching. Must run in the same DB transaction as the write it covers.
+   *
+   * @param ledgerId ledger ID
+   * @return number of affected rows
+   */
+  @Update(
+      "UPDATE ledgers SET plan_version = plan_version + 1, updated_at = updated_at"
+          + " WHERE id = #{ledgerId}")
+  int bumpPlanVersion(@Param("ledgerId") Long ledgerId);
+
+  /**
+   * Read the ledger's current plan version. Called right after {@link #bumpPlanVersion} in the same
+   * DB transaction, it returns the version that write produced.
+   *
+   * @param ledgerId ledger ID
+   * @return plan version, or null if the ledger does not exist
+   */
+  @Select("SELECT plan_version FROM ledgers WHERE id = #{ledgerId}")
+  Long selectPlanVersion(@Param("ledgerId") Long ledgerId);
+
+  /**
+   * Read a ledger and lock its row until the surrounding transaction ends. Plan version bumps wait
+   * for the lock, so the version read here stays current for the rest of the transaction.
+   *
+   * @param ledgerId ledger ID
+   * @return locked ledger, or null if it does not exist
+   */
+  @Select("SELECT * FROM ledgers WHERE id = #{ledgerId} FOR UPDATE")
+  Ledger selectByIdForUpdate(@Param("ledgerId") Long ledgerId);
+
+  /**
+   * Lock the ledger row until the surrounding transaction ends and read whether its
+   * ledger_user_balances snapshot has been seeded. Every snapshot writer calls this before touching
+   * the snapshot, so seeding and delta writes never interleave.
+   *
+   * @param ledgerId ledger ID
+   * @return true once the snapshot holds every member's balance, false before, or null if the
+   *     ledger does not exist
+   */
+  @Select("SELECT balances_initialized FROM ledgers WHERE id = #{ledgerId} FOR UPDATE")
+  Boolean selectBalancesInitializedForUpdate(@Param("ledgerId") Long ledgerId);
+
+  /**
+   * Record that the ledger's ledger_user_balances snapshot holds every member's balance, so readers
+   * may trust it and writers may apply deltas to it.
+   *
+   * @param ledgerId ledger ID
+   * @return number of affected rows
+   */
+  @Update(
+      "UPDATE ledgers SET balances_initialized = 1, updated_at = updated_at"
+          + " WHERE id = #{ledgerId} AND balances_initialized = 0")
+  int markBalancesInitialized(@Param("ledgerId") Long ledgerId);
+
+  /**
+   * Reserve the next {@code count} change feed sequence numbers. The row lock this takes is held
+   * until commit, so a ledger's changes commit in sequence order and a rollback returns the
+   * numbers.
+   *
+   * @param ledgerId ledger ID
+   * @param count number of sequence numbers to reserve
+   * @return number of affected rows
+   */
+  @Update(
+      "UPDATE ledgers SET change_seq = change_seq + #{count}, updated_at = updated_at"
+          + " WHERE id = #{ledgerId}")
+  int advanceChangeSeq(@Param("ledgerId") Long ledgerId, @Param("count") int count);
+
+  /**
+   * Read the last change feed sequence number handed out. Called right after {@link
+   * #advanceChangeSeq} in the same DB transaction, it returns the last number that call reserved.
+   *
+   * @param ledgerId ledger ID
+   * @return change sequence, or null if the ledger does not exist
+   */
+  @Select("SELECT change_seq FROM ledgers WHERE id = #{ledgerId}")
+  Long selectChangeSeq(@Param("ledgerId") Long ledgerId);
+}
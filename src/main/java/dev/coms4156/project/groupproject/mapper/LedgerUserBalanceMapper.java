@@ -0,0 +1,55 @@
+package dev.coms4156.project.groupproject.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import dev.coms4156.project.groupproject.entity.LedgerUserBalance;
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * MyBatis mapper for LedgerUserBalance entity. Maintains the per-member net balance snapshot used
+ * by settlement planning.
+ */
+@Mapper
+public interface LedgerUserBalanceMapper extends BaseMapper<LedgerUserBalance> {
+
+  /**
+   * Find all balance rows of a ledger.
+   *
+   * @param ledgerId ledger ID
+   * @return balance rows ordered by user ID
+   */
+  List<LedgerUserBalance> findByLedgerId(@Param("ledgerId") Long ledgerId);
+
+  /**
+   * Find all balance rows of a ledger and lock them (and the ledger's key range) until the
+   * surrounding transaction ends, so concurrent delta writers wait for a rebuild to finish.
+   *
+   * @param ledgerId ledger ID
+   * @return locked balance rows ordered by user ID
+   */
+  List<LedgerUserBalance> findByLedgerIdForUpdate(@Param("ledgerId") Long ledgerId);
+
+  /**
+   * Add signed deltas to the stored balances, inserting rows for members seen for the first time.
+   *
+   * @param deltas rows whose netAmountBase is the delta to add
+   * @return number of affected rows
+   */
+  int applyDeltas(@Param("deltas") List<LedgerUserBalance> deltas);
+
+  /**
+   * Overwrite stored balances with absolute values.
+   *
+   * @param balances rows whose netAmountBase is the new absolute balance
+   * @return number of affected rows
+   */
+  int upsertBatch(@Param("balances") List<LedgerUserBalance> balances);
+
+  /**
+   * Find IDs of ledgers that have debt edges or stored balances and therefore need reconciling.
+   *
+   * @return ledger IDs
+   */
+  List<Long> findLedgerIdsWithBalances();
+}
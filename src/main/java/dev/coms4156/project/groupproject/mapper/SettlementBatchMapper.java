@@ -0,0 +1,25 @@
+package dev.coms4156.project.groupproject.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import dev.coms4156.project.groupproject.entity.SettlementBatch;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+/** MyBatis mapper for SettlementBatch entity. */
+@Mapper
+public interface SettlementBatchMapper extends BaseMapper<SettlementBatch> {
+
+  /**
+   * Find the batch that executed a ledger's plan at a given plan version.
+   *
+   * @param ledgerId ledger ID
+   * @param planVersion ledger plan version
+   * @return batch, or null if that version has not been executed
+   */
+  @Select(
+      "SELECT * FROM settlement_batches WHERE ledger_id = #{ledgerId}"
+          + " AND plan_version = #{planVersion}")
+  SettlementBatch findByLedgerAndVersion(
+      @Param("ledgerId") Long ledgerId, @Param("planVersion") Long planVersion);
+}
@@ -0,0 +1,28 @@
+package dev.coms4156.project.groupproject.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import dev.coms4156.project.groupproject.entity.Settlement;
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/** MyBatis mapper for Settlement entity. Provides database operations for settlement transfers. */
+@Mapper
+public interface SettlementMapper extends BaseMapper<Settlement> {
+
+  /**
+   * Insert multiple settlements in batch.
+   *
+   * @param settlements list of settlements to insert
+   * @return number of inserted settlements
+   */
+  int insertBatch(@Param("settlements") List<Settlement> settlements);
+
+  /**
+   * Find settlements by plan batch ID.
+   *
+   * @param planBatchId plan batch ID
+   * @return settlements of the batch in insertion order
+   */
+  List<Settlement> findByPlanBatchId(@Param("planBatchId") Long planBatchId);
+}
@@ -4,7 +4,10 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import dev.coms4156.project.groupproject.entity.Transaction;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
@@ -23,6 +26,8 @@ public interface TransactionMapper extends BaseMapper<Transaction> {
    * @param createdBy created by user ID filter
    * @param categoryId category ID filter
    * @param currentUserId current user ID for visibility filtering
+   * @param privileged whether the current user is an OWNER or ADMIN of the ledger
+   * @param shareStartDate ledger's share start date; null if the whole history is shared
    * @return paginated transactions
    */
   IPage<Transaction> findTransactionsByLedger(
@@ -33,17 +38,143 @@ public interface TransactionMapper extends BaseMapper<Transaction> {
       @Param("type") String type,
       @Param("createdBy") Long createdBy,
       @Param("categoryId") Long categoryId,
-      @Param("currentUserId") Long currentUserId);
+      @Param("currentUserId") Long currentUserId,
+      @Param("privileged") boolean privileged,
+      @Param("shareStartDate") LocalDate shareStartDate);
+
+  /**
+   * Find one keyset page of a ledger's transactions, newest first. Rows sort by (txn_at DESC, id
+   * DESC) and only rows strictly after the cursor are returned.
+   *
+   * @param ledgerId ledger ID
+   * @param fromDate start date filter (inclusive)
+   * @param toDate end date filter (exclusive)
+   * @param type transaction type filter
+   * @param createdBy created by user ID filter
+   * @param currentUserId current user ID for visibility filtering
+   * @param privileged whether the current user is an OWNER or ADMIN of the ledger
+   * @param shareStartDate ledger's share start date; null if the whole history is shared
+   * @param cursorTxnAt txn_at of the last row of the previous page; null for the first page
+   * @param cursorId ID of the last row of the previous page
+   * @param limit maximum number of rows
+   * @return transactions of the page
+   */
+  List<Transaction> findTransactionsByLedgerAfter(
+      @Param("ledgerId") Long ledgerId,
+      @Param("fromDate") LocalDateTime fromDate,
+      @Param("toDate") LocalDateTime toDate,
+      @Param("type") String type,
+      @Param("createdBy") Long createdBy,
+      @Param("currentUserId") Long currentUserId,
+      @Param("privileged") boolean privileged,
+      @Param("shareStartDate") LocalDate shareStartDate,
+      @Param("cursorTxnAt") LocalDateTime cursorTxnAt,
+      @Param("cursorId") Long cursorId,
+      @Param("limit") int limit);
+
+  /**
+   * Find one keyset page among given transactions of a ledger, newest first, under the same
+   * filters, visibility and cursor as {@link #findTransactionsByLedgerAfter}.
+   *
+   * @param ledgerId ledger ID
+   * @param ids candidate transaction IDs, not empty
+   * @param fromDate start date filter (inclusive)
+   * @param toDate end date filter (exclusive)
+   * @param type transaction type filter
+   * @param createdBy created by user ID filter
+   * @param currentUserId current user ID for visibility filtering
+   * @param privileged whether the current user is an OWNER or ADMIN of the ledger
+   * @param shareStartDate ledger's share start date; null if the whole history is shared
+   * @param cursorTxnAt txn_at of the last row of the previous page; null for the first page
+   * @param cursorId ID of the last row of the previous page
+   * @param limit maximum number of rows
+   * @return matching transactions of the page
+   */
+  List<Transaction> findTransactionsByIdsAfter(
+      @Param("ledgerId") Long ledgerId,
+      @Param("ids") Collection<Long> ids,
+      @Param("fromDate") LocalDateTime fromDate,
+      @Param("toDate") LocalDateTime toDate,
+      @Param("type") String type,
+      @Param("createdBy") Long createdBy,
+      @Param("currentUserId") Long currentUserId,
+      @Param("privileged") boolean privileged,
+      @Param("shareStartDate") LocalDate shareStartDate,
+      @Param("cursorTxnAt") LocalDateTime cursorTxnAt,
+      @Param("cursorId") Long cursorId,
+      @Param("limit") int limit);
+
+  /**
+   * ID and note of every transaction of a ledger that has a note, for building its note index.
+   *
+   * @param ledgerId ledger ID
+   * @return transactions with only id and note set
+   */
+  List<Transaction> findNotesByLedger(@Param("ledgerId") Long ledgerId);
+
+  /**
+   * Count a ledger's transactions visible to the current user under the given filters.
+   *
+   * @param ledgerId ledger ID
+   * @param fromDate start date filter (inclusive)
+   * @param toDate end date filter (exclusive)
+   * @param type transaction type filter
+   * @param createdBy created by user ID filter
+   * @param currentUserId current user ID for visibility filtering
+   * @param privileged whether the current user is an OWNER or ADMIN of the ledger
+   * @param shareStartDate ledger's share start date; null if the whole history is shared
+   * @return number of matching transactions
+   */
+  long countTransactionsByLedger(
+      @Param("ledgerId") Long ledgerId,
+      @Param("fromDate") LocalDateTime fromDate,
+      @Param("toDate") LocalDateTime toDate,
+      @Param("type") String type,
+      @Param("createdBy") Long createdBy,
+      @Param("currentUserId") Long currentUserId,
+      @Param("privileged") boolean privileged,
+      @Param("shareStartDate") LocalDate shareStartDate);
+
+  /**
+   * IDs of the first matching transactions in (txn_at, id) order, for deleting a filter's matches
+   * in bounded chunks. Takes the same filters and visibility as {@link #findTransactionsByLedger}.
+   *
+   * @param ledgerId ledger ID
+   * @param fromDate optional inclusive lower bound on txn_at
+   * @param toDate optional exclusive upper bound on txn_at
+   * @param type optional transaction type
+   * @param createdBy optional creator user ID
+   * @param currentUserId current user ID
+   * @param privileged whether the current user is an OWNER or ADMIN of the ledger
+   * @param shareStartDate ledger share start date, or null
+   * @param limit maximum number of IDs
+   * @return transaction IDs
+   */
+  List<Long> findTransactionIdsByLedger(
+      @Param("ledgerId") Long ledgerId,
+      @Param("fromDate") LocalDateTime fromDate,
+      @Param("toDate") LocalDateTime toDate,
+      @Param("type") String type,
+      @Param("createdBy") Long createdBy,
+      @Param("currentUserId") Long currentUserId,
+      @Param("privileged") boolean privileged,
+      @Param("shareStartDate") LocalDate shareStartDate,
+      @Param("limit") int limit);
 
   /**
    * Find transaction by ID with visibility check.
    *
    * @param transactionId transaction ID
    * @param currentUserId current user ID for visibility filtering
+   * @param privileged whether the current user is an OWNER or ADMIN of the ledger
+   * @param shareStartDate ledger's share start date; null if the whole history is shared
    * @return transaction if found and visible, null otherwise
    */
   Transaction findTransactionByIdWithVisibility(
-      @Param("transactionId") Long transactionId, @Param("currentUserId") Long currentUserId);
+      @Param("transactionId") Long transactionId,
+      @Param("currentUserId") Long currentUserId,
+      @Param("privileged") boolean privileged,
+      @Param("shareStartDate") LocalDate shareStartDate);
 
   /**
    * Sum expense amounts in a given time range, optionally filtered by category.
@@ -59,4 +190,13 @@ public interface TransactionMapper extends BaseMapper<Transaction> {
       @Param("categoryId") Long categoryId,
       @Param("start") LocalDateTime start,
       @Param("end") LocalDateTime end);
+
+  /**
+   * Insert multiple transactions with one multi-row statement. Generated IDs are written back to
+   * the entities in list order.
+   *
+   * @param transactions transactions to insert
+   * @return number of inserted transactions
+   */
+  int insertBatch(@Param("transactions") List<Transaction> transactions);
 }
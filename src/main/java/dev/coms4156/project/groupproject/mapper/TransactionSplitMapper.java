@@ -2,6 +2,7 @@ package dev.coms4156.project.groupproject.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import dev.coms4156.project.groupproject.entity.TransactionSplit;
+import java.util.Collection;
 import java.util.List;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
@@ -20,6 +21,15 @@ public interface TransactionSplitMapper extends BaseMapper<TransactionSplit> {
    */
   List<TransactionSplit> findByTransactionId(@Param("transactionId") Long transactionId);
 
+  /**
+   * Find the splits of several transactions in one query.
+   *
+   * @param transactionIds transaction IDs; must not be empty
+   * @return splits ordered by transaction ID, then split ID
+   */
+  List<TransactionSplit> findByTransactionIds(
+      @Param("transactionIds") Collection<Long> transactionIds);
+
   /**
    * Delete splits by transaction ID.
    *
@@ -28,6 +38,14 @@ public interface TransactionSplitMapper extends BaseMapper<TransactionSplit> {
    */
   int deleteByTransactionId(@Param("transactionId") Long transactionId);
 
+  /**
+   * Delete the splits of several transactions in one statement.
+   *
+   * @param transactionIds transaction IDs; must not be empty
+   * @return number of deleted splits
+   */
+  int deleteByTransactionIds(@Param("transactionIds") Collection<Long> transactionIds);
+
   /**
    * Insert multiple splits in batch.
    *
@@ -35,4 +53,23 @@ public interface TransactionSplitMapper extends BaseMapper<TransactionSplit> {
    * @return number of inserted splits
    */
   int insertBatch(@Param("splits") List<TransactionSplit> splits);
+
+  /**
+   * Insert splits, or overwrite the method, share and amount of existing ones, keyed by
+   * uk_split_txn_user.
+   *
+   * @param splits splits to write
+   * @return affected row count as reported by MySQL
+   */
+  int upsertBatch(@Param("splits") List<TransactionSplit> splits);
+
+  /**
+   * Delete the splits of some users of a transaction.
+   *
+   * @param transactionId transaction ID
+   * @param userIds user IDs; must not be empty
+   * @return number of deleted splits
+   */
+  int deleteByTransactionIdAndUserIds(
+      @Param("transactionId") Long transactionId, @Param("userIds") Collection<Long> userIds);
 }
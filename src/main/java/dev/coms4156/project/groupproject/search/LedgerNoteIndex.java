@@ -0,0 +1,202 @@
+package dev.coms4156.project.groupproject.search;
+
+import dev.coms4156.project.groupproject.entity.Transaction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Inverted index from the words of one ledger's transaction notes to the transactions using them.
+ * Words are kept in a sorted map, so every word starting with a prefix is one contiguous range.
+ *
+ * <p>An index starts empty and is filled by {@link #load} on first search. Edits that arrive before
+ * then are queued and replayed on top of the loaded rows; replaying an edit the rows already
+ * reflect changes nothing, so a write committing while the rows are read is never lost.
+ */
+final class LedgerNoteIndex {
+
+  private final Object loadLock = new Object();
+  private final TreeMap<String, PostingList> words = new TreeMap<>();
+  private List<Runnable> pending = new ArrayList<>();
+
+  /**
+   * Split text into lower-case words of letters and digits.
+   *
+   * @param text note or query; may be null
+   * @return distinct words in order of first appearance
+   */
+  static List<String> tokenize(String text) {
+    if (text == null || text.isEmpty()) {
+      return List.of();
+    }
+    Set<String> tokens = new LinkedHashSet<>();
+    StringBuilder word = new StringBuilder();
+    for (int i = 0; i < text.length(); ) {
+      int cp = text.codePointAt(i);
+      i += Character.charCount(cp);
+      if (Character.isLetterOrDigit(cp)) {
+        word.appendCodePoint(Character.toLowerCase(cp));
+      } else if (word.length() > 0) {
+        tokens.add(word.toString());
+        word.setLength(0);
+      }
+    }
+    if (word.length() > 0) {
+      tokens.add(word.toString());
+    }
+    return new ArrayList<>(tokens);
+  }
+
+  /**
+   * Fill the index from the ledger's stored notes unless that already happened. Only one caller
+   * reads the rows; others wait for it. Edits keep being queued while the rows are read.
+   *
+   * @param loader reads ID and note of every transaction of the ledger
+   */
+  void load(Supplier<List<Transaction>> loader) {
+    synchronized (loadLock) {
+      synchronized (this) {
+        if (pending == null) {
+          return;
+        }
+      }
+      List<Transaction> rows = loader.get();
+      synchronized (this) {
+        for (Transaction row : rows) {
+          index(row.getId(), row.getNote());
+        }
+        for (Runnable edit : pending) {
+          edit.run();
+        }
+        pending = null;
+      }
+    }
+  }
+
+  /**
+   * Replace a transaction's note in the index.
+   *
+   * @param transactionId transaction ID
+   * @param before note before the write, null for a new transaction
+   * @param after note after the write, null for a deleted transaction
+   */
+  synchronized void update(long transactionId, String before, String after) {
+    if (pending != null) {
+      pending.add(() -> apply(transactionId, before, after));
+      return;
+    }
+    apply(transactionId, before, after);
+  }
+
+  /**
+   * IDs of the transactions whose note has, for every query word, a word starting with it.
+   *
+   * @param prefixes query words, at least one
+   * @return matching transaction IDs in ascending order
+   */
+  synchronized long[] search(List<String> prefixes) {
+    List<long[]> matches = new ArrayList<>(prefixes.size());
+    for (String prefix : prefixes) {
+      long[] ids = withPrefix(prefix);
+      if (ids.length == 0) {
+        return ids;
+      }
+      matches.add(ids);
+    }
+    // Intersect the smallest lists first so the running result shrinks fastest
+    matches.sort(Comparator.comparingInt(ids -> ids.length));
+    long[] result = matches.get(0);
+    for (int i = 1; i < matches.size() && result.length > 0; i++) {
+      result = intersect(result, matches.get(i));
+    }
+    return result;
+  }
+
+  /**
+   * Number of distinct words indexed.
+   *
+   * @return word count
+   */
+  synchronized int wordCount() {
+    return words.size();
+  }
+
+  private void apply(long transactionId, String before, String after) {
+    List<String> removed = tokenize(before);
+    List<String> added = tokenize(after);
+    for (String word : removed) {
+      if (!added.contains(word)) {
+        PostingList ids = words.get(word);
+        if (ids != null) {
+          ids.remove(transactionId);
+          if (ids.size() == 0) {
+            words.remove(word);
+          }
+        }
+      }
+    }
+    index(transactionId, after);
+  }
+
+  private void index(long transactionId, String note) {
+    for (String word : tokenize(note)) {
+      words.computeIfAbsent(word, w -> new PostingList()).add(transactionId);
+    }
+  }
+
+  private long[] withPrefix(String prefix) {
+    List<long[]> lists = new ArrayList<>();
+    int total = 0;
+    for (Map.Entry<String, PostingList> entry : words.tailMap(prefix, true).entrySet()) {
+      if (!entry.getKey().startsWith(prefix)) {
+        break;
+      }
+      long[] ids = entry.getValue().toArray();
+      lists.add(ids);
+      total += ids.length;
+    }
+    if (lists.size() == 1) {
+      return lists.get(0);
+    }
+    // A note can hold several words with the prefix; sort the union and drop repeats
+    long[] union = new long[total];
+    int offset = 0;
+    for (long[] ids : lists) {
+      System.arraycopy(ids, 0, union, offset, ids.length);
+      offset += ids.length;
+    }
+    Arrays.sort(union);
+    int distinct = 0;
+    for (int i = 0; i < union.length; i++) {
+      if (distinct == 0 || union[i] != union[distinct - 1]) {
+        union[distinct++] = union[i];
+      }
+    }
+    return distinct == union.length ? union : Arrays.copyOf(union, distinct);
+  }
+
+  private static long[] intersect(long[] a, long[] b) {
+    long[] out = new long[Math.min(a.length, b.length)];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        out[count++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return count == out.length ? out : Arrays.copyOf(out, count);
+  }
+}
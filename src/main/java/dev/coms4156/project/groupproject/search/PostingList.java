@@ -0,0 +1,129 @@
+package dev.coms4156.project.groupproject.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of transaction IDs stored as the gaps between consecutive IDs, each written as a
+ * varint: seven bits per byte, high bit set on every byte but the last. IDs are auto-increment, so
+ * the gaps within one ledger are small and most take one or two bytes instead of eight.
+ *
+ * <p>New transactions have the largest ID so far and are appended without decoding. Anything else
+ * (an out-of-order add, a remove) decodes the list, edits it and encodes it again. Not thread-safe;
+ * {@link LedgerNoteIndex} guards it.
+ */
+final class PostingList {
+
+  private byte[] bytes = new byte[4];
+  private int length;
+  private int size;
+  private long last;
+
+  /**
+   * Number of IDs in the list.
+   *
+   * @return size
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Bytes the encoded IDs take.
+   *
+   * @return encoded length
+   */
+  int encodedLength() {
+    return length;
+  }
+
+  /**
+   * Add an ID; no-op if it is already present.
+   *
+   * @param id transaction ID, positive
+   */
+  void add(long id) {
+    if (size == 0 || id > last) {
+      append(id);
+      return;
+    }
+    long[] ids = toArray();
+    int index = Arrays.binarySearch(ids, id);
+    if (index >= 0) {
+      return;
+    }
+    int insertAt = -index - 1;
+    long[] grown = new long[ids.length + 1];
+    System.arraycopy(ids, 0, grown, 0, insertAt);
+    grown[insertAt] = id;
+    System.arraycopy(ids, insertAt, grown, insertAt + 1, ids.length - insertAt);
+    encode(grown, grown.length);
+  }
+
+  /**
+   * Remove an ID; no-op if it is absent.
+   *
+   * @param id transaction ID
+   */
+  void remove(long id) {
+    if (size == 0 || id > last) {
+      return;
+    }
+    long[] ids = toArray();
+    int index = Arrays.binarySearch(ids, id);
+    if (index < 0) {
+      return;
+    }
+    System.arraycopy(ids, index + 1, ids, index, ids.length - index - 1);
+    encode(ids, ids.length - 1);
+  }
+
+  /**
+   * Decode the list.
+   *
+   * @return IDs in ascending order
+   */
+  long[] toArray() {
+    long[] ids = new long[size];
+    long id = 0;
+    int pos = 0;
+    for (int i = 0; i < size; i++) {
+      long gap = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = bytes[pos++];
+        gap |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      id += gap;
+      ids[i] = id;
+    }
+    return ids;
+  }
+
+  private void encode(long[] ids, int count) {
+    length = 0;
+    size = 0;
+    last = 0;
+    for (int i = 0; i < count; i++) {
+      append(ids[i]);
+    }
+    if (bytes.length > 4 * Math.max(length, 1)) {
+      bytes = Arrays.copyOf(bytes, Math.max(length, 4));
+    }
+  }
+
+  private void append(long id) {
+    long gap = id - last;
+    if (length + 10 > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 10));
+    }
+    while ((gap & ~0x7FL) != 0) {
+      bytes[length++] = (byte) ((gap & 0x7F) | 0x80);
+      gap >>>= 7;
+    }
+    bytes[length++] = (byte) gap;
+    last = id;
+    size++;
+  }
+}
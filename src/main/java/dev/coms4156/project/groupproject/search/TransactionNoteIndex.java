@@ -0,0 +1,144 @@
+package dev.coms4156.project.groupproject.search;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import dev.coms4156.project.groupproject.entity.Transaction;
+import dev.coms4156.project.groupproject.mapper.TransactionMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded, process-wide cache of per-ledger note indexes, so searching transaction notes does not
+ * scan {@code transactions.note} with {@code LIKE '%x%'}. A ledger's index is built from its stored
+ * notes on the first search and then kept current by the transaction write paths, which report note
+ * changes once their DB transaction commits. Writes to ledgers without a cached index are ignored;
+ * the index reads them from the table when it is built.
+ *
+ * <p>Each index lives in one process only, so a write served by another instance is not seen here
+ * until the ledger's index is evicted and rebuilt. Hit, miss and eviction counts are published as
+ * {@code cache.*} metrics tagged {@code cache=transaction.note}.
+ */
+@Component
+public class TransactionNoteIndex {
+
+  /** Metric name used for the cache tag. */
+  public static final String CACHE_NAME = "transaction.note";
+
+  private final TransactionMapper transactionMapper;
+  private final Cache<Long, LedgerNoteIndex> indexes;
+
+  /**
+   * Constructor for TransactionNoteIndex.
+   *
+   * @param transactionMapper mapper used to read a ledger's notes when its index is built
+   * @param meterRegistry registry the cache statistics are bound to
+   * @param maxLedgers maximum number of ledgers with a cached index; 0 builds a throwaway index for
+   *     every search
+   */
+  @Autowired
+  public TransactionNoteIndex(
+      TransactionMapper transactionMapper,
+      MeterRegistry meterRegistry,
+      @Value("${ledger.search.max-ledgers:256}") long maxLedgers) {
+    this.transactionMapper = transactionMapper;
+    this.indexes = CacheBuilder.newBuilder().maximumSize(maxLedgers).recordStats().build();
+    GuavaCacheMetrics.monitor(meterRegistry, indexes, CACHE_NAME);
+  }
+
+  /**
+   * Find the transactions of a ledger whose note contains, for every word of the query, a word
+   * starting with it. Case and punctuation are ignored.
+   *
+   * @param ledgerId ledger ID
+   * @param query search text
+   * @return matching transaction IDs in ascending order, regardless of visibility
+   */
+  public long[] search(Long ledgerId, String query) {
+    List<String> prefixes = LedgerNoteIndex.tokenize(query);
+    if (prefixes.isEmpty()) {
+      throw new RuntimeException("Search query must contain a letter or digit");
+    }
+    LedgerNoteIndex index;
+    try {
+      index = indexes.get(ledgerId, LedgerNoteIndex::new);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+    index.load(() -> transactionMapper.findNotesByLedger(ledgerId));
+    return index.search(prefixes);
+  }
+
+  /**
+   * Record a created, edited or deleted note. Inside a DB transaction this happens after commit.
+   *
+   * @param ledgerId ledger ID
+   * @param transactionId transaction ID
+   * @param before note before the write, null for a new transaction
+   * @param after note after the write, null for a deleted transaction
+   */
+  public void update(Long ledgerId, Long transactionId, String before, String after) {
+    if (Objects.equals(before, after)) {
+      return;
+    }
+    afterCommit(
+        () -> {
+          LedgerNoteIndex index = indexes.getIfPresent(ledgerId);
+          if (index != null) {
+            index.update(transactionId, before, after);
+          }
+        });
+  }
+
+  /**
+   * Record the notes of newly created transactions. Inside a DB transaction this happens after
+   * commit.
+   *
+   * @param ledgerId ledger ID
+   * @param transactions inserted transactions with their IDs
+   */
+  public void added(Long ledgerId, List<Transaction> transactions) {
+    afterCommit(
+        () -> {
+          LedgerNoteIndex index = indexes.getIfPresent(ledgerId);
+          if (index != null) {
+            for (Transaction transaction : transactions) {
+              if (transaction.getNote() != null) {
+                index.update(transaction.getId(), null, transaction.getNote());
+              }
+            }
+          }
+        });
+  }
+
+  /**
+   * Drop a ledger's index, for writes that do not know the notes they removed. Inside a DB
+   * transaction this happens after commit; the next search rebuilds it.
+   *
+   * @param ledgerId ledger ID
+   */
+  public void invalidate(Long ledgerId) {
+    afterCommit(() -> indexes.invalidate(ledgerId));
+  }
+
+  private static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            action.run();
+          }
+        });
+  }
+}
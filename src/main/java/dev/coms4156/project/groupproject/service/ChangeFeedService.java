@@ -0,0 +1,83 @@
+package dev.coms4156.project.groupproject.service;
+
+import dev.coms4156.project.groupproject.dto.ChangeFeedResponse;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Service interface for the per-ledger change feed. Write paths record what they changed in the
+ * same DB transaction; clients then fetch everything after the last sequence number they saw
+ * instead of re-listing.
+ */
+public interface ChangeFeedService {
+
+  /** Entity type of transaction changes. */
+  String TRANSACTION = "TRANSACTION";
+
+  /** Entity type of membership changes. */
+  String MEMBER = "MEMBER";
+
+  /** Entity type of budget changes. */
+  String BUDGET = "BUDGET";
+
+  /**
+   * Append changes to a ledger's feed with consecutive sequence numbers. Must run inside the DB
+   * transaction of the write it records.
+   *
+   * @param ledgerId ledger ID
+   * @param changes changes in the order they happened; nothing is written when empty
+   */
+  void record(Long ledgerId, List<Change> changes);
+
+  /**
+   * List the changes after a sequence number that the current user may see.
+   *
+   * @param ledgerId ledger ID
+   * @param since last sequence number the client has applied, 0 for the start
+   * @param limit maximum number of changes
+   * @return changes in sequence order and the value to pass as {@code since} next
+   */
+  ChangeFeedResponse listChanges(Long ledgerId, Long since, Integer limit);
+
+  /**
+   * A change to record.
+   *
+   * @param entityType {@link #TRANSACTION}, {@link #MEMBER} or {@link #BUDGET}
+   * @param entityId transaction ID, member user ID or budget ID
+   * @param op UPSERT or DELETE
+   * @param data entity state after an UPSERT, serialized as the payload; null for DELETE
+   * @param visibleTo for private transactions the only member besides OWNER/ADMIN who sees it
+   * @param txnAt transaction time, hidden before the ledger's share start date
+   */
+  record Change(
+      String entityType,
+      Long entityId,
+      String op,
+      Object data,
+      Long visibleTo,
+      LocalDateTime txnAt) {
+
+    /**
+     * An entity visible to every member was created or changed.
+     *
+     * @param entityType entity type
+     * @param entityId entity ID
+     * @param data entity state after the write
+     * @return change
+     */
+    public static Change upsert(String entityType, Long entityId, Object data) {
+      return new Change(entityType, entityId, "UPSERT", data, null, null);
+    }
+
+    /**
+     * An entity was deleted.
+     *
+     * @param entityType entity type
+     * @param entityId entity ID
+     * @return change
+     */
+    public static Change delete(String entityType, Long entityId) {
+      return new Change(entityType, entityId, "DELETE", null, null, null);
+    }
+  }
+}
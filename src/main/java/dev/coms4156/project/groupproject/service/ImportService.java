@@ -0,0 +1,27 @@
+package dev.coms4156.project.groupproject.service;
+
+import dev.coms4156.project.groupproject.dto.ImportJobResponse;
+import java.io.InputStream;
+
+/** Service interface for asynchronous bulk transaction imports tracked in import_jobs. */
+public interface ImportService {
+
+  /**
+   * Accept a CSV or NDJSON file of transactions and import it in the background.
+   *
+   * @param ledgerId ledger ID
+   * @param format input format, CSV or NDJSON
+   * @param content file content; fully read before this method returns
+   * @return the queued job
+   */
+  ImportJobResponse startImport(Long ledgerId, String format, InputStream content);
+
+  /**
+   * Get the progress of an import job started by the current user.
+   *
+   * @param ledgerId ledger ID
+   * @param jobId import job ID
+   * @return job status, counts and rejected rows
+   */
+  ImportJobResponse getImportJob(Long ledgerId, Long jobId);
+}
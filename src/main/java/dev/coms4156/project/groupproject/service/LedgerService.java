@@ -2,11 +2,18 @@ package dev.coms4156.project.groupproject.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import dev.coms4156.project.groupproject.dto.AddLedgerMemberRequest;
+import dev.coms4156.project.groupproject.dto.BalanceRebuildReport;
 import dev.coms4156.project.groupproject.dto.CreateLedgerRequest;
+import dev.coms4156.project.groupproject.dto.ExecuteSettlementRequest;
+import dev.coms4156.project.groupproject.dto.GlobalSettleUpRequest;
+import dev.coms4156.project.groupproject.dto.GlobalSettleUpResponse;
 import dev.coms4156.project.groupproject.dto.LedgerMemberResponse;
 import dev.coms4156.project.groupproject.dto.LedgerResponse;
 import dev.coms4156.project.groupproject.dto.ListLedgerMembersResponse;
 import dev.coms4156.project.groupproject.dto.MyLedgersResponse;
+import dev.coms4156.project.groupproject.dto.SettlementComparisonRequest;
+import dev.coms4156.project.groupproject.dto.SettlementComparisonResponse;
+import dev.coms4156.project.groupproject.dto.SettlementExecutionResponse;
 import dev.coms4156.project.groupproject.dto.SettlementPlanResponse;
 import dev.coms4156.project.groupproject.entity.Ledger;
 
@@ -25,4 +32,59 @@ public interface LedgerService extends IService<Ledger> {
   void removeMember(Long ledgerId, Long userId);
 
   SettlementPlanResponse getSettlementPlan(Long ledgerId);
+
+  /**
+   * Evaluate several settlement configurations against the ledger's current balances. Balances are
+   * loaded once and every configuration is solved in parallel; nothing is cached or persisted.
+   *
+   * @param ledgerId ledger ID
+   * @param req configurations to evaluate
+   * @return one plan per configuration, in request order, with transfer count, volume and solve
+   *     time
+   */
+  SettlementComparisonResponse compareSettlementPlans(
+      Long ledgerId, SettlementComparisonRequest req);
+
+  /**
+   * Record every transfer of the ledger's settlement plan on behalf of an OWNER or ADMIN, in one DB
+   * transaction: a settlement batch, its settlement rows and the offsetting debt edges. Executing
+   * the same plan version again returns the recorded batch instead of settling twice.
+   *
+   * @param ledgerId ledger ID
+   * @param req plan version to execute, with its settlement config and payment details
+   * @return recorded settlements
+   */
+  SettlementExecutionResponse executeSettlementPlan(Long ledgerId, ExecuteSettlementRequest req);
+
+  /**
+   * Net the current user's settlement positions with each counterparty across every GROUP_BALANCE
+   * ledger they belong to. Each ledger's plan is computed in parallel; the transfers involving the
+   * user are converted to the requested currency and summed per counterparty.
+   *
+   * @param req target currency and conversion rates from ledger base currencies
+   * @return one net transfer per counterparty with its per-ledger allocation
+   */
+  GlobalSettleUpResponse getGlobalSettleUp(GlobalSettleUpRequest req);
+
+  /**
+   * Verify the ledger's materialized member balances against its debt edges on behalf of an OWNER
+   * or ADMIN, overwriting drifted rows unless this is a dry run.
+   *
+   * @param ledgerId ledger ID
+   * @param dryRun if true, only report drift
+   * @return drift report
+   */
+  BalanceRebuildReport rebuildBalances(Long ledgerId, boolean dryRun);
+
+  /**
+   * Recompute the ledger's member balances from debt edges and compare them with the stored
+   * snapshot. A repair also marks the snapshot as seeded, which is how balance writers build it
+   * before their first delta. Performs no authorization check; intended for the background
+   * reconcile job and those writers.
+   *
+   * @param ledgerId ledger ID
+   * @param repair if true, overwrite drifted or missing rows with recomputed values
+   * @return drift report
+   */
+  BalanceRebuildReport reconcileBalances(Long ledgerId, boolean repair);
 }
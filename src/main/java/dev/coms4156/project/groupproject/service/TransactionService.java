@@ -1,9 +1,14 @@
 package dev.coms4156.project.groupproject.service;
 
+import dev.coms4156.project.groupproject.dto.BulkDeleteTransactionsResponse;
 import dev.coms4156.project.groupproject.dto.CreateTransactionRequest;
 import dev.coms4156.project.groupproject.dto.CreateTransactionResponse;
 import dev.coms4156.project.groupproject.dto.ListTransactionsResponse;
 import dev.coms4156.project.groupproject.dto.TransactionResponse;
+import dev.coms4156.project.groupproject.dto.UpdateTransactionRequest;
+import dev.coms4156.project.groupproject.dto.UpdateTransactionResponse;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Service interface for transaction operations. Handles transaction creation, updates, queries, and
@@ -20,6 +25,20 @@ public interface TransactionService {
    */
   CreateTransactionResponse createTransaction(Long ledgerId, CreateTransactionRequest request);
 
+  /**
+   * Create a chunk of imported transactions in one DB transaction. Membership is checked once for
+   * the chunk and every row is validated and split like {@link #createTransaction}; valid rows are
+   * written with one multi-row insert per table and one plan version bump. Budget alerts are not
+   * evaluated.
+   *
+   * @param ledgerId ledger ID
+   * @param userId importing user, recorded as the creator
+   * @param requests rows of the chunk
+   * @return rejection message per index into {@code requests}; empty if every row was written
+   */
+  Map<Integer, String> importTransactions(
+      Long ledgerId, Long userId, List<CreateTransactionRequest> requests);
+
   /**
    * Get transaction details by ID.
    *
@@ -39,6 +58,7 @@ public interface TransactionService {
    * @param toDate end date filter (ISO 8601)
    * @param type transaction type filter
    * @param createdBy created by user ID filter
+   * @param include details to attach to each item, "splits" and/or "edges"; null for none
    * @return paginated transaction list
    */
   ListTransactionsResponse listTransactions(
@@ -48,7 +68,73 @@ public interface TransactionService {
       String fromDate,
       String toDate,
       String type,
-      Long createdBy);
+      Long createdBy,
+      List<String> include);
+
+  /**
+   * List transactions one keyset page at a time, newest first. Each page seeks past the previous
+   * one's last row instead of skipping an offset, so deep pages cost the same as the first.
+   *
+   * @param ledgerId ledger ID
+   * @param cursor next-cursor of the previous page; null or empty for the first page
+   * @param size page size
+   * @param fromDate start date filter (ISO 8601)
+   * @param toDate end date filter (ISO 8601)
+   * @param type transaction type filter
+   * @param createdBy created by user ID filter
+   * @param includeTotal whether to also count all matching transactions
+   * @param include details to attach to each item, "splits" and/or "edges"; null for none
+   * @return page of transactions with the cursor of the next page, if any
+   */
+  ListTransactionsResponse listTransactionsAfter(
+      Long ledgerId,
+      String cursor,
+      Integer size,
+      String fromDate,
+      String toDate,
+      String type,
+      Long createdBy,
+      boolean includeTotal,
+      List<String> include);
+
+  /**
+   * Search transaction notes, newest first, one keyset page at a time. Every word of the query must
+   * start a word of the note; the usual filters and visibility rules apply on top.
+   *
+   * @param ledgerId ledger ID
+   * @param query search text
+   * @param cursor next-cursor of the previous page; null or empty for the first page
+   * @param size page size
+   * @param fromDate start date filter (ISO 8601)
+   * @param toDate end date filter (ISO 8601)
+   * @param type transaction type filter
+   * @param createdBy created by user ID filter
+   * @param include details to attach to each item, "splits" and/or "edges"; null for none
+   * @return page of matching transactions with the cursor of the next page, if any
+   */
+  ListTransactionsResponse searchTransactions(
+      Long ledgerId,
+      String query,
+      String cursor,
+      Integer size,
+      String fromDate,
+      String toDate,
+      String type,
+      Long createdBy,
+      List<String> include);
+
+  /**
+   * Apply a partial update to a transaction. Splits and debt edges are recomputed, but only rows
+   * that actually change are written, and member balances move by the difference between the old
+   * and new edges.
+   *
+   * @param ledgerId ledger ID
+   * @param transactionId transaction ID
+   * @param request fields to change; null fields are left as they are
+   * @return number of split and edge rows written or removed, and any budget alert
+   */
+  UpdateTransactionResponse updateTransaction(
+      Long ledgerId, Long transactionId, UpdateTransactionRequest request);
 
   /**
    * Delete a transaction and its associated splits and debt edges.
@@ -57,4 +143,19 @@ public interface TransactionService {
    * @param transactionId transaction ID
    */
   void deleteTransaction(Long ledgerId, Long transactionId);
+
+  /**
+   * Delete every visible transaction matching the listing filters, with its splits and debt edges.
+   * Work is split into chunks of a bounded size, each in its own DB transaction, so chunks that
+   * finished stay deleted if a later one fails.
+   *
+   * @param ledgerId ledger ID
+   * @param fromDate start date filter (ISO format)
+   * @param toDate end date filter (ISO format)
+   * @param type transaction type filter
+   * @param createdBy creator user ID filter
+   * @return number of transactions deleted and chunks used
+   */
+  BulkDeleteTransactionsResponse deleteTransactions(
+      Long ledgerId, String fromDate, String toDate, String type, Long createdBy);
 }
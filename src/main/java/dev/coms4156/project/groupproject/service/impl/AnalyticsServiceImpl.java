@@ -18,6 +18,7 @@ import dev.coms4156.project.groupproject.mapper.UserMapper;
 import dev.coms4156.project.groupproject.service.AnalyticsService;
 import dev.coms4156.project.groupproject.utils.AuthUtils;
 import dev.coms4156.project.groupproject.utils.CurrentUserContext;
+import dev.coms4156.project.groupproject.utils.LedgerMembershipCache;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
@@ -40,6 +41,7 @@ public class AnalyticsServiceImpl implements AnalyticsService {
   private final AnalyticsAggMapper aggMapper;
   private final LedgerMapper ledgerMapper;
   private final LedgerMemberMapper ledgerMemberMapper;
+  private final LedgerMembershipCache membershipCache;
   private final UserMapper userMapper;
 
   /**
@@ -48,16 +50,19 @@ public class AnalyticsServiceImpl implements AnalyticsService {
    * @param aggMapper analytics aggregation mapper
    * @param ledgerMapper ledger mapper
    * @param ledgerMemberMapper ledger member mapper
+   * @param membershipCache shared ledger member role cache
    * @param userMapper user mapper
    */
   public AnalyticsServiceImpl(
       AnalyticsAggMapper aggMapper,
       LedgerMapper ledgerMapper,
       LedgerMemberMapper ledgerMemberMapper,
+      LedgerMembershipCache membershipCache,
       UserMapper userMapper) {
     this.aggMapper = aggMapper;
     this.ledgerMapper = ledgerMapper;
     this.ledgerMemberMapper = ledgerMemberMapper;
+    this.membershipCache = membershipCache;
     this.userMapper = userMapper;
   }
 
@@ -74,10 +79,15 @@ public class AnalyticsServiceImpl implements AnalyticsService {
     }
 
     LedgerMember member =
-        ledgerMemberMapper.selectOne(
-            new com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper<LedgerMember>()
-                .eq(LedgerMember::getLedgerId, ledgerId)
-                .eq(LedgerMember::getUserId, currentUser.getId()));
+        membershipCache.get(
+            ledgerId,
+            currentUser.getId(),
+            () ->
+                ledgerMemberMapper.selectOne(
+                    new com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper<
+                            LedgerMember>()
+                        .eq(LedgerMember::getLedgerId, ledgerId)
+                        .eq(LedgerMember::getUserId, currentUser.getId())));
     AuthUtils.checkMembership(member != null);
 
     int m = months == null || months <= 0 ? 3 : Math.min(months, 24);
@@ -13,7 +13,10 @@ import dev.coms4156.project.groupproject.mapper.LedgerMapper;
 import dev.coms4156.project.groupproject.mapper.LedgerMemberMapper;
 import dev.coms4156.project.groupproject.mapper.TransactionMapper;
 import dev.coms4156.project.groupproject.service.BudgetService;
+import dev.coms4156.project.groupproject.service.ChangeFeedService;
+import dev.coms4156.project.groupproject.service.ChangeFeedService.Change;
 import dev.coms4156.project.groupproject.utils.CurrentUserContext;
+import dev.coms4156.project.groupproject.utils.LedgerMembershipCache;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
@@ -34,6 +37,8 @@ public class BudgetServiceImpl implements BudgetService {
   private final TransactionMapper transactionMapper;
   private final LedgerMapper ledgerMapper;
   private final LedgerMemberMapper ledgerMemberMapper;
+  private final LedgerMembershipCache membershipCache;
+  private final ChangeFeedService changeFeedService;
 
   /**
    * Constructor for BudgetServiceImpl.
@@ -42,17 +47,23 @@ public class BudgetServiceImpl implements BudgetService {
    * @param transactionMapper transaction mapper
    * @param ledgerMapper ledger mapper
    * @param ledgerMemberMapper ledger member mapper
+   * @param membershipCache shared ledger member role cache
+   * @param changeFeedService per-ledger change feed budget changes are appended to
    */
   @Autowired
   public BudgetServiceImpl(
       BudgetMapper budgetMapper,
       TransactionMapper transactionMapper,
       LedgerMapper ledgerMapper,
-      LedgerMemberMapper ledgerMemberMapper) {
+      LedgerMemberMapper ledgerMemberMapper,
+      LedgerMembershipCache membershipCache,
+      ChangeFeedService changeFeedService) {
     this.budgetMapper = budgetMapper;
     this.transactionMapper = transactionMapper;
     this.ledgerMapper = ledgerMapper;
     this.ledgerMemberMapper = ledgerMemberMapper;
+    this.membershipCache = membershipCache;
+    this.changeFeedService = changeFeedService;
   }
 
   @Override
@@ -70,11 +81,7 @@ public class BudgetServiceImpl implements BudgetService {
     }
 
     // Validate permissions: must be OWNER or ADMIN
-    LedgerMember member =
-        ledgerMemberMapper.selectOne(
-            new LambdaQueryWrapper<LedgerMember>()
-                .eq(LedgerMember::getLedgerId, ledgerId)
-                .eq(LedgerMember::getUserId, currentUser.getId()));
+    LedgerMember member = getLedgerMember(ledgerId, currentUser.getId());
 
     if (member == null) {
       throw new RuntimeException("Not a member of this ledger");
@@ -97,16 +104,16 @@ public class BudgetServiceImpl implements BudgetService {
       wrapper.eq(Budget::getCategoryId, request.getCategoryId());
     }
 
-    Budget existing = budgetMapper.selectOne(wrapper);
+    Budget budget = budgetMapper.selectOne(wrapper);
 
-    if (existing != null) {
+    if (budget != null) {
       // UPDATE existing budget
-      existing.setLimitAmount(request.getLimitAmount());
-      existing.setUpdatedAt(LocalDateTime.now());
-      budgetMapper.updateById(existing);
+      budget.setLimitAmount(request.getLimitAmount());
+      budget.setUpdatedAt(LocalDateTime.now());
+      budgetMapper.updateById(budget);
     } else {
       // INSERT new budget
-      Budget budget = new Budget();
+      budget = new Budget();
       budget.setLedgerId(ledgerId);
       budget.setCategoryId(request.getCategoryId());
       budget.setYear(request.getYear());
@@ -116,6 +123,8 @@ public class BudgetServiceImpl implements BudgetService {
       budget.setUpdatedAt(LocalDateTime.now());
       budgetMapper.insert(budget);
     }
+    changeFeedService.record(
+        ledgerId, List.of(Change.upsert(ChangeFeedService.BUDGET, budget.getId(), budget)));
   }
 
   @Override
@@ -126,11 +135,7 @@ public class BudgetServiceImpl implements BudgetService {
     }
 
     // Validate membership
-    LedgerMember member =
-        ledgerMemberMapper.selectOne(
-            new LambdaQueryWrapper<LedgerMember>()
-                .eq(LedgerMember::getLedgerId, ledgerId)
-                .eq(LedgerMember::getUserId, currentUser.getId()));
+    LedgerMember member = getLedgerMember(ledgerId, currentUser.getId());
 
     if (member == null) {
       throw new RuntimeException("Not a member of this ledger");
@@ -308,4 +313,15 @@ public class BudgetServiceImpl implements BudgetService {
       return String.format("Budget warning: %s at %d%%, approaching limit", categoryName, percent);
     }
   }
+
+  private LedgerMember getLedgerMember(Long ledgerId, Long userId) {
+    return membershipCache.get(
+        ledgerId,
+        userId,
+        () ->
+            ledgerMemberMapper.selectOne(
+                new LambdaQueryWrapper<LedgerMember>()
+                    .eq(LedgerMember::getLedgerId, ledgerId)
+                    .eq(LedgerMember::getUserId, userId)));
+  }
 }
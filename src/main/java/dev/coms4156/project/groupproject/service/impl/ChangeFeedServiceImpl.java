@@ -0,0 +1,172 @@
+package dev.coms4156.project.groupproject.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.coms4156.project.groupproject.dto.ChangeFeedResponse;
+import dev.coms4156.project.groupproject.dto.UserView;
+import dev.coms4156.project.groupproject.entity.Ledger;
+import dev.coms4156.project.groupproject.entity.LedgerChange;
+import dev.coms4156.project.groupproject.entity.LedgerMember;
+import dev.coms4156.project.groupproject.mapper.LedgerChangeMapper;
+import dev.coms4156.project.groupproject.mapper.LedgerMapper;
+import dev.coms4156.project.groupproject.mapper.LedgerMemberMapper;
+import dev.coms4156.project.groupproject.service.ChangeFeedService;
+import dev.coms4156.project.groupproject.utils.CurrentUserContext;
+import dev.coms4156.project.groupproject.utils.LedgerMembershipCache;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Implementation of ChangeFeedService. Sequence numbers come from {@code ledgers.change_seq},
+ * advanced under the ledger row lock, so each ledger's feed is gapless and in commit order: once a
+ * client has read up to some sequence number, no change with a smaller one can still appear.
+ */
+@Service
+public class ChangeFeedServiceImpl implements ChangeFeedService {
+
+  /** Largest page a client may ask for. */
+  static final int MAX_LIMIT = 1000;
+
+  private final LedgerChangeMapper ledgerChangeMapper;
+  private final LedgerMapper ledgerMapper;
+  private final LedgerMemberMapper ledgerMemberMapper;
+  private final LedgerMembershipCache membershipCache;
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Constructor for ChangeFeedServiceImpl.
+   *
+   * @param ledgerChangeMapper mapper for change feed rows
+   * @param ledgerMapper ledger mapper, which holds each ledger's sequence counter
+   * @param ledgerMemberMapper ledger member mapper
+   * @param membershipCache shared ledger member role cache
+   * @param objectMapper JSON mapper for change payloads, configured like API responses
+   */
+  @Autowired
+  public ChangeFeedServiceImpl(
+      LedgerChangeMapper ledgerChangeMapper,
+      LedgerMapper ledgerMapper,
+      LedgerMemberMapper ledgerMemberMapper,
+      LedgerMembershipCache membershipCache,
+      ObjectMapper objectMapper) {
+    this.ledgerChangeMapper = ledgerChangeMapper;
+    this.ledgerMapper = ledgerMapper;
+    this.ledgerMemberMapper = ledgerMemberMapper;
+    this.membershipCache = membershipCache;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  @Transactional
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  public void record(Long ledgerId, List<Change> changes) {
+    if (changes.isEmpty()) {
+      return;
+    }
+    ledgerMapper.advanceChangeSeq(ledgerId, changes.size());
+    long seq = ledgerMapper.selectChangeSeq(ledgerId) - changes.size();
+
+    UserView actor = CurrentUserContext.get();
+    LocalDateTime now = LocalDateTime.now();
+    List<LedgerChange> rows = new ArrayList<>(changes.size());
+    for (Change change : changes) {
+      LedgerChange row = new LedgerChange();
+      row.setLedgerId(ledgerId);
+      row.setSeq(++seq);
+      row.setEntityType(change.entityType());
+      row.setEntityId(change.entityId());
+      row.setOp(change.op());
+      row.setVisibleTo(change.visibleTo());
+      row.setTxnAt(change.txnAt());
+      row.setActorId(actor != null ? actor.getId() : null);
+      row.setPayload(change.data() != null ? toJson(change.data()) : null);
+      row.setCreatedAt(now);
+      rows.add(row);
+    }
+    ledgerChangeMapper.insertBatch(rows);
+  }
+
+  @Override
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  public ChangeFeedResponse listChanges(Long ledgerId, Long since, Integer limit) {
+    UserView currentUser = CurrentUserContext.get();
+    if (currentUser == null) {
+      throw new RuntimeException("Not logged in");
+    }
+    long after = since != null ? since : 0L;
+    if (after < 0) {
+      throw new RuntimeException("since must not be negative");
+    }
+    int pageSize = limit == null ? MAX_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+
+    Ledger ledger = ledgerMapper.selectById(ledgerId);
+    if (ledger == null) {
+      throw new RuntimeException("Ledger not found");
+    }
+    LedgerMember member =
+        membershipCache.get(
+            ledgerId,
+            currentUser.getId(),
+            () ->
+                ledgerMemberMapper.selectOne(
+                    new LambdaQueryWrapper<LedgerMember>()
+                        .eq(LedgerMember::getLedgerId, ledgerId)
+                        .eq(LedgerMember::getUserId, currentUser.getId())));
+    if (member == null) {
+      throw new RuntimeException("User not a member of this ledger");
+    }
+    boolean privileged = "OWNER".equals(member.getRole()) || "ADMIN".equals(member.getRole());
+
+    // Everything up to the committed counter is committed too, so hidden rows below it can be
+    // skipped for good instead of being rescanned on every poll
+    Long committed = ledgerMapper.selectChangeSeq(ledgerId);
+    long upTo = committed != null ? committed : 0L;
+    List<LedgerChange> rows =
+        upTo <= after
+            ? List.of()
+            : ledgerChangeMapper.findByLedgerAfter(
+                ledgerId,
+                after,
+                upTo,
+                currentUser.getId(),
+                privileged,
+                ledger.getShareStartDate(),
+                pageSize + 1);
+    boolean hasMore = rows.size() > pageSize;
+    if (hasMore) {
+      rows = rows.subList(0, pageSize);
+    }
+
+    List<ChangeFeedResponse.ChangeItem> items = new ArrayList<>(rows.size());
+    for (LedgerChange row : rows) {
+      ChangeFeedResponse.ChangeItem item = new ChangeFeedResponse.ChangeItem();
+      item.setSeq(row.getSeq());
+      item.setEntityType(row.getEntityType());
+      item.setEntityId(row.getEntityId());
+      item.setOp(row.getOp());
+      item.setActorId(row.getActorId());
+      item.setChangedAt(row.getCreatedAt());
+      item.setData(row.getPayload());
+      items.add(item);
+    }
+
+    ChangeFeedResponse response = new ChangeFeedResponse();
+    response.setChanges(items);
+    response.setHasMore(hasMore);
+    response.setNextSince(hasMore ? rows.get(rows.size() - 1).getSeq() : Math.max(after, upTo));
+    return response;
+  }
+
+  private String toJson(Object data) {
+    try {
+      return objectMapper.writeValueAsString(data);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not serialize change payload", e);
+    }
+  }
+}
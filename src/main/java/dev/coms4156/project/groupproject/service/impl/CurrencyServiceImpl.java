@@ -5,7 +5,9 @@ import dev.coms4156.project.groupproject.dto.CurrencyResponse;
 import dev.coms4156.project.groupproject.entity.Currency;
 import dev.coms4156.project.groupproject.mapper.CurrencyMapper;
 import dev.coms4156.project.groupproject.service.CurrencyService;
+import dev.coms4156.project.groupproject.utils.CurrencyRegistry;
 import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /** Implementation of the CurrencyService interface. */
@@ -13,11 +15,23 @@ import org.springframework.stereotype.Service;
 public class CurrencyServiceImpl extends ServiceImpl<CurrencyMapper, Currency>
     implements CurrencyService {
 
+  private final CurrencyRegistry currencyRegistry;
+
+  /**
+   * Constructor for CurrencyServiceImpl.
+   *
+   * @param currencyRegistry in-memory currency table
+   */
+  @Autowired
+  public CurrencyServiceImpl(CurrencyRegistry currencyRegistry) {
+    this.currencyRegistry = currencyRegistry;
+  }
+
   @Override
   public CurrencyResponse getAllCurrencies() {
     return new CurrencyResponse(
-        list().stream()
-            .map(c -> new CurrencyResponse.CurrencyItem(c.getCode(), c.getExponent()))
+        currencyRegistry.entries().stream()
+            .map(c -> new CurrencyResponse.CurrencyItem(c.code(), c.exponent()))
             .collect(Collectors.toList()));
   }
 }
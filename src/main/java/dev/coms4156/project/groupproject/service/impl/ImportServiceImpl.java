@@ -0,0 +1,512 @@
+package dev.coms4156.project.groupproject.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.coms4156.project.groupproject.dto.CreateTransactionRequest;
+import dev.coms4156.project.groupproject.dto.ImportJobResponse;
+import dev.coms4156.project.groupproject.dto.SplitItem;
+import dev.coms4156.project.groupproject.dto.UserView;
+import dev.coms4156.project.groupproject.entity.ImportJob;
+import dev.coms4156.project.groupproject.entity.LedgerMember;
+import dev.coms4156.project.groupproject.mapper.ImportJobMapper;
+import dev.coms4156.project.groupproject.mapper.LedgerMapper;
+import dev.coms4156.project.groupproject.mapper.LedgerMemberMapper;
+import dev.coms4156.project.groupproject.service.ImportService;
+import dev.coms4156.project.groupproject.service.TransactionService;
+import dev.coms4156.project.groupproject.utils.CurrentUserContext;
+import dev.coms4156.project.groupproject.utils.Jsons;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Implementation of ImportService. The upload is spooled to a temp file and the job is queued on
+ * the import executor, which streams the file row by row. Rows are parsed and bean-validated as
+ * they are read and handed to {@link TransactionService#importTransactions} in chunks, so memory
+ * use is bounded by the chunk size and each chunk commits on its own. Progress and the first
+ * rejected rows are written to the import_jobs row after every chunk.
+ *
+ * <p>CSV files need a header row; columns are matched by name, case-insensitively, and unknown
+ * columns are ignored. Required: txn_at, type, currency, amount_total, payer_id, splits. Optional:
+ * category_id, note, is_private, rounding_strategy, tail_allocation and split_method (default
+ * EQUAL). {@code splits} lists participants as {@code userId[:shareValue]} separated by {@code ;}.
+ * NDJSON files hold one create-transaction request body per line.
+ */
+@Service
+public class ImportServiceImpl implements ImportService {
+  private static final Logger log = LoggerFactory.getLogger(ImportServiceImpl.class);
+
+  private static final String STATUS_PENDING = "PENDING";
+  private static final String STATUS_RUNNING = "RUNNING";
+  private static final String STATUS_COMPLETED = "COMPLETED";
+  private static final String STATUS_FAILED = "FAILED";
+
+  private static final List<String> REQUIRED_CSV_COLUMNS =
+      List.of("txn_at", "type", "currency", "amount_total", "payer_id", "splits");
+
+  private final ImportJobMapper importJobMapper;
+  private final LedgerMapper ledgerMapper;
+  private final LedgerMemberMapper ledgerMemberMapper;
+  private final TransactionService transactionService;
+  private final ObjectMapper objectMapper;
+  private final Validator validator;
+  private final ExecutorService importExecutor;
+  private final int chunkSize;
+  private final int maxErrors;
+
+  /**
+   * Constructor for ImportServiceImpl.
+   *
+   * @param importJobMapper mapper for import job rows
+   * @param ledgerMapper mapper for ledger operations
+   * @param ledgerMemberMapper mapper for ledger member operations
+   * @param transactionService service writing each chunk of transactions
+   * @param objectMapper JSON mapper for NDJSON rows
+   * @param validator bean validator applied to every row
+   * @param importExecutor pool running import jobs
+   * @param chunkSize rows written per DB transaction
+   * @param maxErrors rejected rows kept on the job for reporting
+   */
+  @Autowired
+  public ImportServiceImpl(
+      ImportJobMapper importJobMapper,
+      LedgerMapper ledgerMapper,
+      LedgerMemberMapper ledgerMemberMapper,
+      TransactionService transactionService,
+      ObjectMapper objectMapper,
+      Validator validator,
+      @Qualifier("importExecutor") ExecutorService importExecutor,
+      @Value("${ledger.import.chunk-size:500}") int chunkSize,
+      @Value("${ledger.import.max-errors:100}") int maxErrors) {
+    this.importJobMapper = importJobMapper;
+    this.ledgerMapper = ledgerMapper;
+    this.ledgerMemberMapper = ledgerMemberMapper;
+    this.transactionService = transactionService;
+    this.objectMapper = objectMapper;
+    this.validator = validator;
+    this.importExecutor = importExecutor;
+    this.chunkSize = Math.max(1, chunkSize);
+    this.maxErrors = Math.max(0, maxErrors);
+  }
+
+  @Override
+  public ImportJobResponse startImport(Long ledgerId, String format, InputStream content) {
+    UserView currentUser = CurrentUserContext.get();
+    if (currentUser == null) {
+      throw new RuntimeException("Not logged in");
+    }
+    String sourceType = format == null ? "" : format.trim().toUpperCase(Locale.ROOT);
+    if (!"CSV".equals(sourceType) && !"NDJSON".equals(sourceType)) {
+      throw new RuntimeException("Unsupported import format: " + format);
+    }
+    if (ledgerMapper.selectById(ledgerId) == null) {
+      throw new RuntimeException("Ledger not found");
+    }
+    LedgerMember member =
+        ledgerMemberMapper.selectOne(
+            new LambdaQueryWrapper<LedgerMember>()
+                .eq(LedgerMember::getLedgerId, ledgerId)
+                .eq(LedgerMember::getUserId, currentUser.getId()));
+    if (member == null) {
+      throw new RuntimeException("User not a member of this ledger");
+    }
+
+    // The upload only lives as long as the request, so keep a copy for the worker
+    Path file;
+    try {
+      file = Files.createTempFile("ledger-import-", "." + sourceType.toLowerCase(Locale.ROOT));
+      Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read import file", e);
+    }
+
+    ImportJob job = new ImportJob();
+    job.setUserId(currentUser.getId());
+    job.setLedgerId(ledgerId);
+    job.setSourceType(sourceType);
+    job.setStatus(STATUS_PENDING);
+    job.setTotalRows(0);
+    job.setImportedRows(0);
+    job.setFailedRows(0);
+    job.setCreatedAt(LocalDateTime.now());
+    job.setUpdatedAt(LocalDateTime.now());
+    importJobMapper.insert(job);
+
+    Long jobId = job.getId();
+    importExecutor.execute(() -> runImport(jobId, ledgerId, currentUser, sourceType, file));
+    return toResponse(job);
+  }
+
+  @Override
+  public ImportJobResponse getImportJob(Long ledgerId, Long jobId) {
+    UserView currentUser = CurrentUserContext.get();
+    if (currentUser == null) {
+      throw new RuntimeException("Not logged in");
+    }
+    ImportJob job = importJobMapper.selectById(jobId);
+    if (job == null
+        || !ledgerId.equals(job.getLedgerId())
+        || !currentUser.getId().equals(job.getUserId())) {
+      throw new RuntimeException("Import job not found");
+    }
+    return toResponse(job);
+  }
+
+  /**
+   * Stream the spooled file into the ledger chunk by chunk. Chunks that were written stay written
+   * if a later one fails; the job then ends FAILED with the counts reached so far.
+   */
+  private void runImport(Long jobId, Long ledgerId, UserView user, String sourceType, Path file) {
+    CurrentUserContext.set(user);
+    Progress progress = new Progress(maxErrors);
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      updateJob(jobId, STATUS_RUNNING, progress, null);
+      RowSource rows = "CSV".equals(sourceType) ? csvRows(reader) : ndjsonRows(reader);
+
+      List<CreateTransactionRequest> chunk = new ArrayList<>(chunkSize);
+      List<Integer> chunkRows = new ArrayList<>(chunkSize);
+      ParsedRow row;
+      while ((row = rows.next()) != null) {
+        int rowNumber = ++progress.total;
+        String error = row.error() != null ? row.error() : violations(row.request());
+        if (error != null) {
+          progress.reject(rowNumber, error);
+          continue;
+        }
+        chunk.add(row.request());
+        chunkRows.add(rowNumber);
+        if (chunk.size() == chunkSize) {
+          writeChunk(ledgerId, user.getId(), chunk, chunkRows, progress);
+          chunk = new ArrayList<>(chunkSize);
+          chunkRows = new ArrayList<>(chunkSize);
+          updateJob(jobId, STATUS_RUNNING, progress, null);
+        }
+      }
+      writeChunk(ledgerId, user.getId(), chunk, chunkRows, progress);
+      updateJob(jobId, STATUS_COMPLETED, progress, LocalDateTime.now());
+    } catch (IOException | RuntimeException e) {
+      log.warn("Import job {} failed after {} rows", jobId, progress.total, e);
+      progress.fail(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+      try {
+        updateJob(jobId, STATUS_FAILED, progress, LocalDateTime.now());
+      } catch (RuntimeException updateFailure) {
+        log.error("Could not mark import job {} as failed", jobId, updateFailure);
+      }
+    } finally {
+      CurrentUserContext.clear();
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        log.warn("Could not delete import file {}", file, e);
+      }
+    }
+  }
+
+  private void writeChunk(
+      Long ledgerId,
+      Long userId,
+      List<CreateTransactionRequest> chunk,
+      List<Integer> chunkRows,
+      Progress progress) {
+    if (chunk.isEmpty()) {
+      return;
+    }
+    Map<Integer, String> rejected = transactionService.importTransactions(ledgerId, userId, chunk);
+    progress.imported += chunk.size() - rejected.size();
+    rejected.forEach((index, message) -> progress.reject(chunkRows.get(index), message));
+  }
+
+  private void updateJob(Long jobId, String status, Progress progress, LocalDateTime finishedAt) {
+    ImportJob update = new ImportJob();
+    update.setId(jobId);
+    update.setStatus(status);
+    update.setTotalRows(progress.total);
+    update.setImportedRows(progress.imported);
+    update.setFailedRows(progress.failed);
+    update.setErrorJson(progress.errors.isEmpty() ? null : Jsons.toJson(progress.errors));
+    update.setFinishedAt(finishedAt);
+    update.setUpdatedAt(LocalDateTime.now());
+    importJobMapper.updateById(update);
+  }
+
+  private String violations(CreateTransactionRequest request) {
+    Set<ConstraintViolation<CreateTransactionRequest>> violations = validator.validate(request);
+    if (violations.isEmpty()) {
+      return null;
+    }
+    return violations.stream()
+        .map(ConstraintViolation::getMessage)
+        .sorted()
+        .collect(Collectors.joining("; "));
+  }
+
+  private ImportJobResponse toResponse(ImportJob job) {
+    ImportJobResponse response = new ImportJobResponse();
+    response.setJobId(job.getId());
+    response.setLedgerId(job.getLedgerId());
+    response.setSourceType(job.getSourceType());
+    response.setStatus(job.getStatus());
+    response.setTotalRows(job.getTotalRows());
+    response.setImportedRows(job.getImportedRows());
+    response.setFailedRows(job.getFailedRows());
+    response.setErrors(
+        job.getErrorJson() == null
+            ? List.of()
+            : Arrays.asList(
+                Jsons.fromJson(job.getErrorJson(), ImportJobResponse.RowError[].class)));
+    response.setCreatedAt(job.getCreatedAt());
+    response.setFinishedAt(job.getFinishedAt());
+    return response;
+  }
+
+  // Row sources
+
+  /** One data row: either a request to validate or the reason it could not be parsed. */
+  private record ParsedRow(CreateTransactionRequest request, String error) {}
+
+  /** Reads the next data row; returns null at the end of the input. */
+  @FunctionalInterface
+  private interface RowSource {
+    ParsedRow next() throws IOException;
+  }
+
+  private RowSource ndjsonRows(BufferedReader reader) {
+    return () -> {
+      String line;
+      do {
+        line = reader.readLine();
+      } while (line != null && line.isBlank());
+      if (line == null) {
+        return null;
+      }
+      try {
+        return new ParsedRow(objectMapper.readValue(line, CreateTransactionRequest.class), null);
+      } catch (JsonProcessingException e) {
+        return new ParsedRow(null, "Malformed JSON: " + e.getOriginalMessage());
+      }
+    };
+  }
+
+  private static RowSource csvRows(BufferedReader reader) throws IOException {
+    List<String> header = readCsvRecord(reader);
+    if (header == null) {
+      return () -> null;
+    }
+    Map<String, Integer> columns = new HashMap<>();
+    for (int i = 0; i < header.size(); i++) {
+      String name = header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+      columns.putIfAbsent(name, i);
+    }
+    for (String required : REQUIRED_CSV_COLUMNS) {
+      if (!columns.containsKey(required)) {
+        throw new RuntimeException("Missing CSV column: " + required);
+      }
+    }
+    return () -> {
+      List<String> fields;
+      do {
+        fields = readCsvRecord(reader);
+      } while (fields != null && fields.size() == 1 && fields.get(0).isBlank());
+      if (fields == null) {
+        return null;
+      }
+      try {
+        return new ParsedRow(csvRequest(new CsvRecord(columns, fields)), null);
+      } catch (IllegalArgumentException e) {
+        return new ParsedRow(null, e.getMessage());
+      }
+    };
+  }
+
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  private static CreateTransactionRequest csvRequest(CsvRecord record) {
+    CreateTransactionRequest request = new CreateTransactionRequest();
+    request.setTxnAt(record.dateTime("txn_at"));
+    request.setType(record.text("type"));
+    request.setCurrency(record.text("currency"));
+    request.setAmountTotal(record.decimal("amount_total"));
+    request.setCategoryId(record.id("category_id"));
+    request.setNote(record.text("note"));
+    request.setPayerId(record.id("payer_id"));
+    if (record.text("is_private") != null) {
+      request.setIsPrivate(Boolean.parseBoolean(record.text("is_private")));
+    }
+    if (record.text("rounding_strategy") != null) {
+      request.setRoundingStrategy(record.text("rounding_strategy"));
+    }
+    if (record.text("tail_allocation") != null) {
+      request.setTailAllocation(record.text("tail_allocation"));
+    }
+
+    String method = record.text("split_method");
+    String participants = record.text("splits");
+    if (participants != null) {
+      List<SplitItem> splits = new ArrayList<>();
+      for (String participant : participants.split(";")) {
+        if (participant.isBlank()) {
+          continue;
+        }
+        String[] parts = participant.split(":", 2);
+        SplitItem split = new SplitItem(); // NOPMD - Must create new object in loop
+        split.setUserId(parseId("splits", parts[0]));
+        split.setSplitMethod(method != null ? method : "EQUAL");
+        split.setShareValue(parts.length > 1 ? parseDecimal("splits", parts[1]) : BigDecimal.ZERO);
+        split.setIncluded(true);
+        splits.add(split);
+      }
+      request.setSplits(splits);
+    }
+    return request;
+  }
+
+  /** Field access by header name; empty fields read as null. */
+  private record CsvRecord(Map<String, Integer> columns, List<String> fields) {
+    String text(String column) {
+      Integer index = columns.get(column);
+      if (index == null || index >= fields.size()) {
+        return null;
+      }
+      String value = fields.get(index).trim();
+      return value.isEmpty() ? null : value;
+    }
+
+    Long id(String column) {
+      String value = text(column);
+      return value == null ? null : parseId(column, value);
+    }
+
+    BigDecimal decimal(String column) {
+      String value = text(column);
+      return value == null ? null : parseDecimal(column, value);
+    }
+
+    LocalDateTime dateTime(String column) {
+      String value = text(column);
+      if (value == null) {
+        return null;
+      }
+      try {
+        // Bank exports often carry dates only
+        return value.length() == 10
+            ? LocalDate.parse(value).atStartOfDay()
+            : LocalDateTime.parse(value);
+      } catch (DateTimeParseException e) {
+        throw new IllegalArgumentException("Invalid " + column + ": " + value, e);
+      }
+    }
+  }
+
+  private static Long parseId(String column, String value) {
+    try {
+      return Long.valueOf(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid " + column + ": " + value, e);
+    }
+  }
+
+  private static BigDecimal parseDecimal(String column, String value) {
+    try {
+      return new BigDecimal(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid " + column + ": " + value, e);
+    }
+  }
+
+  /**
+   * Read one RFC 4180 record: comma-separated, fields optionally double-quoted, {@code ""} inside
+   * quotes for a literal quote, and line breaks allowed inside quoted fields.
+   *
+   * @param reader input positioned at the start of a record
+   * @return the record's fields, or null at the end of the input
+   */
+  static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    boolean read = false;
+    int c;
+    while ((c = reader.read()) != -1) {
+      read = true;
+      if (quoted) {
+        if (c != '"') {
+          field.append((char) c);
+          continue;
+        }
+        reader.mark(1);
+        if (reader.read() == '"') {
+          field.append('"');
+        } else {
+          quoted = false;
+          reader.reset();
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\n') {
+        break;
+      } else if (c != '\r') {
+        field.append((char) c);
+      }
+    }
+    if (!read) {
+      return null;
+    }
+    if (quoted) {
+      throw new RuntimeException("Unterminated quoted CSV field");
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  /** Row counts and the first rejected rows of a running job. */
+  private static final class Progress {
+    private final int maxErrors;
+    private final List<ImportJobResponse.RowError> errors = new ArrayList<>();
+    private int total;
+    private int imported;
+    private int failed;
+
+    Progress(int maxErrors) {
+      this.maxErrors = maxErrors;
+    }
+
+    void reject(int row, String message) {
+      failed++;
+      if (errors.size() < maxErrors) {
+        errors.add(new ImportJobResponse.RowError(row, message));
+      }
+    }
+
+    void fail(String message) {
+      errors.add(0, new ImportJobResponse.RowError(null, message));
+    }
+  }
+}
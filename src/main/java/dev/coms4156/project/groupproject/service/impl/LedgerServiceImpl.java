@@ -3,42 +3,74 @@ package dev.coms4156.project.groupproject.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import dev.coms4156.project.groupproject.dto.AddLedgerMemberRequest;
+import dev.coms4156.project.groupproject.dto.BalanceRebuildReport;
 import dev.coms4156.project.groupproject.dto.CategoryResponse;
 import dev.coms4156.project.groupproject.dto.CreateCategoryRequest;
 import dev.coms4156.project.groupproject.dto.CreateLedgerRequest;
+import dev.coms4156.project.groupproject.dto.ExecuteSettlementRequest;
+import dev.coms4156.project.groupproject.dto.GlobalSettleUpRequest;
+import dev.coms4156.project.groupproject.dto.GlobalSettleUpResponse;
 import dev.coms4156.project.groupproject.dto.LedgerMemberResponse;
 import dev.coms4156.project.groupproject.dto.LedgerResponse;
 import dev.coms4156.project.groupproject.dto.ListLedgerMembersResponse;
 import dev.coms4156.project.groupproject.dto.MyLedgersResponse;
+import dev.coms4156.project.groupproject.dto.NetBalanceRow;
+import dev.coms4156.project.groupproject.dto.SettlementComparisonRequest;
+import dev.coms4156.project.groupproject.dto.SettlementComparisonResponse;
 import dev.coms4156.project.groupproject.dto.SettlementConfig;
+import dev.coms4156.project.groupproject.dto.SettlementExecutionResponse;
 import dev.coms4156.project.groupproject.dto.SettlementPlanResponse;
 import dev.coms4156.project.groupproject.dto.UserView;
 import dev.coms4156.project.groupproject.entity.Category;
-import dev.coms4156.project.groupproject.entity.Currency;
 import dev.coms4156.project.groupproject.entity.DebtEdge;
 import dev.coms4156.project.groupproject.entity.Ledger;
 import dev.coms4156.project.groupproject.entity.LedgerMember;
+import dev.coms4156.project.groupproject.entity.LedgerUserBalance;
+import dev.coms4156.project.groupproject.entity.Settlement;
+import dev.coms4156.project.groupproject.entity.SettlementBatch;
 import dev.coms4156.project.groupproject.entity.User;
 import dev.coms4156.project.groupproject.mapper.CategoryMapper;
-import dev.coms4156.project.groupproject.mapper.CurrencyMapper;
 import dev.coms4156.project.groupproject.mapper.DebtEdgeMapper;
 import dev.coms4156.project.groupproject.mapper.LedgerMapper;
 import dev.coms4156.project.groupproject.mapper.LedgerMemberMapper;
+import dev.coms4156.project.groupproject.mapper.LedgerUserBalanceMapper;
+import dev.coms4156.project.groupproject.mapper.SettlementBatchMapper;
+import dev.coms4156.project.groupproject.mapper.SettlementMapper;
 import dev.coms4156.project.groupproject.mapper.UserMapper;
+import dev.coms4156.project.groupproject.service.ChangeFeedService;
+import dev.coms4156.project.groupproject.service.ChangeFeedService.Change;
 import dev.coms4156.project.groupproject.service.LedgerService;
+import dev.coms4156.project.groupproject.settlement.IncrementalSettlementPlanner;
+import dev.coms4156.project.groupproject.settlement.MinCostFlowSolver;
+import dev.coms4156.project.groupproject.settlement.SettlementPlanCache;
+import dev.coms4156.project.groupproject.settlement.ZeroSumSubsetSolver;
 import dev.coms4156.project.groupproject.utils.AuthUtils;
+import dev.coms4156.project.groupproject.utils.CurrencyRegistry;
 import dev.coms4156.project.groupproject.utils.CurrentUserContext;
+import dev.coms4156.project.groupproject.utils.ExchangeRateRegistry;
+import dev.coms4156.project.groupproject.utils.LedgerMembershipCache;
+import dev.coms4156.project.groupproject.utils.MinorUnits;
+import dev.coms4156.project.groupproject.utils.UserNameCache;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -49,9 +81,20 @@ public class LedgerServiceImpl extends ServiceImpl<LedgerMapper, Ledger> impleme
   private final LedgerMemberMapper ledgerMemberMapper;
   private final UserMapper userMapper;
   private final DebtEdgeMapper debtEdgeMapper;
-  private final CurrencyMapper currencyMapper;
+  private final CurrencyRegistry currencyRegistry;
   //  categoryMapper
   private final CategoryMapper categoryMapper;
+  private final LedgerUserBalanceMapper ledgerUserBalanceMapper;
+  private final SettlementPlanCache settlementPlanCache;
+  private final UserNameCache userNameCache;
+  private final LedgerMembershipCache membershipCache;
+  private final ZeroSumSubsetSolver zeroSumSubsetSolver;
+  private final SettlementMapper settlementMapper;
+  private final SettlementBatchMapper settlementBatchMapper;
+  private final ExecutorService settlementExecutor;
+  private final IncrementalSettlementPlanner incrementalSettlementPlanner;
+  private final ExchangeRateRegistry exchangeRateRegistry;
+  private final ChangeFeedService changeFeedService;
 
   /**
    * Constructor for LedgerServiceImpl.
@@ -59,21 +102,54 @@ public class LedgerServiceImpl extends ServiceImpl<LedgerMapper, Ledger> impleme
    * @param ledgerMemberMapper ledger member mapper
    * @param userMapper user mapper
    * @param debtEdgeMapper debt edge mapper
-   * @param currencyMapper currency mapper
+   * @param currencyRegistry in-memory currency table
    * @param categoryMapper category mapper
+   * @param ledgerUserBalanceMapper materialized member balance mapper
+   * @param settlementPlanCache cache of computed settlement plans
+   * @param userNameCache shared user display name cache
+   * @param membershipCache shared ledger member role cache
+   * @param zeroSumSubsetSolver exact minimum-transfer solver
+   * @param settlementMapper executed settlement mapper
+   * @param settlementBatchMapper executed settlement plan mapper
+   * @param settlementExecutor pool for settlement work spanning several ledgers
+   * @param incrementalSettlementPlanner default plans repaired per transaction
+   * @param exchangeRateRegistry in-memory server-side exchange rates
+   * @param changeFeedService per-ledger change feed membership changes are appended to
    */
   @Autowired
   public LedgerServiceImpl(
       LedgerMemberMapper ledgerMemberMapper,
       UserMapper userMapper,
       DebtEdgeMapper debtEdgeMapper,
-      CurrencyMapper currencyMapper,
-      CategoryMapper categoryMapper) {
+      CurrencyRegistry currencyRegistry,
+      CategoryMapper categoryMapper,
+      LedgerUserBalanceMapper ledgerUserBalanceMapper,
+      SettlementPlanCache settlementPlanCache,
+      UserNameCache userNameCache,
+      LedgerMembershipCache membershipCache,
+      ZeroSumSubsetSolver zeroSumSubsetSolver,
+      SettlementMapper settlementMapper,
+      SettlementBatchMapper settlementBatchMapper,
+      @Qualifier("settlementExecutor") ExecutorService settlementExecutor,
+      IncrementalSettlementPlanner incrementalSettlementPlanner,
+      ExchangeRateRegistry exchangeRateRegistry,
+      ChangeFeedService changeFeedService) {
     this.ledgerMemberMapper = ledgerMemberMapper;
     this.userMapper = userMapper;
     this.debtEdgeMapper = debtEdgeMapper;
-    this.currencyMapper = currencyMapper;
+    this.currencyRegistry = currencyRegistry;
     this.categoryMapper = categoryMapper;
+    this.ledgerUserBalanceMapper = ledgerUserBalanceMapper;
+    this.settlementPlanCache = settlementPlanCache;
+    this.userNameCache = userNameCache;
+    this.membershipCache = membershipCache;
+    this.zeroSumSubsetSolver = zeroSumSubsetSolver;
+    this.settlementMapper = settlementMapper;
+    this.settlementBatchMapper = settlementBatchMapper;
+    this.settlementExecutor = settlementExecutor;
+    this.incrementalSettlementPlanner = incrementalSettlementPlanner;
+    this.exchangeRateRegistry = exchangeRateRegistry;
+    this.changeFeedService = changeFeedService;
   }
 
   @Override
@@ -205,8 +281,14 @@ public class LedgerServiceImpl extends ServiceImpl<LedgerMapper, Ledger> impleme
     newMember.setRole(req.getRole());
 
     ledgerMemberMapper.insert(newMember);
-
-    return new LedgerMemberResponse(ledgerId, req.getUserId(), req.getRole());
+    membershipCache.invalidate(ledgerId, req.getUserId());
+    getBaseMapper().bumpPlanVersion(ledgerId);
+
+    LedgerMemberResponse response =
+        new LedgerMemberResponse(ledgerId, req.getUserId(), req.getRole());
+    changeFeedService.record(
+        ledgerId, List.of(Change.upsert(ChangeFeedService.MEMBER, req.getUserId(), response)));
+    return response;
   }
 
   @Override
@@ -269,13 +351,20 @@ public class LedgerServiceImpl extends ServiceImpl<LedgerMapper, Ledger> impleme
         new LambdaQueryWrapper<LedgerMember>()
             .eq(LedgerMember::getLedgerId, ledgerId)
             .eq(LedgerMember::getUserId, userId));
+    membershipCache.invalidate(ledgerId, userId);
+    getBaseMapper().bumpPlanVersion(ledgerId);
+    changeFeedService.record(ledgerId, List.of(Change.delete(ChangeFeedService.MEMBER, userId)));
   }
 
   private LedgerMember getLedgerMember(Long ledgerId, Long userId) {
-    return ledgerMemberMapper.selectOne(
-        new LambdaQueryWrapper<LedgerMember>()
-            .eq(LedgerMember::getLedgerId, ledgerId)
-            .eq(LedgerMember::getUserId, userId));
+    return membershipCache.get(
+        ledgerId,
+        userId,
+        () ->
+            ledgerMemberMapper.selectOne(
+                new LambdaQueryWrapper<LedgerMember>()
+                    .eq(LedgerMember::getLedgerId, ledgerId)
+                    .eq(LedgerMember::getUserId, userId)));
   }
 
   private boolean isMember(Long ledgerId, Long userId) {
@@ -289,7 +378,8 @@ public class LedgerServiceImpl extends ServiceImpl<LedgerMapper, Ledger> impleme
 
   /**
    * Get settlement plan with optional configuration for constraints, rounding, and algorithm
-   * selection.
+   * selection. Plans are cached per ledger plan version and config, so repeated polls only read the
+   * ledger row and the caller's membership.
    *
    * @param ledgerId ledger ID
    * @param config optional settlement configuration
@@ -309,64 +399,569 @@ public class LedgerServiceImpl extends ServiceImpl<LedgerMapper, Ledger> impleme
     AuthUtils.checkMembership(isMember(ledgerId, currentUser.getId()));
 
     // Use default config if not provided
-    if (config == null) {
-      config = new SettlementConfig();
+    SettlementConfig effectiveConfig = config != null ? config : new SettlementConfig();
+
+    // The version was read with the ledger, before any balances, so a plan computed from newer
+    // balances can only ever be filed under an older, already superseded version
+    long version = ledger.getPlanVersion() != null ? ledger.getPlanVersion() : 0L;
+    return cachedSettlementPlan(ledger, version, effectiveConfig);
+  }
+
+  /**
+   * Plan for a ledger version through the plan cache. Every endpoint comes through here, so the
+   * default-config entry is always the incremental planner's plan and a version maps to the same
+   * plan whichever endpoint loads it first.
+   *
+   * @param ledger the ledger, read at {@code version}
+   * @param version ledger plan version
+   * @param config effective settlement configuration
+   * @return settlement plan response
+   */
+  private SettlementPlanResponse cachedSettlementPlan(
+      Ledger ledger, long version, SettlementConfig config) {
+    if (incrementalSettlementPlanner.enabled() && new SettlementConfig().equals(config)) {
+      return settlementPlanCache.get(
+          ledger.getId(), version, config, () -> incrementalSettlementPlan(ledger, version));
     }
+    return settlementPlanCache.get(
+        ledger.getId(), version, config, () -> computeSettlementPlan(ledger, config));
+  }
 
-    List<DebtEdge> allEdges = debtEdgeMapper.findByLedgerId(ledgerId);
+  /**
+   * Default-config plan served from the incremental planner when it holds a plan repaired up to
+   * this version. Otherwise the plan is solved from scratch and kept as the base for later repairs,
+   * provided nothing was left unsettled and no write landed while the balances were read.
+   *
+   * @param ledger the ledger, read at {@code version}
+   * @param version ledger plan version
+   * @return settlement plan response
+   */
+  private SettlementPlanResponse incrementalSettlementPlan(Ledger ledger, long version) {
+    Integer currencyExponent = currencyRegistry.exponentOf(ledger.getBaseCurrency());
+    int exponent = currencyExponent != null ? currencyExponent : 2;
+    List<SettlementPlanResponse.TransferItem> kept =
+        incrementalSettlementPlanner.plan(ledger.getId(), version, exponent);
+    if (kept != null) {
+      Set<Long> userIds = new HashSet<>();
+      for (SettlementPlanResponse.TransferItem transfer : kept) {
+        userIds.add(transfer.getFromUserId());
+        userIds.add(transfer.getToUserId());
+      }
+      Map<Long, String> names = userIds.isEmpty() ? Map.of() : userNameCache.getNames(userIds);
+      List<SettlementPlanResponse.TransferItem> transfers = new ArrayList<>(kept.size());
+      for (SettlementPlanResponse.TransferItem transfer : kept) {
+        String fromName = names.get(transfer.getFromUserId());
+        String toName = names.get(transfer.getToUserId());
+        if (fromName != null && toName != null) {
+          transfers.add(
+              createTransferItem(
+                  transfer.getFromUserId(),
+                  fromName,
+                  transfer.getToUserId(),
+                  toName,
+                  transfer.getAmount()));
+        }
+      }
+      return new SettlementPlanResponse(
+          ledger.getId(),
+          ledger.getBaseCurrency(),
+          version,
+          transfers.size(),
+          transfers,
+          new ArrayList<>());
+    }
 
-    // Calculate net balances with currency conversion
-    Map<Long, BigDecimal> netBalances =
-        calculateNetBalances(allEdges, ledger.getBaseCurrency(), config);
+    SettlementConfig config = new SettlementConfig();
+    Map<Long, BigDecimal> netBalances = loadNetBalances(ledger, config);
+    SettlementPlanResponse plan = computeSettlementPlan(ledger, config, netBalances);
+    if (plan.getUnsettled().isEmpty()
+        && Long.valueOf(version).equals(getBaseMapper().selectPlanVersion(ledger.getId()))) {
+      incrementalSettlementPlanner.seed(
+          ledger.getId(), version, netBalances, plan.getTransfers(), exponent);
+    }
+    return plan;
+  }
+
+  private SettlementPlanResponse computeSettlementPlan(Ledger ledger, SettlementConfig config) {
+    // Per-member net balances in base currency
+    return computeSettlementPlan(ledger, config, loadNetBalances(ledger, config));
+  }
 
+  private SettlementPlanResponse computeSettlementPlan(
+      Ledger ledger, SettlementConfig config, Map<Long, BigDecimal> netBalances) {
     // Generate settlement plan with constraints
+    List<SettlementPlanResponse.UnsettledItem> unsettled = new ArrayList<>();
     List<SettlementPlanResponse.TransferItem> transfers =
-        generateSettlementPlan(netBalances, config, ledger.getBaseCurrency());
+        generateSettlementPlan(netBalances, config, ledger.getBaseCurrency(), unsettled);
 
     return new SettlementPlanResponse(
-        ledgerId, ledger.getBaseCurrency(), transfers.size(), transfers);
+        ledger.getId(),
+        ledger.getBaseCurrency(),
+        ledger.getPlanVersion() != null ? ledger.getPlanVersion() : 0L,
+        transfers.size(),
+        transfers,
+        unsettled);
+  }
+
+  @Override
+  public SettlementComparisonResponse compareSettlementPlans(
+      Long ledgerId, SettlementComparisonRequest req) {
+    UserView currentUser = CurrentUserContext.get();
+    if (currentUser == null) {
+      throw new RuntimeException("AUTH_REQUIRED");
+    }
+
+    Ledger ledger = getById(ledgerId);
+    if (ledger == null) {
+      throw new RuntimeException("LEDGER_NOT_FOUND");
+    }
+
+    AuthUtils.checkMembership(isMember(ledgerId, currentUser.getId()));
+
+    // Balances only depend on a config's currency rates, so they are loaded once per distinct rate
+    // map (normally exactly once) and shared read-only by every variant solving in parallel
+    Map<Map<String, BigDecimal>, Map<Long, BigDecimal>> balancesByRates = new HashMap<>();
+    List<CompletableFuture<SettlementComparisonResponse.Variant>> variants =
+        new ArrayList<>(req.getConfigs().size());
+    for (SettlementConfig requested : req.getConfigs()) {
+      SettlementConfig config = requested != null ? requested : new SettlementConfig();
+      Map<Long, BigDecimal> netBalances =
+          balancesByRates.computeIfAbsent(
+              config.getCurrencyRates(),
+              rates -> Collections.unmodifiableMap(loadNetBalances(ledger, config)));
+      variants.add(
+          CompletableFuture.supplyAsync(
+              () -> evaluateVariant(ledger, config, netBalances), settlementExecutor));
+    }
+
+    List<SettlementComparisonResponse.Variant> results = new ArrayList<>(variants.size());
+    for (CompletableFuture<SettlementComparisonResponse.Variant> variant : variants) {
+      results.add(join(variant));
+    }
+    return new SettlementComparisonResponse(
+        ledgerId,
+        ledger.getBaseCurrency(),
+        ledger.getPlanVersion() != null ? ledger.getPlanVersion() : 0L,
+        results);
+  }
+
+  private SettlementComparisonResponse.Variant evaluateVariant(
+      Ledger ledger, SettlementConfig config, Map<Long, BigDecimal> netBalances) {
+    long start = System.nanoTime();
+    SettlementPlanResponse plan = computeSettlementPlan(ledger, config, netBalances);
+    long elapsed = System.nanoTime() - start;
+
+    BigDecimal volume = BigDecimal.ZERO;
+    for (SettlementPlanResponse.TransferItem transfer : plan.getTransfers()) {
+      volume = volume.add(transfer.getAmount());
+    }
+    return new SettlementComparisonResponse.Variant(
+        config,
+        plan.getTransferCount(),
+        volume,
+        BigDecimal.valueOf(elapsed, 6).setScale(3, RoundingMode.HALF_UP),
+        plan.getTransfers(),
+        plan.getUnsettled());
+  }
+
+  @Override
+  public GlobalSettleUpResponse getGlobalSettleUp(GlobalSettleUpRequest req) {
+    UserView currentUser = CurrentUserContext.get();
+    if (currentUser == null) {
+      throw new RuntimeException("AUTH_REQUIRED");
+    }
+    Long userId = currentUser.getId();
+    String currency = req.getCurrency();
+
+    List<Long> ledgerIds =
+        ledgerMemberMapper
+            .selectList(new LambdaQueryWrapper<LedgerMember>().eq(LedgerMember::getUserId, userId))
+            .stream()
+            .map(LedgerMember::getLedgerId)
+            .collect(Collectors.toList());
+    List<Ledger> ledgers =
+        ledgerIds.isEmpty()
+            ? List.of()
+            : listByIds(ledgerIds).stream()
+                .filter(l -> "GROUP_BALANCE".equals(l.getLedgerType()))
+                .sorted((a, b) -> a.getId().compareTo(b.getId()))
+                .collect(Collectors.toList());
+
+    SettlementConfig rates = new SettlementConfig();
+    rates.setCurrencyRates(req.getCurrencyRates());
+    for (Ledger ledger : ledgers) {
+      if (!hasRate(ledger.getBaseCurrency(), currency, rates)) {
+        throw new RuntimeException(
+            "CURRENCY_RATE_MISSING: " + ledger.getBaseCurrency() + "-" + currency);
+      }
+    }
+
+    // Each ledger's plan is computed (or served from the plan cache) on the settlement pool; the
+    // caller only needs the transfers that involve it
+    SettlementConfig planConfig = new SettlementConfig();
+    List<CompletableFuture<SettlementPlanResponse>> plans = new ArrayList<>(ledgers.size());
+    for (Ledger ledger : ledgers) {
+      long version = ledger.getPlanVersion() != null ? ledger.getPlanVersion() : 0L;
+      plans.add(
+          CompletableFuture.supplyAsync(
+              () -> cachedSettlementPlan(ledger, version, planConfig), settlementExecutor));
+    }
+
+    // Positive amounts are owed to the user, negative ones owed by the user
+    Map<Long, BigDecimal> net = new TreeMap<>();
+    Map<Long, List<GlobalSettleUpResponse.Allocation>> allocations = new HashMap<>();
+    for (int i = 0; i < ledgers.size(); i++) {
+      Ledger ledger = ledgers.get(i);
+      for (SettlementPlanResponse.TransferItem transfer : join(plans.get(i)).getTransfers()) {
+        Long counterparty;
+        BigDecimal amount;
+        if (userId.equals(transfer.getToUserId())) {
+          counterparty = transfer.getFromUserId();
+          amount = transfer.getAmount();
+        } else if (userId.equals(transfer.getFromUserId())) {
+          counterparty = transfer.getToUserId();
+          amount = transfer.getAmount().negate();
+        } else {
+          continue;
+        }
+        BigDecimal converted = convertCurrency(amount, ledger.getBaseCurrency(), currency, rates);
+        net.merge(counterparty, converted, BigDecimal::add);
+        allocations
+            .computeIfAbsent(counterparty, k -> new ArrayList<>())
+            .add(
+                new GlobalSettleUpResponse.Allocation(
+                    ledger.getId(), ledger.getName(), ledger.getBaseCurrency(), amount, converted));
+      }
+    }
+
+    Integer currencyExponent = currencyRegistry.exponentOf(currency);
+    int exponent = currencyExponent != null ? currencyExponent : 2;
+    Set<Long> userIds = new TreeSet<>(net.keySet());
+    userIds.add(userId);
+    Map<Long, String> names = net.isEmpty() ? Map.of() : userNameCache.getNames(userIds);
+
+    List<GlobalSettleUpResponse.Transfer> transfers = new ArrayList<>();
+    for (Map.Entry<Long, BigDecimal> entry : net.entrySet()) {
+      BigDecimal amount = entry.getValue().setScale(exponent, RoundingMode.HALF_UP);
+      if (amount.signum() == 0) {
+        continue;
+      }
+      boolean owedToUser = amount.signum() > 0;
+      List<GlobalSettleUpResponse.Allocation> shares = allocations.get(entry.getKey());
+      for (GlobalSettleUpResponse.Allocation share : shares) {
+        BigDecimal converted = share.getConvertedAmount().setScale(exponent, RoundingMode.HALF_UP);
+        share.setAmount(owedToUser ? share.getAmount() : share.getAmount().negate());
+        share.setConvertedAmount(owedToUser ? converted : converted.negate());
+      }
+      Long from = owedToUser ? entry.getKey() : userId;
+      Long to = owedToUser ? userId : entry.getKey();
+      transfers.add(
+          new GlobalSettleUpResponse.Transfer(
+              from, names.get(from), to, names.get(to), amount.abs(), shares));
+    }
+
+    return new GlobalSettleUpResponse(
+        userId, currency, ledgers.size(), transfers.size(), transfers);
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  @Transactional
+  public BalanceRebuildReport rebuildBalances(Long ledgerId, boolean dryRun) {
+    UserView currentUser = CurrentUserContext.get();
+    if (currentUser == null) {
+      throw new RuntimeException("AUTH_REQUIRED");
+    }
+
+    AuthUtils.checkRole(getLedgerMember(ledgerId, currentUser.getId()), "OWNER", "ADMIN");
+
+    return reconcileBalances(ledgerId, !dryRun);
+  }
+
+  @Override
+  @Transactional
+  public BalanceRebuildReport reconcileBalances(Long ledgerId, boolean repair) {
+    // Snapshot writers lock the ledger row before touching the snapshot, so holding it keeps them
+    // from interleaving with the recomputation
+    Ledger ledger = getBaseMapper().selectByIdForUpdate(ledgerId);
+    if (ledger == null) {
+      throw new RuntimeException("LEDGER_NOT_FOUND");
+    }
+
+    Map<Long, BigDecimal> stored = new HashMap<>();
+    for (LedgerUserBalance row : ledgerUserBalanceMapper.findByLedgerIdForUpdate(ledgerId)) {
+      stored.put(row.getUserId(), row.getNetAmountBase());
+    }
+
+    Map<Long, BigDecimal> recomputed =
+        calculateNetBalances(
+            debtEdgeMapper.sumNetByLedgerId(ledgerId),
+            ledger.getBaseCurrency(),
+            new SettlementConfig());
+
+    Set<Long> userIds = new TreeSet<>(stored.keySet());
+    userIds.addAll(recomputed.keySet());
+
+    List<BalanceRebuildReport.DriftItem> drifts = new ArrayList<>();
+    List<LedgerUserBalance> corrections = new ArrayList<>();
+    LocalDateTime now = LocalDateTime.now();
+    for (Long userId : userIds) {
+      BigDecimal storedAmount = stored.get(userId);
+      BigDecimal recomputedAmount = recomputed.getOrDefault(userId, BigDecimal.ZERO);
+      if (storedAmount != null && storedAmount.compareTo(recomputedAmount) == 0) {
+        continue;
+      }
+      // A missing row is only drift when the member actually has a non-zero balance, but it is
+      // still written so the ledger gets a complete snapshot
+      if (storedAmount != null || recomputedAmount.signum() != 0) {
+        drifts.add(new BalanceRebuildReport.DriftItem(userId, storedAmount, recomputedAmount));
+      }
+      corrections.add(balanceRow(ledgerId, userId, recomputedAmount, now));
+    }
+
+    boolean repaired = repair && !corrections.isEmpty();
+    if (repaired) {
+      ledgerUserBalanceMapper.upsertBatch(corrections);
+      getBaseMapper().bumpPlanVersion(ledgerId);
+    }
+    if (repair && !Boolean.TRUE.equals(ledger.getBalancesInitialized())) {
+      // Every member now has a row, so readers can trust the snapshot and writers add deltas to it
+      getBaseMapper().markBalancesInitialized(ledgerId);
+    }
+
+    return new BalanceRebuildReport(ledgerId, userIds.size(), drifts.size(), repaired, drifts);
+  }
+
+  @Override
+  @Transactional
+  public SettlementExecutionResponse executeSettlementPlan(
+      Long ledgerId, ExecuteSettlementRequest req) {
+    UserView currentUser = CurrentUserContext.get();
+    if (currentUser == null) {
+      throw new RuntimeException("AUTH_REQUIRED");
+    }
+
+    AuthUtils.checkRole(getLedgerMember(ledgerId, currentUser.getId()), "OWNER", "ADMIN");
+
+    // Holding the ledger row serializes executions and plan version bumps, so the version checked
+    // here is still current when the batch commits
+    Ledger ledger = getBaseMapper().selectByIdForUpdate(ledgerId);
+    if (ledger == null) {
+      throw new RuntimeException("LEDGER_NOT_FOUND");
+    }
+
+    // Executing bumps the version, so a retry of an executed plan is recognised by its batch
+    // before the version check would reject it
+    SettlementBatch existing =
+        settlementBatchMapper.findByLedgerAndVersion(ledgerId, req.getPlanVersion());
+    if (existing != null) {
+      return replayedExecution(ledger, existing);
+    }
+
+    long version = ledger.getPlanVersion() != null ? ledger.getPlanVersion() : 0L;
+    if (req.getPlanVersion() != version) {
+      throw new RuntimeException("PLAN_VERSION_CONFLICT");
+    }
+
+    SettlementConfig config = req.getConfig() != null ? req.getConfig() : new SettlementConfig();
+    SettlementPlanResponse plan = cachedSettlementPlan(ledger, version, config);
+    if (plan.getTransfers().isEmpty()) {
+      throw new RuntimeException("NOTHING_TO_SETTLE");
+    }
+
+    LocalDateTime now = LocalDateTime.now();
+    SettlementBatch batch = new SettlementBatch();
+    batch.setLedgerId(ledgerId);
+    batch.setPlanVersion(version);
+    batch.setExecutedBy(currentUser.getId());
+    batch.setTransferCount(plan.getTransfers().size());
+    batch.setCreatedAt(now);
+    settlementBatchMapper.insert(batch);
+
+    String method = req.getMethod() != null ? req.getMethod() : "OTHER";
+    List<Settlement> settlements = new ArrayList<>(plan.getTransfers().size());
+    List<DebtEdge> offsets = new ArrayList<>(plan.getTransfers().size());
+    for (SettlementPlanResponse.TransferItem transfer : plan.getTransfers()) {
+      Settlement settlement = new Settlement(); // NOPMD - Must create new object in loop
+      settlement.setLedgerId(ledgerId);
+      settlement.setFromUserId(transfer.getFromUserId());
+      settlement.setToUserId(transfer.getToUserId());
+      settlement.setAmount(transfer.getAmount());
+      settlement.setCurrency(ledger.getBaseCurrency());
+      settlement.setMethod(method);
+      settlement.setSettledAt(now);
+      settlement.setNote(req.getNote());
+      settlement.setPlanBatchId(batch.getId());
+      settlements.add(settlement);
+
+      // The payer's payment makes the receiver owe it back, cancelling the debt being settled
+      DebtEdge offset = new DebtEdge(); // NOPMD - Must create new object in loop
+      offset.setLedgerId(ledgerId);
+      offset.setFromUserId(transfer.getFromUserId());
+      offset.setToUserId(transfer.getToUserId());
+      offset.setAmount(transfer.getAmount());
+      offset.setEdgeCurrency(ledger.getBaseCurrency());
+      offset.setCreatedAt(now);
+      offsets.add(offset);
+    }
+    settlementMapper.insertBatch(settlements);
+    debtEdgeMapper.insertBatch(offsets);
+
+    if (Boolean.TRUE.equals(ledger.getBalancesInitialized())) {
+      Map<Long, BigDecimal> deltas = new TreeMap<>();
+      for (DebtEdge offset : offsets) {
+        deltas.merge(offset.getFromUserId(), offset.getAmount(), BigDecimal::add);
+        deltas.merge(offset.getToUserId(), offset.getAmount().negate(), BigDecimal::add);
+      }
+      List<LedgerUserBalance> rows = new ArrayList<>(deltas.size());
+      for (Map.Entry<Long, BigDecimal> entry : deltas.entrySet()) {
+        rows.add(balanceRow(ledgerId, entry.getKey(), entry.getValue(), now));
+      }
+      ledgerUserBalanceMapper.applyDeltas(rows);
+    } else {
+      // Deltas on a partial snapshot would be wrong; seed it from every edge, offsets included
+      reconcileBalances(ledgerId, true);
+    }
+    getBaseMapper().bumpPlanVersion(ledgerId);
+
+    return new SettlementExecutionResponse(
+        ledgerId, batch.getId(), version, ledger.getBaseCurrency(), false, plan.getTransfers());
+  }
+
+  private SettlementExecutionResponse replayedExecution(Ledger ledger, SettlementBatch batch) {
+    List<Settlement> settlements = settlementMapper.findByPlanBatchId(batch.getId());
+    Set<Long> userIds = new TreeSet<>();
+    for (Settlement settlement : settlements) {
+      userIds.add(settlement.getFromUserId());
+      userIds.add(settlement.getToUserId());
+    }
+    Map<Long, String> names = userIds.isEmpty() ? Map.of() : userNameCache.getNames(userIds);
+
+    List<SettlementPlanResponse.TransferItem> transfers = new ArrayList<>(settlements.size());
+    for (Settlement settlement : settlements) {
+      transfers.add(
+          createTransferItem(
+              settlement.getFromUserId(),
+              names.get(settlement.getFromUserId()),
+              settlement.getToUserId(),
+              names.get(settlement.getToUserId()),
+              settlement.getAmount()));
+    }
+    return new SettlementExecutionResponse(
+        ledger.getId(),
+        batch.getId(),
+        batch.getPlanVersion(),
+        ledger.getBaseCurrency(),
+        true,
+        transfers);
+  }
+
+  private static LedgerUserBalance balanceRow(
+      Long ledgerId, Long userId, BigDecimal amount, LocalDateTime now) {
+    LedgerUserBalance row = new LedgerUserBalance();
+    row.setLedgerId(ledgerId);
+    row.setUserId(userId);
+    row.setNetAmountBase(amount);
+    row.setRecalculatedAt(now);
+    return row;
   }
 
   /**
-   * Calculate net balances from debt edges, handling symmetry and currency conversion. If A owes B
-   * 20 and B owes A 40, the net becomes B owes A 20. Converts all amounts to base currency.
+   * Load per-member net balances in base currency. Reads the materialized ledger_user_balances
+   * snapshot, which is O(members), and only folds the full debt edge history when the snapshot has
+   * not been seeded yet (see {@link #reconcileBalances}) or the caller supplies per-request
+   * currency rates (the snapshot is kept in base currency, so raw edges are needed to apply them).
    *
-   * @param edges all debt edges for the ledger
+   * @param ledger the ledger
+   * @param config settlement configuration
+   * @return map of user ID to net balance (positive = creditor, negative = debtor)
+   */
+  private Map<Long, BigDecimal> loadNetBalances(Ledger ledger, SettlementConfig config) {
+    if (config.getCurrencyRates() == null && Boolean.TRUE.equals(ledger.getBalancesInitialized())) {
+      Map<Long, BigDecimal> balances = new HashMap<>();
+      for (LedgerUserBalance row : ledgerUserBalanceMapper.findByLedgerId(ledger.getId())) {
+        balances.put(row.getUserId(), row.getNetAmountBase());
+      }
+      return balances;
+    }
+
+    // Let MySQL fold the edge history; only one row per member and currency comes back
+    List<NetBalanceRow> rows = debtEdgeMapper.sumNetByLedgerId(ledger.getId());
+    return calculateNetBalances(rows, ledger.getBaseCurrency(), config);
+  }
+
+  /**
+   * Calculate net balances from per-currency net sums of the ledger's debt edges, converting each
+   * sum to base currency. Symmetric debts have already cancelled in the sums: if A owes B 20 and B
+   * owes A 40, B's row is +20 and A's is -20.
+   *
+   * @param rows net edge sums per member and edge currency
    * @param baseCurrency target currency for conversion
    * @param config settlement configuration with currency rates
    * @return map of user ID to net balance (positive = creditor, negative = debtor) in base currency
    */
   private Map<Long, BigDecimal> calculateNetBalances(
-      List<DebtEdge> edges, String baseCurrency, SettlementConfig config) {
+      List<NetBalanceRow> rows, String baseCurrency, SettlementConfig config) {
     Map<Long, BigDecimal> balances = new HashMap<>();
 
-    for (DebtEdge edge : edges) {
-      Long creditorId = edge.getFromUserId();
-      Long debtorId = edge.getToUserId();
-      BigDecimal amount = edge.getAmount();
+    for (NetBalanceRow row : rows) {
+      BigDecimal amount = row.getNetAmount();
 
       // Convert to base currency if needed
-      String edgeCurrency = edge.getEdgeCurrency() != null ? edge.getEdgeCurrency() : baseCurrency;
+      String edgeCurrency = row.getEdgeCurrency() != null ? row.getEdgeCurrency() : baseCurrency;
       if (!edgeCurrency.equals(baseCurrency)) {
         amount = convertCurrency(amount, edgeCurrency, baseCurrency, config);
       }
 
-      balances.put(creditorId, balances.getOrDefault(creditorId, BigDecimal.ZERO).add(amount));
-      balances.put(debtorId, balances.getOrDefault(debtorId, BigDecimal.ZERO).subtract(amount));
+      balances.merge(row.getUserId(), amount, BigDecimal::add);
     }
 
     return balances;
   }
 
   /**
-   * Convert amount from source currency to target currency using rates from config or 1:1 if same
-   * currency.
+   * Check whether an amount can be converted between two currencies with the request's rates or the
+   * server-side exchange rates.
+   *
+   * @param fromCurrency source currency
+   * @param toCurrency target currency
+   * @param config settlement config with currency rates
+   * @return true if the currencies match, a direct or reverse rate is configured, or the exchange
+   *     rate registry can convert between them
+   */
+  private boolean hasRate(String fromCurrency, String toCurrency, SettlementConfig config) {
+    if (fromCurrency.equals(toCurrency)) {
+      return true;
+    }
+    Map<String, BigDecimal> rates = config.getCurrencyRates();
+    if (rates != null
+        && (rates.containsKey(fromCurrency + "-" + toCurrency)
+            || rates.containsKey(toCurrency + "-" + fromCurrency))) {
+      return true;
+    }
+    return exchangeRateRegistry.hasRate(fromCurrency, toCurrency);
+  }
+
+  /**
+   * Convert amount from source currency to target currency. Rates supplied with the request take
+   * precedence; otherwise the server-side cross-rate matrix is used.
    *
    * @param amount amount to convert
    * @param fromCurrency source currency
    * @param toCurrency target currency
    * @param config settlement config with currency rates
    * @return converted amount
+   * @throws RuntimeException CURRENCY_RATE_MISSING if neither source has a rate for the pair
    */
   private BigDecimal convertCurrency(
       BigDecimal amount, String fromCurrency, String toCurrency, SettlementConfig config) {
@@ -390,22 +985,26 @@ public class LedgerServiceImpl extends ServiceImpl<LedgerMapper, Ledger> impleme
       }
     }
 
-    // Default: assume 1:1 (or throw error for production)
-    // For now, we'll use 1:1 as fallback
-    return amount;
+    return exchangeRateRegistry.convert(amount, fromCurrency, toCurrency);
   }
 
   /**
-   * Generate settlement plan using heap-greedy or min-cost flow algorithm based on config. Applies
-   * rounding, caps, and payment channel constraints.
+   * Generate settlement plan using the exact, heap-greedy or min-cost flow algorithm based on
+   * config. Applies rounding, caps, and payment channel constraints. Member names and the currency
+   * exponent are resolved once up front, so the number of queries does not grow with the member
+   * count.
    *
    * @param netBalances map of user ID to net balance
    * @param config settlement configuration
    * @param baseCurrency currency for rounding
+   * @param unsettled receives the balances the plan leaves open
    * @return list of transfer instructions (who pays whom how much)
    */
   private List<SettlementPlanResponse.TransferItem> generateSettlementPlan(
-      Map<Long, BigDecimal> netBalances, SettlementConfig config, String baseCurrency) {
+      Map<Long, BigDecimal> netBalances,
+      SettlementConfig config,
+      String baseCurrency,
+      List<SettlementPlanResponse.UnsettledItem> unsettled) {
 
     // Check if we should use min-cost flow
     boolean useMinCostFlow = false;
@@ -413,22 +1012,53 @@ public class LedgerServiceImpl extends ServiceImpl<LedgerMapper, Ledger> impleme
       useMinCostFlow = true;
     }
 
+    Integer currencyExponent = currencyRegistry.exponentOf(baseCurrency);
+    int exponent = currencyExponent != null ? currencyExponent : 2;
+    RoundingMode mode = roundingMode(config);
+
+    List<Long> holders = new ArrayList<>();
+    for (Map.Entry<Long, BigDecimal> entry : netBalances.entrySet()) {
+      if (entry.getValue().signum() != 0) {
+        holders.add(entry.getKey());
+      }
+    }
+    Map<Long, String> names = holders.isEmpty() ? Map.of() : userNameCache.getNames(holders);
+    ChannelIndex channels = ChannelIndex.compile(config, holders);
+
     List<SettlementPlanResponse.TransferItem> transfers;
 
+    if ("EXACT".equals(config.getAlgorithm())) {
+      transfers =
+          generateExactSettlement(netBalances, names, channels, config, exponent, mode, unsettled);
+      if (transfers != null) {
+        return transfers;
+      }
+      // Too many members or out of time: fall through to the default algorithms
+    }
+
     if (useMinCostFlow) {
-      transfers = generateMinCostFlowSettlement(netBalances, config, baseCurrency);
+      transfers =
+          generateMinCostFlowSettlement(
+              netBalances, names, channels, config, exponent, mode, unsettled);
     } else {
-      transfers = generateHeapGreedySettlement(netBalances, config, baseCurrency);
+      List<SettlementPlanResponse.UnsettledItem> greedyUnsettled = new ArrayList<>();
+      transfers =
+          generateHeapGreedySettlement(
+              netBalances, names, channels, config, exponent, mode, greedyUnsettled);
 
       // Check if we should fallback to min-cost flow
       if (config.getMinCostFlowThreshold() != null
           && transfers.size() > config.getMinCostFlowThreshold()) {
+        List<SettlementPlanResponse.UnsettledItem> minCostUnsettled = new ArrayList<>();
         List<SettlementPlanResponse.TransferItem> minCostTransfers =
-            generateMinCostFlowSettlement(netBalances, config, baseCurrency);
+            generateMinCostFlowSettlement(
+                netBalances, names, channels, config, exponent, mode, minCostUnsettled);
         if (minCostTransfers.size() < transfers.size()) {
           transfers = minCostTransfers;
+          greedyUnsettled = minCostUnsettled;
         }
       }
+      unsettled.addAll(greedyUnsettled);
     }
 
     return transfers;
@@ -436,252 +1066,443 @@ public class LedgerServiceImpl extends ServiceImpl<LedgerMapper, Ledger> impleme
 
   /**
    * Generate settlement plan using heap-greedy algorithm. Matches largest creditors with largest
-   * debtors to minimize number of transfers.
+   * debtors to minimize number of transfers. Balances are held as minor units at storage scale.
    *
    * @param netBalances map of user ID to net balance
+   * @param names display names of balance holders; members without one are skipped
+   * @param channels compiled payment channel blocks
    * @param config settlement configuration
-   * @param baseCurrency currency for rounding
+   * @param exponent currency exponent transfers are rounded to
+   * @param mode rounding mode, or null to keep full precision
+   * @param unsettled receives the balances the plan leaves open
    * @return list of transfer instructions
    */
   private List<SettlementPlanResponse.TransferItem> generateHeapGreedySettlement(
-      Map<Long, BigDecimal> netBalances, SettlementConfig config, String baseCurrency) {
+      Map<Long, BigDecimal> netBalances,
+      Map<Long, String> names,
+      ChannelIndex channels,
+      SettlementConfig config,
+      int exponent,
+      RoundingMode mode,
+      List<SettlementPlanResponse.UnsettledItem> unsettled) {
 
     List<SettlementPlanResponse.TransferItem> transfers = new ArrayList<>();
+    int scale = unitScale(netBalances, exponent, mode);
 
-    PriorityQueue<BalanceEntry> creditors =
-        new PriorityQueue<>((a, b) -> b.getAmount().compareTo(a.getAmount()));
-    PriorityQueue<BalanceEntry> debtors =
-        new PriorityQueue<>((a, b) -> a.getAmount().compareTo(b.getAmount()));
-
-    Map<Long, User> userCache = new HashMap<>();
+    MemberBalances members = new MemberBalances(netBalances.size());
+    SlotHeap creditors = new SlotHeap(members, true);
+    SlotHeap debtors = new SlotHeap(members, false);
 
     for (Map.Entry<Long, BigDecimal> entry : netBalances.entrySet()) {
       BigDecimal balance = entry.getValue();
-      if (balance.compareTo(BigDecimal.ZERO) > 0) {
-        User user = userCache.computeIfAbsent(entry.getKey(), userMapper::selectById);
-        if (user != null) {
-          creditors.offer(new BalanceEntry(entry.getKey(), user.getName(), balance));
-        }
-      } else if (balance.compareTo(BigDecimal.ZERO) < 0) {
-        User user = userCache.computeIfAbsent(entry.getKey(), userMapper::selectById);
-        if (user != null) {
-          debtors.offer(new BalanceEntry(entry.getKey(), user.getName(), balance.abs()));
-        }
+      if (balance.signum() == 0 || !names.containsKey(entry.getKey())) {
+        continue;
+      }
+      long units = MinorUnits.of(balance.abs(), scale, RoundingMode.HALF_UP);
+      if (units == 0) {
+        continue;
+      }
+      int slot =
+          members.add(
+              entry.getKey(), names.get(entry.getKey()), units, channels.ordinal(entry.getKey()));
+      if (balance.signum() > 0) {
+        creditors.offer(slot);
+      } else {
+        debtors.offer(slot);
       }
     }
 
-    processSettlementsWithConstraints(creditors, debtors, transfers, config, baseCurrency);
+    processSettlementsWithConstraints(
+        members,
+        creditors,
+        debtors,
+        transfers,
+        unsettled,
+        channels,
+        transferRounding(config, scale, exponent, mode));
     return transfers;
   }
 
   /**
-   * Generate settlement plan using min-cost flow algorithm (simplified implementation). Uses
-   * Edmonds-Karp style approach for minimal transfers.
+   * Generate settlement plan with the minimum number of transfers. Balances are split into the
+   * largest number of zero-sum groups and each group is settled on its own with the heap-greedy
+   * constraint loop, which needs at most one transfer fewer than the group has members. Caps and
+   * blocked payment channels can still add transfers inside a group.
    *
    * @param netBalances map of user ID to net balance
+   * @param names display names of balance holders; members without one are skipped
+   * @param channels compiled payment channel blocks
    * @param config settlement configuration
-   * @param baseCurrency currency for rounding
-   * @return list of transfer instructions
+   * @param exponent currency exponent transfers are rounded to
+   * @param mode rounding mode, or null to keep full precision
+   * @param unsettled receives the balances the plan leaves open
+   * @return list of transfer instructions, or null if the solver declined the ledger
    */
-  private List<SettlementPlanResponse.TransferItem> generateMinCostFlowSettlement(
-      Map<Long, BigDecimal> netBalances, SettlementConfig config, String baseCurrency) {
-
-    // Simplified min-cost flow: create a flow network and find minimal cost matching
-    // For production, use a proper min-cost flow library, but for now we'll use a greedy
-    // approach that considers all pairs
-
-    List<SettlementPlanResponse.TransferItem> transfers = new ArrayList<>();
-    Map<Long, User> userCache = new HashMap<>();
+  private List<SettlementPlanResponse.TransferItem> generateExactSettlement(
+      Map<Long, BigDecimal> netBalances,
+      Map<Long, String> names,
+      ChannelIndex channels,
+      SettlementConfig config,
+      int exponent,
+      RoundingMode mode,
+      List<SettlementPlanResponse.UnsettledItem> unsettled) {
 
-    // Create lists of creditors and debtors
-    List<BalanceEntry> creditors = new ArrayList<>();
-    List<BalanceEntry> debtors = new ArrayList<>();
+    int scale = unitScale(netBalances, exponent, mode);
 
+    MemberBalances members = new MemberBalances(netBalances.size());
+    long[] signed = new long[netBalances.size()];
     for (Map.Entry<Long, BigDecimal> entry : netBalances.entrySet()) {
       BigDecimal balance = entry.getValue();
-      User user = userCache.computeIfAbsent(entry.getKey(), userMapper::selectById);
-      if (user == null) {
+      if (balance.signum() == 0 || !names.containsKey(entry.getKey())) {
         continue;
       }
+      long units = MinorUnits.of(balance.abs(), scale, RoundingMode.HALF_UP);
+      if (units == 0) {
+        continue;
+      }
+      int slot =
+          members.add(
+              entry.getKey(), names.get(entry.getKey()), units, channels.ordinal(entry.getKey()));
+      signed[slot] = balance.signum() > 0 ? units : -units;
+    }
+    if (members.size > zeroSumSubsetSolver.maxMembers()) {
+      return null;
+    }
+
+    long[] balances = Arrays.copyOf(signed, members.size);
+    int[][] groups = zeroSumSubsetSolver.partition(balances);
+    if (groups == null) {
+      return null;
+    }
 
-      if (balance.compareTo(BigDecimal.ZERO) > 0) {
-        creditors.add(new BalanceEntry(entry.getKey(), user.getName(), balance));
-      } else if (balance.compareTo(BigDecimal.ZERO) < 0) {
-        debtors.add(new BalanceEntry(entry.getKey(), user.getName(), balance.abs()));
+    TransferRounding rounding = transferRounding(config, scale, exponent, mode);
+    List<SettlementPlanResponse.TransferItem> transfers = new ArrayList<>();
+    SlotHeap creditors = new SlotHeap(members, true);
+    SlotHeap debtors = new SlotHeap(members, false);
+    for (int[] group : groups) {
+      for (int member : group) {
+        if (balances[member] > 0) {
+          creditors.offer(member);
+        } else {
+          debtors.offer(member);
+        }
       }
+      // The loop drains both heaps, so they start empty for the next group
+      processSettlementsWithConstraints(
+          members, creditors, debtors, transfers, unsettled, channels, rounding);
     }
+    return transfers;
+  }
 
-    // Sort by amount (largest first for creditors, largest first for debtors)
-    creditors.sort((a, b) -> b.getAmount().compareTo(a.getAmount()));
-    debtors.sort((a, b) -> b.getAmount().compareTo(a.getAmount()));
+  /**
+   * Generate settlement plan using min-cost flow. Balances are converted to minor units of the
+   * settlement currency, blocked payment channels are left out of the network and each pair's flow
+   * is paid in transfers no larger than the cap.
+   *
+   * @param netBalances map of user ID to net balance
+   * @param names display names of balance holders; members without one are skipped
+   * @param channels compiled payment channel blocks
+   * @param config settlement configuration
+   * @param exponent currency exponent balances are rounded to
+   * @param mode rounding mode, or null to keep full precision
+   * @param unsettled receives the balances the flow could not route
+   * @return list of transfer instructions
+   */
+  private List<SettlementPlanResponse.TransferItem> generateMinCostFlowSettlement(
+      Map<Long, BigDecimal> netBalances,
+      Map<Long, String> names,
+      ChannelIndex channels,
+      SettlementConfig config,
+      int exponent,
+      RoundingMode mode,
+      List<SettlementPlanResponse.UnsettledItem> unsettled) {
+
+    int scale = mode != null ? exponent : unitScale(netBalances, exponent, null);
+    RoundingMode balanceMode = mode != null ? mode : RoundingMode.HALF_UP;
 
-    // Greedy matching with constraint checking
-    boolean[] creditorUsed = new boolean[creditors.size()];
-    boolean[] debtorUsed = new boolean[debtors.size()];
+    MemberBalances creditors = new MemberBalances(netBalances.size());
+    MemberBalances debtors = new MemberBalances(netBalances.size());
 
-    for (int i = 0; i < creditors.size(); i++) {
-      if (creditorUsed[i]) {
+    for (Map.Entry<Long, BigDecimal> entry : netBalances.entrySet()) {
+      BigDecimal balance = entry.getValue();
+      if (!names.containsKey(entry.getKey())) {
         continue;
       }
 
-      BalanceEntry creditor = creditors.get(i);
+      long units = MinorUnits.of(balance.abs(), scale, balanceMode);
+      if (units == 0) {
+        continue;
+      }
+      (balance.signum() > 0 ? creditors : debtors)
+          .add(entry.getKey(), names.get(entry.getKey()), units, channels.ordinal(entry.getKey()));
+    }
 
-      for (int j = 0; j < debtors.size(); j++) {
-        if (debtorUsed[j]) {
-          continue;
-        }
+    long[] credits = Arrays.copyOf(creditors.amounts, creditors.size);
+    long[] debts = Arrays.copyOf(debtors.amounts, debtors.size);
 
-        BalanceEntry debtor = debtors.get(j);
+    long maxTransfer = 0;
+    if (config.getMaxTransferAmount() != null && config.getMaxTransferAmount().signum() > 0) {
+      maxTransfer =
+          Math.max(1, MinorUnits.of(config.getMaxTransferAmount(), scale, RoundingMode.DOWN));
+    }
 
-        // Check payment channel constraint
-        if (!isPaymentChannelAllowed(debtor.getUserId(), creditor.getUserId(), config)) {
-          continue;
-        }
+    MinCostFlowSolver.PairFilter filter = null;
+    if (channels.hasBlocks()) {
+      filter = (i, j) -> channels.allowed(debtors.ordinals[i], creditors.ordinals[j]);
+    }
 
-        BigDecimal transferAmount = calculateTransferAmount(creditor, debtor, config, baseCurrency);
+    MinCostFlowSolver.Plan plan = MinCostFlowSolver.solve(debts, credits, filter, maxTransfer);
+
+    List<SettlementPlanResponse.TransferItem> transfers = new ArrayList<>(plan.size());
+    for (int k = 0; k < plan.size(); k++) {
+      int debtor = plan.debtor(k);
+      int creditor = plan.creditor(k);
+      debtors.amounts[debtor] -= plan.amount(k);
+      creditors.amounts[creditor] -= plan.amount(k);
+      transfers.add(
+          createTransferItem(
+              debtors.userIds[debtor],
+              debtors.names[debtor],
+              creditors.userIds[creditor],
+              creditors.names[creditor],
+              MinorUnits.toDecimal(plan.amount(k), scale)));
+    }
 
-        if (transferAmount.compareTo(BigDecimal.ZERO) > 0) {
-          SettlementPlanResponse.TransferItem transfer =
-              createTransferItem(
-                  debtor.getUserId(),
-                  debtor.getUserName(),
-                  creditor.getUserId(),
-                  creditor.getUserName(),
-                  transferAmount);
-          transfers.add(transfer);
-
-          // Update balances
-          BigDecimal remainingCreditor = creditor.getAmount().subtract(transferAmount);
-          BigDecimal remainingDebtor = debtor.getAmount().subtract(transferAmount);
-
-          if (remainingCreditor.compareTo(BigDecimal.ZERO) <= 0) {
-            creditorUsed[i] = true;
-          } else {
-            creditors.set(
-                i,
-                new BalanceEntry(creditor.getUserId(), creditor.getUserName(), remainingCreditor));
-          }
+    if (plan.unsettled() > 0) {
+      for (int j = 0; j < creditors.size; j++) {
+        addUnsettled(unsettled, creditors, j, creditors.amounts[j], scale);
+      }
+      for (int i = 0; i < debtors.size; i++) {
+        addUnsettled(unsettled, debtors, i, -debtors.amounts[i], scale);
+      }
+    }
+    return transfers;
+  }
 
-          if (remainingDebtor.compareTo(BigDecimal.ZERO) <= 0) {
-            debtorUsed[j] = true;
-            break;
-          } else {
-            debtors.set(
-                j, new BalanceEntry(debtor.getUserId(), debtor.getUserName(), remainingDebtor));
-          }
-        }
+  /**
+   * Pick the minor-unit scale balances are held at: storage precision, or the finest balance when
+   * rounding is disabled so nothing is lost.
+   *
+   * @param netBalances map of user ID to net balance
+   * @param exponent currency exponent
+   * @param mode rounding mode, or null for strategy NONE
+   * @return scale for minor units
+   */
+  private static int unitScale(Map<Long, BigDecimal> netBalances, int exponent, RoundingMode mode) {
+    int scale = Math.max(MinorUnits.STORAGE_SCALE, exponent);
+    if (mode == null) {
+      for (BigDecimal balance : netBalances.values()) {
+        scale = Math.max(scale, balance.stripTrailingZeros().scale());
       }
     }
+    return Math.min(scale, MinorUnits.MAX_SCALE);
+  }
 
-    return transfers;
+  /**
+   * Resolve the configured rounding strategy.
+   *
+   * @param config settlement configuration
+   * @return rounding mode, or null for strategy NONE
+   */
+  private static RoundingMode roundingMode(SettlementConfig config) {
+    String strategy = config.getRoundingStrategy() != null ? config.getRoundingStrategy() : "";
+    switch (strategy) {
+      case "TRIM_TO_UNIT":
+        return RoundingMode.DOWN;
+      case "NONE":
+        return null;
+      default:
+        return RoundingMode.HALF_UP;
+    }
   }
 
   /**
-   * Process settlements with constraints (caps, payment channels, rounding).
+   * Build the per-plan transfer rounding, converting the configured cap to minor units.
    *
-   * @param creditors priority queue of creditors
-   * @param debtors priority queue of debtors
-   * @param transfers list to add transfers to
    * @param config settlement configuration
-   * @param baseCurrency currency for rounding
+   * @param scale unit scale of the balances
+   * @param exponent currency exponent
+   * @param mode rounding mode, or null to keep full precision
+   * @return transfer rounding
+   */
+  private static TransferRounding transferRounding(
+      SettlementConfig config, int scale, int exponent, RoundingMode mode) {
+    long cap = Long.MAX_VALUE;
+    if (config.getMaxTransferAmount() != null) {
+      cap = MinorUnits.of(config.getMaxTransferAmount(), scale, RoundingMode.DOWN);
+    }
+    return new TransferRounding(scale, exponent, mode, cap);
+  }
+
+  /**
+   * Match creditors with debtors under caps, payment channels and rounding. Every pass either
+   * records a transfer that reduces a balance by at least one unit or retires a member, so the loop
+   * always terminates; whatever cannot be settled is reported instead of being dropped silently.
+   *
+   * <p>The largest creditor is matched with the first debtor in queue order allowed to pay it. A
+   * creditor that no remaining debtor may pay is retired as unsettleable. When a pair can only
+   * exchange less than one currency unit, the smaller side is retired as rounding residue.
+   *
+   * <p>Members move between the heaps as slots of {@code members}, so a pass allocates nothing but
+   * its transfer item.
+   *
+   * @param members balances the slots refer to
+   * @param creditors heap of creditor slots, largest first; empty on return
+   * @param debtors heap of debtor slots, smallest first; empty on return
+   * @param transfers list to add transfers to
+   * @param unsettled list to add open balances to
+   * @param channels compiled payment channel blocks
+   * @param rounding unit scale, rounding and cap for transfer amounts
    */
   private void processSettlementsWithConstraints(
-      PriorityQueue<BalanceEntry> creditors,
-      PriorityQueue<BalanceEntry> debtors,
+      MemberBalances members,
+      SlotHeap creditors,
+      SlotHeap debtors,
       List<SettlementPlanResponse.TransferItem> transfers,
-      SettlementConfig config,
-      String baseCurrency) {
-    // Use iterative approach to avoid infinite recursion with blocked channels
-    // Higher limit to handle capped transfers that need multiple iterations
-    int maxIterations = 1000; // Safety limit - high enough for capped transfers
-    int iterations = 0;
-    Set<String> triedPairs = new HashSet<>(); // Track tried pairs to avoid infinite loops
-
-    while (!creditors.isEmpty() && !debtors.isEmpty() && iterations < maxIterations) {
-      iterations++;
-
-      BalanceEntry creditor = creditors.poll();
-      BalanceEntry debtor = debtors.poll();
-
-      // Create pair key to track tried combinations (for blocked channels)
-      String pairKey = debtor.getUserId() + "-" + creditor.getUserId();
-
-      // Check payment channel constraint
-      if (!isPaymentChannelAllowed(debtor.getUserId(), creditor.getUserId(), config)) {
-        triedPairs.add(pairKey);
-        // If we've tried all possible pairs, break
-        if (triedPairs.size() >= creditors.size() * debtors.size() * 2) {
-          creditors.offer(creditor);
-          debtors.offer(debtor);
-          break;
-        }
-        // Try to find alternative pairing - put creditor back, try different debtor
-        creditors.offer(creditor);
-        // Put debtor at end to try other creditors first
-        debtors.offer(debtor);
+      List<SettlementPlanResponse.UnsettledItem> unsettled,
+      ChannelIndex channels,
+      TransferRounding rounding) {
+    long[] amounts = members.amounts;
+    int[] stranded = new int[members.size];
+    int strandedCount = 0;
+    int[] skipped = new int[members.size];
+
+    while (!creditors.isEmpty() && !debtors.isEmpty()) {
+      int creditor = creditors.poll();
+      int debtor = pollAllowedDebtor(members, debtors, creditor, channels, skipped);
+      if (debtor < 0) {
+        // Debtors only shrink, so nobody will be able to pay this creditor later either
+        stranded[strandedCount++] = creditor;
         continue;
       }
 
-      BigDecimal transferAmount = calculateTransferAmount(creditor, debtor, config, baseCurrency);
+      long transferAmount = calculateTransferAmount(amounts[creditor], amounts[debtor], rounding);
 
-      if (transferAmount.compareTo(BigDecimal.ZERO) > 0) {
+      if (transferAmount > 0) {
         SettlementPlanResponse.TransferItem transfer =
             createTransferItem(
-                debtor.getUserId(),
-                debtor.getUserName(),
-                creditor.getUserId(),
-                creditor.getUserName(),
-                transferAmount);
+                members.userIds[debtor],
+                members.names[debtor],
+                members.userIds[creditor],
+                members.names[creditor],
+                rounding.toDecimal(transferAmount));
         transfers.add(transfer);
 
-        BigDecimal remainingCreditor = creditor.getAmount().subtract(transferAmount);
-        BigDecimal remainingDebtor = debtor.getAmount().subtract(transferAmount);
-
-        // Clear tried pairs when we successfully create a transfer
-        // This allows the same pair to be processed again if capped
-        triedPairs.clear();
+        amounts[creditor] -= transferAmount;
+        amounts[debtor] -= transferAmount;
 
-        if (remainingCreditor.compareTo(BigDecimal.ZERO) > 0) {
-          creditors.offer(
-              new BalanceEntry(creditor.getUserId(), creditor.getUserName(), remainingCreditor));
+        if (amounts[creditor] > 0) {
+          creditors.offer(creditor);
         }
 
-        if (remainingDebtor.compareTo(BigDecimal.ZERO) > 0) {
-          debtors.offer(
-              new BalanceEntry(debtor.getUserId(), debtor.getUserName(), remainingDebtor));
+        if (amounts[debtor] > 0) {
+          debtors.offer(debtor);
         }
-      } else {
-        // Put them back if transfer amount is zero (shouldn't happen, but safety check)
+      } else if (Math.min(amounts[creditor], amounts[debtor]) > rounding.cap) {
+        // The cap itself rounds to nothing, so no transfer can ever reach this creditor
+        stranded[strandedCount++] = creditor;
+        debtors.offer(debtor);
+      } else if (amounts[debtor] < amounts[creditor]) {
+        // Sub-unit residue on the debtor side
         creditors.offer(creditor);
+      } else {
+        // Sub-unit residue on the creditor side
         debtors.offer(debtor);
-        break; // Avoid infinite loop
       }
     }
+
+    for (int k = 0; k < strandedCount; k++) {
+      addUnsettled(unsettled, members, stranded[k], amounts[stranded[k]], rounding);
+    }
+    while (!creditors.isEmpty()) {
+      int creditor = creditors.poll();
+      addUnsettled(unsettled, members, creditor, amounts[creditor], rounding);
+    }
+    while (!debtors.isEmpty()) {
+      int debtor = debtors.poll();
+      addUnsettled(unsettled, members, debtor, -amounts[debtor], rounding);
+    }
   }
 
   /**
-   * Check if payment channel is allowed between two users.
+   * Remove and return the first debtor in queue order allowed to pay a creditor. Debtors the
+   * creditor blocks are set aside and offered back afterwards, so a poll costs one heap operation
+   * per block of that creditor instead of a scan of the queue.
    *
-   * @param fromUserId payer user ID
-   * @param toUserId receiver user ID
-   * @param config settlement configuration
-   * @return true if payment is allowed
+   * @param members balances the slots refer to
+   * @param debtors heap of debtor slots
+   * @param creditor creditor slot to be paid
+   * @param channels compiled payment channel blocks
+   * @param skipped scratch space for blocked debtors, at least as large as the heap
+   * @return debtor slot, or -1 if no remaining debtor may pay the creditor
    */
-  private boolean isPaymentChannelAllowed(Long fromUserId, Long toUserId, SettlementConfig config) {
-    if (config == null || config.getPaymentChannels() == null) {
-      return true; // No constraints means all channels allowed
+  private static int pollAllowedDebtor(
+      MemberBalances members,
+      SlotHeap debtors,
+      int creditor,
+      ChannelIndex channels,
+      int[] skipped) {
+    int skippedCount = 0;
+    int debtor = -1;
+    while (!debtors.isEmpty()) {
+      int head = debtors.poll();
+      if (channels.allowed(members.ordinals[head], members.ordinals[creditor])) {
+        debtor = head;
+        break;
+      }
+      skipped[skippedCount++] = head;
     }
+    for (int k = 0; k < skippedCount; k++) {
+      debtors.offer(skipped[k]);
+    }
+    return debtor;
+  }
 
-    String channelKey = fromUserId + "-" + toUserId;
-    Set<String> allowedChannels = config.getPaymentChannels().get(channelKey);
-
-    // If no specific channels defined for this pair, allow
-    if (allowedChannels == null) {
-      return true;
+  /**
+   * Record an open balance if it is worth at least one currency unit after rounding.
+   *
+   * @param unsettled list to add to
+   * @param members balances of the plan
+   * @param slot balance holder's slot
+   * @param signedUnits open amount; positive if still owed money, negative if still owing
+   * @param rounding unit scale and currency rounding of the plan
+   */
+  private void addUnsettled(
+      List<SettlementPlanResponse.UnsettledItem> unsettled,
+      MemberBalances members,
+      int slot,
+      long signedUnits,
+      TransferRounding rounding) {
+    long rounded = applyRounding(signedUnits, rounding);
+    if (rounded != 0) {
+      unsettled.add(
+          new SettlementPlanResponse.UnsettledItem(
+              members.userIds[slot], members.names[slot], rounding.toDecimal(rounded)));
     }
+  }
 
-    // Empty set means blocked, non-empty set means allowed (with those channels)
-    return !allowedChannels.isEmpty();
+  /**
+   * Record an open balance already held at the currency scale.
+   *
+   * @param unsettled list to add to
+   * @param members balances of the plan
+   * @param slot balance holder's slot
+   * @param signedUnits open amount; positive if still owed money, negative if still owing
+   * @param scale unit scale of the amount
+   */
+  private static void addUnsettled(
+      List<SettlementPlanResponse.UnsettledItem> unsettled,
+      MemberBalances members,
+      int slot,
+      long signedUnits,
+      int scale) {
+    if (signedUnits != 0) {
+      unsettled.add(
+          new SettlementPlanResponse.UnsettledItem(
+              members.userIds[slot],
+              members.names[slot],
+              MinorUnits.toDecimal(signedUnits, scale)));
+    }
   }
 
   /**
@@ -712,79 +1533,220 @@ public class LedgerServiceImpl extends ServiceImpl<LedgerMapper, Ledger> impleme
   /**
    * Calculate transfer amount with cap and rounding applied.
    *
-   * @param creditor creditor balance entry
-   * @param debtor debtor balance entry
-   * @param config settlement configuration
-   * @param baseCurrency base currency for rounding
-   * @return calculated transfer amount
+   * @param creditorAmount creditor's open amount in minor units
+   * @param debtorAmount debtor's open amount in minor units
+   * @param rounding unit scale, rounding and cap for transfer amounts
+   * @return calculated transfer amount in minor units
    */
-  private BigDecimal calculateTransferAmount(
-      BalanceEntry creditor, BalanceEntry debtor, SettlementConfig config, String baseCurrency) {
-    BigDecimal transferAmount = creditor.getAmount().min(debtor.getAmount());
+  private long calculateTransferAmount(
+      long creditorAmount, long debtorAmount, TransferRounding rounding) {
+    long transferAmount = Math.min(creditorAmount, debtorAmount);
 
     // Apply cap if configured
-    if (config != null
-        && config.getMaxTransferAmount() != null
-        && transferAmount.compareTo(config.getMaxTransferAmount()) > 0) {
-      transferAmount = config.getMaxTransferAmount();
-    }
+    transferAmount = Math.min(transferAmount, rounding.cap);
 
     // Apply rounding
-    return applyRounding(transferAmount, config, baseCurrency);
+    return applyRounding(transferAmount, rounding);
   }
 
   /**
    * Apply rounding to amount based on currency and rounding strategy.
    *
-   * @param amount amount to round
-   * @param config settlement configuration
-   * @param currency currency code
-   * @return rounded amount
+   * @param amount amount to round, in minor units
+   * @param rounding unit scale, currency exponent and rounding mode
+   * @return rounded amount, still at the same unit scale
    */
-  private BigDecimal applyRounding(BigDecimal amount, SettlementConfig config, String currency) {
-    // Get currency exponent
-    Currency currencyEntity = currencyMapper.selectById(currency);
-    int exponent = currencyEntity != null ? currencyEntity.getExponent() : 2;
+  private long applyRounding(long amount, TransferRounding rounding) {
+    if (rounding.mode == null) {
+      return amount;
+    }
+    return MinorUnits.round(amount, rounding.scale, rounding.exponent, rounding.mode);
+  }
 
-    String strategy = "ROUND_HALF_UP"; // Default
-    if (config != null && config.getRoundingStrategy() != null) {
-      strategy = config.getRoundingStrategy();
+  /** Unit scale, currency rounding and cap shared by every transfer of one plan. */
+  private static final class TransferRounding {
+    private final int scale;
+    private final int exponent;
+    private final RoundingMode mode;
+    private final long cap;
+
+    TransferRounding(int scale, int exponent, RoundingMode mode, long cap) {
+      this.scale = scale;
+      this.exponent = exponent;
+      this.mode = mode;
+      this.cap = cap;
     }
 
-    switch (strategy) {
-      case "ROUND_HALF_UP":
-        return amount.setScale(exponent, RoundingMode.HALF_UP);
-      case "TRIM_TO_UNIT":
-        return amount.setScale(exponent, RoundingMode.DOWN);
-      case "NONE":
-        return amount;
-      default:
-        return amount.setScale(exponent, RoundingMode.HALF_UP);
+    BigDecimal toDecimal(long units) {
+      if (mode == null) {
+        return MinorUnits.toDecimal(units, scale);
+      }
+      return MinorUnits.toDecimal(
+          MinorUnits.rescale(units, scale, exponent, RoundingMode.UNNECESSARY), exponent);
     }
   }
 
-  /** Helper class for balance entries used in priority queues. */
-  private static class BalanceEntry {
-    private final Long userId;
-    private final String userName;
-    private final BigDecimal amount;
+  /**
+   * Payment channel blocks of one plan, compiled into a bitmap over member ordinals so the matching
+   * loops test a pair with a single bit lookup instead of building string keys.
+   */
+  private static final class ChannelIndex {
+    private static final ChannelIndex OPEN = new ChannelIndex(Map.of(), 0, null);
 
-    BalanceEntry(Long userId, String userName, BigDecimal amount) {
-      this.userId = userId;
-      this.userName = userName;
-      this.amount = amount;
+    private final Map<Long, Integer> ordinals;
+    private final int size;
+    private final BitSet blocked;
+
+    private ChannelIndex(Map<Long, Integer> ordinals, int size, BitSet blocked) {
+      this.ordinals = ordinals;
+      this.size = size;
+      this.blocked = blocked;
     }
 
-    Long getUserId() {
-      return userId;
+    /**
+     * Compile the blocked pairs among the balance holders. A {@code "payerId-receiverId"} entry
+     * with an empty channel set blocks the pair; any other entry, or a key that names no holder,
+     * leaves it open.
+     *
+     * @param config settlement configuration
+     * @param holders members with a non-zero balance
+     * @return compiled index
+     */
+    static ChannelIndex compile(SettlementConfig config, List<Long> holders) {
+      if (config.getPaymentChannels() == null || config.getPaymentChannels().isEmpty()) {
+        return OPEN;
+      }
+      Map<Long, Integer> ordinals = new HashMap<>();
+      for (Long holder : holders) {
+        ordinals.put(holder, ordinals.size());
+      }
+      int size = ordinals.size();
+      BitSet blocked = new BitSet();
+      for (Map.Entry<String, Set<String>> channel : config.getPaymentChannels().entrySet()) {
+        if (channel.getValue() == null || !channel.getValue().isEmpty()) {
+          continue;
+        }
+        String key = channel.getKey();
+        int dash = key.indexOf('-');
+        if (dash <= 0) {
+          continue;
+        }
+        Integer payer;
+        Integer receiver;
+        try {
+          payer = ordinals.get(Long.parseLong(key.substring(0, dash)));
+          receiver = ordinals.get(Long.parseLong(key.substring(dash + 1)));
+        } catch (NumberFormatException e) {
+          continue;
+        }
+        if (payer != null && receiver != null) {
+          blocked.set(payer * size + receiver);
+        }
+      }
+      return blocked.isEmpty() ? OPEN : new ChannelIndex(ordinals, size, blocked);
     }
 
-    String getUserName() {
-      return userName;
+    int ordinal(Long userId) {
+      Integer ordinal = ordinals.get(userId);
+      return ordinal != null ? ordinal : -1;
     }
 
-    BigDecimal getAmount() {
-      return amount;
+    boolean hasBlocks() {
+      return blocked != null;
+    }
+
+    boolean allowed(int debtorOrdinal, int creditorOrdinal) {
+      return blocked == null || !blocked.get(debtorOrdinal * size + creditorOrdinal);
+    }
+  }
+
+  /**
+   * Balances of one plan's members in parallel arrays. A member is addressed by its slot, the order
+   * it was added in; amounts are minor units and shrink as transfers are recorded.
+   */
+  private static final class MemberBalances {
+    private final Long[] userIds;
+    private final String[] names;
+    private final int[] ordinals;
+    private final long[] amounts;
+    private int size;
+
+    MemberBalances(int capacity) {
+      this.userIds = new Long[capacity];
+      this.names = new String[capacity];
+      this.ordinals = new int[capacity];
+      this.amounts = new long[capacity];
+    }
+
+    int add(Long userId, String name, long amount, int ordinal) {
+      userIds[size] = userId;
+      names[size] = name;
+      ordinals[size] = ordinal;
+      amounts[size] = amount;
+      return size++;
+    }
+  }
+
+  /**
+   * Binary heap of member slots ordered by amount, largest or smallest first. Sifting follows
+   * {@link java.util.PriorityQueue}, so members with equal amounts come out in the same order as
+   * they did from a queue of boxed entries. A slot's amount must not change while it is queued.
+   */
+  private static final class SlotHeap {
+    private final long[] amounts;
+    private final boolean largestFirst;
+    private final int[] slots;
+    private int size;
+
+    SlotHeap(MemberBalances members, boolean largestFirst) {
+      this.amounts = members.amounts;
+      this.largestFirst = largestFirst;
+      this.slots = new int[members.amounts.length];
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    void offer(int slot) {
+      int k = size++;
+      while (k > 0) {
+        int parent = (k - 1) >>> 1;
+        if (compare(slot, slots[parent]) >= 0) {
+          break;
+        }
+        slots[k] = slots[parent];
+        k = parent;
+      }
+      slots[k] = slot;
+    }
+
+    int poll() {
+      int head = slots[0];
+      int last = slots[--size];
+      if (size > 0) {
+        int k = 0;
+        int half = size >>> 1;
+        while (k < half) {
+          int child = 2 * k + 1;
+          if (child + 1 < size && compare(slots[child], slots[child + 1]) > 0) {
+            child++;
+          }
+          if (compare(last, slots[child]) <= 0) {
+            break;
+          }
+          slots[k] = slots[child];
+          k = child;
+        }
+        slots[k] = last;
+      }
+      return head;
+    }
+
+    private int compare(int a, int b) {
+      return largestFirst
+          ? Long.compare(amounts[b], amounts[a])
+          : Long.compare(amounts[a], amounts[b]);
     }
   }
 
@@ -3,6 +3,7 @@ package dev.coms4156.project.groupproject.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import dev.coms4156.project.groupproject.dto.BulkDeleteTransactionsResponse;
 import dev.coms4156.project.groupproject.dto.CreateTransactionRequest;
 import dev.coms4156.project.groupproject.dto.CreateTransactionResponse;
 import dev.coms4156.project.groupproject.dto.EdgePreview;
@@ -11,34 +12,55 @@ import dev.coms4156.project.groupproject.dto.SplitItem;
 import dev.coms4156.project.groupproject.dto.SplitView;
 import dev.coms4156.project.groupproject.dto.TransactionResponse;
 import dev.coms4156.project.groupproject.dto.TransactionSummary;
+import dev.coms4156.project.groupproject.dto.UpdateTransactionRequest;
+import dev.coms4156.project.groupproject.dto.UpdateTransactionResponse;
 import dev.coms4156.project.groupproject.dto.UserView;
-import dev.coms4156.project.groupproject.entity.Currency;
 import dev.coms4156.project.groupproject.entity.DebtEdge;
 import dev.coms4156.project.groupproject.entity.Ledger;
 import dev.coms4156.project.groupproject.entity.LedgerMember;
+import dev.coms4156.project.groupproject.entity.LedgerUserBalance;
 import dev.coms4156.project.groupproject.entity.Transaction;
 import dev.coms4156.project.groupproject.entity.TransactionSplit;
-import dev.coms4156.project.groupproject.mapper.CurrencyMapper;
 import dev.coms4156.project.groupproject.mapper.DebtEdgeMapper;
 import dev.coms4156.project.groupproject.mapper.LedgerMapper;
 import dev.coms4156.project.groupproject.mapper.LedgerMemberMapper;
+import dev.coms4156.project.groupproject.mapper.LedgerUserBalanceMapper;
 import dev.coms4156.project.groupproject.mapper.TransactionMapper;
 import dev.coms4156.project.groupproject.mapper.TransactionSplitMapper;
+import dev.coms4156.project.groupproject.search.TransactionNoteIndex;
 import dev.coms4156.project.groupproject.service.BudgetService;
+import dev.coms4156.project.groupproject.service.ChangeFeedService;
+import dev.coms4156.project.groupproject.service.ChangeFeedService.Change;
+import dev.coms4156.project.groupproject.service.LedgerService;
 import dev.coms4156.project.groupproject.service.TransactionService;
+import dev.coms4156.project.groupproject.settlement.IncrementalSettlementPlanner;
+import dev.coms4156.project.groupproject.split.SplitEngine;
+import dev.coms4156.project.groupproject.utils.CurrencyRegistry;
 import dev.coms4156.project.groupproject.utils.CurrentUserContext;
+import dev.coms4156.project.groupproject.utils.LedgerMembershipCache;
+import dev.coms4156.project.groupproject.utils.MinorUnits;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Implementation of TransactionService. Handles transaction operations with split calculations and
@@ -49,13 +71,32 @@ public class TransactionServiceImpl implements TransactionService {
 
   private static final BigDecimal HUNDRED = new BigDecimal("100");
 
+  /** Transactions removed per DB transaction by a bulk delete. */
+  static final int BULK_DELETE_CHUNK_SIZE = 500;
+
+  /** Candidate IDs a note search sends to the database per query. */
+  static final int SEARCH_ID_CHUNK_SIZE = 1000;
+
+  private static final Comparator<Transaction> NEWEST_FIRST =
+      Comparator.comparing(Transaction::getTxnAt).thenComparing(Transaction::getId).reversed();
+
+  private static final ThreadLocal<SplitEngine> SPLIT_ENGINE =
+      ThreadLocal.withInitial(SplitEngine::new);
+
   private final TransactionMapper transactionMapper;
   private final TransactionSplitMapper transactionSplitMapper;
   private final DebtEdgeMapper debtEdgeMapper;
   private final LedgerMapper ledgerMapper;
   private final LedgerMemberMapper ledgerMemberMapper;
-  private final CurrencyMapper currencyMapper;
+  private final LedgerMembershipCache membershipCache;
+  private final CurrencyRegistry currencyRegistry;
   private final BudgetService budgetService;
+  private final LedgerUserBalanceMapper ledgerUserBalanceMapper;
+  private final IncrementalSettlementPlanner incrementalSettlementPlanner;
+  private final TransactionTemplate transactionTemplate;
+  private final ChangeFeedService changeFeedService;
+  private final TransactionNoteIndex transactionNoteIndex;
+  private final LedgerService ledgerService;
 
   /**
    * Constructor for TransactionServiceImpl.
@@ -65,8 +106,15 @@ public class TransactionServiceImpl implements TransactionService {
    * @param debtEdgeMapper mapper for debt edge operations
    * @param ledgerMapper mapper for ledger operations
    * @param ledgerMemberMapper mapper for ledger member operations
-   * @param currencyMapper mapper for currency operations
+   * @param membershipCache shared ledger member role cache
+   * @param currencyRegistry in-memory currency table
    * @param budgetService service for budget operations
+   * @param ledgerUserBalanceMapper mapper for materialized member balances
+   * @param incrementalSettlementPlanner keeps settlement plans current across transactions
+   * @param transactionTemplate runs each chunk of a bulk delete in its own DB transaction
+   * @param changeFeedService per-ledger change feed the write paths append to
+   * @param transactionNoteIndex in-process note index the write paths keep current
+   * @param ledgerService seeds a ledger's balance snapshot before its first delta
    */
   @Autowired
   public TransactionServiceImpl(
@@ -75,15 +123,29 @@ public class TransactionServiceImpl implements TransactionService {
       DebtEdgeMapper debtEdgeMapper,
       LedgerMapper ledgerMapper,
       LedgerMemberMapper ledgerMemberMapper,
-      CurrencyMapper currencyMapper,
-      BudgetService budgetService) {
+      LedgerMembershipCache membershipCache,
+      CurrencyRegistry currencyRegistry,
+      BudgetService budgetService,
+      LedgerUserBalanceMapper ledgerUserBalanceMapper,
+      IncrementalSettlementPlanner incrementalSettlementPlanner,
+      TransactionTemplate transactionTemplate,
+      ChangeFeedService changeFeedService,
+      TransactionNoteIndex transactionNoteIndex,
+      LedgerService ledgerService) {
     this.transactionMapper = transactionMapper;
     this.transactionSplitMapper = transactionSplitMapper;
     this.debtEdgeMapper = debtEdgeMapper;
     this.ledgerMapper = ledgerMapper;
     this.ledgerMemberMapper = ledgerMemberMapper;
-    this.currencyMapper = currencyMapper;
+    this.membershipCache = membershipCache;
+    this.currencyRegistry = currencyRegistry;
     this.budgetService = budgetService;
+    this.ledgerUserBalanceMapper = ledgerUserBalanceMapper;
+    this.incrementalSettlementPlanner = incrementalSettlementPlanner;
+    this.transactionTemplate = transactionTemplate;
+    this.changeFeedService = changeFeedService;
+    this.transactionNoteIndex = transactionNoteIndex;
+    this.ledgerService = ledgerService;
   }
 
   @Override
@@ -105,28 +167,18 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
     // Create transaction entity
-    Transaction transaction = new Transaction();
-    transaction.setLedgerId(ledgerId);
-    transaction.setCreatedBy(currentUser.getId());
-    transaction.setTxnAt(request.getTxnAt());
-    transaction.setType(request.getType());
-    transaction.setCategoryId(request.getCategoryId());
-    transaction.setPayerId(request.getPayerId());
-    transaction.setAmountTotal(request.getAmountTotal());
-    transaction.setCurrency(request.getCurrency());
-    transaction.setNote(request.getNote());
-    transaction.setIsPrivate(request.getIsPrivate());
-    transaction.setRoundingStrategy(request.getRoundingStrategy());
-    transaction.setTailAllocation(request.getTailAllocation());
-    transaction.setCreatedAt(LocalDateTime.now());
-    transaction.setUpdatedAt(LocalDateTime.now());
+    Transaction transaction = buildTransaction(ledgerId, currentUser.getId(), request);
 
     // Insert transaction
     transactionMapper.insert(transaction);
     Long transactionId = transaction.getId();
 
     // Handle EXPENSE/INCOME with splits
-    handleSplitTransaction(ledgerId, transactionId, request, ledger);
+    Map<Long, BigDecimal> deltas = handleSplitTransaction(ledgerId, transactionId, request, ledger);
+    ledgerMapper.bumpPlanVersion(ledgerId);
+    publishBalanceDeltas(ledgerId, deltas);
+    changeFeedService.record(ledgerId, List.of(transactionUpsert(transaction)));
+    transactionNoteIndex.update(ledgerId, transactionId, null, transaction.getNote());
 
     String budgetAlert = null;
     if ("EXPENSE".equals(request.getType())) {
@@ -145,6 +197,60 @@ public class TransactionServiceImpl implements TransactionService {
     return response;
   }
 
+  @Override
+  @Transactional
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  public Map<Integer, String> importTransactions(
+      Long ledgerId, Long userId, List<CreateTransactionRequest> requests) {
+    Ledger ledger = validateLedgerAndMembership(ledgerId, userId);
+    Set<Long> memberIds = memberIds(ledgerId);
+
+    // Validate and split every row up front; rejected rows are reported, not thrown
+    Map<Integer, String> rejected = new TreeMap<>();
+    List<CreateTransactionRequest> accepted = new ArrayList<>();
+    List<Map<Long, BigDecimal>> acceptedAmounts = new ArrayList<>();
+    List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < requests.size(); i++) {
+      CreateTransactionRequest request = requests.get(i);
+      try {
+        if (!request.getCurrency().equals(ledger.getBaseCurrency())) {
+          throw new RuntimeException("Currency mismatch");
+        }
+        Map<Long, BigDecimal> computedAmounts = computeSplitAmounts(request, memberIds);
+        accepted.add(request);
+        acceptedAmounts.add(computedAmounts);
+        transactions.add(buildTransaction(ledgerId, userId, request));
+      } catch (RuntimeException e) {
+        rejected.put(i, e.getMessage() != null ? e.getMessage() : "Invalid row");
+      }
+    }
+    if (transactions.isEmpty()) {
+      return rejected;
+    }
+
+    // One multi-row insert per table for the whole chunk
+    transactionMapper.insertBatch(transactions);
+    List<TransactionSplit> splits = new ArrayList<>();
+    List<DebtEdge> edges = new ArrayList<>();
+    boolean groupBalance = "GROUP_BALANCE".equals(ledger.getLedgerType());
+    for (int i = 0; i < transactions.size(); i++) {
+      Long transactionId = transactions.get(i).getId();
+      splits.addAll(buildSplits(transactionId, accepted.get(i), acceptedAmounts.get(i)));
+      if (groupBalance) {
+        edges.addAll(
+            buildDebtEdges(ledgerId, transactionId, accepted.get(i), acceptedAmounts.get(i)));
+      }
+    }
+    transactionSplitMapper.insertBatch(splits);
+    Map<Long, BigDecimal> deltas = insertDebtEdges(ledgerId, edges);
+    ledgerMapper.bumpPlanVersion(ledgerId);
+    publishBalanceDeltas(ledgerId, deltas);
+    changeFeedService.record(
+        ledgerId, transactions.stream().map(this::transactionUpsert).collect(Collectors.toList()));
+    transactionNoteIndex.added(ledgerId, transactions);
+    return rejected;
+  }
+
   @Override
   public TransactionResponse getTransaction(Long ledgerId, Long transactionId) {
     UserView currentUser = CurrentUserContext.get();
@@ -153,11 +259,15 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
     // Validate ledger membership
-    validateLedgerAndMembership(ledgerId, currentUser.getId());
+    LedgerAccess access = resolveAccess(ledgerId, currentUser.getId());
 
     // Get transaction with visibility check
     Transaction transaction =
-        transactionMapper.findTransactionByIdWithVisibility(transactionId, currentUser.getId());
+        transactionMapper.findTransactionByIdWithVisibility(
+            transactionId,
+            currentUser.getId(),
+            access.privileged(),
+            access.ledger().getShareStartDate());
     if (transaction == null) {
       throw new RuntimeException("Transaction not found");
     }
@@ -177,7 +287,8 @@ public class TransactionServiceImpl implements TransactionService {
       String fromDate,
       String toDate,
       String type,
-      Long createdBy) {
+      Long createdBy,
+      List<String> include) {
 
     UserView currentUser = CurrentUserContext.get();
     if (currentUser == null) {
@@ -185,17 +296,12 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
     // Validate ledger membership
-    validateLedgerAndMembership(ledgerId, currentUser.getId());
+    LedgerAccess access = resolveAccess(ledgerId, currentUser.getId());
+    Details details = Details.parse(include);
 
     // Parse dates
-    LocalDateTime from = null;
-    LocalDateTime to = null;
-    if (fromDate != null) {
-      from = LocalDateTime.parse(fromDate, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-    }
-    if (toDate != null) {
-      to = LocalDateTime.parse(toDate, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-    }
+    LocalDateTime from = parseDateFilter(fromDate);
+    LocalDateTime to = parseDateFilter(toDate);
 
     // Create pagination
     Page<Transaction> pageObj = new Page<>(page, size);
@@ -203,13 +309,23 @@ public class TransactionServiceImpl implements TransactionService {
     // Query transactions
     IPage<Transaction> result =
         transactionMapper.findTransactionsByLedger(
-            pageObj, ledgerId, from, to, type, createdBy, null, currentUser.getId());
+            pageObj,
+            ledgerId,
+            from,
+            to,
+            type,
+            createdBy,
+            null,
+            currentUser.getId(),
+            access.privileged(),
+            access.ledger().getShareStartDate());
 
     // Convert to response
     List<TransactionSummary> items =
         result.getRecords().stream()
             .map(this::buildTransactionSummary)
             .collect(Collectors.toList());
+    attachDetails(access.ledger(), items, details);
 
     ListTransactionsResponse response = new ListTransactionsResponse();
     response.setPage(page);
@@ -220,6 +336,263 @@ public class TransactionServiceImpl implements TransactionService {
     return response;
   }
 
+  @Override
+  public ListTransactionsResponse listTransactionsAfter(
+      Long ledgerId,
+      String cursor,
+      Integer size,
+      String fromDate,
+      String toDate,
+      String type,
+      Long createdBy,
+      boolean includeTotal,
+      List<String> include) {
+
+    UserView currentUser = CurrentUserContext.get();
+    if (currentUser == null) {
+      throw new RuntimeException("Not logged in");
+    }
+
+    // Validate ledger membership
+    LedgerAccess access = resolveAccess(ledgerId, currentUser.getId());
+    Details details = Details.parse(include);
+
+    LocalDateTime from = parseDateFilter(fromDate);
+    LocalDateTime to = parseDateFilter(toDate);
+    PageCursor after = cursor == null || cursor.isEmpty() ? null : PageCursor.decode(cursor);
+    int pageSize = Math.max(1, size);
+
+    // One row past the page tells whether another page follows without counting
+    List<Transaction> rows =
+        transactionMapper.findTransactionsByLedgerAfter(
+            ledgerId,
+            from,
+            to,
+            type,
+            createdBy,
+            currentUser.getId(),
+            access.privileged(),
+            access.ledger().getShareStartDate(),
+            after != null ? after.txnAt() : null,
+            after != null ? after.id() : null,
+            pageSize + 1);
+    ListTransactionsResponse response = keysetPage(access.ledger(), rows, pageSize, details);
+    if (includeTotal) {
+      response.setTotal(
+          transactionMapper.countTransactionsByLedger(
+              ledgerId,
+              from,
+              to,
+              type,
+              createdBy,
+              currentUser.getId(),
+              access.privileged(),
+              access.ledger().getShareStartDate()));
+    }
+    return response;
+  }
+
+  @Override
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  public ListTransactionsResponse searchTransactions(
+      Long ledgerId,
+      String query,
+      String cursor,
+      Integer size,
+      String fromDate,
+      String toDate,
+      String type,
+      Long createdBy,
+      List<String> include) {
+
+    UserView currentUser = CurrentUserContext.get();
+    if (currentUser == null) {
+      throw new RuntimeException("Not logged in");
+    }
+    if (query == null || query.isBlank()) {
+      throw new RuntimeException("Search query is required");
+    }
+
+    LedgerAccess access = resolveAccess(ledgerId, currentUser.getId());
+    Details details = Details.parse(include);
+    LocalDateTime from = parseDateFilter(fromDate);
+    LocalDateTime to = parseDateFilter(toDate);
+    PageCursor after = cursor == null || cursor.isEmpty() ? null : PageCursor.decode(cursor);
+    int pageSize = Math.max(1, size);
+
+    // The index narrows the ledger to the matching IDs; filters, visibility and order stay in SQL
+    long[] candidates = transactionNoteIndex.search(ledgerId, query);
+    List<Transaction> rows = new ArrayList<>();
+    for (int start = 0; start < candidates.length; start += SEARCH_ID_CHUNK_SIZE) {
+      int end = Math.min(candidates.length, start + SEARCH_ID_CHUNK_SIZE);
+      List<Long> ids = new ArrayList<>(end - start);
+      for (int i = start; i < end; i++) {
+        ids.add(candidates[i]);
+      }
+      rows.addAll(
+          transactionMapper.findTransactionsByIdsAfter(
+              ledgerId,
+              ids,
+              from,
+              to,
+              type,
+              createdBy,
+              currentUser.getId(),
+              access.privileged(),
+              access.ledger().getShareStartDate(),
+              after != null ? after.txnAt() : null,
+              after != null ? after.id() : null,
+              pageSize + 1));
+    }
+    if (candidates.length > SEARCH_ID_CHUNK_SIZE) {
+      // Each chunk returned its own first rows; the page is the first rows of their union
+      rows.sort(NEWEST_FIRST);
+      if (rows.size() > pageSize + 1) {
+        rows = rows.subList(0, pageSize + 1);
+      }
+    }
+    return keysetPage(access.ledger(), rows, pageSize, details);
+  }
+
+  @Override
+  @Transactional
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  public UpdateTransactionResponse updateTransaction(
+      Long ledgerId, Long transactionId, UpdateTransactionRequest request) {
+    UserView currentUser = CurrentUserContext.get();
+    if (currentUser == null) {
+      throw new RuntimeException("Not logged in");
+    }
+
+    LedgerAccess access = resolveAccess(ledgerId, currentUser.getId());
+    Ledger ledger = access.ledger();
+    Transaction existing =
+        transactionMapper.findTransactionByIdWithVisibility(
+            transactionId, currentUser.getId(), access.privileged(), ledger.getShareStartDate());
+    if (existing == null) {
+      throw new RuntimeException("Transaction not found");
+    }
+    if (!existing.getLedgerId().equals(ledgerId)) {
+      throw new RuntimeException("Transaction not found in this ledger");
+    }
+    if (!access.privileged() && !existing.getCreatedBy().equals(currentUser.getId())) {
+      throw new RuntimeException("Only the creator or an OWNER/ADMIN can update a transaction");
+    }
+
+    // Apply the patch to the stored transaction and recompute everything derived from it
+    List<TransactionSplit> oldSplits = transactionSplitMapper.findByTransactionId(transactionId);
+    CreateTransactionRequest merged = mergeUpdate(existing, oldSplits, request);
+    if (!merged.getCurrency().equals(ledger.getBaseCurrency())) {
+      throw new RuntimeException("Currency mismatch");
+    }
+    Map<Long, BigDecimal> computedAmounts = computeSplitAmounts(merged, memberIds(ledgerId));
+
+    Transaction updated = buildTransaction(ledgerId, existing.getCreatedBy(), merged);
+    updated.setId(transactionId);
+    updated.setCreatedAt(existing.getCreatedAt());
+    boolean rowChanged = !sameRow(existing, updated);
+    if (rowChanged) {
+      transactionMapper.updateById(updated);
+    }
+
+    // Splits: upsert the ones that differ, delete users who left the split
+    Map<Long, TransactionSplit> previousSplits = new HashMap<>();
+    for (TransactionSplit split : oldSplits) {
+      previousSplits.put(split.getUserId(), split);
+    }
+    List<TransactionSplit> changedSplits = new ArrayList<>();
+    for (TransactionSplit split : buildSplits(transactionId, merged, computedAmounts)) {
+      TransactionSplit previous = previousSplits.remove(split.getUserId());
+      if (previous == null || !sameSplit(previous, split)) {
+        changedSplits.add(split);
+      }
+    }
+    if (!changedSplits.isEmpty()) {
+      transactionSplitMapper.upsertBatch(changedSplits);
+    }
+    if (!previousSplits.isEmpty()) {
+      transactionSplitMapper.deleteByTransactionIdAndUserIds(
+          transactionId, previousSplits.keySet());
+    }
+
+    // Debt edges: same diff keyed by (creditor, debtor); balances move by the difference only
+    List<DebtEdge> changedEdges = new ArrayList<>();
+    List<Long> removedEdgeIds = new ArrayList<>();
+    Map<Long, BigDecimal> deltas = Map.of();
+    if ("GROUP_BALANCE".equals(ledger.getLedgerType())) {
+      Map<EdgeKey, DebtEdge> previousEdges = new HashMap<>();
+      for (DebtEdge edge : debtEdgeMapper.findByTransactionId(transactionId)) {
+        previousEdges.put(new EdgeKey(edge.getFromUserId(), edge.getToUserId()), edge);
+      }
+      List<DebtEdge> balanceChanges = new ArrayList<>();
+      for (DebtEdge edge : buildDebtEdges(ledgerId, transactionId, merged, computedAmounts)) {
+        if (edge.getAmount().signum() == 0) {
+          continue;
+        }
+        DebtEdge previous =
+            previousEdges.remove(new EdgeKey(edge.getFromUserId(), edge.getToUserId()));
+        BigDecimal change =
+            previous == null ? edge.getAmount() : edge.getAmount().subtract(previous.getAmount());
+        if (change.signum() != 0 || !edge.getEdgeCurrency().equals(previous.getEdgeCurrency())) {
+          changedEdges.add(edge);
+          balanceChanges.add(balanceChange(edge, change));
+        }
+      }
+      for (DebtEdge previous : previousEdges.values()) {
+        removedEdgeIds.add(previous.getId());
+        balanceChanges.add(balanceChange(previous, previous.getAmount().negate()));
+      }
+
+      if (!changedEdges.isEmpty()) {
+        debtEdgeMapper.upsertBatch(changedEdges);
+      }
+      if (!removedEdgeIds.isEmpty()) {
+        debtEdgeMapper.deleteByTransactionIdAndIds(transactionId, removedEdgeIds);
+      }
+      deltas = applyBalanceDeltas(ledgerId, balanceChanges, true);
+    }
+    if (!changedEdges.isEmpty() || !removedEdgeIds.isEmpty()) {
+      ledgerMapper.bumpPlanVersion(ledgerId);
+      publishBalanceDeltas(ledgerId, deltas);
+    }
+    if (rowChanged || !changedSplits.isEmpty() || !previousSplits.isEmpty()) {
+      List<Change> changes = new ArrayList<>(2);
+      if (!Boolean.TRUE.equals(existing.getIsPrivate())
+          && Boolean.TRUE.equals(updated.getIsPrivate())) {
+        // Members who could see the transaction until now must drop it
+        changes.add(Change.delete(ChangeFeedService.TRANSACTION, transactionId));
+      }
+      changes.add(transactionUpsert(updated));
+      changeFeedService.record(ledgerId, changes);
+    }
+    transactionNoteIndex.update(ledgerId, transactionId, existing.getNote(), updated.getNote());
+
+    String budgetAlert = null;
+    boolean budgetInputsChanged =
+        existing.getAmountTotal().compareTo(updated.getAmountTotal()) != 0
+            || !Objects.equals(existing.getCategoryId(), updated.getCategoryId())
+            || !Objects.equals(existing.getTxnAt(), updated.getTxnAt())
+            || !Objects.equals(existing.getType(), updated.getType());
+    if ("EXPENSE".equals(merged.getType()) && budgetInputsChanged) {
+      try {
+        budgetAlert =
+            budgetService.checkBudgetAfterTransaction(
+                ledgerId, merged.getCategoryId(), merged.getTxnAt());
+      } catch (Exception e) {
+        budgetAlert = null;
+      }
+    }
+
+    UpdateTransactionResponse response = new UpdateTransactionResponse();
+    response.setTransactionId(transactionId);
+    response.setSplitsWritten(changedSplits.size());
+    response.setSplitsDeleted(previousSplits.size());
+    response.setEdgesWritten(changedEdges.size());
+    response.setEdgesDeleted(removedEdgeIds.size());
+    response.setBudgetAlert(budgetAlert);
+    return response;
+  }
+
   @Override
   @Transactional
   public void deleteTransaction(Long ledgerId, Long transactionId) {
@@ -229,11 +602,15 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
     // Validate ledger membership
-    validateLedgerAndMembership(ledgerId, currentUser.getId());
+    LedgerAccess access = resolveAccess(ledgerId, currentUser.getId());
 
     // Get transaction
     Transaction transaction =
-        transactionMapper.findTransactionByIdWithVisibility(transactionId, currentUser.getId());
+        transactionMapper.findTransactionByIdWithVisibility(
+            transactionId,
+            currentUser.getId(),
+            access.privileged(),
+            access.ledger().getShareStartDate());
     if (transaction == null) {
       throw new RuntimeException("Transaction not found");
     }
@@ -244,59 +621,220 @@ public class TransactionServiceImpl implements TransactionService {
 
     // TODO: Re-implement permission check for deletion if needed
 
-    // Delete in order: debt edges, splits, transaction
+    // Delete in order: debt edges, splits, transaction; then reverse the edges' balance effect
+    List<DebtEdge> edges = debtEdgeMapper.findByTransactionId(transactionId);
     debtEdgeMapper.deleteByTransactionId(transactionId);
+    Map<Long, BigDecimal> deltas = applyBalanceDeltas(ledgerId, edges, false);
     transactionSplitMapper.deleteByTransactionId(transactionId);
     transactionMapper.deleteById(transactionId);
+    ledgerMapper.bumpPlanVersion(ledgerId);
+    publishBalanceDeltas(ledgerId, deltas);
+    changeFeedService.record(
+        ledgerId, List.of(Change.delete(ChangeFeedService.TRANSACTION, transactionId)));
+    transactionNoteIndex.update(ledgerId, transactionId, transaction.getNote(), null);
+  }
+
+  @Override
+  public BulkDeleteTransactionsResponse deleteTransactions(
+      Long ledgerId, String fromDate, String toDate, String type, Long createdBy) {
+    UserView currentUser = CurrentUserContext.get();
+    if (currentUser == null) {
+      throw new RuntimeException("Not logged in");
+    }
+    if (fromDate == null && toDate == null && type == null && createdBy == null) {
+      throw new RuntimeException("Bulk delete needs at least one filter");
+    }
+
+    LedgerAccess access = resolveAccess(ledgerId, currentUser.getId());
+    Long creator = createdBy;
+    if (!access.privileged()) {
+      // Members other than OWNER/ADMIN may only clean up their own transactions
+      if (createdBy != null && !createdBy.equals(currentUser.getId())) {
+        throw new RuntimeException("Only OWNER/ADMIN can delete other members' transactions");
+      }
+      creator = currentUser.getId();
+    }
+    LocalDateTime from = parseDateFilter(fromDate);
+    LocalDateTime to = parseDateFilter(toDate);
+
+    // Each chunk commits on its own, so locks and undo log stay bounded by the chunk size
+    long deleted = 0;
+    int chunks = 0;
+    int removed;
+    do {
+      Long chunkCreator = creator;
+      Integer count =
+          transactionTemplate.execute(
+              status -> deleteChunk(currentUser.getId(), access, from, to, type, chunkCreator));
+      removed = count != null ? count : 0;
+      if (removed > 0) {
+        deleted += removed;
+        chunks++;
+      }
+    } while (removed == BULK_DELETE_CHUNK_SIZE);
+
+    BulkDeleteTransactionsResponse response = new BulkDeleteTransactionsResponse();
+    response.setDeleted(deleted);
+    response.setChunks(chunks);
+    return response;
   }
 
   // Private helper methods
 
+  /**
+   * Delete the next chunk of a bulk delete: reverse the balances of its edges, then remove edges,
+   * splits and transactions with one set-based statement each.
+   *
+   * @return number of transactions deleted; below the chunk size once the filter is exhausted
+   */
+  private int deleteChunk(
+      Long userId,
+      LedgerAccess access,
+      LocalDateTime from,
+      LocalDateTime to,
+      String type,
+      Long createdBy) {
+    Long ledgerId = access.ledger().getId();
+    List<Long> ids =
+        transactionMapper.findTransactionIdsByLedger(
+            ledgerId,
+            from,
+            to,
+            type,
+            createdBy,
+            userId,
+            access.privileged(),
+            access.ledger().getShareStartDate(),
+            BULK_DELETE_CHUNK_SIZE);
+    if (ids.isEmpty()) {
+      return 0;
+    }
+
+    List<DebtEdge> edges = debtEdgeMapper.findByLedgerAndTransactionIds(ledgerId, ids);
+    if (!edges.isEmpty()) {
+      debtEdgeMapper.deleteByLedgerAndTransactionIds(ledgerId, ids);
+    }
+    Map<Long, BigDecimal> deltas = applyBalanceDeltas(ledgerId, edges, false);
+    transactionSplitMapper.deleteByTransactionIds(ids);
+    transactionMapper.deleteByIds(ids);
+    ledgerMapper.bumpPlanVersion(ledgerId);
+    publishBalanceDeltas(ledgerId, deltas);
+    List<Change> changes = new ArrayList<>(ids.size());
+    for (Long id : ids) {
+      changes.add(Change.delete(ChangeFeedService.TRANSACTION, id));
+    }
+    changeFeedService.record(ledgerId, changes);
+    // The chunk's notes were never loaded; let the next search rebuild the ledger's index
+    transactionNoteIndex.invalidate(ledgerId);
+    return ids.size();
+  }
+
   private Ledger validateLedgerAndMembership(Long ledgerId, Long userId) {
+    return resolveAccess(ledgerId, userId).ledger();
+  }
+
+  /**
+   * Load the ledger and the caller's membership once per request. Read queries take the resulting
+   * role and share start date as parameters instead of looking them up again for every row.
+   */
+  private LedgerAccess resolveAccess(Long ledgerId, Long userId) {
     Ledger ledger = ledgerMapper.selectById(ledgerId);
     if (ledger == null) {
       throw new RuntimeException("Ledger not found");
     }
 
     // Check membership
-    LambdaQueryWrapper<LedgerMember> wrapper = new LambdaQueryWrapper<>();
-    wrapper.eq(LedgerMember::getLedgerId, ledgerId).eq(LedgerMember::getUserId, userId);
-
-    LedgerMember member = ledgerMemberMapper.selectOne(wrapper);
+    LedgerMember member =
+        membershipCache.get(
+            ledgerId,
+            userId,
+            () ->
+                ledgerMemberMapper.selectOne(
+                    new LambdaQueryWrapper<LedgerMember>()
+                        .eq(LedgerMember::getLedgerId, ledgerId)
+                        .eq(LedgerMember::getUserId, userId)));
     if (member == null) {
       throw new RuntimeException("User not a member of this ledger");
     }
 
-    return ledger;
+    return new LedgerAccess(
+        ledger, "OWNER".equals(member.getRole()) || "ADMIN".equals(member.getRole()));
   }
 
-  private void handleSplitTransaction(
+  /** A ledger and whether the caller is an OWNER or ADMIN, who see private and early rows. */
+  private record LedgerAccess(Ledger ledger, boolean privileged) {}
+
+  private Map<Long, BigDecimal> handleSplitTransaction(
       Long ledgerId, Long transactionId, CreateTransactionRequest request, Ledger ledger) {
+    Map<Long, BigDecimal> computedAmounts = computeSplitAmounts(request, memberIds(ledgerId));
+    transactionSplitMapper.insertBatch(buildSplits(transactionId, request, computedAmounts));
+
+    // Generate debt edges for GROUP_BALANCE ledgers
+    if ("GROUP_BALANCE".equals(ledger.getLedgerType())) {
+      return insertDebtEdges(
+          ledgerId, buildDebtEdges(ledgerId, transactionId, request, computedAmounts));
+    }
+    return Map.of();
+  }
+
+  private Set<Long> memberIds(Long ledgerId) {
+    return ledgerMemberMapper
+        .selectList(new LambdaQueryWrapper<LedgerMember>().eq(LedgerMember::getLedgerId, ledgerId))
+        .stream()
+        .map(LedgerMember::getUserId)
+        .collect(Collectors.toSet());
+  }
+
+  /**
+   * Validate a request's splits and compute each included member's share.
+   *
+   * @param request transaction request
+   * @param memberIds user IDs of the ledger's members
+   * @return computed amount per included user
+   */
+  private Map<Long, BigDecimal> computeSplitAmounts(
+      CreateTransactionRequest request, Set<Long> memberIds) {
     if (request.getSplits() == null || request.getSplits().isEmpty()) {
       throw new RuntimeException("Splits required for EXPENSE/INCOME type");
     }
 
     // Pre-validation: Ensure all users in the split are members of the ledger
-    List<Long> memberIds =
-        ledgerMemberMapper
-            .selectList(
-                new LambdaQueryWrapper<LedgerMember>().eq(LedgerMember::getLedgerId, ledgerId))
-            .stream()
-            .map(LedgerMember::getUserId)
-            .collect(Collectors.toList());
-    List<Long> splitUserIds =
-        request.getSplits().stream().map(SplitItem::getUserId).collect(Collectors.toList());
-    if (!memberIds.containsAll(splitUserIds)) {
-      throw new RuntimeException("One or more users in the split are not members of the ledger.");
+    for (SplitItem item : request.getSplits()) {
+      if (!memberIds.contains(item.getUserId())) {
+        throw new RuntimeException("One or more users in the split are not members of the ledger.");
+      }
     }
 
     // Validate splits
     validateSplits(request.getSplits(), request.getAmountTotal());
 
     // Calculate split amounts
-    Map<Long, BigDecimal> computedAmounts = calculateSplitAmounts(request);
+    return calculateSplitAmounts(request);
+  }
 
-    // Create transaction splits
+  private Transaction buildTransaction(
+      Long ledgerId, Long userId, CreateTransactionRequest request) {
+    Transaction transaction = new Transaction();
+    transaction.setLedgerId(ledgerId);
+    transaction.setCreatedBy(userId);
+    transaction.setTxnAt(request.getTxnAt());
+    transaction.setType(request.getType());
+    transaction.setCategoryId(request.getCategoryId());
+    transaction.setPayerId(request.getPayerId());
+    transaction.setAmountTotal(request.getAmountTotal());
+    transaction.setCurrency(request.getCurrency());
+    transaction.setNote(request.getNote());
+    transaction.setIsPrivate(request.getIsPrivate());
+    transaction.setRoundingStrategy(request.getRoundingStrategy());
+    transaction.setTailAllocation(request.getTailAllocation());
+    transaction.setCreatedAt(LocalDateTime.now());
+    transaction.setUpdatedAt(LocalDateTime.now());
+    return transaction;
+  }
+
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  private List<TransactionSplit> buildSplits(
+      Long transactionId, CreateTransactionRequest request, Map<Long, BigDecimal> computedAmounts) {
     List<TransactionSplit> splits = new ArrayList<>();
     for (SplitItem item : request.getSplits()) {
       TransactionSplit split = new TransactionSplit(); // NOPMD - Must create new object in loop
@@ -308,13 +846,7 @@ public class TransactionServiceImpl implements TransactionService {
       split.setComputedAmount(computedAmounts.get(item.getUserId()));
       splits.add(split);
     }
-
-    transactionSplitMapper.insertBatch(splits);
-
-    // Generate debt edges for GROUP_BALANCE ledgers
-    if ("GROUP_BALANCE".equals(ledger.getLedgerType())) {
-      generateDebtEdges(ledgerId, transactionId, request, computedAmounts);
-    }
+    return splits;
   }
 
   private void validateSplits(List<SplitItem> splits, BigDecimal amountTotal) {
@@ -389,135 +921,167 @@ public class TransactionServiceImpl implements TransactionService {
   }
 
   private Map<Long, BigDecimal> calculateSplitAmounts(CreateTransactionRequest request) {
-    List<SplitItem> includedSplits =
-        request.getSplits().stream()
-            .filter(split -> Boolean.TRUE.equals(split.getIncluded()))
-            .collect(Collectors.toList());
-
-    BigDecimal totalAmount = request.getAmountTotal();
-    Map<Long, BigDecimal> rawShares = new HashMap<>();
-
-    // Calculate raw shares based on split method
-    switch (includedSplits.get(0).getSplitMethod()) {
-      case "EQUAL":
-        BigDecimal equalAmount =
-            totalAmount.divide(new BigDecimal(includedSplits.size()), 8, RoundingMode.HALF_UP);
-        for (SplitItem split : includedSplits) {
-          rawShares.put(split.getUserId(), equalAmount);
-        }
-        break;
-
-      case "PERCENT":
-        // Validate total percentage
-        BigDecimal totalPercent =
-            includedSplits.stream()
-                .map(SplitItem::getShareValue)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        if (totalPercent.compareTo(HUNDRED) != 0) {
-          throw new RuntimeException("PERCENT splits must sum to 100");
-        }
-
-        for (SplitItem split : includedSplits) {
-          BigDecimal amount =
-              totalAmount.multiply(split.getShareValue()).divide(HUNDRED, 8, RoundingMode.HALF_UP);
-          rawShares.put(split.getUserId(), amount);
-        }
-        break;
-
-      case "WEIGHT":
-        BigDecimal totalWeight =
-            includedSplits.stream()
-                .map(SplitItem::getShareValue)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        for (SplitItem split : includedSplits) {
-          BigDecimal amount =
-              totalAmount
-                  .multiply(split.getShareValue())
-                  .divide(totalWeight, 8, RoundingMode.HALF_UP);
-          rawShares.put(split.getUserId(), amount);
+    List<SplitItem> splits = request.getSplits();
+    long[] userIds = new long[splits.size()];
+    long[] amounts = new long[splits.size()];
+    int count = 0;
+    String method = null;
+    for (SplitItem split : splits) {
+      if (Boolean.TRUE.equals(split.getIncluded())) {
+        // The first included split decides the method for all of them
+        if (method == null) {
+          method = split.getSplitMethod();
         }
-        break;
-
-      case "EXACT":
-        for (SplitItem split : includedSplits) {
-          rawShares.put(split.getUserId(), split.getShareValue());
+        userIds[count] = split.getUserId();
+        if (!"EQUAL".equals(method)) {
+          amounts[count] = MinorUnits.exact(split.getShareValue(), MinorUnits.STORAGE_SCALE);
         }
-        break;
-
-      default:
-        throw new RuntimeException("Invalid split method");
+        count++;
+      }
     }
 
-    // Apply rounding and tail allocation
-    return applyRoundingAndTailAllocation(rawShares, totalAmount, request);
-  }
-
-  private Map<Long, BigDecimal> applyRoundingAndTailAllocation(
-      Map<Long, BigDecimal> rawShares, BigDecimal totalAmount, CreateTransactionRequest request) {
+    long totalAmount = MinorUnits.exact(request.getAmountTotal(), MinorUnits.STORAGE_SCALE);
+    SPLIT_ENGINE.get().shares(method, totalAmount, amounts, count, amounts);
 
     // Get currency exponent for rounding
-    Currency currency = currencyMapper.selectById(request.getCurrency());
-    int exponent = currency != null ? currency.getExponent() : 2;
-
-    Map<Long, BigDecimal> rounded = new HashMap<>();
-    BigDecimal roundedSum = BigDecimal.ZERO;
-
-    // Apply local rounding
-    for (Map.Entry<Long, BigDecimal> entry : rawShares.entrySet()) {
-      BigDecimal roundedAmount;
-      switch (request.getRoundingStrategy()) {
-        case "ROUND_HALF_UP":
-          roundedAmount = entry.getValue().setScale(exponent, RoundingMode.HALF_UP);
-          break;
-        case "TRIM_TO_UNIT":
-          roundedAmount = entry.getValue().setScale(exponent, RoundingMode.DOWN);
-          break;
-        case "NONE":
-          roundedAmount = entry.getValue();
-          break;
-        default:
-          roundedAmount = entry.getValue().setScale(exponent, RoundingMode.HALF_UP);
+    Integer currencyExponent = currencyRegistry.exponentOf(request.getCurrency());
+    int exponent = currencyExponent != null ? currencyExponent : 2;
+    RoundingMode mode = roundingMode(request.getRoundingStrategy());
+
+    // Work in currency minor units unless the total itself has sub-unit digits
+    int scale = SplitEngine.scaleFor(totalAmount, exponent, mode);
+    long tail = SplitEngine.round(amounts, count, totalAmount, exponent, mode, scale);
+    if (tail != 0) {
+      int target = tailTarget(request, userIds, amounts, count);
+      if (target >= 0) {
+        amounts[target] += tail;
       }
-      rounded.put(entry.getKey(), roundedAmount);
-      roundedSum = roundedSum.add(roundedAmount);
     }
 
-    // Calculate tail
-    BigDecimal tail = totalAmount.subtract(roundedSum);
-
-    // Allocate tail
-    if (tail.compareTo(BigDecimal.ZERO) != 0) {
-      Long targetUserId = determineTailTarget(request, rounded);
-      if (targetUserId != null) {
-        BigDecimal currentAmount = rounded.get(targetUserId);
-        rounded.put(targetUserId, currentAmount.add(tail));
-      }
+    Map<Long, BigDecimal> result = new HashMap<>(count * 2);
+    for (int i = 0; i < count; i++) {
+      result.put(userIds[i], MinorUnits.toDecimal(amounts[i], scale));
     }
+    return result;
+  }
 
-    return rounded;
+  private static RoundingMode roundingMode(String roundingStrategy) {
+    switch (roundingStrategy) {
+      case "TRIM_TO_UNIT":
+        return RoundingMode.DOWN;
+      case "NONE":
+        return null;
+      case "ROUND_HALF_UP":
+      default:
+        return RoundingMode.HALF_UP;
+    }
   }
 
-  private Long determineTailTarget(
-      CreateTransactionRequest request, Map<Long, BigDecimal> rounded) {
+  /**
+   * Index of the participant that absorbs the rounding tail.
+   *
+   * @return index into {@code userIds}, or -1 if there is no target (CREATOR without a user)
+   */
+  private int tailTarget(
+      CreateTransactionRequest request, long[] userIds, long[] amounts, int count) {
+    Long targetUserId;
     switch (request.getTailAllocation()) {
-      case "PAYER":
-        return request.getPayerId();
       case "LARGEST_SHARE":
-        return rounded.entrySet().stream()
-            .max(Map.Entry.comparingByValue())
-            .map(Map.Entry::getKey)
-            .orElse(null);
+        // Ties go to the lowest user ID
+        return SplitEngine.largestShare(amounts, userIds, count);
       case "CREATOR":
         UserView currentUser = CurrentUserContext.get();
-        return currentUser != null ? currentUser.getId() : null;
+        targetUserId = currentUser != null ? currentUser.getId() : null;
+        break;
+      case "PAYER":
       default:
-        return request.getPayerId();
+        targetUserId = request.getPayerId();
+    }
+    if (targetUserId == null) {
+      return -1;
     }
+    int target = SplitEngine.indexOf(userIds, count, targetUserId);
+    if (target < 0) {
+      throw new RuntimeException("Tail allocation target is not part of the split");
+    }
+    return target;
+  }
+
+  /** Overlay the non-null fields of a patch on a stored transaction and its splits. */
+  private static CreateTransactionRequest mergeUpdate(
+      Transaction existing, List<TransactionSplit> splits, UpdateTransactionRequest patch) {
+    CreateTransactionRequest merged = new CreateTransactionRequest();
+    merged.setTxnAt(patched(patch.getTxnAt(), existing.getTxnAt()));
+    merged.setType(patched(patch.getType(), existing.getType()));
+    merged.setCurrency(patched(patch.getCurrency(), existing.getCurrency()));
+    merged.setAmountTotal(patched(patch.getAmountTotal(), existing.getAmountTotal()));
+    merged.setCategoryId(patched(patch.getCategoryId(), existing.getCategoryId()));
+    merged.setNote(patched(patch.getNote(), existing.getNote()));
+    merged.setPayerId(patched(patch.getPayerId(), existing.getPayerId()));
+    merged.setIsPrivate(patched(patch.getIsPrivate(), existing.getIsPrivate()));
+    merged.setRoundingStrategy(
+        patched(patch.getRoundingStrategy(), existing.getRoundingStrategy()));
+    merged.setTailAllocation(patched(patch.getTailAllocation(), existing.getTailAllocation()));
+    if (patch.getSplits() != null) {
+      merged.setSplits(patch.getSplits());
+    } else {
+      List<SplitItem> items = new ArrayList<>(splits.size());
+      for (TransactionSplit split : splits) {
+        SplitItem item = new SplitItem(); // NOPMD - Must create new object in loop
+        item.setUserId(split.getUserId());
+        item.setSplitMethod(split.getSplitMethod());
+        item.setShareValue(split.getShareValue());
+        item.setIncluded(split.getIncluded());
+        items.add(item);
+      }
+      merged.setSplits(items);
+    }
+    return merged;
+  }
+
+  private static <T> T patched(T value, T current) {
+    return value != null ? value : current;
+  }
+
+  private static boolean sameRow(Transaction a, Transaction b) {
+    return Objects.equals(a.getTxnAt(), b.getTxnAt())
+        && Objects.equals(a.getType(), b.getType())
+        && Objects.equals(a.getCategoryId(), b.getCategoryId())
+        && Objects.equals(a.getPayerId(), b.getPayerId())
+        && sameAmount(a.getAmountTotal(), b.getAmountTotal())
+        && Objects.equals(a.getCurrency(), b.getCurrency())
+        && Objects.equals(a.getNote(), b.getNote())
+        && Objects.equals(a.getIsPrivate(), b.getIsPrivate())
+        && Objects.equals(a.getRoundingStrategy(), b.getRoundingStrategy())
+        && Objects.equals(a.getTailAllocation(), b.getTailAllocation());
+  }
+
+  private static boolean sameSplit(TransactionSplit a, TransactionSplit b) {
+    return Objects.equals(a.getSplitMethod(), b.getSplitMethod())
+        && sameAmount(a.getShareValue(), b.getShareValue())
+        && Objects.equals(a.getIncluded(), b.getIncluded())
+        && sameAmount(a.getComputedAmount(), b.getComputedAmount());
+  }
+
+  /** Equal by value, ignoring scale: DECIMAL(20,8) columns come back with eight places. */
+  private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+    return a == null ? b == null : b != null && a.compareTo(b) == 0;
+  }
+
+  /** An edge-shaped balance change: the creditor gains {@code amount}, the debtor loses it. */
+  private static DebtEdge balanceChange(DebtEdge edge, BigDecimal amount) {
+    DebtEdge change = new DebtEdge();
+    change.setFromUserId(edge.getFromUserId());
+    change.setToUserId(edge.getToUserId());
+    change.setAmount(amount);
+    return change;
   }
 
+  /** A debt edge of one transaction is identified by its creditor and debtor. */
+  private record EdgeKey(Long fromUserId, Long toUserId) {}
+
   @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
-  private void generateDebtEdges(
+  private List<DebtEdge> buildDebtEdges(
       Long ledgerId,
       Long transactionId,
       CreateTransactionRequest request,
@@ -557,8 +1121,143 @@ public class TransactionServiceImpl implements TransactionService {
       }
     }
 
-    if (!edges.isEmpty()) {
-      debtEdgeMapper.insertBatch(edges);
+    return edges;
+  }
+
+  private Map<Long, BigDecimal> insertDebtEdges(Long ledgerId, List<DebtEdge> edges) {
+    if (edges.isEmpty()) {
+      return Map.of();
+    }
+    debtEdgeMapper.insertBatch(edges);
+    return applyBalanceDeltas(ledgerId, edges, true);
+  }
+
+  /**
+   * Apply the net effect of debt edges to the materialized ledger_user_balances rows in the
+   * caller's DB transaction, after the edges themselves were written or deleted. Creditors gain the
+   * edge amount and debtors lose it; deltas are summed per member and written in user ID order so
+   * concurrent writers lock rows in the same order.
+   *
+   * <p>The ledger row is locked first. If the ledger's snapshot has not been seeded yet, it is
+   * rebuilt from all edges, which already reflect this write, instead of taking the deltas.
+   *
+   * @param ledgerId ledger ID
+   * @param edges edges that were added or removed
+   * @param added true when the edges were inserted, false when they were deleted
+   * @return per-member balance changes that were applied
+   */
+  private Map<Long, BigDecimal> applyBalanceDeltas(
+      Long ledgerId, List<DebtEdge> edges, boolean added) {
+    if (edges.isEmpty()) {
+      return Map.of();
+    }
+
+    Map<Long, BigDecimal> deltas = new TreeMap<>();
+    for (DebtEdge edge : edges) {
+      BigDecimal amount = added ? edge.getAmount() : edge.getAmount().negate();
+      deltas.merge(edge.getFromUserId(), amount, BigDecimal::add);
+      deltas.merge(edge.getToUserId(), amount.negate(), BigDecimal::add);
+    }
+
+    if (!Boolean.TRUE.equals(ledgerMapper.selectBalancesInitializedForUpdate(ledgerId))) {
+      ledgerService.reconcileBalances(ledgerId, true);
+      return deltas;
+    }
+
+    LocalDateTime now = LocalDateTime.now();
+    List<LedgerUserBalance> rows = new ArrayList<>(deltas.size());
+    for (Map.Entry<Long, BigDecimal> entry : deltas.entrySet()) {
+      LedgerUserBalance row = new LedgerUserBalance(); // NOPMD - Must create new object in loop
+      row.setLedgerId(ledgerId);
+      row.setUserId(entry.getKey());
+      row.setNetAmountBase(entry.getValue());
+      row.setRecalculatedAt(now);
+      rows.add(row);
+    }
+
+    ledgerUserBalanceMapper.applyDeltas(rows);
+    return deltas;
+  }
+
+  /**
+   * Hand the balance changes of this write to the incremental settlement planner once the DB
+   * transaction commits. The version is read after the bump, while this transaction still holds the
+   * ledger row, so it is exactly the version the changes produce.
+   *
+   * @param ledgerId ledger ID
+   * @param deltas per-member balance changes; empty if the write moved no balances
+   */
+  private void publishBalanceDeltas(Long ledgerId, Map<Long, BigDecimal> deltas) {
+    if (!incrementalSettlementPlanner.enabled()) {
+      return;
+    }
+    Long version = ledgerMapper.selectPlanVersion(ledgerId);
+    if (version == null) {
+      return;
+    }
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      incrementalSettlementPlanner.applyDelta(ledgerId, version, deltas);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            incrementalSettlementPlanner.applyDelta(ledgerId, version, deltas);
+          }
+        });
+  }
+
+  /**
+   * Build a keyset page from up to {@code pageSize + 1} rows in newest-first order; the extra row
+   * only tells that another page follows.
+   */
+  private ListTransactionsResponse keysetPage(
+      Ledger ledger, List<Transaction> rows, int pageSize, Details details) {
+    boolean hasMore = rows.size() > pageSize;
+    if (hasMore) {
+      rows = rows.subList(0, pageSize);
+    }
+
+    ListTransactionsResponse response = new ListTransactionsResponse();
+    response.setSize(pageSize);
+    List<TransactionSummary> items =
+        rows.stream().map(this::buildTransactionSummary).collect(Collectors.toList());
+    attachDetails(ledger, items, details);
+    response.setItems(items);
+    if (hasMore) {
+      Transaction last = rows.get(rows.size() - 1);
+      response.setNextCursor(new PageCursor(last.getTxnAt(), last.getId()).encode());
+    }
+    return response;
+  }
+
+  private static LocalDateTime parseDateFilter(String date) {
+    return date == null ? null : LocalDateTime.parse(date, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+  }
+
+  /**
+   * Position after the last row of a keyset page. Encoded as base64url of {@code txnAt|id} so
+   * clients treat it as opaque.
+   */
+  private record PageCursor(LocalDateTime txnAt, Long id) {
+    String encode() {
+      String raw = txnAt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + "|" + id;
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static PageCursor decode(String cursor) {
+      try {
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = raw.lastIndexOf('|');
+        return new PageCursor(
+            LocalDateTime.parse(raw.substring(0, separator), DateTimeFormatter.ISO_LOCAL_DATE_TIME),
+            Long.valueOf(raw.substring(separator + 1)));
+      } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeException e) {
+        throw new RuntimeException("Invalid cursor");
+      }
     }
   }
 
@@ -611,6 +1310,76 @@ public class TransactionServiceImpl implements TransactionService {
     return preview;
   }
 
+  /**
+   * Attach the requested details to a page of summaries. Each kind costs one {@code IN} query for
+   * the whole page, grouped by transaction in memory, however many items the page has.
+   */
+  private void attachDetails(Ledger ledger, List<TransactionSummary> items, Details details) {
+    if (items.isEmpty() || !(details.splits() || details.edges())) {
+      return;
+    }
+    List<Long> ids =
+        items.stream().map(TransactionSummary::getTransactionId).collect(Collectors.toList());
+
+    if (details.splits()) {
+      Map<Long, List<SplitView>> splits =
+          transactionSplitMapper.findByTransactionIds(ids).stream()
+              .collect(
+                  Collectors.groupingBy(
+                      TransactionSplit::getTransactionId,
+                      Collectors.mapping(this::buildSplitView, Collectors.toList())));
+      items.forEach(
+          item -> item.setSplits(splits.getOrDefault(item.getTransactionId(), List.of())));
+    }
+
+    if (details.edges()) {
+      // Only GROUP_BALANCE ledgers generate debt edges
+      Map<Long, List<EdgePreview>> edges =
+          "GROUP_BALANCE".equals(ledger.getLedgerType())
+              ? debtEdgeMapper.findByLedgerAndTransactionIds(ledger.getId(), ids).stream()
+                  .collect(
+                      Collectors.groupingBy(
+                          DebtEdge::getTransactionId,
+                          Collectors.mapping(this::buildEdgePreview, Collectors.toList())))
+              : Map.of();
+      items.forEach(
+          item -> item.setEdgesPreview(edges.getOrDefault(item.getTransactionId(), List.of())));
+    }
+  }
+
+  /** Details a list request asks to attach to each item. */
+  private record Details(boolean splits, boolean edges) {
+
+    static Details parse(List<String> include) {
+      boolean splits = false;
+      boolean edges = false;
+      if (include != null) {
+        for (String value : include) {
+          switch (value.trim()) {
+            case "splits" -> splits = true;
+            case "edges" -> edges = true;
+            case "" -> {
+              // Tolerate include= and trailing commas
+            }
+            default -> throw new RuntimeException("Unsupported include: " + value.trim());
+          }
+        }
+      }
+      return new Details(splits, edges);
+    }
+  }
+
+  /** Change feed entry for a created or changed transaction, visible like the row itself. */
+  private Change transactionUpsert(Transaction transaction) {
+    return new Change(
+        ChangeFeedService.TRANSACTION,
+        transaction.getId(),
+        "UPSERT",
+        buildTransactionSummary(transaction),
+        Boolean.TRUE.equals(transaction.getIsPrivate()) ? transaction.getCreatedBy() : null,
+        transaction.getTxnAt());
+  }
+
   private TransactionSummary buildTransactionSummary(Transaction transaction) {
     TransactionSummary summary = new TransactionSummary();
     summary.setTransactionId(transaction.getId());
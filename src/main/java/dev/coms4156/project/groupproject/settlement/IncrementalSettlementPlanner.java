@@ -0,0 +1,296 @@
+package dev.coms4156.project.groupproject.settlement;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import dev.coms4156.project.groupproject.dto.SettlementPlanResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the last default-config settlement plan of each ledger together with the member balances it
+ * settles, and repairs it in place when a single transaction changes those balances.
+ *
+ * <p>A delta only touches the members of one transaction, so it is settled on its own with a greedy
+ * pass over the changed members (at most k - 1 transfers for k members) and the result is merged
+ * into the existing transfers: same-direction pairs grow, opposite pairs net out, everything else
+ * is left untouched. Update cost depends on the delta, not the ledger, and transfers users already
+ * saw keep their place in the plan.
+ *
+ * <p>Merging can leave more transfers than a fresh solve would. A heap-greedy solve needs at most n
+ * - 1 transfers for n members with a non-zero balance; once the repaired plan exceeds that by more
+ * than {@code max-extra-transfers}, the plan is dropped and the next read re-solves from scratch.
+ *
+ * <p>Transfers live at the currency exponent. Balances are kept at storage scale, and a delta
+ * enters the plan as the change it makes to each member's balance rounded HALF_UP to the exponent,
+ * so the kept transfers always net to the rounded balances. When those rounded changes do not sum
+ * to zero no exact repair exists and the plan is dropped.
+ *
+ * <p>States are keyed by ledger and stamped with the ledger plan version they settle. A delta is
+ * applied only to the state of the version right before it; any other write that bumps the version
+ * without a delta leaves a gap, and the state is discarded.
+ */
+@Component
+public class IncrementalSettlementPlanner {
+
+  /** Metric counting incremental plan outcomes, tagged {@code outcome}. */
+  public static final String METRIC_NAME = "settlement.plan.incremental";
+
+  private final Cache<Long, PlanState> states;
+  private final boolean enabled;
+  private final int maxExtraTransfers;
+  private final Counter repaired;
+  private final Counter resolved;
+  private final Counter dropped;
+
+  /**
+   * Constructor for IncrementalSettlementPlanner.
+   *
+   * @param meterRegistry registry the outcome counters are bound to
+   * @param maxLedgers maximum number of ledgers with a kept plan; 0 disables incremental planning
+   * @param maxExtraTransfers transfers a repaired plan may have beyond the heap-greedy bound before
+   *     it is re-solved
+   */
+  @Autowired
+  public IncrementalSettlementPlanner(
+      MeterRegistry meterRegistry,
+      @Value("${ledger.settlement.incremental.max-ledgers:1024}") long maxLedgers,
+      @Value("${ledger.settlement.incremental.max-extra-transfers:2}") int maxExtraTransfers) {
+    this.states = CacheBuilder.newBuilder().maximumSize(maxLedgers).build();
+    this.enabled = maxLedgers > 0;
+    this.maxExtraTransfers = maxExtraTransfers;
+    this.repaired = outcome(meterRegistry, "repaired");
+    this.resolved = outcome(meterRegistry, "resolved");
+    this.dropped = outcome(meterRegistry, "dropped");
+  }
+
+  private static Counter outcome(MeterRegistry registry, String outcome) {
+    return Counter.builder(METRIC_NAME).tag("outcome", outcome).register(registry);
+  }
+
+  /**
+   * Whether plans are kept at all.
+   *
+   * @return false if incremental planning is disabled
+   */
+  public boolean enabled() {
+    return enabled;
+  }
+
+  /**
+   * Keep a freshly solved plan as the base for later repairs. A kept plan that is already at a
+   * newer version wins.
+   *
+   * @param ledgerId ledger ID
+   * @param version ledger plan version the balances were read at
+   * @param balances member net balances (positive = owed money)
+   * @param transfers the plan's transfers for those balances
+   * @param exponent currency exponent the transfers are rounded to
+   */
+  public void seed(
+      Long ledgerId,
+      long version,
+      Map<Long, BigDecimal> balances,
+      List<SettlementPlanResponse.TransferItem> transfers,
+      int exponent) {
+    if (!enabled) {
+      return;
+    }
+    states
+        .asMap()
+        .merge(
+            ledgerId,
+            new PlanState(version, exponent, balances, transfers),
+            (kept, fresh) -> kept.currentVersion() > fresh.version ? kept : fresh);
+  }
+
+  /**
+   * Apply the balance delta of one committed write that moved the ledger to {@code version}.
+   *
+   * @param ledgerId ledger ID
+   * @param version ledger plan version after the write
+   * @param deltas per-member balance changes; they sum to zero
+   */
+  public void applyDelta(Long ledgerId, long version, Map<Long, BigDecimal> deltas) {
+    PlanState state = states.getIfPresent(ledgerId);
+    if (state == null) {
+      return;
+    }
+    synchronized (state) {
+      if (version <= state.version) {
+        return;
+      }
+      if (version != state.version + 1 || state.stale) {
+        states.invalidate(ledgerId);
+        dropped.increment();
+        return;
+      }
+      if (!state.apply(deltas)) {
+        states.invalidate(ledgerId);
+        dropped.increment();
+        return;
+      }
+      state.version = version;
+      if (state.transfers.size() > Math.max(0, state.nonZero - 1) + maxExtraTransfers) {
+        state.stale = true;
+        states.invalidate(ledgerId);
+        resolved.increment();
+      } else {
+        repaired.increment();
+      }
+    }
+  }
+
+  /**
+   * Return the kept plan if it settles exactly the given plan version.
+   *
+   * @param ledgerId ledger ID
+   * @param version ledger plan version to plan for
+   * @param exponent currency exponent transfers are rounded to; a plan kept at another exponent is
+   *     not served
+   * @return transfers without user names, or null if the plan has to be solved from scratch
+   */
+  public List<SettlementPlanResponse.TransferItem> plan(Long ledgerId, long version, int exponent) {
+    PlanState state = states.getIfPresent(ledgerId);
+    if (state == null) {
+      return null;
+    }
+    synchronized (state) {
+      if (state.stale || state.version != version || state.exponent != exponent) {
+        return null;
+      }
+      List<SettlementPlanResponse.TransferItem> transfers = new ArrayList<>();
+      for (Map.Entry<Pair, BigDecimal> entry : state.transfers.entrySet()) {
+        transfers.add(
+            new SettlementPlanResponse.TransferItem(
+                entry.getKey().payer(), null, entry.getKey().receiver(), null, entry.getValue()));
+      }
+      return transfers;
+    }
+  }
+
+  /** Directed payer -> receiver pair. */
+  private record Pair(long payer, long receiver) {
+    Pair reversed() {
+      return new Pair(receiver, payer);
+    }
+  }
+
+  /** Balances and the transfers settling them, in plan order. Guarded by its own monitor. */
+  private static final class PlanState {
+    private long version;
+    private boolean stale;
+    private int nonZero;
+    private final int exponent;
+    private final Map<Long, BigDecimal> balances;
+    private final LinkedHashMap<Pair, BigDecimal> transfers = new LinkedHashMap<>();
+
+    PlanState(
+        long version,
+        int exponent,
+        Map<Long, BigDecimal> balances,
+        List<SettlementPlanResponse.TransferItem> plan) {
+      this.version = version;
+      this.exponent = exponent;
+      this.balances = new HashMap<>(balances);
+      for (BigDecimal balance : balances.values()) {
+        if (rounded(balance).signum() != 0) {
+          nonZero++;
+        }
+      }
+      for (SettlementPlanResponse.TransferItem transfer : plan) {
+        BigDecimal amount = rounded(transfer.getAmount());
+        if (amount.signum() > 0) {
+          merge(new Pair(transfer.getFromUserId(), transfer.getToUserId()), amount);
+        }
+      }
+    }
+
+    private BigDecimal rounded(BigDecimal amount) {
+      return amount.setScale(exponent, RoundingMode.HALF_UP);
+    }
+
+    synchronized long currentVersion() {
+      return version;
+    }
+
+    /**
+     * Settle a delta into the plan.
+     *
+     * @return false if the rounded balance changes do not net to zero and the plan cannot follow
+     */
+    boolean apply(Map<Long, BigDecimal> deltas) {
+      // Work on the change of each rounded balance so transfers stay at the currency exponent
+      List<Map.Entry<Long, BigDecimal>> owed = new ArrayList<>();
+      List<Map.Entry<Long, BigDecimal>> owing = new ArrayList<>();
+      BigDecimal net = BigDecimal.ZERO;
+      for (Map.Entry<Long, BigDecimal> delta : deltas.entrySet()) {
+        if (delta.getValue().signum() == 0) {
+          continue;
+        }
+        BigDecimal before = balances.getOrDefault(delta.getKey(), BigDecimal.ZERO);
+        BigDecimal after = before.add(delta.getValue());
+        balances.put(delta.getKey(), after);
+        BigDecimal change = rounded(after).subtract(rounded(before));
+        nonZero += (rounded(after).signum() != 0 ? 1 : 0) - (rounded(before).signum() != 0 ? 1 : 0);
+        net = net.add(change);
+        if (change.signum() != 0) {
+          (change.signum() > 0 ? owed : owing).add(Map.entry(delta.getKey(), change.abs()));
+        }
+      }
+      if (net.signum() != 0) {
+        return false;
+      }
+
+      // Settle the delta on its own, largest amounts first, and fold each transfer into the plan
+      Comparator<Map.Entry<Long, BigDecimal>> largestFirst =
+          Map.Entry.<Long, BigDecimal>comparingByValue().reversed();
+      owed.sort(largestFirst);
+      owing.sort(largestFirst);
+      int i = 0;
+      int j = 0;
+      BigDecimal owedLeft = owed.isEmpty() ? BigDecimal.ZERO : owed.get(0).getValue();
+      BigDecimal owingLeft = owing.isEmpty() ? BigDecimal.ZERO : owing.get(0).getValue();
+      while (i < owed.size() && j < owing.size()) {
+        BigDecimal amount = owedLeft.min(owingLeft);
+        merge(new Pair(owing.get(j).getKey(), owed.get(i).getKey()), amount);
+        owedLeft = owedLeft.subtract(amount);
+        owingLeft = owingLeft.subtract(amount);
+        if (owedLeft.signum() == 0 && ++i < owed.size()) {
+          owedLeft = owed.get(i).getValue();
+        }
+        if (owingLeft.signum() == 0 && ++j < owing.size()) {
+          owingLeft = owing.get(j).getValue();
+        }
+      }
+      return true;
+    }
+
+    private void merge(Pair pair, BigDecimal amount) {
+      BigDecimal opposite = transfers.get(pair.reversed());
+      if (opposite == null) {
+        transfers.merge(pair, amount, BigDecimal::add);
+        return;
+      }
+      BigDecimal left = opposite.subtract(amount);
+      if (left.signum() > 0) {
+        transfers.put(pair.reversed(), left);
+      } else {
+        transfers.remove(pair.reversed());
+        if (left.signum() < 0) {
+          transfers.put(pair, left.negate());
+        }
+      }
+    }
+  }
+}
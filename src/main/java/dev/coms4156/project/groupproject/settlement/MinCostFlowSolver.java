@@ -0,0 +1,523 @@
+package dev.coms4156.project.groupproject.settlement;
+
+import java.util.Arrays;
+
+/**
+ * Min-cost max-flow settlement solver over primitive minor-unit balances.
+ *
+ * <p>The network is source -> debtor -> creditor -> sink. Source and sink arcs carry each member's
+ * outstanding amount; one arc per allowed (debtor, creditor) pair carries the transfer. Blocked
+ * payment channels simply have no arc. A per-transfer cap limits single transfers, not what a pair
+ * moves in total, so the network is solved once without it and each pair's flow is then paid out in
+ * transfers of at most the cap; a pair may appear several times in the plan. Solving capped rounds
+ * instead would commit early flow that later rounds cannot reroute and strand debt.
+ *
+ * <p>Pair arcs are priced by preference. A debtor and creditor with equal outstanding amounts cost
+ * {@value #MATCH_COST} per unit, since one transfer clears them both; any other pair costs {@value
+ * #SPLIT_COST}. The cheapest maximum flow therefore settles as many exactly matching pairs as
+ * possible on their own and only splits the remaining amounts across several creditors.
+ *
+ * <p>Costs say nothing about how many pairs the rest of the flow uses, so the flow is tidied in two
+ * steps before it is paid out. Cycles among the used pairs are cancelled until they form a forest,
+ * which bounds a group of m connected members to m - 1 transfers whatever order the arcs were
+ * visited in. Each tree is then re-settled largest first over its allowed pairs and the greedy
+ * pairs win when they are fewer. This matches the heap-greedy count on almost every ledger but does
+ * not guarantee it: greedy over the whole ledger can still find a coincidental split the trees do
+ * not offer, and finding the fewest transfers in general is the zero-sum partition problem.
+ *
+ * <p>Each solve is a primal-dual successive shortest path: Dijkstra over reduced costs updates the
+ * node potentials, then a blocking flow (Dinic) saturates every zero-reduced-cost path before the
+ * next Dijkstra. All state lives in flat arrays sized once per solve.
+ */
+public final class MinCostFlowSolver {
+
+  private static final long INF = Long.MAX_VALUE / 4;
+
+  /** Unit cost of a pair whose debt equals its credit. */
+  private static final int MATCH_COST = 0;
+
+  /** Unit cost of any other pair. */
+  private static final int SPLIT_COST = 1;
+
+  /** Decides whether a debtor may pay a creditor directly. */
+  @FunctionalInterface
+  public interface PairFilter {
+    /**
+     * Whether the pair may transact.
+     *
+     * @param debtor index into the debts array
+     * @param creditor index into the credits array
+     * @return true if a transfer from debtor to creditor is allowed
+     */
+    boolean allowed(int debtor, int creditor);
+  }
+
+  /** Transfers produced by a solve, stored as parallel primitive arrays. */
+  public static final class Plan {
+    private final int[] debtors;
+    private final int[] creditors;
+    private final long[] amounts;
+    private final int size;
+    private final long unsettled;
+
+    Plan(int[] debtors, int[] creditors, long[] amounts, int size, long unsettled) {
+      this.debtors = debtors;
+      this.creditors = creditors;
+      this.amounts = amounts;
+      this.size = size;
+      this.unsettled = unsettled;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public int debtor(int k) {
+      return debtors[k];
+    }
+
+    public int creditor(int k) {
+      return creditors[k];
+    }
+
+    public long amount(int k) {
+      return amounts[k];
+    }
+
+    /** Total debt (minor units) that could not be routed because of blocked channels. */
+    public long unsettled() {
+      return unsettled;
+    }
+  }
+
+  private final int nodeCount;
+  private final int source;
+  private final int sink;
+  private final int[] head;
+  private int[] next;
+  private int[] to;
+  private long[] cap;
+  private int[] cost;
+  private int arcCount;
+
+  private final long[] potential;
+  private final long[] dist;
+  private final boolean[] done;
+  private final int[] level;
+  private final int[] iter;
+  private final int[] queue;
+
+  private MinCostFlowSolver(int debtorCount, int creditorCount, int arcHint) {
+    this.nodeCount = debtorCount + creditorCount + 2;
+    this.source = 0;
+    this.sink = nodeCount - 1;
+    this.head = new int[nodeCount];
+    Arrays.fill(head, -1);
+    int arcs = 2 * arcHint;
+    this.next = new int[arcs];
+    this.to = new int[arcs];
+    this.cap = new long[arcs];
+    this.cost = new int[arcs];
+    this.potential = new long[nodeCount];
+    this.dist = new long[nodeCount];
+    this.done = new boolean[nodeCount];
+    this.level = new int[nodeCount];
+    this.iter = new int[nodeCount];
+    this.queue = new int[nodeCount];
+  }
+
+  /**
+   * Solve a settlement between debtors and creditors.
+   *
+   * @param debts amount each debtor owes, in minor units (all positive)
+   * @param credits amount each creditor is owed, in minor units (all positive)
+   * @param filter allowed debtor -> creditor pairs; null allows every pair
+   * @param maxTransfer per-transfer cap in minor units; zero or negative for no cap
+   * @return transfers in minor units plus the debt left unsettled
+   */
+  public static Plan solve(long[] debts, long[] credits, PairFilter filter, long maxTransfer) {
+    int d = debts.length;
+    int c = credits.length;
+    MinCostFlowSolver solver = new MinCostFlowSolver(d, c, d + c + d * c);
+    for (int i = 0; i < d; i++) {
+      solver.addArc(solver.source, 1 + i, debts[i], 0);
+    }
+    int firstPairArc = solver.arcCount;
+    for (int i = 0; i < d; i++) {
+      for (int j = 0; j < c; j++) {
+        if (filter == null || filter.allowed(i, j)) {
+          solver.addArc(1 + i, 1 + d + j, INF, debts[i] == credits[j] ? MATCH_COST : SPLIT_COST);
+        }
+      }
+    }
+    int endPairArc = solver.arcCount;
+    for (int j = 0; j < c; j++) {
+      solver.addArc(1 + d + j, solver.sink, credits[j], 0);
+    }
+    long settled = solver.run();
+
+    int pairs = (endPairArc - firstPairArc) / 2;
+    int[] pairDebtor = new int[pairs];
+    int[] pairCreditor = new int[pairs];
+    long[] pairFlow = new long[pairs];
+    for (int k = 0; k < pairs; k++) {
+      int e = firstPairArc + 2 * k;
+      pairDebtor[k] = solver.to[e ^ 1] - 1;
+      pairCreditor[k] = solver.to[e] - 1 - d;
+      pairFlow[k] = solver.cap[e ^ 1];
+    }
+    reduceToForest(pairDebtor, pairCreditor, pairFlow, d, c);
+    regroupComponents(pairDebtor, pairCreditor, pairFlow, d, c);
+
+    long chunk = maxTransfer > 0 ? maxTransfer : INF;
+    int[] outDebtor = new int[Math.max(4, d + c)];
+    int[] outCreditor = new int[outDebtor.length];
+    long[] outAmount = new long[outDebtor.length];
+    int size = 0;
+    for (int k = 0; k < pairs; k++) {
+      int i = pairDebtor[k];
+      int j = pairCreditor[k];
+      for (long flow = pairFlow[k]; flow > 0; flow -= chunk) {
+        if (size == outAmount.length) {
+          int grown = size * 2;
+          outDebtor = Arrays.copyOf(outDebtor, grown);
+          outCreditor = Arrays.copyOf(outCreditor, grown);
+          outAmount = Arrays.copyOf(outAmount, grown);
+        }
+        outDebtor[size] = i;
+        outCreditor[size] = j;
+        outAmount[size] = Math.min(flow, chunk);
+        size++;
+      }
+    }
+
+    long unsettled = -settled;
+    for (long debt : debts) {
+      unsettled += debt;
+    }
+    return new Plan(outDebtor, outCreditor, outAmount, size, unsettled);
+  }
+
+  /**
+   * Cancel cycles among the pairs that carry flow until they form a forest, so a component of m
+   * members is settled by m - 1 pairs whatever order the blocking flow visited the arcs in. Pairs
+   * are taken in arc order and kept in the forest; a pair that closes a cycle has the smallest
+   * amount on the cycle pushed around it in the direction that lowers the new pair, which leaves
+   * every balance unchanged and empties at least one pair. In a min-cost flow every such cycle
+   * costs zero either way, so exact matches survive.
+   *
+   * @param debtorOf debtor index of each pair
+   * @param creditorOf creditor index of each pair
+   * @param flow flow on each pair, rewritten in place
+   * @param d number of debtors
+   * @param c number of creditors
+   */
+  private static void reduceToForest(int[] debtorOf, int[] creditorOf, long[] flow, int d, int c) {
+    int nodes = d + c;
+    int[] forestHead = new int[nodes];
+    Arrays.fill(forestHead, -1);
+    int[] forestNext = new int[2 * flow.length];
+    boolean[] inForest = new boolean[flow.length];
+    int[] parentPair = new int[nodes];
+    int[] seen = new int[nodes];
+    int[] bfs = new int[nodes];
+    int stamp = 0;
+    for (int k = 0; k < flow.length; k++) {
+      if (flow[k] == 0) {
+        continue;
+      }
+      int debtor = debtorOf[k];
+      int creditor = d + creditorOf[k];
+
+      // Forest path from the creditor back to the debtor, if the two are already connected
+      stamp++;
+      seen[creditor] = stamp;
+      int qh = 0;
+      int qt = 0;
+      bfs[qt++] = creditor;
+      while (qh < qt && seen[debtor] != stamp) {
+        int u = bfs[qh++];
+        for (int slot = forestHead[u]; slot >= 0; slot = forestNext[slot]) {
+          int p = slot >> 1;
+          if (!inForest[p]) {
+            continue;
+          }
+          int v = u == debtorOf[p] ? d + creditorOf[p] : debtorOf[p];
+          if (seen[v] != stamp) {
+            seen[v] = stamp;
+            parentPair[v] = p;
+            bfs[qt++] = v;
+          }
+        }
+      }
+
+      if (seen[debtor] == stamp) {
+        // Walking from the debtor, path pairs alternate +, -, ... and the new pair takes -
+        long delta = flow[k];
+        boolean lower = false;
+        for (int v = debtor; v != creditor; lower = !lower) {
+          int p = parentPair[v];
+          if (lower) {
+            delta = Math.min(delta, flow[p]);
+          }
+          v = v == debtorOf[p] ? d + creditorOf[p] : debtorOf[p];
+        }
+        lower = false;
+        for (int v = debtor; v != creditor; lower = !lower) {
+          int p = parentPair[v];
+          flow[p] += lower ? -delta : delta;
+          if (flow[p] == 0) {
+            inForest[p] = false;
+          }
+          v = v == debtorOf[p] ? d + creditorOf[p] : debtorOf[p];
+        }
+        flow[k] -= delta;
+        if (flow[k] == 0) {
+          continue;
+        }
+      }
+      inForest[k] = true;
+      forestNext[2 * k] = forestHead[debtor];
+      forestHead[debtor] = 2 * k;
+      forestNext[2 * k + 1] = forestHead[creditor];
+      forestHead[creditor] = 2 * k + 1;
+    }
+  }
+
+  /**
+   * Re-settle each connected group of the forest with a largest-first greedy pass over its allowed
+   * pairs, preferring a creditor owed exactly the debtor's amount, and keep the greedy pairs when
+   * they are fewer. Costs cannot tell a tree of m - 1 pairs from a split into smaller zero-sum
+   * trees; the greedy pass finds such splits whenever a remainder happens to equal another amount.
+   *
+   * @param debtorOf debtor index of each pair, one entry per allowed (debtor, creditor)
+   * @param creditorOf creditor index of each pair
+   * @param flow flow on each pair of the forest, rewritten in place
+   * @param d number of debtors
+   * @param c number of creditors
+   */
+  private static void regroupComponents(
+      int[] debtorOf, int[] creditorOf, long[] flow, int d, int c) {
+    int nodes = d + c;
+    int[] pairOf = new int[d * c];
+    Arrays.fill(pairOf, -1);
+    int[] root = new int[nodes];
+    for (int v = 0; v < nodes; v++) {
+      root[v] = v;
+    }
+    for (int k = 0; k < flow.length; k++) {
+      pairOf[debtorOf[k] * c + creditorOf[k]] = k;
+      if (flow[k] > 0) {
+        root[find(root, debtorOf[k])] = find(root, d + creditorOf[k]);
+      }
+    }
+    // Amount each member moves in the flow, and pairs per tree counted at its root
+    long[] moved = new long[nodes];
+    int[] pairsIn = new int[nodes];
+    for (int k = 0; k < flow.length; k++) {
+      if (flow[k] > 0) {
+        moved[debtorOf[k]] += flow[k];
+        moved[d + creditorOf[k]] += flow[k];
+        pairsIn[find(root, debtorOf[k])]++;
+      }
+    }
+
+    int[] members = new int[nodes];
+    long[] left = new long[nodes];
+    int[] chosen = new int[nodes];
+    long[] amounts = new long[nodes];
+    for (int r = 0; r < nodes; r++) {
+      if (pairsIn[r] < 2 || find(root, r) != r) {
+        continue;
+      }
+      int size = 0;
+      for (int v = 0; v < nodes; v++) {
+        if (moved[v] > 0 && find(root, v) == r) {
+          members[size++] = v;
+          left[v] = moved[v];
+        }
+      }
+      int used = 0;
+      boolean settled = false;
+      while (used < pairsIn[r]) {
+        int debtor = -1;
+        int creditor = -1;
+        for (int m = 0; m < size; m++) {
+          int v = members[m];
+          if (v < d && left[v] > 0 && (debtor < 0 || left[v] > left[debtor])) {
+            debtor = v;
+          }
+        }
+        if (debtor < 0) {
+          settled = true;
+          break;
+        }
+        for (int m = 0; m < size; m++) {
+          int v = members[m];
+          if (v < d || left[v] == 0 || pairOf[debtor * c + v - d] < 0) {
+            continue;
+          }
+          if (left[v] == left[debtor]) {
+            creditor = v;
+            break;
+          }
+          if (creditor < 0 || left[v] > left[creditor]) {
+            creditor = v;
+          }
+        }
+        if (creditor < 0) {
+          break;
+        }
+        long amount = Math.min(left[debtor], left[creditor]);
+        chosen[used] = pairOf[debtor * c + creditor - d];
+        amounts[used++] = amount;
+        left[debtor] -= amount;
+        left[creditor] -= amount;
+      }
+      for (int m = 0; m < size; m++) {
+        left[members[m]] = 0;
+      }
+      if (settled && used < pairsIn[r]) {
+        for (int k = 0; k < flow.length; k++) {
+          if (flow[k] > 0 && find(root, debtorOf[k]) == r) {
+            flow[k] = 0;
+          }
+        }
+        for (int t = 0; t < used; t++) {
+          flow[chosen[t]] = amounts[t];
+        }
+      }
+    }
+  }
+
+  private static int find(int[] root, int v) {
+    int u = v;
+    while (root[u] != u) {
+      root[u] = root[root[u]];
+      u = root[u];
+    }
+    return u;
+  }
+
+  private void addArc(int from, int toNode, long capacity, int unitCost) {
+    if (arcCount + 2 > to.length) {
+      int grown = Math.max(8, to.length * 2);
+      next = Arrays.copyOf(next, grown);
+      to = Arrays.copyOf(to, grown);
+      cap = Arrays.copyOf(cap, grown);
+      cost = Arrays.copyOf(cost, grown);
+    }
+    to[arcCount] = toNode;
+    cap[arcCount] = capacity;
+    cost[arcCount] = unitCost;
+    next[arcCount] = head[from];
+    head[from] = arcCount++;
+
+    to[arcCount] = from;
+    cap[arcCount] = 0;
+    cost[arcCount] = -unitCost;
+    next[arcCount] = head[toNode];
+    head[toNode] = arcCount++;
+  }
+
+  /** Run primal-dual phases until the sink is unreachable; returns the total flow. */
+  private long run() {
+    long total = 0;
+    while (shortestPaths()) {
+      while (buildLevels()) {
+        System.arraycopy(head, 0, iter, 0, nodeCount);
+        long pushed;
+        while ((pushed = augment(source, INF)) > 0) {
+          total += pushed;
+        }
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Dense Dijkstra over reduced costs. The graph is close to complete bipartite, so an O(V^2) scan
+   * beats a binary heap and allocates nothing.
+   */
+  private boolean shortestPaths() {
+    Arrays.fill(dist, INF);
+    Arrays.fill(done, false);
+    dist[source] = 0;
+    for (int round = 0; round < nodeCount; round++) {
+      int u = -1;
+      long best = INF;
+      for (int v = 0; v < nodeCount; v++) {
+        if (!done[v] && dist[v] < best) {
+          best = dist[v];
+          u = v;
+        }
+      }
+      if (u < 0) {
+        break;
+      }
+      done[u] = true;
+      for (int e = head[u]; e >= 0; e = next[e]) {
+        if (cap[e] <= 0) {
+          continue;
+        }
+        int v = to[e];
+        long nd = dist[u] + cost[e] + potential[u] - potential[v];
+        if (nd < dist[v]) {
+          dist[v] = nd;
+        }
+      }
+    }
+    if (dist[sink] >= INF) {
+      return false;
+    }
+    long limit = dist[sink];
+    for (int v = 0; v < nodeCount; v++) {
+      potential[v] += Math.min(dist[v], limit);
+    }
+    return true;
+  }
+
+  private boolean admissible(int e, int from) {
+    return cap[e] > 0 && cost[e] + potential[from] - potential[to[e]] == 0;
+  }
+
+  /** BFS levels over residual arcs with zero reduced cost. */
+  private boolean buildLevels() {
+    Arrays.fill(level, -1);
+    int qh = 0;
+    int qt = 0;
+    level[source] = 0;
+    queue[qt++] = source;
+    while (qh < qt) {
+      int u = queue[qh++];
+      for (int e = head[u]; e >= 0; e = next[e]) {
+        int v = to[e];
+        if (level[v] < 0 && admissible(e, u)) {
+          level[v] = level[u] + 1;
+          queue[qt++] = v;
+        }
+      }
+    }
+    return level[sink] >= 0;
+  }
+
+  private long augment(int u, long limit) {
+    if (u == sink) {
+      return limit;
+    }
+    for (; iter[u] >= 0; iter[u] = next[iter[u]]) {
+      int e = iter[u];
+      int v = to[e];
+      if (level[v] != level[u] + 1 || !admissible(e, u)) {
+        continue;
+      }
+      long pushed = augment(v, Math.min(limit, cap[e]));
+      if (pushed > 0) {
+        cap[e] -= pushed;
+        cap[e ^ 1] += pushed;
+        return pushed;
+      }
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,159 @@
+package dev.coms4156.project.groupproject.settlement;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import dev.coms4156.project.groupproject.dto.SettlementConfig;
+import dev.coms4156.project.groupproject.dto.SettlementPlanResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of computed settlement plans keyed by (ledger ID, ledger plan version, settlement
+ * config). Writes that can change a plan bump {@code ledgers.plan_version}, so entries for older
+ * versions are never matched again and simply age out of the LRU. Hit, miss and eviction counts are
+ * published as {@code cache.*} metrics tagged {@code cache=settlement.plan}.
+ *
+ * <p>Keys hold a copy of the config and callers get a copy of the plan, so neither side can change
+ * a cached entry after the fact.
+ */
+@Component
+public class SettlementPlanCache {
+
+  /** Metric name used for the cache tag. */
+  public static final String CACHE_NAME = "settlement.plan";
+
+  private final Cache<PlanKey, SettlementPlanResponse> plans;
+
+  /**
+   * Constructor for SettlementPlanCache.
+   *
+   * @param meterRegistry registry the cache statistics are bound to
+   * @param maximumSize maximum number of cached plans; 0 disables caching
+   */
+  @Autowired
+  public SettlementPlanCache(
+      MeterRegistry meterRegistry,
+      @Value("${ledger.settlement.plan-cache-size:1024}") long maximumSize) {
+    this.plans = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+    GuavaCacheMetrics.monitor(meterRegistry, plans, CACHE_NAME);
+  }
+
+  /**
+   * Return a copy of the cached plan for the key, computing and caching it on a miss. Concurrent
+   * misses on one key share a single computation. Exceptions thrown by the loader propagate
+   * unchanged and nothing is cached.
+   *
+   * @param ledgerId ledger ID
+   * @param version ledger plan version the caller read before loading any balances
+   * @param config effective settlement configuration
+   * @param loader computes the plan on a miss
+   * @return settlement plan, owned by the caller
+   */
+  public SettlementPlanResponse get(
+      Long ledgerId,
+      long version,
+      SettlementConfig config,
+      Supplier<SettlementPlanResponse> loader) {
+    PlanKey key = new PlanKey(ledgerId, version, ConfigKey.of(config));
+    try {
+      return copyOf(plans.get(key, loader::get));
+    } catch (UncheckedExecutionException | ExecutionError e) {
+      // The loader is a Supplier, so its cause is always a RuntimeException or an Error
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw (Error) cause;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static SettlementPlanResponse copyOf(SettlementPlanResponse plan) {
+    List<SettlementPlanResponse.TransferItem> transfers = null;
+    if (plan.getTransfers() != null) {
+      transfers = new ArrayList<>(plan.getTransfers().size());
+      for (SettlementPlanResponse.TransferItem t : plan.getTransfers()) {
+        transfers.add(
+            new SettlementPlanResponse.TransferItem(
+                t.getFromUserId(),
+                t.getFromUserName(),
+                t.getToUserId(),
+                t.getToUserName(),
+                t.getAmount()));
+      }
+    }
+    List<SettlementPlanResponse.UnsettledItem> unsettled = null;
+    if (plan.getUnsettled() != null) {
+      unsettled = new ArrayList<>(plan.getUnsettled().size());
+      for (SettlementPlanResponse.UnsettledItem u : plan.getUnsettled()) {
+        unsettled.add(
+            new SettlementPlanResponse.UnsettledItem(
+                u.getUserId(), u.getUserName(), u.getAmount()));
+      }
+    }
+    return new SettlementPlanResponse(
+        plan.getLedgerId(),
+        plan.getCurrency(),
+        plan.getPlanVersion(),
+        plan.getTransferCount(),
+        transfers,
+        unsettled);
+  }
+
+  private record PlanKey(Long ledgerId, long version, ConfigKey config) {}
+
+  /**
+   * Immutable snapshot of every {@link SettlementConfig} field that shapes a plan. A field added to
+   * the config must be added here too, or plans for different values would share an entry.
+   */
+  private record ConfigKey(
+      String roundingStrategy,
+      BigDecimal maxTransferAmount,
+      Map<String, Set<String>> paymentChannels,
+      Boolean forceMinCostFlow,
+      Integer minCostFlowThreshold,
+      String algorithm,
+      Map<String, BigDecimal> currencyRates) {
+
+    static ConfigKey of(SettlementConfig config) {
+      Map<String, Set<String>> channels = null;
+      if (config.getPaymentChannels() != null) {
+        channels = new HashMap<>();
+        for (Map.Entry<String, Set<String>> e : config.getPaymentChannels().entrySet()) {
+          channels.put(
+              e.getKey(),
+              e.getValue() != null
+                  ? Collections.unmodifiableSet(new HashSet<>(e.getValue()))
+                  : null);
+        }
+        channels = Collections.unmodifiableMap(channels);
+      }
+      return new ConfigKey(
+          config.getRoundingStrategy(),
+          config.getMaxTransferAmount(),
+          channels,
+          config.getForceMinCostFlow(),
+          config.getMinCostFlowThreshold(),
+          config.getAlgorithm(),
+          config.getCurrencyRates() != null
+              ? Collections.unmodifiableMap(new HashMap<>(config.getCurrencyRates()))
+              : null);
+    }
+  }
+}
@@ -0,0 +1,357 @@
+package dev.coms4156.project.groupproject.settlement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exact minimum-transfer partitioning of net balances.
+ *
+ * <p>A group of k members whose balances sum to zero can always be settled with k - 1 transfers,
+ * and no plan does better than n minus the number of zero-sum groups, so the minimum number of
+ * transfers is reached by splitting the balances into as many zero-sum subsets as possible. Let
+ * {@code dp[mask]} be the most disjoint zero-sum groups inside {@code mask}. It never shrinks when
+ * a member is added, and for a zero-sum mask every one-member-smaller mask holds exactly one group
+ * fewer.
+ *
+ * <p>The solver therefore never fills {@code dp} mask by mask. Zero-sum masks are listed
+ * meet-in-the-middle from two half-width subset-sum tables, so a solve never evaluates all 2^n
+ * sums. With few of them, as with real amounts, {@code dp} is solved over those masks alone.
+ * Otherwise the solver builds the levels {@code S_k = {mask : dp[mask] >= k}} as bitsets: {@code
+ * S_k} is every superset of a zero-sum mask whose one-member-smaller mask lies in {@code S_(k-1)}.
+ * Each level is a superset closure of n word passes over 2^n bits, and there are at most n / 2
+ * levels. The levels take 2^n / 8 bytes each, so the member count is capped (24 members is 2 MB per
+ * level) and every solve runs against a time budget; callers fall back to a heuristic when the
+ * solver declines.
+ */
+@Component
+public class ZeroSumSubsetSolver {
+
+  /** Largest member count levels are ever allocated for (8 MB per level). */
+  public static final int HARD_MEMBER_LIMIT = 26;
+
+  /** Most zero-sum masks solved pairwise before switching to bitset levels. */
+  private static final int DIRECT_LIMIT = 4096;
+
+  /** Masks of the bits that are clear in bit {@code i} of a word position, for i below 6. */
+  private static final long[] CLEAR_BIT =
+      new long[] {
+        0x5555555555555555L,
+        0x3333333333333333L,
+        0x0F0F0F0F0F0F0F0FL,
+        0x00FF00FF00FF00FFL,
+        0x0000FFFF0000FFFFL,
+        0x00000000FFFFFFFFL
+      };
+
+  private final int maxMembers;
+  private final long timeBudgetNanos;
+
+  /**
+   * Constructor for ZeroSumSubsetSolver.
+   *
+   * @param maxMembers largest number of non-zero balances solved exactly
+   * @param timeBudgetMillis wall-clock budget for one solve
+   */
+  @Autowired
+  public ZeroSumSubsetSolver(
+      @Value("${ledger.settlement.exact.max-members:24}") int maxMembers,
+      @Value("${ledger.settlement.exact.time-budget-ms:250}") long timeBudgetMillis) {
+    this.maxMembers = Math.min(maxMembers, HARD_MEMBER_LIMIT);
+    this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+  }
+
+  /**
+   * Largest number of non-zero balances this solver accepts.
+   *
+   * @return member limit
+   */
+  public int maxMembers() {
+    return maxMembers;
+  }
+
+  /**
+   * Split balances into the largest number of zero-sum groups. When the balances do not sum to
+   * zero, the members left over after the zero-sum groups form one final, non-zero group.
+   *
+   * @param balances non-zero signed balances in minor units
+   * @return groups of indices into {@code balances}, or null if there are more than {@link
+   *     #maxMembers()} balances or the time budget ran out
+   */
+  public int[][] partition(long[] balances) {
+    if (balances.length > maxMembers) {
+      return null;
+    }
+    long deadline = System.nanoTime() + timeBudgetNanos;
+
+    // An exact opposite pair is always a group of its own in some optimal split, so peel those off
+    // first; this shrinks the DP for the common "A owes B" patterns
+    List<int[]> groups = new ArrayList<>();
+    Map<Long, List<Integer>> unmatched = new HashMap<>();
+    boolean[] paired = new boolean[balances.length];
+    for (int i = 0; i < balances.length; i++) {
+      List<Integer> opposites = unmatched.get(-balances[i]);
+      if (opposites != null && !opposites.isEmpty()) {
+        int j = opposites.remove(opposites.size() - 1);
+        paired[i] = true;
+        paired[j] = true;
+        groups.add(new int[] {j, i});
+      } else {
+        unmatched.computeIfAbsent(balances[i], k -> new ArrayList<>()).add(i);
+      }
+    }
+
+    int[] rest = new int[balances.length - 2 * groups.size()];
+    int r = 0;
+    for (int i = 0; i < balances.length; i++) {
+      if (!paired[i]) {
+        rest[r++] = i;
+      }
+    }
+    if (rest.length > 0) {
+      long[] values = new long[rest.length];
+      for (int i = 0; i < rest.length; i++) {
+        values[i] = balances[rest[i]];
+      }
+      List<int[]> restGroups = solve(values, deadline);
+      if (restGroups == null) {
+        return null;
+      }
+      for (int[] group : restGroups) {
+        for (int k = 0; k < group.length; k++) {
+          group[k] = rest[group[k]];
+        }
+        groups.add(group);
+      }
+    }
+    return groups.toArray(new int[0][]);
+  }
+
+  private static List<int[]> solve(long[] values, long deadline) {
+    int n = values.length;
+    SubsetSums sums = new SubsetSums(values);
+    int[] zeroMasks = sums.zeroMasks();
+    if (System.nanoTime() - deadline >= 0) {
+      return null;
+    }
+    IntUnaryOperator depth =
+        zeroMasks.length <= DIRECT_LIMIT
+            ? directDepth(zeroMasks, n)
+            : levelDepth(zeroMasks, n, deadline);
+    if (depth == null) {
+      return null;
+    }
+
+    // Walk one optimal removal chain back to the empty set; every zero-sum mask on the way closes
+    // the group of members removed since the previous one
+    List<int[]> groups = new ArrayList<>();
+    int full = (1 << n) - 1;
+    int mask = full;
+    int groupStart = full;
+    while (mask != 0) {
+      int next;
+      if (sums.isZero(mask)) {
+        next = mask & (mask - 1);
+      } else {
+        int target = depth.applyAsInt(mask);
+        next = -1;
+        for (int rest = mask; rest != 0 && next < 0; rest &= rest - 1) {
+          int candidate = mask ^ (rest & -rest);
+          if (depth.applyAsInt(candidate) == target) {
+            next = candidate;
+          }
+        }
+      }
+      mask = next;
+      if (mask == 0 || sums.isZero(mask)) {
+        groups.add(members(groupStart ^ mask));
+        groupStart = mask;
+      }
+    }
+    return groups;
+  }
+
+  /**
+   * {@code dp} over the zero-sum masks alone: a zero-sum mask holds one group more than the deepest
+   * zero-sum mask strictly inside it, and any mask as many as the deepest one inside it.
+   */
+  private static IntUnaryOperator directDepth(int[] zeroMasks, int n) {
+    // Smaller masks first, so every strict subset is solved before its supersets
+    int[] masks = new int[zeroMasks.length];
+    int count = 0;
+    for (int members = 1; members <= n; members++) {
+      for (int mask : zeroMasks) {
+        if (Integer.bitCount(mask) == members) {
+          masks[count++] = mask;
+        }
+      }
+    }
+    int[] depths = new int[count];
+    for (int a = 0; a < count; a++) {
+      int inner = 0;
+      for (int b = 0; b < a; b++) {
+        if ((masks[b] & ~masks[a]) == 0) {
+          inner = Math.max(inner, depths[b]);
+        }
+      }
+      depths[a] = inner + 1;
+    }
+    return mask -> {
+      int depth = 0;
+      for (int b = 0; b < masks.length; b++) {
+        if ((masks[b] & ~mask) == 0) {
+          depth = Math.max(depth, depths[b]);
+        }
+      }
+      return depth;
+    };
+  }
+
+  /** {@code dp} as nested bitset levels, or null if the time budget ran out. */
+  private static IntUnaryOperator levelDepth(int[] zeroMasks, int n, long deadline) {
+    int zeroCount = zeroMasks.length;
+    int words = Math.max(1, (1 << n) >>> 6);
+    List<long[]> levels = new ArrayList<>();
+    long[] previous = null;
+    while (true) {
+      if (System.nanoTime() - deadline >= 0) {
+        return null;
+      }
+      // S_k seeds are the zero-sum masks one member away from S_(k-1); they only ever get fewer
+      long[] level = new long[words];
+      int kept = 0;
+      for (int z = 0; z < zeroCount; z++) {
+        int mask = zeroMasks[z];
+        if (previous == null || contains(previous, mask & (mask - 1))) {
+          zeroMasks[kept++] = mask;
+          level[mask >>> 6] |= 1L << mask;
+        }
+      }
+      zeroCount = kept;
+      if (zeroCount == 0) {
+        return mask -> depth(levels, mask);
+      }
+      closeUpwards(level, n);
+      levels.add(level);
+      previous = level;
+    }
+  }
+
+  private static boolean contains(long[] level, int mask) {
+    return (level[mask >>> 6] & (1L << mask)) != 0;
+  }
+
+  /** Number of levels holding the mask, i.e. {@code dp[mask]}; levels are nested. */
+  private static int depth(List<long[]> levels, int mask) {
+    int depth = 0;
+    while (depth < levels.size() && contains(levels.get(depth), mask)) {
+      depth++;
+    }
+    return depth;
+  }
+
+  /** Add every superset of a member of the set, one member bit at a time. */
+  private static void closeUpwards(long[] set, int n) {
+    for (int i = 0; i < Math.min(n, 6); i++) {
+      long clear = CLEAR_BIT[i];
+      int shift = 1 << i;
+      for (int w = 0; w < set.length; w++) {
+        set[w] |= (set[w] & clear) << shift;
+      }
+    }
+    for (int step = 1; step < set.length; step <<= 1) {
+      for (int block = 0; block < set.length; block += 2 * step) {
+        for (int w = block; w < block + step; w++) {
+          set[w + step] |= set[w];
+        }
+      }
+    }
+  }
+
+  private static int[] members(int mask) {
+    int[] members = new int[Integer.bitCount(mask)];
+    int k = 0;
+    for (int rest = mask; rest != 0; rest &= rest - 1) {
+      members[k++] = Integer.numberOfTrailingZeros(rest);
+    }
+    return members;
+  }
+
+  /** Subset sums as the sum of a low-half and a high-half lookup table. */
+  private static final class SubsetSums {
+    private final int lowBits;
+    private final int lowMask;
+    private final long[] low;
+    private final long[] high;
+
+    SubsetSums(long[] values) {
+      lowBits = values.length / 2;
+      lowMask = (1 << lowBits) - 1;
+      low = table(values, 0, lowBits);
+      high = table(values, lowBits, values.length - lowBits);
+    }
+
+    private static long[] table(long[] values, int from, int count) {
+      long[] table = new long[1 << count];
+      for (int mask = 1; mask < table.length; mask++) {
+        int lowest = Integer.numberOfTrailingZeros(mask);
+        table[mask] = table[mask & (mask - 1)] + values[from + lowest];
+      }
+      return table;
+    }
+
+    boolean isZero(int mask) {
+      return low[mask & lowMask] + high[mask >>> lowBits] == 0;
+    }
+
+    /** Every non-empty zero-sum mask, found by matching low-half sums against high-half sums. */
+    int[] zeroMasks() {
+      int[] order = sortedBySum(low);
+      long[] sorted = new long[low.length];
+      for (int k = 0; k < order.length; k++) {
+        sorted[k] = low[order[k]];
+      }
+
+      int[] found = new int[16];
+      int count = 0;
+      for (int highMask = 0; highMask < high.length; highMask++) {
+        long target = -high[highMask];
+        int k = Arrays.binarySearch(sorted, target);
+        if (k < 0) {
+          continue;
+        }
+        while (k > 0 && sorted[k - 1] == target) {
+          k--;
+        }
+        for (; k < sorted.length && sorted[k] == target; k++) {
+          int mask = highMask << lowBits | order[k];
+          if (mask == 0) {
+            continue;
+          }
+          if (count == found.length) {
+            found = Arrays.copyOf(found, count * 2);
+          }
+          found[count++] = mask;
+        }
+      }
+      return Arrays.copyOf(found, count);
+    }
+
+    /** Indices of {@code keys} ordered by value. */
+    private static int[] sortedBySum(long[] keys) {
+      return IntStream.range(0, keys.length)
+          .boxed()
+          .sorted((a, b) -> Long.compare(keys[a], keys[b]))
+          .mapToInt(Integer::intValue)
+          .toArray();
+    }
+  }
+}
@@ -0,0 +1,267 @@
+package dev.coms4156.project.groupproject.split;
+
+import dev.coms4156.project.groupproject.utils.MinorUnits;
+import java.math.RoundingMode;
+
+/**
+ * Split calculation over primitive arrays of {@link MinorUnits}.
+ *
+ * <p>A split runs in two steps. {@link #shares} divides the total into raw shares at {@link
+ * MinorUnits#STORAGE_SCALE} with the largest-remainder method: every participant gets the floor of
+ * their exact share, and the few units left over go one each to the largest remainders, ties to the
+ * earlier participant. Raw shares therefore always sum to the total exactly, for every split
+ * method. {@link #round} then rounds each share to the currency and returns the tail the rounding
+ * left over, which the caller allocates to one participant as before.
+ *
+ * <p>Arrays are passed with an explicit participant count so callers can reuse them. An engine
+ * keeps its own scratch buffers between calls and does not allocate once they are large enough, so
+ * it is not thread-safe; use one per thread.
+ */
+public final class SplitEngine {
+
+  /** 100% at storage scale, the divisor of PERCENT shares. */
+  public static final long HUNDRED_UNITS = 100 * MinorUnits.pow10(MinorUnits.STORAGE_SCALE);
+
+  private long[] remainders = new long[0];
+  private long[] scratch = new long[0];
+
+  /**
+   * Divide a total into raw shares at storage scale.
+   *
+   * @param method EQUAL, PERCENT, WEIGHT or EXACT
+   * @param total non-negative total at storage scale
+   * @param shareUnits percent, weight or exact amount per participant at storage scale; ignored for
+   *     EQUAL
+   * @param count number of participants, at least one
+   * @param out receives the raw share of each participant; may be {@code shareUnits}
+   */
+  public void shares(String method, long total, long[] shareUnits, int count, long[] out) {
+    switch (method) {
+      case "EQUAL":
+        long each = total / count;
+        long leftover = total % count;
+        for (int i = 0; i < count; i++) {
+          out[i] = i < leftover ? each + 1 : each;
+        }
+        break;
+
+      case "PERCENT":
+        if (sum(shareUnits, count) != HUNDRED_UNITS) {
+          throw new RuntimeException("PERCENT splits must sum to 100");
+        }
+        proportional(total, shareUnits, count, HUNDRED_UNITS, out);
+        break;
+
+      case "WEIGHT":
+        proportional(total, shareUnits, count, sum(shareUnits, count), out);
+        break;
+
+      case "EXACT":
+        System.arraycopy(shareUnits, 0, out, 0, count);
+        break;
+
+      default:
+        throw new RuntimeException("Invalid split method");
+    }
+  }
+
+  /**
+   * Scale the rounded shares of a total are expressed in: the currency exponent when rounding is on
+   * and the total has no sub-unit digits, storage scale otherwise.
+   *
+   * @param total total at storage scale
+   * @param exponent currency exponent
+   * @param mode rounding mode, or null for no rounding
+   * @return scale of the amounts {@link #round} produces
+   */
+  public static int scaleFor(long total, int exponent, RoundingMode mode) {
+    if (mode != null
+        && exponent < MinorUnits.STORAGE_SCALE
+        && total % MinorUnits.pow10(MinorUnits.STORAGE_SCALE - exponent) == 0) {
+      return exponent;
+    }
+    return MinorUnits.STORAGE_SCALE;
+  }
+
+  /**
+   * Round raw shares to the currency in place and rescale them to {@code scale}.
+   *
+   * @param amounts raw shares at storage scale; replaced by the rounded shares at {@code scale}
+   * @param count number of participants
+   * @param total total at storage scale
+   * @param exponent currency exponent
+   * @param mode rounding mode, or null for no rounding
+   * @param scale result of {@link #scaleFor} for the same total, exponent and mode
+   * @return total minus the sum of the rounded shares, at {@code scale}
+   */
+  public static long round(
+      long[] amounts, int count, long total, int exponent, RoundingMode mode, int scale) {
+    long sum = 0;
+    for (int i = 0; i < count; i++) {
+      long share =
+          mode == null
+              ? amounts[i]
+              : MinorUnits.round(amounts[i], MinorUnits.STORAGE_SCALE, exponent, mode);
+      amounts[i] =
+          MinorUnits.rescale(share, MinorUnits.STORAGE_SCALE, scale, RoundingMode.UNNECESSARY);
+      sum += amounts[i];
+    }
+    return MinorUnits.rescale(total, MinorUnits.STORAGE_SCALE, scale, RoundingMode.UNNECESSARY)
+        - sum;
+  }
+
+  /**
+   * Index of the largest share; ties go to the lowest user ID.
+   *
+   * @param amounts shares
+   * @param userIds user ID of each participant
+   * @param count number of participants, at least one
+   * @return index of the participant with the largest share
+   */
+  public static int largestShare(long[] amounts, long[] userIds, int count) {
+    int largest = 0;
+    for (int i = 1; i < count; i++) {
+      if (amounts[i] > amounts[largest]
+          || (amounts[i] == amounts[largest] && userIds[i] < userIds[largest])) {
+        largest = i;
+      }
+    }
+    return largest;
+  }
+
+  /**
+   * Index of a user among the participants.
+   *
+   * @param userIds user ID of each participant
+   * @param count number of participants
+   * @param userId user ID to find
+   * @return index, or -1 if the user is not a participant
+   */
+  public static int indexOf(long[] userIds, int count, long userId) {
+    for (int i = 0; i < count; i++) {
+      if (userIds[i] == userId) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void proportional(long total, long[] shareUnits, int count, long divisor, long[] out) {
+    // Shares at storage scale are large; dividing out their common factor keeps total * share in
+    // a long for all but huge totals, so MinorUnits.mulDiv rarely needs its BigInteger fallback
+    long factor = 1;
+    long max = 0;
+    for (int i = 0; i < count; i++) {
+      max = Math.max(max, shareUnits[i]);
+    }
+    if (Math.multiplyHigh(total, max) != 0 || total * max < 0) {
+      factor = divisor;
+      for (int i = 0; i < count && factor > 1; i++) {
+        factor = gcd(factor, shareUnits[i]);
+      }
+    }
+    long reducedDivisor = divisor / factor;
+
+    long[] rem = remainders(count);
+    long allocated = 0;
+    for (int i = 0; i < count; i++) {
+      long share = shareUnits[i] / factor;
+      long floor = MinorUnits.mulDiv(total, share, reducedDivisor, RoundingMode.DOWN);
+      // The true remainder is below the divisor, so wrapping long arithmetic yields it exactly
+      rem[i] = total * share - floor * reducedDivisor;
+      out[i] = floor;
+      allocated += floor;
+    }
+    distribute(rem, count, (int) (total - allocated), out);
+  }
+
+  /** Add one unit to each of the {@code units} largest remainders, ties to the lower index. */
+  private void distribute(long[] rem, int count, int units, long[] out) {
+    if (units == 0) {
+      return;
+    }
+    long[] work = scratch(count);
+    System.arraycopy(rem, 0, work, 0, count);
+    long threshold = kthLargest(work, count, units);
+    int left = units;
+    for (int i = 0; i < count; i++) {
+      if (rem[i] > threshold) {
+        out[i]++;
+        left--;
+      }
+    }
+    for (int i = 0; i < count && left > 0; i++) {
+      if (rem[i] == threshold) {
+        out[i]++;
+        left--;
+      }
+    }
+  }
+
+  /** Quickselect, reordering {@code values}: the k-th largest (1-based) of the first n values. */
+  private static long kthLargest(long[] values, int n, int k) {
+    int lo = 0;
+    int hi = n - 1;
+    int target = k - 1;
+    while (lo < hi) {
+      long pivot = values[(lo + hi) >>> 1];
+      int i = lo;
+      int j = hi;
+      while (i <= j) {
+        while (values[i] > pivot) {
+          i++;
+        }
+        while (values[j] < pivot) {
+          j--;
+        }
+        if (i <= j) {
+          long tmp = values[i];
+          values[i] = values[j];
+          values[j] = tmp;
+          i++;
+          j--;
+        }
+      }
+      // [lo, j] >= pivot, [i, hi] <= pivot and everything in between equals pivot
+      if (target <= j) {
+        hi = j;
+      } else if (target >= i) {
+        lo = i;
+      } else {
+        return pivot;
+      }
+    }
+    return values[lo];
+  }
+
+  private long[] remainders(int count) {
+    if (remainders.length < count) {
+      remainders = new long[count];
+    }
+    return remainders;
+  }
+
+  private long[] scratch(int count) {
+    if (scratch.length < count) {
+      scratch = new long[count];
+    }
+    return scratch;
+  }
+
+  private static long sum(long[] values, int count) {
+    long sum = 0;
+    for (int i = 0; i < count; i++) {
+      sum += values[i];
+    }
+    return sum;
+  }
+
+  private static long gcd(long a, long b) {
+    while (b != 0) {
+      long t = a % b;
+      a = b;
+      b = t;
+    }
+    return a;
+  }
+}
@@ -0,0 +1,176 @@
+package dev.coms4156.project.groupproject.utils;
+
+import dev.coms4156.project.groupproject.entity.Currency;
+import dev.coms4156.project.groupproject.mapper.CurrencyMapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory copy of the {@code currency} table. Every load builds an immutable snapshot that is
+ * published with a single volatile write, so lookups on the split and settlement paths are a
+ * lock-free array read instead of a query. ISO-4217 codes (three letters A-Z) index straight into a
+ * 26^3 slot array; any other code falls back to a small map.
+ *
+ * <p>The snapshot is loaded when the application is ready (or on first use, whichever comes first),
+ * on demand through {@link #refresh()}, and periodically when {@code
+ * ledger.currencies.refresh-cron} is set.
+ */
+@Component
+public class CurrencyRegistry {
+  private static final Logger log = LoggerFactory.getLogger(CurrencyRegistry.class);
+
+  private static final int LETTERS = 26;
+
+  /** Number of slots {@link #slot(String)} maps three-letter codes to. */
+  static final int SLOTS = LETTERS * LETTERS * LETTERS;
+
+  private static final byte UNKNOWN = -1;
+
+  private final CurrencyMapper currencyMapper;
+  private volatile Snapshot snapshot;
+
+  /** A currency as held by the registry. */
+  public record Entry(String code, Integer exponent) {}
+
+  /**
+   * Constructor for CurrencyRegistry.
+   *
+   * @param currencyMapper currency mapper the snapshot is loaded from
+   */
+  @Autowired
+  public CurrencyRegistry(CurrencyMapper currencyMapper) {
+    this.currencyMapper = currencyMapper;
+  }
+
+  /**
+   * Load the snapshot once the application has started. A failure is logged rather than thrown so
+   * an unreachable database does not stop startup; the first lookup then retries the load.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void preload() {
+    try {
+      refresh();
+    } catch (RuntimeException e) {
+      log.error("Currency registry preload failed, loading on first use instead", e);
+    }
+  }
+
+  /** Reload the snapshot on the configured schedule. */
+  @Scheduled(cron = "${ledger.currencies.refresh-cron:-}")
+  public void scheduledRefresh() {
+    try {
+      refresh();
+    } catch (RuntimeException e) {
+      log.error("Currency registry refresh failed, keeping previous snapshot", e);
+    }
+  }
+
+  /**
+   * Reload all currencies and atomically replace the current snapshot.
+   *
+   * @return number of currencies loaded
+   */
+  public synchronized int refresh() {
+    Snapshot loaded = Snapshot.of(currencyMapper.selectList(null));
+    snapshot = loaded;
+    log.info("Currency registry loaded {} currencies", loaded.entries.size());
+    return loaded.entries.size();
+  }
+
+  /**
+   * Minor-unit exponent of a currency.
+   *
+   * @param code currency code
+   * @return exponent, or null if the currency is unknown
+   */
+  public Integer exponentOf(String code) {
+    Snapshot current = current();
+    int slot = slot(code);
+    if (slot >= 0) {
+      byte exponent = current.exponents[slot];
+      return exponent == UNKNOWN ? null : (int) exponent;
+    }
+    return code != null ? current.irregular.get(code) : null;
+  }
+
+  /**
+   * All currencies in table order.
+   *
+   * @return immutable list of currencies
+   */
+  public List<Entry> entries() {
+    return current().entries;
+  }
+
+  private Snapshot current() {
+    Snapshot current = snapshot;
+    if (current != null) {
+      return current;
+    }
+    synchronized (this) {
+      if (snapshot == null) {
+        refresh();
+      }
+      return snapshot;
+    }
+  }
+
+  /** Array slot of a three-letter upper-case code, or -1 for anything else. */
+  static int slot(String code) {
+    if (code == null || code.length() != 3) {
+      return -1;
+    }
+    int slot = 0;
+    for (int i = 0; i < 3; i++) {
+      int letter = code.charAt(i) - 'A';
+      if (letter < 0 || letter >= LETTERS) {
+        return -1;
+      }
+      slot = slot * LETTERS + letter;
+    }
+    return slot;
+  }
+
+  private static final class Snapshot {
+    private final byte[] exponents;
+    private final Map<String, Integer> irregular;
+    private final List<Entry> entries;
+
+    private Snapshot(byte[] exponents, Map<String, Integer> irregular, List<Entry> entries) {
+      this.exponents = exponents;
+      this.irregular = irregular;
+      this.entries = entries;
+    }
+
+    static Snapshot of(List<Currency> rows) {
+      byte[] exponents = new byte[SLOTS];
+      Arrays.fill(exponents, UNKNOWN);
+      Map<String, Integer> irregular = new HashMap<>();
+      List<Entry> entries = new ArrayList<>(rows.size());
+      for (Currency row : rows) {
+        entries.add(
+            new Entry(row.getCode(), row.getExponent())); // NOPMD - Must create new object in loop
+        if (row.getExponent() == null) {
+          continue;
+        }
+        int slot = slot(row.getCode());
+        if (slot >= 0) {
+          exponents[slot] = row.getExponent().byteValue();
+        } else if (row.getCode() != null) {
+          irregular.put(row.getCode(), row.getExponent());
+        }
+      }
+      return new Snapshot(exponents, Map.copyOf(irregular), List.copyOf(entries));
+    }
+  }
+}
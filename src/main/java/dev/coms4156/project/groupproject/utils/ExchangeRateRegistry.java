@@ -0,0 +1,240 @@
+package dev.coms4156.project.groupproject.utils;
+
+import dev.coms4156.project.groupproject.entity.ExchangeRate;
+import dev.coms4156.project.groupproject.mapper.ExchangeRateMapper;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory copy of the {@code exchange_rates} in effect right now, as a dense cross-rate matrix.
+ * Every currency that appears in a rate gets an ordinal, and {@code matrix[from * n + to]} holds
+ * the units of {@code to} one unit of {@code from} buys. Reverse rates are the reciprocal of the
+ * stored ones and pairs without a stored rate are triangulated through other currencies when the
+ * snapshot is built, so a conversion is two slot lookups and one array read.
+ *
+ * <p>Snapshots are immutable and published with a single volatile write. They are loaded when the
+ * application is ready (or on first use), on demand through {@link #refresh()}, periodically when
+ * {@code ledger.exchange-rates.refresh-cron} is set, and on the first lookup after a later
+ * effective-dated rate takes over.
+ */
+@Component
+public class ExchangeRateRegistry {
+  private static final Logger log = LoggerFactory.getLogger(ExchangeRateRegistry.class);
+
+  /** Precision of stored, reciprocal and triangulated rates. */
+  private static final MathContext PRECISION = MathContext.DECIMAL128;
+
+  /** Scale of converted amounts, matching the DECIMAL(20,8) money columns. */
+  private static final int AMOUNT_SCALE = 8;
+
+  private final ExchangeRateMapper exchangeRateMapper;
+  private volatile Snapshot snapshot;
+
+  /**
+   * Constructor for ExchangeRateRegistry.
+   *
+   * @param exchangeRateMapper exchange rate mapper the snapshot is loaded from
+   */
+  @Autowired
+  public ExchangeRateRegistry(ExchangeRateMapper exchangeRateMapper) {
+    this.exchangeRateMapper = exchangeRateMapper;
+  }
+
+  /** Load the snapshot once the application has started. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void preload() {
+    // Single-currency deployments can run without any rates, so a failed load is retried on first
+    // use instead of failing startup
+    scheduledRefresh();
+  }
+
+  /** Reload the snapshot on the configured schedule. */
+  @Scheduled(cron = "${ledger.exchange-rates.refresh-cron:-}")
+  public void scheduledRefresh() {
+    try {
+      refresh();
+    } catch (RuntimeException e) {
+      log.error("Exchange rate refresh failed, keeping previous snapshot", e);
+    }
+  }
+
+  /**
+   * Reload the rates in effect now and atomically replace the current snapshot.
+   *
+   * @return number of stored currency pairs loaded
+   */
+  public synchronized int refresh() {
+    LocalDateTime now = LocalDateTime.now();
+    List<ExchangeRate> rows = exchangeRateMapper.findEffectiveAt(now);
+    Snapshot loaded = Snapshot.of(rows, exchangeRateMapper.findNextEffectiveAfter(now));
+    snapshot = loaded;
+    log.info(
+        "Exchange rate registry loaded {} rates across {} currencies", rows.size(), loaded.size);
+    return rows.size();
+  }
+
+  /**
+   * Whether an amount can be converted between two currencies.
+   *
+   * @param fromCurrency source currency
+   * @param toCurrency target currency
+   * @return true if the currencies match or a stored, reverse or cross rate exists
+   */
+  public boolean hasRate(String fromCurrency, String toCurrency) {
+    return fromCurrency.equals(toCurrency) || current().rate(fromCurrency, toCurrency) != null;
+  }
+
+  /**
+   * Units of {@code toCurrency} one unit of {@code fromCurrency} buys.
+   *
+   * @param fromCurrency source currency
+   * @param toCurrency target currency
+   * @return conversion rate
+   * @throws RuntimeException CURRENCY_RATE_MISSING if no rate connects the currencies
+   */
+  public BigDecimal rate(String fromCurrency, String toCurrency) {
+    if (fromCurrency.equals(toCurrency)) {
+      return BigDecimal.ONE;
+    }
+    BigDecimal rate = current().rate(fromCurrency, toCurrency);
+    if (rate == null) {
+      throw new RuntimeException("CURRENCY_RATE_MISSING: " + fromCurrency + "-" + toCurrency);
+    }
+    return rate;
+  }
+
+  /**
+   * Convert an amount between currencies.
+   *
+   * @param amount amount in {@code fromCurrency}
+   * @param fromCurrency source currency
+   * @param toCurrency target currency
+   * @return amount in {@code toCurrency} at storage scale; unchanged if the currencies match
+   * @throws RuntimeException CURRENCY_RATE_MISSING if no rate connects the currencies
+   */
+  public BigDecimal convert(BigDecimal amount, String fromCurrency, String toCurrency) {
+    if (fromCurrency.equals(toCurrency)) {
+      return amount;
+    }
+    return amount
+        .multiply(rate(fromCurrency, toCurrency))
+        .setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+  }
+
+  private Snapshot current() {
+    Snapshot current = snapshot;
+    if (current != null && !current.expired(LocalDateTime.now())) {
+      return current;
+    }
+    synchronized (this) {
+      if (snapshot == null || snapshot.expired(LocalDateTime.now())) {
+        refresh();
+      }
+      return snapshot;
+    }
+  }
+
+  private static final class Snapshot {
+    private final short[] ordinals;
+    private final Map<String, Integer> irregular;
+    private final int size;
+    private final BigDecimal[] matrix;
+    private final LocalDateTime validUntil;
+
+    private Snapshot(
+        short[] ordinals,
+        Map<String, Integer> irregular,
+        int size,
+        BigDecimal[] matrix,
+        LocalDateTime validUntil) {
+      this.ordinals = ordinals;
+      this.irregular = irregular;
+      this.size = size;
+      this.matrix = matrix;
+      this.validUntil = validUntil;
+    }
+
+    boolean expired(LocalDateTime now) {
+      return validUntil != null && !now.isBefore(validUntil);
+    }
+
+    BigDecimal rate(String fromCurrency, String toCurrency) {
+      int from = ordinal(ordinals, irregular, fromCurrency);
+      int to = ordinal(ordinals, irregular, toCurrency);
+      return from < 0 || to < 0 ? null : matrix[from * size + to];
+    }
+
+    private static int ordinal(short[] ordinals, Map<String, Integer> irregular, String code) {
+      int slot = CurrencyRegistry.slot(code);
+      if (slot >= 0) {
+        return ordinals[slot];
+      }
+      Integer ordinal = code != null ? irregular.get(code) : null;
+      return ordinal != null ? ordinal : -1;
+    }
+
+    static Snapshot of(List<ExchangeRate> rows, LocalDateTime validUntil) {
+      short[] ordinals = new short[CurrencyRegistry.SLOTS];
+      Arrays.fill(ordinals, (short) -1);
+      Map<String, Integer> irregular = new HashMap<>();
+      int size = 0;
+      for (ExchangeRate row : rows) {
+        for (String code : new String[] {row.getBaseCurrency(), row.getQuoteCurrency()}) {
+          int slot = CurrencyRegistry.slot(code);
+          if (slot >= 0 && ordinals[slot] < 0) {
+            ordinals[slot] = (short) size++;
+          } else if (slot < 0 && !irregular.containsKey(code)) {
+            irregular.put(code, size++);
+          }
+        }
+      }
+
+      // Stored rates win over reciprocals of the opposite pair, which win over triangulation
+      BigDecimal[] matrix = new BigDecimal[size * size];
+      for (ExchangeRate row : rows) {
+        int from = ordinal(ordinals, irregular, row.getBaseCurrency());
+        int to = ordinal(ordinals, irregular, row.getQuoteCurrency());
+        matrix[from * size + to] = row.getRate();
+      }
+      for (ExchangeRate row : rows) {
+        int from = ordinal(ordinals, irregular, row.getBaseCurrency());
+        int to = ordinal(ordinals, irregular, row.getQuoteCurrency());
+        if (matrix[to * size + from] == null) {
+          matrix[to * size + from] = BigDecimal.ONE.divide(row.getRate(), PRECISION);
+        }
+      }
+      for (int i = 0; i < size; i++) {
+        matrix[i * size + i] = BigDecimal.ONE;
+      }
+      // Transitive closure: after round k every pair connected through currencies 0..k has a rate
+      for (int k = 0; k < size; k++) {
+        for (int i = 0; i < size; i++) {
+          BigDecimal viaK = matrix[i * size + k];
+          if (viaK == null) {
+            continue;
+          }
+          for (int j = 0; j < size; j++) {
+            BigDecimal fromK = matrix[k * size + j];
+            if (matrix[i * size + j] == null && fromK != null) {
+              matrix[i * size + j] = viaK.multiply(fromK, PRECISION);
+            }
+          }
+        }
+      }
+      return new Snapshot(ordinals, Map.copyOf(irregular), size, matrix, validUntil);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package dev.coms4156.project.groupproject.utils;
+
+import dev.coms4156.project.groupproject.dto.UserView;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Redis-backed dedupe for client retries that carry an {@value #HEADER} header.
+ *
+ * <p>The first request with a key claims it with {@code SET NX}, runs, and stores its response
+ * under the key; a retry with the same key returns the stored response without running again. Keys
+ * are scoped to the current user and an operation scope, and remember a hash of the request so a
+ * key cannot be replayed against a different payload. A failed request releases its key so the
+ * client can retry it. The claim expires after {@code pending-ttl-seconds}, so a process that dies
+ * mid-request does not block the key forever.
+ */
+@Component
+public class IdempotencyStore {
+
+  /** Request header carrying the client-generated key. */
+  public static final String HEADER = "Idempotency-Key";
+
+  /** Longest key accepted. */
+  public static final int MAX_KEY_LENGTH = 128;
+
+  private final StringRedisTemplate redis;
+  private final Duration pendingTtl;
+  private final Duration resultTtl;
+
+  /**
+   * Constructor for IdempotencyStore.
+   *
+   * @param redis Redis client
+   * @param pendingTtlSeconds seconds a claimed key blocks retries while its request runs
+   * @param resultTtlHours hours a stored response is replayed
+   */
+  @Autowired
+  public IdempotencyStore(
+      StringRedisTemplate redis,
+      @Value("${ledger.idempotency.pending-ttl-seconds:60}") long pendingTtlSeconds,
+      @Value("${ledger.idempotency.ttl-hours:24}") long resultTtlHours) {
+    this.redis = redis;
+    this.pendingTtl = Duration.ofSeconds(pendingTtlSeconds);
+    this.resultTtl = Duration.ofHours(resultTtlHours);
+  }
+
+  /**
+   * Run an action once per idempotency key, replaying its stored response on retries.
+   *
+   * @param scope operation the key applies to, e.g. {@code transactions:42}
+   * @param key client-generated idempotency key
+   * @param fingerprint canonical form of the request; a retry must match it
+   * @param type response type
+   * @param action the operation; runs at most once per key while its response is stored
+   * @param <T> response type
+   * @return the action's response, or the stored one for a retry
+   */
+  public <T> T execute(
+      String scope, String key, String fingerprint, Class<T> type, Supplier<T> action) {
+    if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+      throw new RuntimeException(
+          "Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters long");
+    }
+    UserView currentUser = CurrentUserContext.get();
+    if (currentUser == null) {
+      return action.get();
+    }
+
+    String redisKey = RedisKeys.idempotencyKey(currentUser.getId(), scope, key);
+    String requestHash = sha256(fingerprint);
+    Boolean claimed =
+        redis
+            .opsForValue()
+            .setIfAbsent(redisKey, Jsons.toJson(new Entry(requestHash, null)), pendingTtl);
+    if (!Boolean.TRUE.equals(claimed)) {
+      return replay(redisKey, requestHash, type);
+    }
+
+    T response;
+    try {
+      response = action.get();
+    } catch (RuntimeException e) {
+      redis.delete(redisKey);
+      throw e;
+    }
+    redis
+        .opsForValue()
+        .set(redisKey, Jsons.toJson(new Entry(requestHash, Jsons.toJson(response))), resultTtl);
+    return response;
+  }
+
+  private <T> T replay(String redisKey, String requestHash, Class<T> type) {
+    String stored = redis.opsForValue().get(redisKey);
+    Entry entry = stored == null ? null : Jsons.fromJson(stored, Entry.class);
+    if (entry != null && !requestHash.equals(entry.requestHash())) {
+      throw new RuntimeException("Idempotency-Key was already used for a different request");
+    }
+    if (entry == null || entry.response() == null) {
+      throw new RuntimeException("A request with this Idempotency-Key is still in progress");
+    }
+    return Jsons.fromJson(entry.response(), type);
+  }
+
+  private static String sha256(String value) {
+    try {
+      return HexFormat.of()
+          .formatHex(
+              MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Stored value: request hash plus the response JSON, which is null while the key is claimed. */
+  record Entry(String requestHash, String response) {}
+}
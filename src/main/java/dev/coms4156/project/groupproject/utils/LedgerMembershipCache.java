@@ -0,0 +1,142 @@
+package dev.coms4156.project.groupproject.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import dev.coms4156.project.groupproject.entity.LedgerMember;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.time.Duration;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded, process-wide cache of ledger member roles keyed by (ledger ID, user ID), so request
+ * authorization does not query {@code ledger_members} every time. Only existing memberships are
+ * cached; a miss always goes to the loader, so a new member is visible immediately.
+ *
+ * <p>Adding and removing members calls {@link #invalidate(Long, Long)}, which evicts the entry once
+ * the surrounding DB transaction commits and publishes the key on {@value #INVALIDATION_CHANNEL} so
+ * other instances evict it too. Entries also expire after a TTL, which bounds staleness if a
+ * message is lost. Hit, miss and eviction counts are published as {@code cache.*} metrics tagged
+ * {@code cache=ledger.membership}.
+ */
+@Component
+public class LedgerMembershipCache {
+  private static final Logger log = LoggerFactory.getLogger(LedgerMembershipCache.class);
+
+  /** Metric name used for the cache tag. */
+  public static final String CACHE_NAME = "ledger.membership";
+
+  /** Redis pub/sub channel carrying {@code ledgerId:userId} of invalidated memberships. */
+  public static final String INVALIDATION_CHANNEL = "ledger:membership:invalidate";
+
+  private final StringRedisTemplate redis;
+  private final Cache<MemberKey, String> roles;
+
+  /**
+   * Constructor for LedgerMembershipCache.
+   *
+   * @param meterRegistry registry the cache statistics are bound to
+   * @param redis Redis client used to broadcast invalidations
+   * @param maximumSize maximum number of cached memberships; 0 disables caching
+   * @param ttlSeconds seconds an entry is trusted after it was loaded
+   */
+  @Autowired
+  public LedgerMembershipCache(
+      MeterRegistry meterRegistry,
+      StringRedisTemplate redis,
+      @Value("${ledger.membership-cache.size:10000}") long maximumSize,
+      @Value("${ledger.membership-cache.ttl-seconds:300}") long ttlSeconds) {
+    this.redis = redis;
+    this.roles =
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+    GuavaCacheMetrics.monitor(meterRegistry, roles, CACHE_NAME);
+  }
+
+  /**
+   * Return a user's membership of a ledger, loading and caching it on a miss. Cached hits carry the
+   * ledger ID, user ID and role only.
+   *
+   * @param ledgerId ledger ID
+   * @param userId user ID
+   * @param loader loads the membership row on a miss; may return null
+   * @return membership, or null if the user is not a member
+   */
+  public LedgerMember get(Long ledgerId, Long userId, Supplier<LedgerMember> loader) {
+    MemberKey key = new MemberKey(ledgerId, userId);
+    String role = roles.getIfPresent(key);
+    if (role != null) {
+      LedgerMember member = new LedgerMember();
+      member.setLedgerId(ledgerId);
+      member.setUserId(userId);
+      member.setRole(role);
+      return member;
+    }
+    LedgerMember member = loader.get();
+    if (member != null && member.getRole() != null) {
+      roles.put(key, member.getRole());
+    }
+    return member;
+  }
+
+  /**
+   * Evict a membership on this and every other instance. Inside a DB transaction this happens after
+   * commit, so no instance reloads the old row in between.
+   *
+   * @param ledgerId ledger ID
+   * @param userId user ID
+   */
+  public void invalidate(Long ledgerId, Long userId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      evictAndPublish(ledgerId, userId);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            evictAndPublish(ledgerId, userId);
+          }
+        });
+  }
+
+  /**
+   * Handle an invalidation published by any instance, including this one.
+   *
+   * @param message {@code ledgerId:userId}
+   */
+  public void onInvalidation(String message) {
+    int separator = message.indexOf(':');
+    try {
+      roles.invalidate(
+          new MemberKey(
+              Long.valueOf(message.substring(0, separator)),
+              Long.valueOf(message.substring(separator + 1))));
+    } catch (RuntimeException e) {
+      log.warn("Ignoring malformed membership invalidation: {}", message);
+    }
+  }
+
+  private void evictAndPublish(Long ledgerId, Long userId) {
+    roles.invalidate(new MemberKey(ledgerId, userId));
+    try {
+      redis.convertAndSend(INVALIDATION_CHANNEL, ledgerId + ":" + userId);
+    } catch (RuntimeException e) {
+      // Other instances fall back to the TTL
+      log.warn("Failed to broadcast membership invalidation for {}:{}", ledgerId, userId, e);
+    }
+  }
+
+  private record MemberKey(Long ledgerId, Long userId) {}
+}
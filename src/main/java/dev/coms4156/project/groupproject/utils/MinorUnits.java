@@ -0,0 +1,185 @@
+package dev.coms4156.project.groupproject.utils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money arithmetic on {@code long} minor units.
+ *
+ * <p>An amount is an unscaled {@code long} plus a scale: 12.34 USD is 1234 at scale 2 (the currency
+ * exponent) or 1234000000 at {@link #STORAGE_SCALE}. Settlement and split engines convert once from
+ * {@link BigDecimal} on the way in and once on the way out; everything in between is primitive
+ * arithmetic. Rounding follows {@link RoundingMode} semantics for HALF_UP, DOWN and UNNECESSARY so
+ * results are identical to the equivalent {@code BigDecimal} operations.
+ */
+public final class MinorUnits {
+
+  /** Scale of amounts stored in DECIMAL(20,8) columns and of intermediate split shares. */
+  public static final int STORAGE_SCALE = 8;
+
+  /** Largest scale {@link #pow10(int)} and {@link #rescale} support. */
+  public static final int MAX_SCALE = 18;
+
+  private static final long[] POW10 = {
+    1L,
+    10L,
+    100L,
+    1_000L,
+    10_000L,
+    100_000L,
+    1_000_000L,
+    10_000_000L,
+    100_000_000L,
+    1_000_000_000L,
+    10_000_000_000L,
+    100_000_000_000L,
+    1_000_000_000_000L,
+    10_000_000_000_000L,
+    100_000_000_000_000L,
+    1_000_000_000_000_000L,
+    10_000_000_000_000_000L,
+    100_000_000_000_000_000L,
+    1_000_000_000_000_000_000L
+  };
+
+  private MinorUnits() {}
+
+  /**
+   * Ten to the given power.
+   *
+   * @param n exponent between 0 and 18
+   * @return 10^n
+   */
+  public static long pow10(int n) {
+    return POW10[n];
+  }
+
+  /**
+   * Convert a decimal amount to minor units at a scale.
+   *
+   * @param amount decimal amount
+   * @param scale number of decimal places one unit represents
+   * @param mode rounding applied to digits beyond the scale
+   * @return amount in minor units
+   */
+  public static long of(BigDecimal amount, int scale, RoundingMode mode) {
+    return amount.setScale(scale, mode).unscaledValue().longValueExact();
+  }
+
+  /**
+   * Convert a decimal amount to minor units without rounding.
+   *
+   * @param amount decimal amount
+   * @param scale number of decimal places one unit represents
+   * @return amount in minor units
+   */
+  public static long exact(BigDecimal amount, int scale) {
+    if (amount.stripTrailingZeros().scale() > scale) {
+      throw new RuntimeException(
+          "Amount " + amount.toPlainString() + " has more than " + scale + " decimal places");
+    }
+    return of(amount, scale, RoundingMode.UNNECESSARY);
+  }
+
+  /**
+   * Convert minor units back to a decimal amount.
+   *
+   * @param units amount in minor units
+   * @param scale scale of the units
+   * @return decimal amount with exactly {@code scale} decimal places
+   */
+  public static BigDecimal toDecimal(long units, int scale) {
+    return BigDecimal.valueOf(units, scale);
+  }
+
+  /**
+   * Divide and round to an integral result.
+   *
+   * @param dividend dividend
+   * @param divisor non-zero divisor
+   * @param mode HALF_UP, DOWN or UNNECESSARY
+   * @return rounded quotient
+   */
+  public static long divide(long dividend, long divisor, RoundingMode mode) {
+    long quotient = dividend / divisor;
+    long remainder = dividend % divisor;
+    if (remainder == 0) {
+      return quotient;
+    }
+    switch (mode) {
+      case DOWN:
+        return quotient;
+      case HALF_UP:
+        long absRemainder = Math.abs(remainder);
+        long absDivisor = Math.abs(divisor);
+        if (absRemainder >= absDivisor - absRemainder) {
+          return quotient + ((dividend < 0) == (divisor < 0) ? 1 : -1);
+        }
+        return quotient;
+      case UNNECESSARY:
+        throw new ArithmeticException("Rounding necessary");
+      default:
+        throw new IllegalArgumentException("Unsupported rounding mode: " + mode);
+    }
+  }
+
+  /**
+   * Compute {@code value * multiplier / divisor} with a single rounding step. Falls back to
+   * arbitrary precision only when the intermediate product does not fit in a long.
+   *
+   * @param value value
+   * @param multiplier multiplier
+   * @param divisor non-zero divisor
+   * @param mode HALF_UP, DOWN or UNNECESSARY
+   * @return rounded result
+   */
+  public static long mulDiv(long value, long multiplier, long divisor, RoundingMode mode) {
+    long high = Math.multiplyHigh(value, multiplier);
+    long low = value * multiplier;
+    if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+      return divide(low, divisor, mode);
+    }
+    BigInteger product = BigInteger.valueOf(value).multiply(BigInteger.valueOf(multiplier));
+    return new BigDecimal(product)
+        .divide(BigDecimal.valueOf(divisor), 0, mode)
+        .unscaledValue()
+        .longValueExact();
+  }
+
+  /**
+   * Change the scale of an amount in minor units.
+   *
+   * @param units amount in minor units at {@code fromScale}
+   * @param fromScale current scale
+   * @param toScale target scale
+   * @param mode rounding applied when the scale shrinks
+   * @return amount in minor units at {@code toScale}
+   */
+  public static long rescale(long units, int fromScale, int toScale, RoundingMode mode) {
+    if (toScale == fromScale) {
+      return units;
+    }
+    if (toScale > fromScale) {
+      return Math.multiplyExact(units, POW10[toScale - fromScale]);
+    }
+    return divide(units, POW10[fromScale - toScale], mode);
+  }
+
+  /**
+   * Round an amount to fewer decimal places while keeping its scale, like {@code setScale(exponent,
+   * mode)} followed by widening back to {@code scale}.
+   *
+   * @param units amount in minor units at {@code scale}
+   * @param scale scale of the units
+   * @param exponent number of decimal places to keep
+   * @param mode rounding mode
+   * @return rounded amount, still at {@code scale}
+   */
+  public static long round(long units, int scale, int exponent, RoundingMode mode) {
+    if (exponent >= scale) {
+      return units;
+    }
+    return rescale(rescale(units, scale, exponent, mode), exponent, scale, mode);
+  }
+}
@@ -1,6 +1,6 @@
 package dev.coms4156.project.groupproject.utils;
 
-/** Redis keys and TTLs for session tokens. */
+/** Redis keys and TTLs for session tokens and idempotency keys. */
 public final class RedisKeys {
   private RedisKeys() {}
 
@@ -15,4 +15,8 @@ public final class RedisKeys {
   public static String refreshTokenKey(String token) {
     return "auth:refresh:" + token;
   }
+
+  public static String idempotencyKey(Long userId, String scope, String key) {
+    return "idem:" + userId + ":" + scope + ":" + key;
+  }
 }
@@ -0,0 +1,76 @@
+package dev.coms4156.project.groupproject.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import dev.coms4156.project.groupproject.entity.User;
+import dev.coms4156.project.groupproject.mapper.UserMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded, process-wide cache of user display names. Names never change after registration, so
+ * entries need no invalidation and are only evicted by size. Misses are resolved with a single
+ * {@code selectBatchIds} per call, so callers pay at most one round trip however many users they
+ * ask for. Statistics are published as {@code cache.*} metrics tagged {@code cache=user.name}.
+ */
+@Component
+public class UserNameCache {
+
+  /** Metric name used for the cache tag. */
+  public static final String CACHE_NAME = "user.name";
+
+  private final UserMapper userMapper;
+  private final Cache<Long, String> names;
+
+  /**
+   * Constructor for UserNameCache.
+   *
+   * @param userMapper user mapper used to load missing names
+   * @param meterRegistry registry the cache statistics are bound to
+   * @param maximumSize maximum number of cached names
+   */
+  @Autowired
+  public UserNameCache(
+      UserMapper userMapper,
+      MeterRegistry meterRegistry,
+      @Value("${ledger.user-name-cache-size:10000}") long maximumSize) {
+    this.userMapper = userMapper;
+    this.names = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+    GuavaCacheMetrics.monitor(meterRegistry, names, CACHE_NAME);
+  }
+
+  /**
+   * Resolve display names for a set of users.
+   *
+   * @param userIds user IDs to resolve
+   * @return map of user ID to display name; users that do not exist are absent
+   */
+  public Map<Long, String> getNames(Collection<Long> userIds) {
+    Map<Long, String> result = new HashMap<>(names.getAllPresent(userIds));
+    List<Long> missing = new ArrayList<>();
+    for (Long userId : userIds) {
+      if (!result.containsKey(userId)) {
+        missing.add(userId);
+      }
+    }
+    if (missing.isEmpty()) {
+      return result;
+    }
+
+    for (User user : userMapper.selectBatchIds(missing)) {
+      if (user.getName() != null) {
+        names.put(user.getId(), user.getName());
+      }
+      result.put(user.getId(), user.getName());
+    }
+    return result;
+  }
+}
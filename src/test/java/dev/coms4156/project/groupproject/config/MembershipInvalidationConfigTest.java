@@ -0,0 +1,67 @@
+package dev.coms4156.project.groupproject.config;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import dev.coms4156.project.groupproject.utils.LedgerMembershipCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/** Unit tests for {@link MembershipInvalidationConfig}. */
+@ExtendWith(MockitoExtension.class)
+class MembershipInvalidationConfigTest {
+
+  @Mock private ObjectProvider<RedisMessageListenerContainer> listener;
+  @Mock private RedisMessageListenerContainer container;
+  @Mock private RedisConnectionFactory connectionFactory;
+  @Mock private LedgerMembershipCache membershipCache;
+
+  @Test
+  @DisplayName("membershipInvalidationListener: not started with the context")
+  void listener_noAutoStartup() {
+    RedisMessageListenerContainer created =
+        new MembershipInvalidationConfig(listener)
+            .membershipInvalidationListener(connectionFactory, membershipCache);
+
+    assertFalse(created.isAutoStartup());
+  }
+
+  @Test
+  @DisplayName("subscribe: Redis unreachable -> failure logged, container reset before each start")
+  void subscribe_redisDown_swallowed() {
+    doReturn(container).when(listener).getObject();
+    doReturn(false).when(container).isListening();
+    doThrow(new RedisConnectionFailureException("down")).when(container).start();
+
+    assertDoesNotThrow(() -> new MembershipInvalidationConfig(listener).subscribe());
+
+    InOrder order = inOrder(container);
+    order.verify(container).stop();
+    order.verify(container).start();
+  }
+
+  @Test
+  @DisplayName("subscribe: already listening -> left alone")
+  void subscribe_listening_noop() {
+    doReturn(container).when(listener).getObject();
+    doReturn(true).when(container).isListening();
+
+    new MembershipInvalidationConfig(listener).subscribe();
+
+    verify(container, never()).stop();
+    verify(container, never()).start();
+  }
+}
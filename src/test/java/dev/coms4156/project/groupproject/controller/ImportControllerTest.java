@@ -0,0 +1,84 @@
+package dev.coms4156.project.groupproject.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import dev.coms4156.project.groupproject.dto.ImportJobResponse;
+import dev.coms4156.project.groupproject.service.ImportService;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/** Unit tests for {@link ImportController} using standalone MockMvc. */
+@ExtendWith(MockitoExtension.class)
+class ImportControllerTest {
+
+  @Mock private ImportService importService;
+
+  @InjectMocks private ImportController controller;
+
+  private MockMvc mockMvc;
+
+  @BeforeEach
+  void setup() {
+    mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+  }
+
+  private static ImportJobResponse job(String status) {
+    ImportJobResponse response = new ImportJobResponse();
+    response.setJobId(42L);
+    response.setLedgerId(10L);
+    response.setSourceType("NDJSON");
+    response.setStatus(status);
+    return response;
+  }
+
+  @Test
+  @DisplayName("POST /imports: multipart file -> 202 with the queued job")
+  void startImport_accepted() throws Exception {
+    doReturn(job("PENDING"))
+        .when(importService)
+        .startImport(eq(10L), eq("NDJSON"), any(InputStream.class));
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file",
+            "history.ndjson",
+            "application/x-ndjson",
+            "{}\n".getBytes(StandardCharsets.UTF_8));
+
+    mockMvc
+        .perform(multipart("/api/v1/ledgers/10/imports").file(file).param("format", "NDJSON"))
+        .andExpect(status().isAccepted())
+        .andExpect(jsonPath("$.success").value(true))
+        .andExpect(jsonPath("$.data.jobId").value(42))
+        .andExpect(jsonPath("$.data.status").value("PENDING"));
+
+    verify(importService).startImport(eq(10L), eq("NDJSON"), any(InputStream.class));
+  }
+
+  @Test
+  @DisplayName("GET /imports/{jobId}: -> 200 with job progress")
+  void getImportJob_ok() throws Exception {
+    doReturn(job("RUNNING")).when(importService).getImportJob(10L, 42L);
+
+    mockMvc
+        .perform(get("/api/v1/ledgers/10/imports/42"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.status").value("RUNNING"));
+  }
+}
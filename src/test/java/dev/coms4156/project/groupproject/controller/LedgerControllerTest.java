@@ -16,16 +16,21 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import dev.coms4156.project.groupproject.dto.AddLedgerMemberRequest;
+import dev.coms4156.project.groupproject.dto.ChangeFeedResponse;
 import dev.coms4156.project.groupproject.dto.CreateCategoryRequest;
 import dev.coms4156.project.groupproject.dto.CreateLedgerRequest;
 import dev.coms4156.project.groupproject.dto.LedgerMemberResponse;
 import dev.coms4156.project.groupproject.dto.LedgerResponse;
 import dev.coms4156.project.groupproject.dto.ListLedgerMembersResponse;
 import dev.coms4156.project.groupproject.dto.MyLedgersResponse;
+import dev.coms4156.project.groupproject.dto.SettlementConfig;
+import dev.coms4156.project.groupproject.service.ChangeFeedService;
 import dev.coms4156.project.groupproject.service.LedgerService;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -47,6 +52,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 class LedgerControllerTest {
 
   @Mock private LedgerService ledgerService;
+  @Mock private ChangeFeedService changeFeedService;
 
   @InjectMocks private LedgerController controller;
 
@@ -555,4 +561,143 @@ class LedgerControllerTest {
     assert result.isSuccess();
     verify(ledgerService, times(1)).getSettlementPlan(eq(1L));
   }
+
+  // ====== GET /api/v1/ledgers/{ledgerId}/changes ======
+
+  @Test
+  @DisplayName("GET /ledgers/{id}/changes: since and limit -> 200 with raw entity payload")
+  void listChanges_typical() throws Exception {
+    ChangeFeedResponse.ChangeItem item = new ChangeFeedResponse.ChangeItem();
+    item.setSeq(42L);
+    item.setEntityType("TRANSACTION");
+    item.setEntityId(1001L);
+    item.setOp("UPSERT");
+    item.setData("{\"transactionId\":1001}");
+    ChangeFeedResponse resp = new ChangeFeedResponse();
+    resp.setChanges(List.of(item));
+    resp.setNextSince(42L);
+    resp.setHasMore(false);
+    doReturn(resp).when(changeFeedService).listChanges(1L, 41L, 200);
+
+    mockMvc
+        .perform(get("/api/v1/ledgers/1/changes").param("since", "41"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.success").value(true))
+        .andExpect(jsonPath("$.data.changes[0].seq").value(42))
+        .andExpect(jsonPath("$.data.changes[0].data.transactionId").value(1001))
+        .andExpect(jsonPath("$.data.nextSince").value(42));
+  }
+
+  // ====== POST /api/v1/ledgers/{ledgerId}/balances/rebuild ======
+
+  @Test
+  @DisplayName("POST /ledgers/{id}/balances/rebuild: dry_run -> 200 with drift report")
+  void rebuildBalances_dryRun() throws Exception {
+    dev.coms4156.project.groupproject.dto.BalanceRebuildReport report =
+        new dev.coms4156.project.groupproject.dto.BalanceRebuildReport(
+            1L, 3, 0, false, new ArrayList<>());
+
+    doReturn(report).when(ledgerService).rebuildBalances(eq(1L), eq(true));
+
+    mockMvc
+        .perform(post("/api/v1/ledgers/1/balances/rebuild").param("dry_run", "true"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.success").value(true))
+        .andExpect(jsonPath("$.data.driftCount").value(0));
+
+    verify(ledgerService, times(1)).rebuildBalances(eq(1L), eq(true));
+  }
+
+  @Test
+  @DisplayName("POST /ledgers/{id}/settlement-plan/execute: typical -> 200 with batch")
+  void executeSettlementPlan_typical() throws Exception {
+    dev.coms4156.project.groupproject.dto.ExecuteSettlementRequest req =
+        new dev.coms4156.project.groupproject.dto.ExecuteSettlementRequest();
+    req.setPlanVersion(7L);
+    req.setMethod("BANK");
+
+    dev.coms4156.project.groupproject.dto.SettlementExecutionResponse resp =
+        new dev.coms4156.project.groupproject.dto.SettlementExecutionResponse(
+            1L, 77L, 7L, "USD", false, new ArrayList<>());
+    doReturn(resp)
+        .when(ledgerService)
+        .executeSettlementPlan(
+            eq(1L), any(dev.coms4156.project.groupproject.dto.ExecuteSettlementRequest.class));
+
+    mockMvc
+        .perform(
+            post("/api/v1/ledgers/1/settlement-plan/execute")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.success").value(true))
+        .andExpect(jsonPath("$.data.batchId").value(77))
+        .andExpect(jsonPath("$.data.replayed").value(false));
+
+    verify(ledgerService, times(1))
+        .executeSettlementPlan(
+            eq(1L), any(dev.coms4156.project.groupproject.dto.ExecuteSettlementRequest.class));
+  }
+
+  @Test
+  @DisplayName("POST /ledgers/settle-up: typical -> 200 with consolidated transfers")
+  void getGlobalSettleUp_typical() throws Exception {
+    dev.coms4156.project.groupproject.dto.GlobalSettleUpRequest req =
+        new dev.coms4156.project.groupproject.dto.GlobalSettleUpRequest();
+    req.setCurrency("USD");
+
+    dev.coms4156.project.groupproject.dto.GlobalSettleUpResponse resp =
+        new dev.coms4156.project.groupproject.dto.GlobalSettleUpResponse(
+            1L, "USD", 3, 0, new ArrayList<>());
+    doReturn(resp)
+        .when(ledgerService)
+        .getGlobalSettleUp(any(dev.coms4156.project.groupproject.dto.GlobalSettleUpRequest.class));
+
+    mockMvc
+        .perform(
+            post("/api/v1/ledgers/settle-up")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.success").value(true))
+        .andExpect(jsonPath("$.data.ledgerCount").value(3))
+        .andExpect(jsonPath("$.data.currency").value("USD"));
+  }
+
+  @Test
+  @DisplayName("POST /ledgers/{id}/settlement-plan/compare: typical -> 200 with variants")
+  void compareSettlementPlans_typical() throws Exception {
+    dev.coms4156.project.groupproject.dto.SettlementComparisonRequest req =
+        new dev.coms4156.project.groupproject.dto.SettlementComparisonRequest();
+    req.setConfigs(List.of(new SettlementConfig(), new SettlementConfig()));
+
+    dev.coms4156.project.groupproject.dto.SettlementComparisonResponse resp =
+        new dev.coms4156.project.groupproject.dto.SettlementComparisonResponse(
+            1L,
+            "USD",
+            4L,
+            List.of(
+                new dev.coms4156.project.groupproject.dto.SettlementComparisonResponse.Variant(
+                    new SettlementConfig(),
+                    2,
+                    new BigDecimal("30.00"),
+                    new BigDecimal("0.412"),
+                    new ArrayList<>(),
+                    new ArrayList<>())));
+    doReturn(resp)
+        .when(ledgerService)
+        .compareSettlementPlans(
+            eq(1L), any(dev.coms4156.project.groupproject.dto.SettlementComparisonRequest.class));
+
+    mockMvc
+        .perform(
+            post("/api/v1/ledgers/1/settlement-plan/compare")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.success").value(true))
+        .andExpect(jsonPath("$.data.planVersion").value(4))
+        .andExpect(jsonPath("$.data.variants[0].transferCount").value(2))
+        .andExpect(jsonPath("$.data.variants[0].totalVolume").value(30.00));
+  }
 }
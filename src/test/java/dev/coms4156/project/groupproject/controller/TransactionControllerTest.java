@@ -7,26 +7,33 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import dev.coms4156.project.groupproject.dto.BulkDeleteTransactionsResponse;
 import dev.coms4156.project.groupproject.dto.CreateTransactionRequest;
 import dev.coms4156.project.groupproject.dto.CreateTransactionResponse;
 import dev.coms4156.project.groupproject.dto.ListTransactionsResponse;
 import dev.coms4156.project.groupproject.dto.SplitItem;
 import dev.coms4156.project.groupproject.dto.TransactionResponse;
+import dev.coms4156.project.groupproject.dto.UpdateTransactionRequest;
+import dev.coms4156.project.groupproject.dto.UpdateTransactionResponse;
 import dev.coms4156.project.groupproject.service.TransactionService;
+import dev.coms4156.project.groupproject.utils.IdempotencyStore;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -49,6 +56,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 class TransactionControllerTest {
 
   @Mock private TransactionService transactionService;
+  @Mock private IdempotencyStore idempotencyStore;
 
   @InjectMocks private TransactionController controller;
 
@@ -102,6 +110,42 @@ class TransactionControllerTest {
     verify(transactionService, times(1)).createTransaction(eq(1L), any());
   }
 
+  @Test
+  @DisplayName("POST /transactions: Idempotency-Key header -> create goes through the store")
+  void createTransaction_idempotencyKey_usesStore() throws Exception {
+    CreateTransactionRequest req = new CreateTransactionRequest();
+    req.setTxnAt(LocalDateTime.of(2025, 10, 22, 12, 0));
+    req.setType("EXPENSE");
+    req.setCurrency("USD");
+    req.setAmountTotal(new BigDecimal("20.00"));
+    req.setPayerId(1L);
+    req.setIsPrivate(false);
+    SplitItem split = new SplitItem();
+    split.setUserId(1L);
+    split.setSplitMethod("EQUAL");
+    split.setShareValue(BigDecimal.ZERO);
+    split.setIncluded(true);
+    req.setSplits(Collections.singletonList(split));
+
+    CreateTransactionResponse resp = new CreateTransactionResponse();
+    resp.setTransactionId(101L);
+    doReturn(resp)
+        .when(idempotencyStore)
+        .execute(
+            eq("transactions:1"), eq("retry-1"), any(), eq(CreateTransactionResponse.class), any());
+
+    mockMvc
+        .perform(
+            post("/api/v1/ledgers/1/transactions")
+                .header(IdempotencyStore.HEADER, "retry-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.data.transactionId").value(101));
+
+    verify(transactionService, never()).createTransaction(anyLong(), any());
+  }
+
   @Test
   @DisplayName("POST /transactions: atypical with very large amount -> 201")
   void createTransaction_largeAmount() throws Exception {
@@ -273,7 +317,7 @@ class TransactionControllerTest {
 
     doReturn(resp)
         .when(transactionService)
-        .listTransactions(eq(1L), eq(1), eq(50), eq(null), eq(null), eq(null), eq(null));
+        .listTransactions(eq(1L), eq(1), eq(50), eq(null), eq(null), eq(null), eq(null), eq(null));
 
     mockMvc
         .perform(get("/api/v1/ledgers/1/transactions"))
@@ -282,7 +326,86 @@ class TransactionControllerTest {
         .andExpect(jsonPath("$.data.total").value(5));
 
     verify(transactionService, times(1))
-        .listTransactions(eq(1L), eq(1), eq(50), eq(null), eq(null), eq(null), eq(null));
+        .listTransactions(eq(1L), eq(1), eq(50), eq(null), eq(null), eq(null), eq(null), eq(null));
+  }
+
+  @Test
+  @DisplayName("GET /transactions: cursor param -> keyset page with next cursor")
+  void listTransactions_cursorMode() throws Exception {
+    ListTransactionsResponse resp = new ListTransactionsResponse();
+    resp.setSize(50);
+    resp.setItems(new ArrayList<>());
+    resp.setNextCursor("abc");
+
+    doReturn(resp)
+        .when(transactionService)
+        .listTransactionsAfter(
+            eq(1L), eq(""), eq(50), eq(null), eq(null), eq(null), eq(null), eq(false), eq(null));
+
+    mockMvc
+        .perform(get("/api/v1/ledgers/1/transactions").param("cursor", ""))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.nextCursor").value("abc"));
+
+    verify(transactionService, never())
+        .listTransactions(any(), any(), any(), any(), any(), any(), any(), any());
+  }
+
+  @Test
+  @DisplayName("GET /transactions/search: q and filters -> search page, size capped at 200")
+  void searchTransactions_typical() throws Exception {
+    ListTransactionsResponse resp = new ListTransactionsResponse();
+    resp.setSize(200);
+    resp.setItems(new ArrayList<>());
+    resp.setNextCursor("next");
+
+    doReturn(resp)
+        .when(transactionService)
+        .searchTransactions(
+            eq(1L),
+            eq("star cof"),
+            eq(null),
+            eq(200),
+            eq(null),
+            eq(null),
+            eq("EXPENSE"),
+            eq(null),
+            eq(null));
+
+    mockMvc
+        .perform(
+            get("/api/v1/ledgers/1/transactions/search")
+                .param("q", "star cof")
+                .param("type", "EXPENSE")
+                .param("size", "500"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.nextCursor").value("next"));
+
+    verify(transactionService, never()).getTransaction(any(), any());
+  }
+
+  @Test
+  @DisplayName("GET /transactions: include=splits,edges -> passed to the service as a list")
+  void listTransactions_include() throws Exception {
+    ListTransactionsResponse resp = new ListTransactionsResponse();
+    resp.setItems(new ArrayList<>());
+
+    doReturn(resp)
+        .when(transactionService)
+        .listTransactions(
+            eq(1L),
+            eq(1),
+            eq(50),
+            eq(null),
+            eq(null),
+            eq(null),
+            eq(null),
+            eq(List.of("splits", "edges")));
+
+    mockMvc
+        .perform(get("/api/v1/ledgers/1/transactions").param("include", "splits,edges"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.success").value(true));
   }
 
   @Test
@@ -301,7 +424,8 @@ class TransactionControllerTest {
             eq("2025-10-01T00:00:00"),
             eq("2025-10-31T23:59:59"),
             eq("EXPENSE"),
-            eq(5L));
+            eq(5L),
+            eq(null));
 
     mockMvc
         .perform(
@@ -323,7 +447,8 @@ class TransactionControllerTest {
             eq("2025-10-01T00:00:00"),
             eq("2025-10-31T23:59:59"),
             eq("EXPENSE"),
-            eq(5L));
+            eq(5L),
+            eq(null));
   }
 
   @Test
@@ -334,14 +459,14 @@ class TransactionControllerTest {
 
     doReturn(resp)
         .when(transactionService)
-        .listTransactions(eq(1L), eq(1), eq(200), eq(null), eq(null), eq(null), eq(null));
+        .listTransactions(eq(1L), eq(1), eq(200), eq(null), eq(null), eq(null), eq(null), eq(null));
 
     mockMvc
         .perform(get("/api/v1/ledgers/1/transactions").param("size", "500"))
         .andExpect(status().isOk());
 
     verify(transactionService, times(1))
-        .listTransactions(eq(1L), eq(1), eq(200), eq(null), eq(null), eq(null), eq(null));
+        .listTransactions(eq(1L), eq(1), eq(200), eq(null), eq(null), eq(null), eq(null), eq(null));
   }
 
   @Test
@@ -352,7 +477,7 @@ class TransactionControllerTest {
 
     doReturn(resp)
         .when(transactionService)
-        .listTransactions(anyLong(), anyInt(), anyInt(), any(), any(), any(), any());
+        .listTransactions(anyLong(), anyInt(), anyInt(), any(), any(), any(), any(), any());
 
     mockMvc
         .perform(get("/api/v1/ledgers/1/transactions").param("page", "0"))
@@ -368,7 +493,7 @@ class TransactionControllerTest {
 
     doReturn(resp)
         .when(transactionService)
-        .listTransactions(anyLong(), anyInt(), anyInt(), any(), any(), any(), any());
+        .listTransactions(anyLong(), anyInt(), anyInt(), any(), any(), any(), any(), any());
 
     mockMvc
         .perform(get("/api/v1/ledgers/1/transactions"))
@@ -377,6 +502,48 @@ class TransactionControllerTest {
         .andExpect(jsonPath("$.data.items").isEmpty());
   }
 
+  // ====== PATCH /api/v1/ledgers/{ledgerId}/transactions/{transactionId} ======
+
+  @Test
+  @DisplayName("PATCH /transactions/{id}: partial body -> 200 with written/deleted row counts")
+  void updateTransaction_typical() throws Exception {
+    UpdateTransactionRequest req = new UpdateTransactionRequest();
+    req.setAmountTotal(new BigDecimal("120.00"));
+    UpdateTransactionResponse resp = new UpdateTransactionResponse();
+    resp.setTransactionId(10L);
+    resp.setSplitsWritten(2);
+    resp.setEdgesWritten(1);
+
+    doReturn(resp)
+        .when(transactionService)
+        .updateTransaction(eq(1L), eq(10L), any(UpdateTransactionRequest.class));
+
+    mockMvc
+        .perform(
+            patch("/api/v1/ledgers/1/transactions/10")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.splitsWritten").value(2))
+        .andExpect(jsonPath("$.data.edgesWritten").value(1));
+  }
+
+  @Test
+  @DisplayName("PATCH /transactions/{id}: invalid type -> 400 without calling the service")
+  void updateTransaction_invalidType() throws Exception {
+    UpdateTransactionRequest req = new UpdateTransactionRequest();
+    req.setType("LOAN");
+
+    mockMvc
+        .perform(
+            patch("/api/v1/ledgers/1/transactions/10")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+        .andExpect(status().isBadRequest());
+
+    verify(transactionService, never()).updateTransaction(anyLong(), anyLong(), any());
+  }
+
   // ====== DELETE /api/v1/ledgers/{ledgerId}/transactions/{transactionId} ======
 
   @Test
@@ -429,4 +596,24 @@ class TransactionControllerTest {
       assert e.getMessage().contains("User not a member");
     }
   }
+
+  @Test
+  @DisplayName("DELETE /transactions?filters: bulk delete -> 200 with deleted count")
+  void deleteTransactions_byFilter() throws Exception {
+    BulkDeleteTransactionsResponse resp = new BulkDeleteTransactionsResponse();
+    resp.setDeleted(1200L);
+    resp.setChunks(3);
+    doReturn(resp)
+        .when(transactionService)
+        .deleteTransactions(1L, "2025-10-01T00:00:00", null, null, 5L);
+
+    mockMvc
+        .perform(
+            delete("/api/v1/ledgers/1/transactions")
+                .param("from", "2025-10-01T00:00:00")
+                .param("created_by", "5"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.deleted").value(1200))
+        .andExpect(jsonPath("$.data.chunks").value(3));
+  }
 }
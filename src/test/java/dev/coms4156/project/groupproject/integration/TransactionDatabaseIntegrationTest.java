@@ -337,7 +337,7 @@ class TransactionDatabaseIntegrationTest {
     transactionService.createTransaction(testLedgerId, request2);
 
     ListTransactionsResponse response =
-        transactionService.listTransactions(testLedgerId, 1, 10, null, null, null, null);
+        transactionService.listTransactions(testLedgerId, 1, 10, null, null, null, null, null);
 
     assertNotNull(response);
     assertTrue(response.getTotal() >= 2);
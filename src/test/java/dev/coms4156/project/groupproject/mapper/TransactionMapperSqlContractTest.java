@@ -0,0 +1,158 @@
+package dev.coms4156.project.groupproject.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * SQL contract tests for the visibility rules in {@code TransactionMapper.xml}.
+ *
+ * <p>These are pure unit tests (no DB). The mapper XML is parsed and its dynamic SQL rendered for
+ * given parameters, so we can check that:
+ *
+ * <ul>
+ *   <li>No per-row subqueries against ledgers or ledger_members remain
+ *   <li>Non-privileged callers get the privacy and share start date filters as plain predicates
+ *   <li>OWNER/ADMIN callers and absent filters add no predicates at all
+ * </ul>
+ */
+class TransactionMapperSqlContractTest {
+
+  private static final String NAMESPACE = TransactionMapper.class.getName();
+
+  private static MybatisConfiguration configuration;
+
+  @BeforeAll
+  static void parseMapper() throws Exception {
+    configuration = new MybatisConfiguration();
+    String resource = "mapper/TransactionMapper.xml";
+    try (InputStream in =
+        TransactionMapperSqlContractTest.class.getClassLoader().getResourceAsStream(resource)) {
+      new XMLMapperBuilder(in, configuration, resource, configuration.getSqlFragments()).parse();
+    }
+  }
+
+  private static String render(String statement, Map<String, Object> params) {
+    return configuration
+        .getMappedStatement(NAMESPACE + "." + statement)
+        .getBoundSql(params)
+        .getSql()
+        .replaceAll("\\s+", " ");
+  }
+
+  private static Map<String, Object> listParams(boolean privileged, LocalDate shareStartDate) {
+    Map<String, Object> params = new HashMap<>();
+    params.put("ledgerId", 1L);
+    params.put("fromDate", null);
+    params.put("toDate", null);
+    params.put("type", null);
+    params.put("createdBy", null);
+    params.put("currentUserId", 2L);
+    params.put("privileged", privileged);
+    params.put("shareStartDate", shareStartDate);
+    params.put("cursorTxnAt", null);
+    params.put("cursorId", null);
+    params.put("limit", 21);
+    return params;
+  }
+
+  @Test
+  void listQueries_nonPrivileged_useSargableVisibilityPredicates() {
+    for (String statement :
+        new String[] {"findTransactionsByLedger", "findTransactionsByLedgerAfter"}) {
+      String sql = render(statement, listParams(false, LocalDate.of(2025, 1, 1)));
+
+      assertTrue(sql.contains("WHERE t.ledger_id = ?"));
+      assertTrue(sql.contains("AND (t.is_private = false OR t.created_by = ?)"));
+      assertTrue(sql.contains("AND t.txn_at >= ?"));
+      assertFalse(sql.contains("SELECT 1"), statement);
+      assertFalse(sql.contains("ledger_members"), statement);
+      assertFalse(sql.contains("FROM ledgers"), statement);
+      assertFalse(sql.contains("IS NULL"), statement);
+    }
+  }
+
+  @Test
+  void listQueries_privilegedWithoutFilters_onlyScopeByLedger() {
+    String sql = render("countTransactionsByLedger", listParams(true, LocalDate.of(2025, 1, 1)));
+
+    assertTrue(sql.endsWith("FROM transactions t WHERE t.ledger_id = ?"), sql);
+  }
+
+  @Test
+  void listQueries_presentFilters_renderAsRangesAndEqualities() {
+    Map<String, Object> params = listParams(false, null);
+    params.put("fromDate", LocalDateTime.of(2025, 1, 1, 0, 0));
+    params.put("toDate", LocalDateTime.of(2025, 2, 1, 0, 0));
+    params.put("type", "EXPENSE");
+    params.put("createdBy", 3L);
+
+    String sql = render("findTransactionsByLedger", params);
+
+    assertTrue(sql.contains("AND t.txn_at >= ? AND t.txn_at < ?"));
+    assertTrue(sql.contains("AND t.type = ?"));
+    assertTrue(sql.contains("AND t.created_by = ?"));
+    assertFalse(sql.contains("COALESCE"));
+  }
+
+  @Test
+  void findById_appliesTheSameVisibilityWithoutSubqueries() {
+    Map<String, Object> params = new HashMap<>();
+    params.put("transactionId", 9L);
+    params.put("currentUserId", 2L);
+    params.put("privileged", false);
+    params.put("shareStartDate", LocalDate.of(2025, 1, 1));
+
+    String sql = render("findTransactionByIdWithVisibility", params);
+
+    assertTrue(sql.contains("WHERE t.id = ?"));
+    assertTrue(sql.contains("AND (t.is_private = false OR t.created_by = ?)"));
+    assertTrue(sql.contains("AND t.txn_at >= ?"));
+    assertFalse(sql.contains("SELECT 1"));
+
+    params.put("privileged", true);
+    assertTrue(render("findTransactionByIdWithVisibility", params).endsWith("WHERE t.id = ?"));
+  }
+
+  @Test
+  void bulkDeleteIds_useListFiltersAndBoundedRangeScan() {
+    Map<String, Object> params = listParams(false, null);
+    params.put("fromDate", LocalDateTime.of(2025, 1, 1, 0, 0));
+    params.put("createdBy", 2L);
+
+    String sql = render("findTransactionIdsByLedger", params);
+
+    assertTrue(sql.startsWith("SELECT t.id FROM transactions t WHERE t.ledger_id = ?"), sql);
+    assertTrue(sql.contains("AND t.txn_at >= ?"));
+    assertTrue(sql.contains("AND t.created_by = ?"));
+    assertTrue(sql.contains("AND (t.is_private = false OR t.created_by = ?)"));
+    assertTrue(sql.endsWith("ORDER BY t.txn_at, t.id LIMIT ?"), sql);
+  }
+
+  @Test
+  void noteSearchPage_restrictsKeysetPageToCandidateIds() {
+    Map<String, Object> params = listParams(false, LocalDate.of(2025, 1, 1));
+    params.put("ids", List.of(4L, 9L, 12L));
+    params.put("cursorTxnAt", LocalDateTime.of(2025, 3, 1, 0, 0));
+    params.put("cursorId", 9L);
+
+    String sql = render("findTransactionsByIdsAfter", params);
+
+    assertTrue(sql.contains("WHERE t.ledger_id = ?"));
+    assertTrue(sql.contains("AND (t.is_private = false OR t.created_by = ?)"));
+    assertTrue(sql.contains("AND t.id IN ( ? , ? , ? )"), sql);
+    assertTrue(sql.contains("AND (t.txn_at < ? OR t.id < ?)"));
+    assertTrue(sql.endsWith("ORDER BY t.txn_at DESC, t.id DESC LIMIT ?"), sql);
+    assertFalse(sql.contains("LIKE"));
+  }
+}
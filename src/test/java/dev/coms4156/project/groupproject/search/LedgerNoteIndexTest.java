@@ -0,0 +1,107 @@
+package dev.coms4156.project.groupproject.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import dev.coms4156.project.groupproject.entity.Transaction;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link LedgerNoteIndex}. */
+class LedgerNoteIndexTest {
+
+  private static Transaction note(long id, String note) {
+    Transaction transaction = new Transaction();
+    transaction.setId(id);
+    transaction.setNote(note);
+    return transaction;
+  }
+
+  private static LedgerNoteIndex loaded(Transaction... rows) {
+    LedgerNoteIndex index = new LedgerNoteIndex();
+    index.load(() -> List.of(rows));
+    return index;
+  }
+
+  private static long[] search(LedgerNoteIndex index, String query) {
+    return index.search(LedgerNoteIndex.tokenize(query));
+  }
+
+  @Test
+  @DisplayName("tokenize: case, punctuation and repeats -> distinct lower-case words")
+  void tokenize_normalizes() {
+    assertEquals(
+        List.of("starbucks", "coffee", "2x", "café"),
+        LedgerNoteIndex.tokenize("Starbucks -- COFFEE, 2x coffee (café)"));
+    assertEquals(List.of(), LedgerNoteIndex.tokenize(" ,.- "));
+    assertEquals(List.of(), LedgerNoteIndex.tokenize(null));
+  }
+
+  @Test
+  @DisplayName("search: every query word must prefix a note word -> intersection in ID order")
+  void search_prefixAnd() {
+    LedgerNoteIndex index =
+        loaded(
+            note(3, "Starbucks coffee"),
+            note(1, "Coffee beans"),
+            note(7, "Star Market groceries"),
+            note(9, null));
+
+    assertArrayEquals(new long[] {1, 3}, search(index, "cof"));
+    assertArrayEquals(new long[] {3, 7}, search(index, "star"));
+    assertArrayEquals(new long[] {3}, search(index, "STAR cof"));
+    assertArrayEquals(new long[] {}, search(index, "star beans"));
+    assertArrayEquals(new long[] {}, search(index, "tea"));
+  }
+
+  @Test
+  @DisplayName("search: several words of one note share the prefix -> ID listed once")
+  void search_prefixUnionDeduplicates() {
+    LedgerNoteIndex index = loaded(note(2, "bus bust"), note(5, "business"));
+
+    assertArrayEquals(new long[] {2, 5}, search(index, "bus"));
+  }
+
+  @Test
+  @DisplayName("update: edited and deleted notes -> old words dropped, empty words removed")
+  void update_editAndDelete() {
+    LedgerNoteIndex index = loaded(note(1, "taxi airport"), note(2, "airport lounge"));
+
+    index.update(1, "taxi airport", "uber airport");
+    index.update(2, "airport lounge", null);
+    index.update(3, null, "Lounge access");
+
+    assertArrayEquals(new long[] {}, search(index, "taxi"));
+    assertArrayEquals(new long[] {1}, search(index, "airport"));
+    assertArrayEquals(new long[] {3}, search(index, "lounge"));
+    // uber, airport, lounge, access
+    assertEquals(4, index.wordCount());
+  }
+
+  @Test
+  @DisplayName("load: edits arriving before or during the load -> replayed over the loaded rows")
+  void load_replaysQueuedEdits() {
+    LedgerNoteIndex index = new LedgerNoteIndex();
+    // Committed before the rows were read, so the rows already reflect it
+    index.update(1, "old note", "rent");
+    List<Transaction> rows = new ArrayList<>(List.of(note(1, "rent")));
+
+    index.load(
+        () -> {
+          // Committed after the rows were read
+          index.update(2, null, "rent deposit");
+          index.update(1, "rent", "rent march");
+          return rows;
+        });
+
+    assertArrayEquals(new long[] {1, 2}, search(index, "rent"));
+    assertArrayEquals(new long[] {1}, search(index, "march"));
+    assertArrayEquals(new long[] {}, search(index, "old"));
+
+    // Loading again is a no-op
+    index.load(List::of);
+    assertArrayEquals(new long[] {1, 2}, search(index, "rent"));
+  }
+}
@@ -0,0 +1,80 @@
+package dev.coms4156.project.groupproject.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link PostingList}, checked against a TreeSet of the same IDs. */
+class PostingListTest {
+
+  @Test
+  @DisplayName("add: ascending auto-increment IDs -> appended at about one byte per ID")
+  void add_ascending_compact() {
+    PostingList list = new PostingList();
+    for (long id = 1_000_001; id <= 1_001_000; id++) {
+      list.add(id);
+    }
+
+    assertEquals(1_000, list.size());
+    // The first ID takes three bytes, every later gap of 1 a single byte
+    assertEquals(3 + 999, list.encodedLength());
+    assertEquals(1_000_001L, list.toArray()[0]);
+    assertEquals(1_001_000L, list.toArray()[999]);
+  }
+
+  @Test
+  @DisplayName("add/remove: duplicates, out-of-order IDs and absent removes -> set semantics")
+  void addRemove_setSemantics() {
+    PostingList list = new PostingList();
+    list.add(10);
+    list.add(30);
+    list.add(20);
+    list.add(30);
+    list.remove(25);
+    list.remove(99);
+
+    assertArrayEquals(new long[] {10, 20, 30}, list.toArray());
+
+    list.remove(10);
+    list.remove(30);
+    assertArrayEquals(new long[] {20}, list.toArray());
+  }
+
+  @Test
+  @DisplayName("add/remove: random edits with large gaps -> same IDs as a TreeSet")
+  void randomEdits_matchTreeSet() {
+    Random random = new Random(2024);
+    PostingList list = new PostingList();
+    TreeSet<Long> expected = new TreeSet<>();
+    long next = 1;
+    for (int round = 0; round < 20_000; round++) {
+      int op = random.nextInt(10);
+      if (op < 6) {
+        // Mostly new IDs, with the occasional huge jump
+        next += 1 + (random.nextInt(50) == 0 ? random.nextLong() >>> 20 : random.nextInt(5));
+        list.add(next);
+        expected.add(next);
+      } else if (op < 8 || expected.isEmpty()) {
+        long id = 1 + (long) (random.nextDouble() * next);
+        list.add(id);
+        expected.add(id);
+      } else {
+        Long id = expected.ceiling((long) (random.nextDouble() * next));
+        if (id != null) {
+          list.remove(id);
+          expected.remove(id);
+        }
+      }
+    }
+
+    long[] ids = list.toArray();
+    assertEquals(expected.size(), list.size());
+    assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), ids);
+    assertTrue(list.encodedLength() < 8L * ids.length);
+  }
+}
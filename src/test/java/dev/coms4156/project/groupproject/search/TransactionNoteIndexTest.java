@@ -0,0 +1,82 @@
+package dev.coms4156.project.groupproject.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import dev.coms4156.project.groupproject.entity.Transaction;
+import dev.coms4156.project.groupproject.mapper.TransactionMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/** Unit tests for {@link TransactionNoteIndex} outside a DB transaction, so edits apply at once. */
+@ExtendWith(MockitoExtension.class)
+class TransactionNoteIndexTest {
+
+  @Mock private TransactionMapper transactionMapper;
+
+  private static Transaction note(long id, String note) {
+    Transaction transaction = new Transaction();
+    transaction.setId(id);
+    transaction.setNote(note);
+    return transaction;
+  }
+
+  @Test
+  @DisplayName("search: first search builds the ledger's index, later ones and writes reuse it")
+  void search_buildsOnceAndFollowsWrites() {
+    TransactionNoteIndex index =
+        new TransactionNoteIndex(transactionMapper, new SimpleMeterRegistry(), 16);
+    doReturn(List.of(note(1, "Dinner at Luigi's"), note(2, "Groceries")))
+        .when(transactionMapper)
+        .findNotesByLedger(10L);
+
+    assertArrayEquals(new long[] {1}, index.search(10L, "luigi"));
+
+    index.added(10L, List.of(note(3, "Luigi's pizza"), note(4, null)));
+    index.update(10L, 1L, "Dinner at Luigi's", "Dinner at Mario's");
+    index.update(10L, 2L, "Groceries", null);
+
+    assertArrayEquals(new long[] {3}, index.search(10L, "luigi"));
+    assertArrayEquals(new long[] {1}, index.search(10L, "mario dinner"));
+    assertArrayEquals(new long[] {}, index.search(10L, "groceries"));
+    verify(transactionMapper, times(1)).findNotesByLedger(10L);
+  }
+
+  @Test
+  @DisplayName("writes to a ledger never searched -> ignored; invalidate -> rebuilt from the table")
+  void writesWithoutIndex_ignoredAndInvalidateRebuilds() {
+    TransactionNoteIndex index =
+        new TransactionNoteIndex(transactionMapper, new SimpleMeterRegistry(), 16);
+    index.update(10L, 5L, null, "taxi");
+    verifyNoInteractions(transactionMapper);
+
+    doReturn(List.of(note(5, "taxi"))).when(transactionMapper).findNotesByLedger(10L);
+    assertArrayEquals(new long[] {5}, index.search(10L, "taxi"));
+
+    index.invalidate(10L);
+    assertArrayEquals(new long[] {5}, index.search(10L, "taxi"));
+    verify(transactionMapper, times(2)).findNotesByLedger(10L);
+  }
+
+  @Test
+  @DisplayName("search: query without letters or digits -> throws before loading")
+  void search_emptyQuery_throws() {
+    TransactionNoteIndex index =
+        new TransactionNoteIndex(transactionMapper, new SimpleMeterRegistry(), 16);
+
+    RuntimeException ex = assertThrows(RuntimeException.class, () -> index.search(10L, " - "));
+
+    assertEquals("Search query must contain a letter or digit", ex.getMessage());
+    verifyNoInteractions(transactionMapper);
+  }
+}
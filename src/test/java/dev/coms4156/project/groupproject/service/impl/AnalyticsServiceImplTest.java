@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -24,6 +25,8 @@ import dev.coms4156.project.groupproject.mapper.LedgerMapper;
 import dev.coms4156.project.groupproject.mapper.LedgerMemberMapper;
 import dev.coms4156.project.groupproject.mapper.UserMapper;
 import dev.coms4156.project.groupproject.utils.CurrentUserContext;
+import dev.coms4156.project.groupproject.utils.LedgerMembershipCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -37,6 +40,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
 
 /**
  * Unit tests for {@link AnalyticsServiceImpl}.
@@ -66,7 +70,14 @@ class AnalyticsServiceImplTest {
 
   @BeforeEach
   void setUp() {
-    service = new AnalyticsServiceImpl(aggMapper, ledgerMapper, ledgerMemberMapper, userMapper);
+    service =
+        new AnalyticsServiceImpl(
+            aggMapper,
+            ledgerMapper,
+            ledgerMemberMapper,
+            new LedgerMembershipCache(
+                new SimpleMeterRegistry(), mock(StringRedisTemplate.class), 0, 300),
+            userMapper);
   }
 
   @AfterEach
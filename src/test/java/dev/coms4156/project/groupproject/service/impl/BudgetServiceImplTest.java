@@ -9,6 +9,7 @@ import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -25,7 +26,10 @@ import dev.coms4156.project.groupproject.mapper.BudgetMapper;
 import dev.coms4156.project.groupproject.mapper.LedgerMapper;
 import dev.coms4156.project.groupproject.mapper.LedgerMemberMapper;
 import dev.coms4156.project.groupproject.mapper.TransactionMapper;
+import dev.coms4156.project.groupproject.service.ChangeFeedService;
 import dev.coms4156.project.groupproject.utils.CurrentUserContext;
+import dev.coms4156.project.groupproject.utils.LedgerMembershipCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -37,7 +41,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
 
 /**
  * Comprehensive unit tests for {@link BudgetServiceImpl}.
@@ -63,6 +69,11 @@ class BudgetServiceImplTest {
   @Mock private TransactionMapper transactionMapper;
   @Mock private LedgerMapper ledgerMapper;
   @Mock private LedgerMemberMapper ledgerMemberMapper;
+  @Mock private ChangeFeedService changeFeedService;
+
+  @Spy
+  private LedgerMembershipCache membershipCache =
+      new LedgerMembershipCache(new SimpleMeterRegistry(), mock(StringRedisTemplate.class), 0, 300);
 
   @InjectMocks private BudgetServiceImpl service;
 
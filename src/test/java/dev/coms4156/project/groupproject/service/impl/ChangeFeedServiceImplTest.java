@@ -0,0 +1,231 @@
+package dev.coms4156.project.groupproject.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.coms4156.project.groupproject.dto.ChangeFeedResponse;
+import dev.coms4156.project.groupproject.dto.UserView;
+import dev.coms4156.project.groupproject.entity.Ledger;
+import dev.coms4156.project.groupproject.entity.LedgerChange;
+import dev.coms4156.project.groupproject.entity.LedgerMember;
+import dev.coms4156.project.groupproject.mapper.LedgerChangeMapper;
+import dev.coms4156.project.groupproject.mapper.LedgerMapper;
+import dev.coms4156.project.groupproject.mapper.LedgerMemberMapper;
+import dev.coms4156.project.groupproject.service.ChangeFeedService;
+import dev.coms4156.project.groupproject.service.ChangeFeedService.Change;
+import dev.coms4156.project.groupproject.utils.CurrentUserContext;
+import dev.coms4156.project.groupproject.utils.LedgerMembershipCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/** Unit tests for {@link ChangeFeedServiceImpl}. */
+@ExtendWith(MockitoExtension.class)
+class ChangeFeedServiceImplTest {
+
+  private static final LocalDate SHARE_START = LocalDate.of(2025, 1, 1);
+
+  @Mock private LedgerChangeMapper ledgerChangeMapper;
+  @Mock private LedgerMapper ledgerMapper;
+  @Mock private LedgerMemberMapper ledgerMemberMapper;
+
+  private ChangeFeedServiceImpl service;
+
+  @BeforeEach
+  void setUp() {
+    LedgerMembershipCache membershipCache =
+        new LedgerMembershipCache(
+            new SimpleMeterRegistry(), mock(StringRedisTemplate.class), 0, 300);
+    service =
+        new ChangeFeedServiceImpl(
+            ledgerChangeMapper,
+            ledgerMapper,
+            ledgerMemberMapper,
+            membershipCache,
+            new ObjectMapper().findAndRegisterModules());
+    CurrentUserContext.set(new UserView(7L, "U7"));
+  }
+
+  @AfterEach
+  void tearDown() {
+    CurrentUserContext.clear();
+  }
+
+  private void stubLedgerAndRole(String role) {
+    Ledger ledger = new Ledger();
+    ledger.setId(1L);
+    ledger.setShareStartDate(SHARE_START);
+    doReturn(ledger).when(ledgerMapper).selectById(1L);
+    LedgerMember member = null;
+    if (role != null) {
+      member = new LedgerMember();
+      member.setLedgerId(1L);
+      member.setUserId(7L);
+      member.setRole(role);
+    }
+    doReturn(member).when(ledgerMemberMapper).selectOne(any());
+  }
+
+  private static List<LedgerChange> rows(long from, long to) {
+    List<LedgerChange> rows = new ArrayList<>();
+    for (long seq = from; seq <= to; seq++) {
+      LedgerChange row = new LedgerChange();
+      row.setLedgerId(1L);
+      row.setSeq(seq);
+      row.setEntityType(ChangeFeedService.TRANSACTION);
+      row.setEntityId(100 + seq);
+      row.setOp("UPSERT");
+      row.setPayload("{\"transactionId\":" + (100 + seq) + "}");
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  @Test
+  @DisplayName("record: two changes -> consecutive seqs after the counter, actor and JSON payload")
+  @SuppressWarnings("unchecked")
+  void record_assignsConsecutiveSeqs() {
+    doReturn(12L).when(ledgerMapper).selectChangeSeq(1L);
+    LocalDateTime txnAt = LocalDateTime.of(2025, 3, 4, 12, 0);
+
+    service.record(
+        1L,
+        List.of(
+            new Change(
+                ChangeFeedService.TRANSACTION, 50L, "UPSERT", Map.of("at", txnAt), 7L, txnAt),
+            Change.delete(ChangeFeedService.MEMBER, 9L)));
+
+    verify(ledgerMapper).advanceChangeSeq(1L, 2);
+    ArgumentCaptor<List<LedgerChange>> captor = ArgumentCaptor.forClass(List.class);
+    verify(ledgerChangeMapper).insertBatch(captor.capture());
+    List<LedgerChange> inserted = captor.getValue();
+    assertEquals(2, inserted.size());
+    assertEquals(11L, inserted.get(0).getSeq());
+    assertEquals(12L, inserted.get(1).getSeq());
+    assertEquals(7L, inserted.get(0).getActorId());
+    assertEquals(7L, inserted.get(0).getVisibleTo());
+    assertEquals(txnAt, inserted.get(0).getTxnAt());
+    assertEquals("{\"at\":[2025,3,4,12,0]}", inserted.get(0).getPayload());
+    assertEquals("DELETE", inserted.get(1).getOp());
+    assertNull(inserted.get(1).getPayload());
+  }
+
+  @Test
+  @DisplayName("record: no changes -> counter and table untouched")
+  void record_empty_writesNothing() {
+    service.record(1L, List.of());
+
+    verifyNoInteractions(ledgerMapper, ledgerChangeMapper);
+  }
+
+  @Test
+  @DisplayName("listChanges: more rows than the limit -> page, hasMore and nextSince at last seq")
+  void listChanges_fullPage_hasMore() {
+    stubLedgerAndRole("EDITOR");
+    doReturn(20L).when(ledgerMapper).selectChangeSeq(1L);
+    doReturn(rows(6, 8))
+        .when(ledgerChangeMapper)
+        .findByLedgerAfter(1L, 5L, 20L, 7L, false, SHARE_START, 3);
+
+    ChangeFeedResponse resp = service.listChanges(1L, 5L, 2);
+
+    assertEquals(2, resp.getChanges().size());
+    assertEquals(6L, resp.getChanges().get(0).getSeq());
+    assertEquals("{\"transactionId\":106}", resp.getChanges().get(0).getData());
+    assertTrue(resp.getHasMore());
+    assertEquals(7L, resp.getNextSince());
+  }
+
+  @Test
+  @DisplayName("listChanges: trailing rows hidden from the caller -> nextSince skips to counter")
+  void listChanges_lastPage_nextSinceIsCounter() {
+    stubLedgerAndRole("OWNER");
+    doReturn(20L).when(ledgerMapper).selectChangeSeq(1L);
+    doReturn(rows(16, 17))
+        .when(ledgerChangeMapper)
+        .findByLedgerAfter(1L, 15L, 20L, 7L, true, SHARE_START, 201);
+
+    ChangeFeedResponse resp = service.listChanges(1L, 15L, 200);
+
+    assertEquals(2, resp.getChanges().size());
+    assertFalse(resp.getHasMore());
+    assertEquals(20L, resp.getNextSince());
+  }
+
+  @Test
+  @DisplayName("listChanges: client already at the counter -> empty page without a scan")
+  void listChanges_upToDate_skipsQuery() {
+    stubLedgerAndRole("VIEWER");
+    doReturn(20L).when(ledgerMapper).selectChangeSeq(1L);
+
+    ChangeFeedResponse resp = service.listChanges(1L, 20L, 50);
+
+    assertTrue(resp.getChanges().isEmpty());
+    assertFalse(resp.getHasMore());
+    assertEquals(20L, resp.getNextSince());
+    verifyNoInteractions(ledgerChangeMapper);
+  }
+
+  @Test
+  @DisplayName("listChanges: limit above the maximum -> clamped")
+  void listChanges_limitClamped() {
+    stubLedgerAndRole("ADMIN");
+    doReturn(5L).when(ledgerMapper).selectChangeSeq(1L);
+    doReturn(List.of())
+        .when(ledgerChangeMapper)
+        .findByLedgerAfter(
+            eq(1L),
+            eq(0L),
+            eq(5L),
+            anyLong(),
+            eq(true),
+            any(),
+            eq(ChangeFeedServiceImpl.MAX_LIMIT + 1));
+
+    ChangeFeedResponse resp = service.listChanges(1L, 0L, 50_000);
+
+    assertEquals(5L, resp.getNextSince());
+  }
+
+  @Test
+  @DisplayName("listChanges: non-member, negative since or not logged in -> throws")
+  void listChanges_invalid_throws() {
+    stubLedgerAndRole(null);
+    RuntimeException notMember =
+        assertThrows(RuntimeException.class, () -> service.listChanges(1L, 0L, 10));
+    assertEquals("User not a member of this ledger", notMember.getMessage());
+
+    RuntimeException negative =
+        assertThrows(RuntimeException.class, () -> service.listChanges(1L, -1L, 10));
+    assertEquals("since must not be negative", negative.getMessage());
+
+    CurrentUserContext.clear();
+    RuntimeException anonymous =
+        assertThrows(RuntimeException.class, () -> service.listChanges(1L, 0L, 10));
+    assertEquals("Not logged in", anonymous.getMessage());
+    verifyNoInteractions(ledgerChangeMapper);
+  }
+}
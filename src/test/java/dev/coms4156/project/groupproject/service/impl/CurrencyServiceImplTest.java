@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
@@ -11,27 +12,37 @@ import static org.mockito.Mockito.verify;
 
 import dev.coms4156.project.groupproject.dto.CurrencyResponse;
 import dev.coms4156.project.groupproject.entity.Currency;
+import dev.coms4156.project.groupproject.mapper.CurrencyMapper;
+import dev.coms4156.project.groupproject.utils.CurrencyRegistry;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Spy;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 /**
  * Unit tests for {@link CurrencyServiceImpl}.
  *
  * <p>Design principles applied: - Method under test is {@link
- * CurrencyServiceImpl#getAllCurrencies()}. - External dependencies (data access via {@code list()})
- * are stubbed on a Spy to ensure isolation from database and MyBatis-Plus internals. - AAA
+ * CurrencyServiceImpl#getAllCurrencies()}. - The service reads through a real {@link
+ * CurrencyRegistry} whose {@link CurrencyMapper} is mocked, isolating it from the database. - AAA
  * structure (Arrange/Act/Assert) and clear naming are used.
  */
 @ExtendWith(MockitoExtension.class)
 class CurrencyServiceImplTest {
 
-  @Spy private CurrencyServiceImpl currencyService;
+  @Mock private CurrencyMapper currencyMapper;
+
+  private CurrencyServiceImpl currencyService;
+
+  @BeforeEach
+  void setUp() {
+    currencyService = new CurrencyServiceImpl(new CurrencyRegistry(currencyMapper));
+  }
 
   private static Currency newCurrency(String code, Integer exponent) {
     Currency c = new Currency();
@@ -46,7 +57,7 @@ class CurrencyServiceImplTest {
     // Arrange
     List<Currency> currencies =
         Arrays.asList(newCurrency("USD", 2), newCurrency("JPY", 0), newCurrency("KWD", 3));
-    doReturn(currencies).when(currencyService).list();
+    doReturn(currencies).when(currencyMapper).selectList(isNull());
 
     // Act
     CurrencyResponse response = currencyService.getAllCurrencies();
@@ -62,15 +73,15 @@ class CurrencyServiceImplTest {
     assertEquals("KWD", response.getItems().get(2).getCode());
     assertEquals(3, response.getItems().get(2).getExponent());
 
-    // Behavior verification: underlying list() called exactly once
-    verify(currencyService, times(1)).list();
+    // Behavior verification: registry loads the table exactly once
+    verify(currencyMapper, times(1)).selectList(isNull());
   }
 
   @Test
   @DisplayName("Atypical: empty list produces empty response items (loop count = 0)")
   void getAllCurrencies_emptyList_returnsEmptyItems() {
     // Arrange
-    doReturn(Collections.emptyList()).when(currencyService).list();
+    doReturn(Collections.emptyList()).when(currencyMapper).selectList(isNull());
 
     // Act
     CurrencyResponse response = currencyService.getAllCurrencies();
@@ -79,14 +90,16 @@ class CurrencyServiceImplTest {
     assertNotNull(response);
     assertNotNull(response.getItems());
     assertEquals(0, response.getItems().size());
-    verify(currencyService, times(1)).list();
+    verify(currencyMapper, times(1)).selectList(isNull());
   }
 
   @Test
   @DisplayName("Atypical: null exponent is preserved in mapping")
   void getAllCurrencies_nullExponent_preserved() {
     // Arrange
-    doReturn(Collections.singletonList(newCurrency("XXX", null))).when(currencyService).list();
+    doReturn(Collections.singletonList(newCurrency("XXX", null)))
+        .when(currencyMapper)
+        .selectList(isNull());
 
     // Act
     CurrencyResponse response = currencyService.getAllCurrencies();
@@ -96,17 +109,17 @@ class CurrencyServiceImplTest {
     assertEquals(1, response.getItems().size());
     assertEquals("XXX", response.getItems().get(0).getCode());
     assertNull(response.getItems().get(0).getExponent());
-    verify(currencyService, times(1)).list();
+    verify(currencyMapper, times(1)).selectList(isNull());
   }
 
   @Test
-  @DisplayName("Invalid: underlying list() throws and is propagated")
+  @DisplayName("Invalid: loading the currency table throws and is propagated")
   void getAllCurrencies_whenListThrows_exceptionPropagates() {
     // Arrange
-    doThrow(new RuntimeException("db down")).when(currencyService).list();
+    doThrow(new RuntimeException("db down")).when(currencyMapper).selectList(isNull());
 
     // Act + Assert
     assertThrows(RuntimeException.class, () -> currencyService.getAllCurrencies());
-    verify(currencyService, times(1)).list();
+    verify(currencyMapper, times(1)).selectList(isNull());
   }
 }
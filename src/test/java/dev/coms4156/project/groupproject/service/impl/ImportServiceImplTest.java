@@ -0,0 +1,263 @@
+package dev.coms4156.project.groupproject.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.common.util.concurrent.MoreExecutors;
+import dev.coms4156.project.groupproject.dto.CreateTransactionRequest;
+import dev.coms4156.project.groupproject.dto.ImportJobResponse;
+import dev.coms4156.project.groupproject.dto.UserView;
+import dev.coms4156.project.groupproject.entity.ImportJob;
+import dev.coms4156.project.groupproject.entity.Ledger;
+import dev.coms4156.project.groupproject.entity.LedgerMember;
+import dev.coms4156.project.groupproject.mapper.ImportJobMapper;
+import dev.coms4156.project.groupproject.mapper.LedgerMapper;
+import dev.coms4156.project.groupproject.mapper.LedgerMemberMapper;
+import dev.coms4156.project.groupproject.service.TransactionService;
+import dev.coms4156.project.groupproject.utils.CurrentUserContext;
+import jakarta.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Unit tests for {@link ImportServiceImpl}. Jobs run on a direct executor, so each import has
+ * finished by the time {@code startImport} returns.
+ */
+@ExtendWith(MockitoExtension.class)
+class ImportServiceImplTest {
+
+  @Mock private ImportJobMapper importJobMapper;
+  @Mock private LedgerMapper ledgerMapper;
+  @Mock private LedgerMemberMapper ledgerMemberMapper;
+  @Mock private TransactionService transactionService;
+
+  private ImportServiceImpl service;
+
+  @BeforeEach
+  void setUp() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    objectMapper.registerModule(new JavaTimeModule());
+    service =
+        new ImportServiceImpl(
+            importJobMapper,
+            ledgerMapper,
+            ledgerMemberMapper,
+            transactionService,
+            objectMapper,
+            Validation.buildDefaultValidatorFactory().getValidator(),
+            MoreExecutors.newDirectExecutorService(),
+            2,
+            10);
+  }
+
+  @AfterEach
+  void clear() {
+    CurrentUserContext.clear();
+  }
+
+  private void stubMemberAndJob() {
+    CurrentUserContext.set(new UserView(1L, "A"));
+    doReturn(new Ledger()).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+    doAnswer(
+            inv -> {
+              inv.<ImportJob>getArgument(0).setId(42L);
+              return 1;
+            })
+        .when(importJobMapper)
+        .insert(any(ImportJob.class));
+  }
+
+  private static InputStream content(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private List<ImportJob> jobUpdates() {
+    ArgumentCaptor<ImportJob> captor = ArgumentCaptor.forClass(ImportJob.class);
+    verify(importJobMapper, atLeastOnce()).updateById(captor.capture());
+    return captor.getAllValues();
+  }
+
+  @Test
+  @DisplayName("startImport: CSV -> valid rows written in chunks, bad rows reported by number")
+  void startImport_csv_writesChunksAndReportsRows() {
+    stubMemberAndJob();
+    List<List<CreateTransactionRequest>> chunks = new ArrayList<>();
+    doAnswer(
+            inv -> {
+              chunks.add(inv.getArgument(2));
+              return chunks.size() == 1 ? Map.of() : Map.of(0, "Currency mismatch");
+            })
+        .when(transactionService)
+        .importTransactions(eq(10L), eq(1L), anyList());
+    String csv =
+        "txn_at,type,currency,amount_total,payer_id,splits,note\r\n"
+            + "2025-01-05,EXPENSE,USD,30.00,1,1;2,\"Dinner, with \"\"friends\"\"\"\r\n"
+            + "2025-01-06T10:15:00,EXPENSE,USD,12.00,1,1;2,\r\n"
+            + "\r\n"
+            + "yesterday,EXPENSE,USD,5.00,1,2,\r\n"
+            + "2025-01-07,EXPENSE,USD,-1,1,2,\r\n"
+            + "2025-01-08,INCOME,EUR,8.00,2,1,";
+
+    ImportJobResponse response = service.startImport(10L, "csv", content(csv));
+
+    assertEquals(42L, response.getJobId());
+    assertEquals("PENDING", response.getStatus());
+    assertEquals(2, chunks.size());
+    assertEquals(2, chunks.get(0).size());
+    assertEquals(1, chunks.get(1).size());
+    CreateTransactionRequest first = chunks.get(0).get(0);
+    assertEquals(LocalDateTime.of(2025, 1, 5, 0, 0), first.getTxnAt());
+    assertEquals("Dinner, with \"friends\"", first.getNote());
+    assertEquals(2, first.getSplits().size());
+    assertEquals("EQUAL", first.getSplits().get(1).getSplitMethod());
+    assertEquals(new BigDecimal("12.00"), chunks.get(0).get(1).getAmountTotal());
+
+    List<ImportJob> updates = jobUpdates();
+    ImportJob last = updates.get(updates.size() - 1);
+    assertEquals("COMPLETED", last.getStatus());
+    assertEquals(5, last.getTotalRows());
+    assertEquals(2, last.getImportedRows());
+    assertEquals(3, last.getFailedRows());
+    assertTrue(last.getErrorJson().contains("\"row\":3,\"message\":\"Invalid txn_at: yesterday\""));
+    assertTrue(last.getErrorJson().contains("\"row\":4,\"message\":\"Amount must be positive\""));
+    assertTrue(last.getErrorJson().contains("\"row\":5,\"message\":\"Currency mismatch\""));
+  }
+
+  @Test
+  @DisplayName("startImport: CSV without a required column -> job FAILED, nothing written")
+  void startImport_csvMissingColumn_fails() {
+    stubMemberAndJob();
+
+    service.startImport(10L, "CSV", content("txn_at,type,currency,amount_total,payer_id\n"));
+
+    verify(transactionService, never()).importTransactions(any(), any(), any());
+    ImportJob last = jobUpdates().get(jobUpdates().size() - 1);
+    assertEquals("FAILED", last.getStatus());
+    assertTrue(last.getErrorJson().contains("Missing CSV column: splits"));
+  }
+
+  @Test
+  @DisplayName("startImport: NDJSON -> one request per line, malformed lines rejected")
+  void startImport_ndjson_parsesLines() {
+    stubMemberAndJob();
+    doReturn(Map.of()).when(transactionService).importTransactions(eq(10L), eq(1L), anyList());
+    String ndjson =
+        "{\"txnAt\":\"2025-01-05T12:00:00\",\"type\":\"EXPENSE\",\"currency\":\"USD\","
+            + "\"amountTotal\":20.00,\"payerId\":1,"
+            + "\"splits\":[{\"userId\":2,\"splitMethod\":\"EQUAL\",\"shareValue\":0}]}\n"
+            + "\n"
+            + "{\"txnAt\":\n";
+
+    service.startImport(10L, "NDJSON", content(ndjson));
+
+    ImportJob last = jobUpdates().get(jobUpdates().size() - 1);
+    assertEquals("COMPLETED", last.getStatus());
+    assertEquals(2, last.getTotalRows());
+    assertEquals(1, last.getImportedRows());
+    assertTrue(last.getErrorJson().contains("\"row\":2,\"message\":\"Malformed JSON"));
+  }
+
+  @Test
+  @DisplayName("startImport: chunk write fails -> job FAILED with the counts reached")
+  void startImport_chunkFailure_failsJob() {
+    stubMemberAndJob();
+    doReturn(Map.of())
+        .doThrow(new RuntimeException("User not a member of this ledger"))
+        .when(transactionService)
+        .importTransactions(eq(10L), eq(1L), anyList());
+    String csv =
+        "txn_at,type,currency,amount_total,payer_id,splits\n"
+            + "2025-01-05,EXPENSE,USD,1.00,1,2\n"
+            + "2025-01-06,EXPENSE,USD,2.00,1,2\n"
+            + "2025-01-07,EXPENSE,USD,3.00,1,2\n";
+
+    service.startImport(10L, "CSV", content(csv));
+
+    verify(transactionService, times(2)).importTransactions(eq(10L), eq(1L), anyList());
+    ImportJob last = jobUpdates().get(jobUpdates().size() - 1);
+    assertEquals("FAILED", last.getStatus());
+    assertEquals(2, last.getImportedRows());
+    assertTrue(last.getErrorJson().startsWith("[{\"row\":null,\"message\":\"User not a member"));
+  }
+
+  @Test
+  @DisplayName("startImport: unsupported format -> rejected before a job is created")
+  void startImport_unsupportedFormat_throws() {
+    CurrentUserContext.set(new UserView(1L, "A"));
+
+    RuntimeException ex =
+        assertThrows(RuntimeException.class, () -> service.startImport(10L, "XLSX", content("")));
+
+    assertEquals("Unsupported import format: XLSX", ex.getMessage());
+    verify(importJobMapper, never()).insert(any(ImportJob.class));
+  }
+
+  @Test
+  @DisplayName("startImport: not a member -> rejected before a job is created")
+  void startImport_notMember_throws() {
+    CurrentUserContext.set(new UserView(1L, "A"));
+    doReturn(new Ledger()).when(ledgerMapper).selectById(10L);
+    doReturn(null).when(ledgerMemberMapper).selectOne(any());
+
+    RuntimeException ex =
+        assertThrows(RuntimeException.class, () -> service.startImport(10L, "CSV", content("")));
+
+    assertEquals("User not a member of this ledger", ex.getMessage());
+    verify(importJobMapper, never()).insert(any(ImportJob.class));
+  }
+
+  @Test
+  @DisplayName("getImportJob: own job -> counts and parsed errors; other user's job -> not found")
+  void getImportJob_ownerOnly() {
+    CurrentUserContext.set(new UserView(1L, "A"));
+    ImportJob job = new ImportJob();
+    job.setId(42L);
+    job.setUserId(1L);
+    job.setLedgerId(10L);
+    job.setStatus("COMPLETED");
+    job.setFailedRows(1);
+    job.setErrorJson("[{\"row\":7,\"message\":\"Currency mismatch\"}]");
+    doReturn(job).when(importJobMapper).selectById(42L);
+
+    ImportJobResponse response = service.getImportJob(10L, 42L);
+
+    assertEquals("COMPLETED", response.getStatus());
+    assertEquals(1, response.getErrors().size());
+    assertEquals(7, response.getErrors().get(0).getRow());
+    assertEquals("Currency mismatch", response.getErrors().get(0).getMessage());
+    assertNull(response.getFinishedAt());
+
+    CurrentUserContext.set(new UserView(2L, "B"));
+    RuntimeException ex =
+        assertThrows(RuntimeException.class, () -> service.getImportJob(10L, 42L));
+    assertEquals("Import job not found", ex.getMessage());
+  }
+}
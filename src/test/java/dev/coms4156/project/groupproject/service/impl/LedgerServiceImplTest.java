@@ -3,46 +3,88 @@ package dev.coms4156.project.groupproject.service.impl;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import dev.coms4156.project.groupproject.dto.AddLedgerMemberRequest;
+import dev.coms4156.project.groupproject.dto.BalanceRebuildReport;
 import dev.coms4156.project.groupproject.dto.CreateCategoryRequest;
 import dev.coms4156.project.groupproject.dto.CreateLedgerRequest;
+import dev.coms4156.project.groupproject.dto.ExecuteSettlementRequest;
+import dev.coms4156.project.groupproject.dto.GlobalSettleUpRequest;
+import dev.coms4156.project.groupproject.dto.GlobalSettleUpResponse;
 import dev.coms4156.project.groupproject.dto.LedgerMemberResponse;
 import dev.coms4156.project.groupproject.dto.LedgerResponse;
 import dev.coms4156.project.groupproject.dto.ListLedgerMembersResponse;
 import dev.coms4156.project.groupproject.dto.MyLedgersResponse;
+import dev.coms4156.project.groupproject.dto.NetBalanceRow;
+import dev.coms4156.project.groupproject.dto.SettlementComparisonRequest;
+import dev.coms4156.project.groupproject.dto.SettlementComparisonResponse;
 import dev.coms4156.project.groupproject.dto.SettlementConfig;
+import dev.coms4156.project.groupproject.dto.SettlementExecutionResponse;
 import dev.coms4156.project.groupproject.dto.SettlementPlanResponse;
 import dev.coms4156.project.groupproject.dto.UserView;
-import dev.coms4156.project.groupproject.entity.Currency;
 import dev.coms4156.project.groupproject.entity.DebtEdge;
 import dev.coms4156.project.groupproject.entity.Ledger;
 import dev.coms4156.project.groupproject.entity.LedgerMember;
+import dev.coms4156.project.groupproject.entity.LedgerUserBalance;
+import dev.coms4156.project.groupproject.entity.Settlement;
+import dev.coms4156.project.groupproject.entity.SettlementBatch;
 import dev.coms4156.project.groupproject.entity.User;
 import dev.coms4156.project.groupproject.mapper.CategoryMapper;
-import dev.coms4156.project.groupproject.mapper.CurrencyMapper;
 import dev.coms4156.project.groupproject.mapper.DebtEdgeMapper;
+import dev.coms4156.project.groupproject.mapper.LedgerMapper;
 import dev.coms4156.project.groupproject.mapper.LedgerMemberMapper;
+import dev.coms4156.project.groupproject.mapper.LedgerUserBalanceMapper;
+import dev.coms4156.project.groupproject.mapper.SettlementBatchMapper;
+import dev.coms4156.project.groupproject.mapper.SettlementMapper;
 import dev.coms4156.project.groupproject.mapper.UserMapper;
+import dev.coms4156.project.groupproject.service.ChangeFeedService;
+import dev.coms4156.project.groupproject.settlement.IncrementalSettlementPlanner;
+import dev.coms4156.project.groupproject.settlement.SettlementPlanCache;
+import dev.coms4156.project.groupproject.settlement.ZeroSumSubsetSolver;
+import dev.coms4156.project.groupproject.utils.CurrencyRegistry;
 import dev.coms4156.project.groupproject.utils.CurrentUserContext;
+import dev.coms4156.project.groupproject.utils.ExchangeRateRegistry;
+import dev.coms4156.project.groupproject.utils.LedgerMembershipCache;
+import dev.coms4156.project.groupproject.utils.UserNameCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -50,13 +92,17 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
 
 /**
  * Unit tests for {@link LedgerServiceImpl}.
  *
  * <p>Approach: Spy the service to stub MyBatis-Plus inherited methods (save, getById). Mock mappers
  * (LedgerMemberMapper, UserMapper). Stub CurrentUserContext for auth. Cover
- * typical/atypical/invalid paths with AAA structure.
+ * typical/atypical/invalid paths with AAA structure. The injected plan cache is disabled so every
+ * call recomputes and user names come from a mocked name cache; caching and query-count tests build
+ * their own service with real caches.
  */
 @ExtendWith(MockitoExtension.class)
 @SuppressWarnings("unchecked")
@@ -65,11 +111,39 @@ class LedgerServiceImplTest {
   @Mock private LedgerMemberMapper ledgerMemberMapper;
   @Mock private UserMapper userMapper;
   @Mock private DebtEdgeMapper debtEdgeMapper;
-  @Mock private CurrencyMapper currencyMapper;
+  @Mock private CurrencyRegistry currencyRegistry;
   @Mock private CategoryMapper categoryMapper;
+  @Mock private LedgerUserBalanceMapper ledgerUserBalanceMapper;
+  @Mock private LedgerMapper ledgerMapper;
+  @Mock private UserNameCache userNameCache;
+  @Mock private SettlementMapper settlementMapper;
+  @Mock private SettlementBatchMapper settlementBatchMapper;
+  @Mock private ExchangeRateRegistry exchangeRateRegistry;
+  @Mock private ChangeFeedService changeFeedService;
+
+  @Spy
+  private LedgerMembershipCache membershipCache =
+      new LedgerMembershipCache(new SimpleMeterRegistry(), mock(StringRedisTemplate.class), 0, 300);
+
+  @Spy
+  private SettlementPlanCache settlementPlanCache =
+      new SettlementPlanCache(new SimpleMeterRegistry(), 0);
+
+  @Spy private ZeroSumSubsetSolver zeroSumSubsetSolver = new ZeroSumSubsetSolver(24, 5000);
+
+  @Spy private ExecutorService settlementExecutor = new CallerRunsExecutor();
+
+  @Spy
+  private IncrementalSettlementPlanner incrementalSettlementPlanner =
+      new IncrementalSettlementPlanner(new SimpleMeterRegistry(), 0, 2);
 
   @Spy @InjectMocks private LedgerServiceImpl service;
 
+  @BeforeEach
+  void wireBaseMapper() {
+    ReflectionTestUtils.setField(service, "baseMapper", ledgerMapper);
+  }
+
   @AfterEach
   void clearContext() {
     CurrentUserContext.clear();
@@ -101,6 +175,12 @@ class LedgerServiceImplTest {
     return l;
   }
 
+  /** Mark a ledger's balance snapshot as seeded, so settlement planning reads it. */
+  private static Ledger seeded(Ledger l) {
+    l.setBalancesInitialized(true);
+    return l;
+  }
+
   private static LedgerMember member(long ledgerId, long userId, String role) {
     LedgerMember m = new LedgerMember();
     m.setLedgerId(ledgerId);
@@ -267,6 +347,8 @@ class LedgerServiceImplTest {
     assertEquals(2L, resp.getUserId());
     assertEquals("EDITOR", resp.getRole());
     verify(ledgerMemberMapper, times(1)).insert(any(LedgerMember.class));
+    verify(ledgerMapper, times(1)).bumpPlanVersion(10L);
+    verify(membershipCache).invalidate(10L, 2L);
   }
 
   @Test
@@ -409,6 +491,8 @@ class LedgerServiceImplTest {
 
     verify(ledgerMemberMapper, times(1))
         .delete(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    verify(ledgerMapper, times(1)).bumpPlanVersion(10L);
+    verify(membershipCache).invalidate(10L, 2L);
   }
 
   @Test
@@ -492,13 +576,6 @@ class LedgerServiceImplTest {
     return edge;
   }
 
-  private static Currency currency(String code, int exponent) {
-    Currency c = new Currency();
-    c.setCode(code);
-    c.setExponent(exponent);
-    return c;
-  }
-
   private static User user(long id, String name) {
     User u = new User();
     u.setId(id);
@@ -506,23 +583,61 @@ class LedgerServiceImplTest {
     return u;
   }
 
+  /** Stub the ledger's debt edges as the per-member, per-currency sums MySQL would return. */
+  private void stubEdges(long ledgerId, List<DebtEdge> edges) {
+    doReturn(sumNet(edges)).when(debtEdgeMapper).sumNetByLedgerId(ledgerId);
+  }
+
+  /** In-memory equivalent of {@code DebtEdgeMapper.sumNetByLedgerId}. */
+  private static List<NetBalanceRow> sumNet(List<DebtEdge> edges) {
+    Map<String, NetBalanceRow> rows = new TreeMap<>();
+    for (DebtEdge edge : edges) {
+      addNet(rows, edge.getFromUserId(), edge.getEdgeCurrency(), edge.getAmount());
+      addNet(rows, edge.getToUserId(), edge.getEdgeCurrency(), edge.getAmount().negate());
+    }
+    return new ArrayList<>(rows.values());
+  }
+
+  private static void addNet(
+      Map<String, NetBalanceRow> rows, Long userId, String currency, BigDecimal amount) {
+    NetBalanceRow row =
+        rows.computeIfAbsent(
+            String.format("%019d-%s", userId, currency),
+            k -> {
+              NetBalanceRow r = new NetBalanceRow();
+              r.setUserId(userId);
+              r.setEdgeCurrency(currency);
+              r.setNetAmount(BigDecimal.ZERO);
+              return r;
+            });
+    row.setNetAmount(row.getNetAmount().add(amount));
+  }
+
+  private void stubUsers(User... users) {
+    Map<Long, String> names = new HashMap<>();
+    for (User u : users) {
+      names.put(u.getId(), u.getName());
+    }
+    doReturn(names).when(userNameCache).getNames(any());
+  }
+
   @Test
   @DisplayName("getSettlementPlan: typical single debt -> returns one transfer")
   void getSettlementPlan_typicalSingleDebt() {
     CurrentUserContext.set(new UserView(1L, "Alice"));
 
     doReturn(ledger(10L, "Family")).when(service).getById(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
     doReturn(member(10L, 1L, "OWNER"))
         .when(ledgerMemberMapper)
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("25.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
     SettlementPlanResponse resp = service.getSettlementPlan(10L);
 
@@ -544,18 +659,18 @@ class LedgerServiceImplTest {
     CurrentUserContext.set(new UserView(1L, "Alice"));
 
     doReturn(ledger(10L, "Family")).when(service).getById(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
     doReturn(member(10L, 1L, "OWNER"))
         .when(ledgerMemberMapper)
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("20.00"));
     DebtEdge edge2 = debtEdge(10L, 2L, 2L, 1L, new BigDecimal("40.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
     SettlementPlanResponse resp = service.getSettlementPlan(10L);
 
@@ -574,6 +689,7 @@ class LedgerServiceImplTest {
     CurrentUserContext.set(new UserView(1L, "Alice"));
 
     doReturn(ledger(10L, "Family")).when(service).getById(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
     doReturn(member(10L, 1L, "OWNER"))
         .when(ledgerMemberMapper)
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
@@ -581,14 +697,12 @@ class LedgerServiceImplTest {
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("25.00"));
     DebtEdge edge2 = debtEdge(10L, 2L, 1L, 3L, new BigDecimal("30.00"));
     DebtEdge edge3 = debtEdge(10L, 3L, 2L, 3L, new BigDecimal("20.00"));
-    doReturn(Arrays.asList(edge1, edge2, edge3)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2, edge3));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
+    stubUsers(alice, bob, charlie);
 
     SettlementPlanResponse resp = service.getSettlementPlan(10L);
 
@@ -612,7 +726,7 @@ class LedgerServiceImplTest {
         .when(ledgerMemberMapper)
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
-    doReturn(Collections.emptyList()).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Collections.emptyList());
 
     SettlementPlanResponse resp = service.getSettlementPlan(10L);
 
@@ -635,7 +749,7 @@ class LedgerServiceImplTest {
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("25.00"));
     DebtEdge edge2 = debtEdge(10L, 2L, 2L, 1L, new BigDecimal("25.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     SettlementPlanResponse resp = service.getSettlementPlan(10L);
 
@@ -650,6 +764,7 @@ class LedgerServiceImplTest {
     CurrentUserContext.set(new UserView(1L, "Alice"));
 
     doReturn(ledger(10L, "Family")).when(service).getById(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
     doReturn(member(10L, 1L, "OWNER"))
         .when(ledgerMemberMapper)
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
@@ -657,12 +772,11 @@ class LedgerServiceImplTest {
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("10.00"));
     DebtEdge edge2 = debtEdge(10L, 2L, 1L, 3L, new BigDecimal("10.00"));
     DebtEdge edge3 = debtEdge(10L, 3L, 2L, 3L, new BigDecimal("10.00"));
-    doReturn(Arrays.asList(edge1, edge2, edge3)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2, edge3));
 
     User alice = user(1L, "Alice");
     User charlie = user(3L, "Charlie");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(charlie).when(userMapper).selectById(3L);
+    stubUsers(alice, charlie);
 
     SettlementPlanResponse resp = service.getSettlementPlan(10L);
 
@@ -706,6 +820,7 @@ class LedgerServiceImplTest {
     CurrentUserContext.set(new UserView(1L, "Alice"));
 
     doReturn(ledger(10L, "Family")).when(service).getById(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
     doReturn(member(10L, 1L, "OWNER"))
         .when(ledgerMemberMapper)
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
@@ -716,18 +831,14 @@ class LedgerServiceImplTest {
             debtEdge(10L, 2L, 2L, 3L, new BigDecimal("15.00")),
             debtEdge(10L, 3L, 3L, 4L, new BigDecimal("20.00")),
             debtEdge(10L, 4L, 4L, 5L, new BigDecimal("25.00")));
-    doReturn(edges).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, edges);
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
     User david = user(4L, "David");
     User eve = user(5L, "Eve");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
-    doReturn(david).when(userMapper).selectById(4L);
-    doReturn(eve).when(userMapper).selectById(5L);
+    stubUsers(alice, bob, charlie, david, eve);
 
     SettlementPlanResponse resp = service.getSettlementPlan(10L);
 
@@ -757,16 +868,14 @@ class LedgerServiceImplTest {
 
     // Edge in EUR, needs conversion to USD (1 EUR = 1.1 USD)
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"), "EUR");
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
     // Mock currency
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     Map<String, BigDecimal> rates = new HashMap<>();
@@ -793,15 +902,13 @@ class LedgerServiceImplTest {
 
     // Amount that needs rounding: 25.555
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("25.555"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setRoundingStrategy("ROUND_HALF_UP");
@@ -825,15 +932,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("25.999"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setRoundingStrategy("TRIM_TO_UNIT");
@@ -858,15 +963,13 @@ class LedgerServiceImplTest {
 
     BigDecimal exactAmount = new BigDecimal("25.123456789");
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, exactAmount);
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setRoundingStrategy("NONE");
@@ -891,15 +994,13 @@ class LedgerServiceImplTest {
 
     // Large debt that should be split into multiple capped transfers
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("5000.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setMaxTransferAmount(new BigDecimal("1000.00"));
@@ -938,12 +1039,11 @@ class LedgerServiceImplTest {
     // Settlement should be: Bob->Alice 25, Charlie->Alice 30
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("25.00")); // 1 owed by 2
     DebtEdge edge2 = debtEdge(10L, 2L, 1L, 3L, new BigDecimal("30.00")); // 1 owed by 3
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
     // User 3 (Charlie) may not be used if algorithm can't find valid path around blocked channel
     // Currency mapper may not be called if no transfers are created
 
@@ -986,21 +1086,16 @@ class LedgerServiceImplTest {
             debtEdge(10L, 2L, 2L, 3L, new BigDecimal("15.00")),
             debtEdge(10L, 3L, 3L, 4L, new BigDecimal("20.00")),
             debtEdge(10L, 4L, 4L, 5L, new BigDecimal("25.00")));
-    doReturn(edges).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, edges);
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
     User david = user(4L, "David");
     User eve = user(5L, "Eve");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
-    doReturn(david).when(userMapper).selectById(4L);
-    doReturn(eve).when(userMapper).selectById(5L);
+    stubUsers(alice, bob, charlie, david, eve);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(true);
@@ -1029,16 +1124,14 @@ class LedgerServiceImplTest {
         Arrays.asList(
             debtEdge(10L, 1L, 1L, 2L, new BigDecimal("10.00")),
             debtEdge(10L, 2L, 2L, 3L, new BigDecimal("10.00")));
-    doReturn(edges).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, edges);
 
     // Mock only users that will actually be used in settlement
     // Net balances: User1 = +10 (creditor), User2 = 0 (netted), User3 = -10 (debtor)
     // So only User1 and User3 will be in queues
-    doReturn(user(1L, "User1")).when(userMapper).selectById(1L);
-    doReturn(user(3L, "User3")).when(userMapper).selectById(3L);
+    stubUsers(user(1L, "User1"), user(3L, "User3"));
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setMinCostFlowThreshold(5); // If heap-greedy produces >5 transfers, use min-cost flow
@@ -1062,15 +1155,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("1500.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setRoundingStrategy("ROUND_HALF_UP");
@@ -1107,15 +1198,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("25.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     // Pass null config - should use defaults
     SettlementPlanResponse resp = service.getSettlementPlan(10L, null);
@@ -1141,15 +1230,13 @@ class LedgerServiceImplTest {
 
     // Edge in USD, same as base currency (no conversion needed)
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"), "USD");
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     Map<String, BigDecimal> rates = new HashMap<>();
@@ -1164,7 +1251,7 @@ class LedgerServiceImplTest {
   }
 
   @Test
-  @DisplayName("getSettlementPlan: convertCurrency - config null -> uses 1:1 rate")
+  @DisplayName("getSettlementPlan: convertCurrency - config null -> uses server-side rate")
   void getSettlementPlan_convertCurrencyConfigNull() {
     CurrentUserContext.set(new UserView(1L, "Alice"));
     Ledger ledger = ledger(10L, "USD");
@@ -1174,29 +1261,29 @@ class LedgerServiceImplTest {
         .when(ledgerMemberMapper)
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
-    // Edge in EUR, but config is null (should use 1:1 fallback)
+    // Edge in EUR, config is null: the server-side rate (1 EUR = 1.1 USD) applies
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"), "EUR");
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
+    doAnswer(inv -> ((BigDecimal) inv.getArgument(0)).multiply(new BigDecimal("1.1")))
+        .when(exchangeRateRegistry)
+        .convert(any(BigDecimal.class), eq("EUR"), eq("USD"));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     // Pass null config
     SettlementPlanResponse resp = service.getSettlementPlan(10L, null);
 
     assertNotNull(resp);
     assertEquals(1, resp.getTransferCount());
-    // Should use 1:1 fallback (100 EUR = 100 USD)
-    assertEquals(new BigDecimal("100.00"), resp.getTransfers().get(0).getAmount());
+    assertEquals(new BigDecimal("110.00"), resp.getTransfers().get(0).getAmount());
   }
 
   @Test
-  @DisplayName("getSettlementPlan: convertCurrency - currencyRates null -> uses 1:1 rate")
+  @DisplayName("getSettlementPlan: convertCurrency - no rate anywhere -> CURRENCY_RATE_MISSING")
   void getSettlementPlan_convertCurrencyRatesNull() {
     CurrentUserContext.set(new UserView(1L, "Alice"));
     Ledger ledger = ledger(10L, "USD");
@@ -1207,25 +1294,17 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"), "EUR");
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
-
-    User alice = user(1L, "Alice");
-    User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    stubEdges(10L, Arrays.asList(edge1));
+    doThrow(new RuntimeException("CURRENCY_RATE_MISSING: EUR-USD"))
+        .when(exchangeRateRegistry)
+        .convert(any(BigDecimal.class), eq("EUR"), eq("USD"));
 
     SettlementConfig config = new SettlementConfig();
     config.setCurrencyRates(null); // currencyRates is null
 
-    SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
-
-    assertNotNull(resp);
-    assertEquals(1, resp.getTransferCount());
-    // Should use 1:1 fallback
-    assertEquals(new BigDecimal("100.00"), resp.getTransfers().get(0).getAmount());
+    RuntimeException ex =
+        assertThrows(RuntimeException.class, () -> service.getSettlementPlan(10L, config));
+    assertEquals("CURRENCY_RATE_MISSING: EUR-USD", ex.getMessage());
   }
 
   @Test
@@ -1241,15 +1320,13 @@ class LedgerServiceImplTest {
 
     // Edge in EUR, needs conversion to USD
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"), "EUR");
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     Map<String, BigDecimal> rates = new HashMap<>();
@@ -1276,15 +1353,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.123456"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     // Pass null config - should use default rounding
     SettlementPlanResponse resp = service.getSettlementPlan(10L, null);
@@ -1307,15 +1382,14 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.123456"), "UNKNOWN");
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
     // Currency not found - should return null
-    doReturn(null).when(currencyMapper).selectById("UNKNOWN");
+    doReturn(null).when(currencyRegistry).exponentOf("UNKNOWN");
 
     SettlementConfig config = new SettlementConfig();
     config.setRoundingStrategy("ROUND_HALF_UP");
@@ -1339,15 +1413,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.123456"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setRoundingStrategy("INVALID_STRATEGY"); // Invalid strategy
@@ -1373,17 +1445,14 @@ class LedgerServiceImplTest {
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 2L, 3L, new BigDecimal("30.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
+    stubUsers(alice, bob, charlie);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(false); // Explicitly false
@@ -1411,17 +1480,14 @@ class LedgerServiceImplTest {
     // This way min-cost flow won't be better
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 2L, 3L, new BigDecimal("30.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
+    stubUsers(alice, bob, charlie);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(false);
@@ -1446,15 +1512,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     // Config is null - should allow all payment channels
     SettlementPlanResponse resp = service.getSettlementPlan(10L, null);
@@ -1474,15 +1538,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setPaymentChannels(null); // paymentChannels is null
@@ -1504,15 +1566,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     Map<String, Set<String>> channels = new HashMap<>();
@@ -1538,17 +1598,14 @@ class LedgerServiceImplTest {
     // Create multiple edges so we can still settle even if 1-2 is blocked
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 2L, 3L, new BigDecimal("50.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
+    stubUsers(alice, bob, charlie);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     Map<String, Set<String>> channels = new HashMap<>();
@@ -1575,15 +1632,13 @@ class LedgerServiceImplTest {
 
     DebtEdge edge1 =
         debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"), null); // edgeCurrency is null
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementPlanResponse resp = service.getSettlementPlan(10L, null);
 
@@ -1594,7 +1649,7 @@ class LedgerServiceImplTest {
 
   @Test
   @DisplayName(
-      "getSettlementPlan: processSettlementsWithConstraints - transferAmount zero -> breaks")
+      "getSettlementPlan: processSettlementsWithConstraints - transferAmount zero -> residue dropped")
   void getSettlementPlan_transferAmountZero() {
     CurrentUserContext.set(new UserView(1L, "Alice"));
     Ledger ledger = ledger(10L, "USD");
@@ -1605,15 +1660,13 @@ class LedgerServiceImplTest {
 
     // Create edges that result in zero balance after rounding
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("0.001")); // Very small amount
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setRoundingStrategy("TRIM_TO_UNIT"); // This might round to zero
@@ -1703,19 +1756,15 @@ class LedgerServiceImplTest {
     edges.add(debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00")));
     edges.add(debtEdge(10L, 1L, 2L, 3L, new BigDecimal("30.00")));
     edges.add(debtEdge(10L, 1L, 3L, 4L, new BigDecimal("20.00")));
-    doReturn(edges).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, edges);
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
     User david = user(4L, "David");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
-    doReturn(david).when(userMapper).selectById(4L);
+    stubUsers(alice, bob, charlie, david);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(true); // Force min-cost flow
@@ -1740,17 +1789,14 @@ class LedgerServiceImplTest {
     List<DebtEdge> edges = new ArrayList<>();
     edges.add(debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00")));
     edges.add(debtEdge(10L, 1L, 2L, 3L, new BigDecimal("50.00")));
-    doReturn(edges).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, edges);
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
+    stubUsers(alice, bob, charlie);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(true);
@@ -1773,15 +1819,13 @@ class LedgerServiceImplTest {
 
     // Create debt where creditor is fully paid
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(true);
@@ -1804,15 +1848,13 @@ class LedgerServiceImplTest {
 
     // Create debt where debtor fully pays
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(true);
@@ -1836,17 +1878,14 @@ class LedgerServiceImplTest {
     // Create debt where creditor has remaining balance after transfer
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("150.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 2L, 3L, new BigDecimal("50.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
+    stubUsers(alice, bob, charlie);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementPlanResponse resp = service.getSettlementPlan(10L, null);
 
@@ -1867,17 +1906,14 @@ class LedgerServiceImplTest {
     // Create debt where debtor has remaining balance after transfer
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 3L, 2L, new BigDecimal("150.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
+    stubUsers(alice, bob, charlie);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementPlanResponse resp = service.getSettlementPlan(10L, null);
 
@@ -1886,7 +1922,7 @@ class LedgerServiceImplTest {
   }
 
   @Test
-  @DisplayName("processSettlementsWithConstraints: transferAmount <= 0 -> breaks")
+  @DisplayName("processSettlementsWithConstraints: transferAmount <= 0 -> nothing left open")
   void getSettlementPlan_transferAmountZeroOrNegative_breaks() {
     CurrentUserContext.set(new UserView(1L, "Alice"));
     Ledger ledger = ledger(10L, "USD");
@@ -1897,15 +1933,13 @@ class LedgerServiceImplTest {
 
     // Create very small debt that might round to zero
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("0.001"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setRoundingStrategy("TRIM_TO_UNIT");
@@ -1913,13 +1947,15 @@ class LedgerServiceImplTest {
     SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
 
     assertNotNull(resp);
-    // Should handle gracefully
-    assertTrue(resp.getTransferCount() >= 0);
+    // 0.001 is below one cent, so it is neither transferred nor reported as open
+    assertEquals(0, resp.getTransferCount());
+    assertTrue(resp.getUnsettled().isEmpty());
   }
 
   @Test
-  @DisplayName("processSettlementsWithConstraints: triedPairs size limit reached -> breaks")
-  void getSettlementPlan_triedPairsLimitReached_breaks() {
+  @DisplayName(
+      "processSettlementsWithConstraints: direct channels blocked -> rest reported unsettled")
+  void getSettlementPlan_directChannelsBlocked_reportsUnsettled() {
     CurrentUserContext.set(new UserView(1L, "Alice"));
     Ledger ledger = ledger(10L, "USD");
     doReturn(ledger).when(service).getById(10L);
@@ -1930,19 +1966,15 @@ class LedgerServiceImplTest {
     // Create debt structure with blocked payment channels
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 3L, 4L, new BigDecimal("50.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
     User david = user(4L, "David");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
-    doReturn(david).when(userMapper).selectById(4L);
+    stubUsers(alice, bob, charlie, david);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     Map<String, Set<String>> channels = new HashMap<>();
     // Block all channels to trigger triedPairs limit
@@ -1956,13 +1988,18 @@ class LedgerServiceImplTest {
     SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
 
     assertNotNull(resp);
-    // Should handle gracefully even when all channels are blocked
-    assertTrue(resp.getTransferCount() >= 0);
+    // Only the cross pairs 4 -> 1 and 2 -> 3 are open, so 50 of Bob's debt to Alice is stuck
+    assertEquals(2, resp.getTransferCount());
+    Map<Long, BigDecimal> open = new HashMap<>();
+    for (SettlementPlanResponse.UnsettledItem item : resp.getUnsettled()) {
+      open.put(item.getUserId(), item.getAmount());
+    }
+    assertEquals(Map.of(1L, new BigDecimal("50.00"), 2L, new BigDecimal("-50.00")), open);
   }
 
   @Test
-  @DisplayName("processSettlementsWithConstraints: iterations >= maxIterations -> breaks")
-  void getSettlementPlan_maxIterationsReached_breaks() {
+  @DisplayName("processSettlementsWithConstraints: small cap -> settles fully in capped transfers")
+  void getSettlementPlan_smallCap_settlesFully() {
     CurrentUserContext.set(new UserView(1L, "Alice"));
     Ledger ledger = ledger(10L, "USD");
     doReturn(ledger).when(service).getById(10L);
@@ -1973,17 +2010,14 @@ class LedgerServiceImplTest {
     // Create simpler debt structure that will process normally
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 2L, 3L, new BigDecimal("30.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
+    stubUsers(alice, bob, charlie);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setMaxTransferAmount(new BigDecimal("10.00")); // Small cap to create multiple transfers
@@ -1991,8 +2025,9 @@ class LedgerServiceImplTest {
     SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
 
     assertNotNull(resp);
-    // Should handle gracefully with capped transfers
-    assertTrue(resp.getTransferCount() > 0);
+    // Alice is owed 50 by Bob (20) and Charlie (30): five transfers of at most 10
+    assertEquals(5, resp.getTransferCount());
+    assertTrue(resp.getUnsettled().isEmpty());
   }
 
   @Test
@@ -2009,7 +2044,7 @@ class LedgerServiceImplTest {
     // When balance == 0, user is not queried (balance.compareTo(ZERO) > 0 and < 0 both false)
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 2L, 1L, new BigDecimal("50.00")); // Reverse edge
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     // Currency mapper might be called in applyRounding, but if no transfers, might not be called
     // Let's not stub it to avoid unnecessary stubbing
@@ -2037,17 +2072,14 @@ class LedgerServiceImplTest {
     // Create debt structure that will fully pay a creditor
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 3L, 1L, new BigDecimal("50.00")); // Reverse
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
+    stubUsers(alice, bob, charlie);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(true);
@@ -2070,19 +2102,15 @@ class LedgerServiceImplTest {
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 3L, 4L, new BigDecimal("50.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
     User david = user(4L, "David");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
-    doReturn(david).when(userMapper).selectById(4L);
+    stubUsers(alice, bob, charlie, david);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(true);
@@ -2109,15 +2137,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(true);
@@ -2144,17 +2170,14 @@ class LedgerServiceImplTest {
     // Creditor has more than debtor
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("150.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 2L, 3L, new BigDecimal("50.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
+    stubUsers(alice, bob, charlie);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(true);
@@ -2178,17 +2201,14 @@ class LedgerServiceImplTest {
     // Debtor has more than creditor
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 3L, 2L, new BigDecimal("150.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
+    stubUsers(alice, bob, charlie);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(true);
@@ -2213,7 +2233,7 @@ class LedgerServiceImplTest {
     // When balances cancel, both queues will be empty
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 2L, 1L, new BigDecimal("50.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     // When balance == 0, users are not queried, so no currency mapper needed either
     SettlementPlanResponse resp = service.getSettlementPlan(10L, null);
@@ -2236,19 +2256,15 @@ class LedgerServiceImplTest {
     // Create debt with one blocked channel, but not enough to hit limit
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 3L, 4L, new BigDecimal("50.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
     User david = user(4L, "David");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
-    doReturn(david).when(userMapper).selectById(4L);
+    stubUsers(alice, bob, charlie, david);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     Map<String, Set<String>> channels = new HashMap<>();
@@ -2273,15 +2289,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementPlanResponse resp = service.getSettlementPlan(10L, null);
 
@@ -2301,15 +2315,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setMinCostFlowThreshold(null); // Null threshold
@@ -2332,15 +2344,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setMinCostFlowThreshold(10); // Threshold is 10, but we only have 1 transfer
@@ -2364,15 +2374,13 @@ class LedgerServiceImplTest {
 
     // Create debt where creditor is fully paid
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementPlanResponse resp = service.getSettlementPlan(10L, null);
 
@@ -2392,15 +2400,13 @@ class LedgerServiceImplTest {
 
     // Create debt where debtor fully pays
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementPlanResponse resp = service.getSettlementPlan(10L, null);
 
@@ -2422,15 +2428,13 @@ class LedgerServiceImplTest {
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
     edge1.setEdgeCurrency(null); // Null currency
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementPlanResponse resp = service.getSettlementPlan(10L, null);
 
@@ -2451,15 +2455,13 @@ class LedgerServiceImplTest {
 
     // User 2 owes user 1
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(true);
@@ -2482,15 +2484,13 @@ class LedgerServiceImplTest {
 
     // User 1 is owed by user 2
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(true);
@@ -2515,15 +2515,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.129"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setRoundingStrategy("TRIM_TO_UNIT"); // Rounds down
@@ -2547,15 +2545,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.125"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setRoundingStrategy("ROUND_HALF_UP"); // Rounds up at 0.5
@@ -2583,17 +2579,14 @@ class LedgerServiceImplTest {
     // Create debt where creditor gets fully used
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 3L, 2L, new BigDecimal("50.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
+    stubUsers(alice, bob, charlie);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(true);
@@ -2617,17 +2610,14 @@ class LedgerServiceImplTest {
     // Create debt where debtor gets fully used
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("50.00"));
     DebtEdge edge2 = debtEdge(10L, 1L, 1L, 3L, new BigDecimal("100.00"));
-    doReturn(Arrays.asList(edge1, edge2)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1, edge2));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
     User charlie = user(3L, "Charlie");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
-    doReturn(charlie).when(userMapper).selectById(3L);
+    stubUsers(alice, bob, charlie);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(true);
@@ -2649,15 +2639,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setMaxTransferAmount(new BigDecimal("30.00")); // Cap at 30
@@ -2680,15 +2668,13 @@ class LedgerServiceImplTest {
         .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
 
     DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"));
-    doReturn(Arrays.asList(edge1)).when(debtEdgeMapper).findByLedgerId(10L);
+    stubEdges(10L, Arrays.asList(edge1));
 
     User alice = user(1L, "Alice");
     User bob = user(2L, "Bob");
-    doReturn(alice).when(userMapper).selectById(1L);
-    doReturn(bob).when(userMapper).selectById(2L);
+    stubUsers(alice, bob);
 
-    Currency usdCurrency = currency("USD", 2);
-    doReturn(usdCurrency).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     SettlementConfig config = new SettlementConfig();
     config.setForceMinCostFlow(true);
@@ -2700,4 +2686,1582 @@ class LedgerServiceImplTest {
     // Should still create transfer(s)
     assertTrue(resp.getTransferCount() > 0);
   }
+
+  @Test
+  @DisplayName("generateMinCostFlowSettlement: cap below balance -> capped transfers settle all")
+  void getSettlementPlan_minCostFlowCapSettlesFullBalance() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    Ledger ledger = ledger(10L, "USD");
+    doReturn(ledger).when(service).getById(10L);
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+
+    DebtEdge edge1 = debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"));
+    stubEdges(10L, Arrays.asList(edge1));
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"));
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+
+    SettlementConfig config = new SettlementConfig();
+    config.setForceMinCostFlow(true);
+    config.setMaxTransferAmount(new BigDecimal("30.00"));
+
+    SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
+
+    assertEquals(4, resp.getTransferCount());
+    BigDecimal total = BigDecimal.ZERO;
+    for (SettlementPlanResponse.TransferItem t : resp.getTransfers()) {
+      assertTrue(t.getAmount().compareTo(new BigDecimal("30.00")) <= 0);
+      total = total.add(t.getAmount());
+    }
+    assertEquals(new BigDecimal("100.00"), total);
+  }
+
+  @Test
+  @DisplayName("generateMinCostFlowSettlement: blocked channels -> flow uses only open pairs")
+  void getSettlementPlan_minCostFlowRoutesAroundBlockedChannels() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    Ledger ledger = ledger(10L, "USD");
+    doReturn(ledger).when(service).getById(10L);
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+
+    // Alice and Bob are owed 100 each by Charlie and Dave respectively.
+    DebtEdge edge1 = debtEdge(10L, 1L, 1L, 3L, new BigDecimal("100.00"));
+    DebtEdge edge2 = debtEdge(10L, 1L, 2L, 4L, new BigDecimal("100.00"));
+    stubEdges(10L, Arrays.asList(edge1, edge2));
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"), user(3L, "Charlie"), user(4L, "Dave"));
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+
+    SettlementConfig config = new SettlementConfig();
+    config.setForceMinCostFlow(true);
+    Map<String, Set<String>> channels = new HashMap<>();
+    channels.put("3-1", Collections.emptySet());
+    channels.put("4-2", Collections.emptySet());
+    config.setPaymentChannels(channels);
+
+    SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
+
+    assertEquals(2, resp.getTransferCount());
+    for (SettlementPlanResponse.TransferItem t : resp.getTransfers()) {
+      assertEquals(new BigDecimal("100.00"), t.getAmount());
+      if (t.getFromUserId() == 3L) {
+        assertEquals(2L, t.getToUserId());
+      } else {
+        assertEquals(4L, t.getFromUserId());
+        assertEquals(1L, t.getToUserId());
+      }
+    }
+  }
+
+  // ===== Materialized member balances =====
+
+  private static LedgerUserBalance balance(long ledgerId, long userId, BigDecimal amount) {
+    LedgerUserBalance b = new LedgerUserBalance();
+    b.setLedgerId(ledgerId);
+    b.setUserId(userId);
+    b.setNetAmountBase(amount);
+    return b;
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: balance snapshot present -> no debt edge scan")
+  void getSettlementPlan_usesBalanceSnapshot() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(seeded(ledger(10L, "Family"))).when(service).getById(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("25.00")),
+                balance(10L, 2L, new BigDecimal("-25.00")),
+                balance(10L, 3L, BigDecimal.ZERO)))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"));
+
+    SettlementPlanResponse resp = service.getSettlementPlan(10L);
+
+    assertEquals(1, resp.getTransferCount());
+    assertEquals(2L, resp.getTransfers().get(0).getFromUserId());
+    assertEquals(1L, resp.getTransfers().get(0).getToUserId());
+    assertEquals(new BigDecimal("25.00"), resp.getTransfers().get(0).getAmount());
+    verify(debtEdgeMapper, never()).sumNetByLedgerId(anyLong());
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: snapshot not seeded -> partial rows ignored, edges folded")
+  void getSettlementPlan_unseededSnapshot_foldsEdges() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(ledger(10L, "Family")).when(service).getById(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    stubEdges(10L, Arrays.asList(debtEdge(10L, 1L, 1L, 2L, new BigDecimal("25.00"))));
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"));
+
+    SettlementPlanResponse resp = service.getSettlementPlan(10L);
+
+    assertEquals(1, resp.getTransferCount());
+    assertEquals(new BigDecimal("25.00"), resp.getTransfers().get(0).getAmount());
+    verify(ledgerUserBalanceMapper, never()).findByLedgerId(anyLong());
+  }
+
+  @Test
+  @DisplayName("rebuildBalances: drifted and missing rows -> reported and repaired")
+  void rebuildBalances_reportsDriftAndRepairs() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(ledger(10L, "Family")).when(ledgerMapper).selectByIdForUpdate(10L);
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+
+    // Stored: user 1 correct, user 2 drifted, user 3 missing
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("30.00")),
+                balance(10L, 2L, new BigDecimal("-20.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerIdForUpdate(10L);
+    stubEdges(
+        10L,
+        Arrays.asList(
+            debtEdge(10L, 1L, 1L, 2L, new BigDecimal("25.00")),
+            debtEdge(10L, 2L, 1L, 3L, new BigDecimal("5.00"))));
+
+    BalanceRebuildReport report = service.rebuildBalances(10L, false);
+
+    assertEquals(10L, report.getLedgerId());
+    assertEquals(3, report.getMembersChecked());
+    assertEquals(2, report.getDriftCount());
+    assertTrue(report.getRepaired());
+    assertEquals(2L, report.getDrifts().get(0).getUserId());
+    assertEquals(new BigDecimal("-25.00"), report.getDrifts().get(0).getRecomputedAmount());
+    assertEquals(3L, report.getDrifts().get(1).getUserId());
+    verify(ledgerUserBalanceMapper, times(1))
+        .upsertBatch(
+            argThat(
+                rows ->
+                    rows.size() == 2
+                        && rows.get(0).getUserId().equals(2L)
+                        && rows.get(1).getUserId().equals(3L)
+                        && rows.get(1).getNetAmountBase().compareTo(new BigDecimal("-5.00")) == 0));
+    verify(ledgerMapper, times(1)).bumpPlanVersion(10L);
+    verify(ledgerMapper, times(1)).markBalancesInitialized(10L);
+  }
+
+  @Test
+  @DisplayName("rebuildBalances: dry run -> reports drift without writing")
+  void rebuildBalances_dryRun() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(ledger(10L, "Family")).when(ledgerMapper).selectByIdForUpdate(10L);
+    doReturn(member(10L, 1L, "ADMIN"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+
+    doReturn(Collections.emptyList()).when(ledgerUserBalanceMapper).findByLedgerIdForUpdate(10L);
+    stubEdges(10L, Arrays.asList(debtEdge(10L, 1L, 1L, 2L, new BigDecimal("25.00"))));
+
+    BalanceRebuildReport report = service.rebuildBalances(10L, true);
+
+    assertEquals(2, report.getDriftCount());
+    assertFalse(report.getRepaired());
+    verify(ledgerUserBalanceMapper, never()).upsertBatch(any());
+    verify(ledgerMapper, never()).bumpPlanVersion(anyLong());
+    verify(ledgerMapper, never()).markBalancesInitialized(anyLong());
+  }
+
+  @Test
+  @DisplayName("rebuildBalances: EDITOR -> throws ROLE_INSUFFICIENT")
+  void rebuildBalances_editorForbidden() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(member(10L, 1L, "EDITOR"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+
+    RuntimeException ex =
+        assertThrows(RuntimeException.class, () -> service.rebuildBalances(10L, false));
+    assertTrue(ex.getMessage().contains("ROLE_INSUFFICIENT"));
+  }
+
+  // ===== SQL-side net aggregation =====
+
+  @Test
+  @DisplayName("getSettlementPlan: SQL net sums -> same plans as folding every edge in Java")
+  void getSettlementPlan_sqlNetSums_matchEdgeFold() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(seeded(ledger(10L, "Family"))).when(service).getById(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+
+    Map<String, BigDecimal> rates = new HashMap<>();
+    rates.put("EUR-USD", new BigDecimal("1.0875"));
+    rates.put("USD-GBP", new BigDecimal("0.79")); // GBP converts through the reverse rate
+    SettlementConfig withRates = new SettlementConfig();
+    withRates.setCurrencyRates(rates);
+    String[] currencies = {"USD", "EUR", "GBP"};
+
+    Random random = new Random(4156);
+    for (int round = 0; round < 40; round++) {
+      int members = 2 + random.nextInt(7);
+      User[] users = new User[members];
+      for (int u = 0; u < members; u++) {
+        users[u] = user(u + 1, "U" + (u + 1));
+      }
+      stubUsers(users);
+
+      List<DebtEdge> edges = new ArrayList<>();
+      int edgeCount = 1 + random.nextInt(60);
+      for (int e = 0; e < edgeCount; e++) {
+        long from = 1 + random.nextInt(members);
+        long to = 1 + (from + random.nextInt(members - 1)) % members;
+        BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(100_000), 2);
+        edges.add(debtEdge(10L, e + 1, from, to, amount, currencies[random.nextInt(3)]));
+      }
+
+      // Reference: the previous in-Java fold, converting every edge before summing
+      Map<Long, BigDecimal> folded = new TreeMap<>();
+      for (DebtEdge edge : edges) {
+        BigDecimal amount = edge.getAmount();
+        if ("EUR".equals(edge.getEdgeCurrency())) {
+          amount = amount.multiply(rates.get("EUR-USD"));
+        } else if ("GBP".equals(edge.getEdgeCurrency())) {
+          amount = amount.divide(rates.get("USD-GBP"), 8, RoundingMode.HALF_UP);
+        }
+        folded.merge(edge.getFromUserId(), amount, BigDecimal::add);
+        folded.merge(edge.getToUserId(), amount.negate(), BigDecimal::add);
+      }
+      List<LedgerUserBalance> snapshot = new ArrayList<>();
+      folded.forEach((userId, amount) -> snapshot.add(balance(10L, userId, amount)));
+      doReturn(snapshot).when(ledgerUserBalanceMapper).findByLedgerId(10L);
+      stubEdges(10L, edges);
+
+      SettlementPlanResponse fromSums = service.getSettlementPlan(10L, withRates);
+      SettlementPlanResponse fromFold = service.getSettlementPlan(10L, new SettlementConfig());
+
+      assertEquals(fromFold.getTransferCount(), fromSums.getTransferCount(), "round " + round);
+      for (int t = 0; t < fromFold.getTransfers().size(); t++) {
+        SettlementPlanResponse.TransferItem expected = fromFold.getTransfers().get(t);
+        SettlementPlanResponse.TransferItem actual = fromSums.getTransfers().get(t);
+        assertEquals(expected.getFromUserId(), actual.getFromUserId(), "round " + round);
+        assertEquals(expected.getToUserId(), actual.getToUserId(), "round " + round);
+        assertEquals(0, expected.getAmount().compareTo(actual.getAmount()), "round " + round);
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("rebuildBalances: recomputes from SQL net sums, never loading edge rows")
+  void rebuildBalances_usesNetSums() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(ledger(10L, "Family")).when(ledgerMapper).selectByIdForUpdate(10L);
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    doReturn(Arrays.asList(balance(10L, 1L, new BigDecimal("10.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerIdForUpdate(10L);
+    stubEdges(
+        10L,
+        Arrays.asList(
+            debtEdge(10L, 1L, 1L, 2L, new BigDecimal("25.00")),
+            debtEdge(10L, 2L, 2L, 1L, new BigDecimal("15.00"))));
+
+    BalanceRebuildReport report = service.rebuildBalances(10L, true);
+
+    assertEquals(2, report.getMembersChecked());
+    assertEquals(1, report.getDriftCount());
+    assertEquals(2L, report.getDrifts().get(0).getUserId());
+    assertEquals(
+        0, new BigDecimal("-10.00").compareTo(report.getDrifts().get(0).getRecomputedAmount()));
+    verify(debtEdgeMapper, never()).findByLedgerId(anyLong());
+  }
+
+  // ===== Global settle-up =====
+
+  private void stubGlobalLedgers(Ledger... ledgers) {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    List<LedgerMember> memberships = new ArrayList<>();
+    for (Ledger l : ledgers) {
+      memberships.add(member(l.getId(), 1L, "EDITOR"));
+    }
+    doReturn(memberships)
+        .when(ledgerMemberMapper)
+        .selectList(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    doReturn(Arrays.asList(ledgers)).when(service).listByIds(any());
+  }
+
+  private static Ledger ledgerIn(long id, String currency) {
+    Ledger l = seeded(ledger(id, "Ledger " + id));
+    l.setBaseCurrency(currency);
+    return l;
+  }
+
+  private static GlobalSettleUpRequest settleUpReq(String currency, String... rates) {
+    GlobalSettleUpRequest req = new GlobalSettleUpRequest();
+    req.setCurrency(currency);
+    Map<String, BigDecimal> map = new HashMap<>();
+    for (int i = 0; i < rates.length; i += 2) {
+      map.put(rates[i], new BigDecimal(rates[i + 1]));
+    }
+    req.setCurrencyRates(map);
+    return req;
+  }
+
+  @Test
+  @DisplayName("getGlobalSettleUp: nets each counterparty across ledgers and currencies")
+  void getGlobalSettleUp_netsAcrossLedgers() {
+    Ledger single = ledgerIn(40L, "USD");
+    single.setLedgerType("SINGLE");
+    stubGlobalLedgers(ledgerIn(10L, "USD"), ledgerIn(20L, "EUR"), ledgerIn(30L, "USD"), single);
+    doReturn(2).when(currencyRegistry).exponentOf(any());
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"), user(3L, "Carol"), user(4L, "Dan"));
+    // Ledger 10: Bob owes Alice 30 USD
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("30.00")),
+                balance(10L, 2L, new BigDecimal("-30.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    // Ledger 20: Alice owes Bob 10 EUR
+    doReturn(
+            Arrays.asList(
+                balance(20L, 1L, new BigDecimal("-10.00")),
+                balance(20L, 2L, new BigDecimal("10.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(20L);
+    // Ledger 30: Alice is settled; Dan owes Carol 5 USD, which does not involve her
+    doReturn(
+            Arrays.asList(
+                balance(30L, 1L, BigDecimal.ZERO),
+                balance(30L, 3L, new BigDecimal("5.00")),
+                balance(30L, 4L, new BigDecimal("-5.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(30L);
+
+    GlobalSettleUpResponse resp = service.getGlobalSettleUp(settleUpReq("USD", "EUR-USD", "1.10"));
+
+    assertEquals(1, resp.getTransferCount());
+    assertEquals(1, resp.getTransferCount());
+    GlobalSettleUpResponse.Transfer transfer = resp.getTransfers().get(0);
+    assertEquals(2L, transfer.getFromUserId());
+    assertEquals("Bob", transfer.getFromUserName());
+    assertEquals(1L, transfer.getToUserId());
+    assertEquals(new BigDecimal("19.00"), transfer.getAmount());
+    assertEquals(2, transfer.getAllocations().size());
+    assertEquals(10L, transfer.getAllocations().get(0).getLedgerId());
+    assertEquals(new BigDecimal("30.00"), transfer.getAllocations().get(0).getConvertedAmount());
+    assertEquals("EUR", transfer.getAllocations().get(1).getLedgerCurrency());
+    assertEquals(0, new BigDecimal("-10").compareTo(transfer.getAllocations().get(1).getAmount()));
+    assertEquals(new BigDecimal("-11.00"), transfer.getAllocations().get(1).getConvertedAmount());
+    verify(ledgerUserBalanceMapper, never()).findByLedgerId(40L);
+  }
+
+  @Test
+  @DisplayName("getGlobalSettleUp: user owes on balance -> transfer from the user")
+  void getGlobalSettleUp_userPays() {
+    stubGlobalLedgers(ledgerIn(10L, "USD"), ledgerIn(20L, "USD"));
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"));
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("-12.50")),
+                balance(10L, 2L, new BigDecimal("12.50"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    doReturn(
+            Arrays.asList(
+                balance(20L, 1L, new BigDecimal("-7.50")),
+                balance(20L, 2L, new BigDecimal("7.50"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(20L);
+
+    GlobalSettleUpResponse resp = service.getGlobalSettleUp(settleUpReq("USD"));
+
+    GlobalSettleUpResponse.Transfer transfer = resp.getTransfers().get(0);
+    assertEquals(1L, transfer.getFromUserId());
+    assertEquals(2L, transfer.getToUserId());
+    assertEquals(new BigDecimal("20.00"), transfer.getAmount());
+    assertEquals(new BigDecimal("12.50"), transfer.getAllocations().get(0).getConvertedAmount());
+    assertEquals(new BigDecimal("7.50"), transfer.getAllocations().get(1).getConvertedAmount());
+  }
+
+  @Test
+  @DisplayName("getGlobalSettleUp: opposite debts in two ledgers -> netted away")
+  void getGlobalSettleUp_fullyNetted() {
+    stubGlobalLedgers(ledgerIn(10L, "USD"), ledgerIn(20L, "USD"));
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"));
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("15.00")),
+                balance(10L, 2L, new BigDecimal("-15.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    doReturn(
+            Arrays.asList(
+                balance(20L, 1L, new BigDecimal("-15.00")),
+                balance(20L, 2L, new BigDecimal("15.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(20L);
+
+    GlobalSettleUpResponse resp = service.getGlobalSettleUp(settleUpReq("USD"));
+
+    assertEquals(0, resp.getTransferCount());
+  }
+
+  @Test
+  @DisplayName("getGlobalSettleUp: no request rate -> converts with server-side rates")
+  void getGlobalSettleUp_serverSideRate() {
+    stubGlobalLedgers(ledgerIn(10L, "EUR"));
+    doReturn(2).when(currencyRegistry).exponentOf("EUR");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"));
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("-10.00")),
+                balance(10L, 2L, new BigDecimal("10.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    doReturn(true).when(exchangeRateRegistry).hasRate("EUR", "USD");
+    doReturn(new BigDecimal("-11.00000000"))
+        .when(exchangeRateRegistry)
+        .convert(new BigDecimal("-10.00"), "EUR", "USD");
+
+    GlobalSettleUpResponse resp = service.getGlobalSettleUp(settleUpReq("USD"));
+
+    GlobalSettleUpResponse.Transfer transfer = resp.getTransfers().get(0);
+    assertEquals(1L, transfer.getFromUserId());
+    assertEquals(new BigDecimal("11.00"), transfer.getAmount());
+  }
+
+  @Test
+  @DisplayName("getGlobalSettleUp: ledger currency without a rate -> throws before planning")
+  void getGlobalSettleUp_missingRate() {
+    stubGlobalLedgers(ledgerIn(10L, "USD"), ledgerIn(20L, "JPY"));
+
+    RuntimeException ex =
+        assertThrows(
+            RuntimeException.class,
+            () -> service.getGlobalSettleUp(settleUpReq("USD", "EUR-USD", "1.10")));
+    assertEquals("CURRENCY_RATE_MISSING: JPY-USD", ex.getMessage());
+    verify(ledgerUserBalanceMapper, never()).findByLedgerId(anyLong());
+  }
+
+  @Test
+  @DisplayName("getGlobalSettleUp: no memberships -> empty plan")
+  void getGlobalSettleUp_noLedgers() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(Collections.emptyList())
+        .when(ledgerMemberMapper)
+        .selectList(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+
+    GlobalSettleUpResponse resp = service.getGlobalSettleUp(settleUpReq("USD"));
+
+    assertEquals(0, resp.getLedgerCount());
+    assertEquals(0, resp.getTransferCount());
+  }
+
+  @Test
+  @DisplayName("getGlobalSettleUp: not logged in -> throws AUTH_REQUIRED")
+  void getGlobalSettleUp_authRequired() {
+    RuntimeException ex =
+        assertThrows(RuntimeException.class, () -> service.getGlobalSettleUp(settleUpReq("USD")));
+    assertEquals("AUTH_REQUIRED", ex.getMessage());
+  }
+
+  // ===== Settlement plan execution =====
+
+  private static ExecuteSettlementRequest executeReq(long planVersion) {
+    ExecuteSettlementRequest req = new ExecuteSettlementRequest();
+    req.setPlanVersion(planVersion);
+    req.setMethod("BANK");
+    req.setNote("Trip settle-up");
+    return req;
+  }
+
+  private void stubExecutableLedger(String role, long version) {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(member(10L, 1L, role))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    doReturn(ledgerAtVersion(10L, version)).when(ledgerMapper).selectByIdForUpdate(10L);
+  }
+
+  @Test
+  @DisplayName("executeSettlementPlan: records batch, settlements, offsetting edges and deltas")
+  void executeSettlementPlan_persistsPlanInOneBatch() {
+    stubExecutableLedger("OWNER", 7L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    // 1 is owed 30, 2 owes 20, 3 owes 10
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("30.00")),
+                balance(10L, 2L, new BigDecimal("-20.00")),
+                balance(10L, 3L, new BigDecimal("-10.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"), user(3L, "Carol"));
+    doAnswer(
+            inv -> {
+              ((SettlementBatch) inv.getArgument(0)).setId(77L);
+              return 1;
+            })
+        .when(settlementBatchMapper)
+        .insert(any(SettlementBatch.class));
+
+    SettlementExecutionResponse resp = service.executeSettlementPlan(10L, executeReq(7L));
+
+    assertEquals(77L, resp.getBatchId());
+    assertEquals(7L, resp.getPlanVersion());
+    assertFalse(resp.getReplayed());
+    assertEquals(2, resp.getTransfers().size());
+    verify(settlementBatchMapper, times(1))
+        .insert(
+            argThat(
+                (SettlementBatch b) ->
+                    b.getPlanVersion() == 7L
+                        && b.getExecutedBy() == 1L
+                        && b.getTransferCount() == 2));
+    verify(settlementMapper, times(1))
+        .insertBatch(
+            argThat(
+                rows ->
+                    rows.size() == 2
+                        && rows.stream()
+                            .allMatch(
+                                r ->
+                                    r.getPlanBatchId() == 77L
+                                        && r.getToUserId() == 1L
+                                        && "BANK".equals(r.getMethod())
+                                        && "USD".equals(r.getCurrency()))));
+    // Each payer becomes the creditor of an edge against the receiver
+    verify(debtEdgeMapper, times(1))
+        .insertBatch(
+            argThat(
+                edges ->
+                    edges.size() == 2
+                        && edges.stream()
+                            .allMatch(e -> e.getToUserId() == 1L && e.getTransactionId() == null)));
+    verify(ledgerUserBalanceMapper, times(1))
+        .applyDeltas(
+            argThat(
+                rows ->
+                    rows.size() == 3
+                        && rows.get(0).getUserId() == 1L
+                        && rows.get(0).getNetAmountBase().compareTo(new BigDecimal("-30.00")) == 0
+                        && rows.get(1).getNetAmountBase().compareTo(new BigDecimal("20.00")) == 0
+                        && rows.get(2).getNetAmountBase().compareTo(new BigDecimal("10.00")) == 0));
+    verify(ledgerMapper, times(1)).bumpPlanVersion(10L);
+  }
+
+  @Test
+  @DisplayName("executeSettlementPlan: executed version -> returns stored batch without writing")
+  void executeSettlementPlan_replay() {
+    stubExecutableLedger("ADMIN", 8L);
+    SettlementBatch batch = new SettlementBatch();
+    batch.setId(77L);
+    batch.setLedgerId(10L);
+    batch.setPlanVersion(7L);
+    doReturn(batch).when(settlementBatchMapper).findByLedgerAndVersion(10L, 7L);
+    Settlement stored = new Settlement();
+    stored.setFromUserId(2L);
+    stored.setToUserId(1L);
+    stored.setAmount(new BigDecimal("20.00"));
+    doReturn(List.of(stored)).when(settlementMapper).findByPlanBatchId(77L);
+    doReturn(Map.of(1L, "Alice", 2L, "Bob")).when(userNameCache).getNames(any());
+
+    SettlementExecutionResponse resp = service.executeSettlementPlan(10L, executeReq(7L));
+
+    assertTrue(resp.getReplayed());
+    assertEquals(77L, resp.getBatchId());
+    assertEquals(7L, resp.getPlanVersion());
+    assertEquals("Bob", resp.getTransfers().get(0).getFromUserName());
+    assertEquals("Alice", resp.getTransfers().get(0).getToUserName());
+    verify(settlementMapper, never()).insertBatch(any());
+    verify(debtEdgeMapper, never()).insertBatch(any());
+    verify(ledgerMapper, never()).bumpPlanVersion(anyLong());
+  }
+
+  @Test
+  @DisplayName("executeSettlementPlan: snapshot not seeded -> seeded from all edges, no deltas")
+  void executeSettlementPlan_unseededSnapshot_seedsInsteadOfDeltas() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    Ledger unseeded = ledger(10L, "Family");
+    unseeded.setPlanVersion(7L);
+    doReturn(unseeded).when(ledgerMapper).selectByIdForUpdate(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"));
+    List<DebtEdge> edges = Arrays.asList(debtEdge(10L, 1L, 1L, 2L, new BigDecimal("25.00")));
+    List<DebtEdge> settled = new ArrayList<>(edges);
+    settled.add(debtEdge(10L, 2L, 2L, 1L, new BigDecimal("25.00")));
+    // Planned from the edges; the seed then also sees the offset this execution inserted
+    doReturn(sumNet(edges)).doReturn(sumNet(settled)).when(debtEdgeMapper).sumNetByLedgerId(10L);
+    // A partial snapshot written before seeding existed
+    doReturn(Arrays.asList(balance(10L, 2L, new BigDecimal("-5.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerIdForUpdate(10L);
+
+    service.executeSettlementPlan(10L, executeReq(7L));
+
+    verify(ledgerUserBalanceMapper, never()).applyDeltas(any());
+    verify(ledgerUserBalanceMapper, times(1))
+        .upsertBatch(
+            argThat(
+                rows ->
+                    rows.size() == 2
+                        && rows.stream().allMatch(r -> r.getNetAmountBase().signum() == 0)));
+    verify(ledgerMapper, times(1)).markBalancesInitialized(10L);
+  }
+
+  @Test
+  @DisplayName("executeSettlementPlan: stale plan version -> throws PLAN_VERSION_CONFLICT")
+  void executeSettlementPlan_staleVersion() {
+    stubExecutableLedger("OWNER", 8L);
+
+    RuntimeException ex =
+        assertThrows(
+            RuntimeException.class, () -> service.executeSettlementPlan(10L, executeReq(7L)));
+    assertEquals("PLAN_VERSION_CONFLICT", ex.getMessage());
+    verify(settlementBatchMapper, never()).insert(any(SettlementBatch.class));
+  }
+
+  @Test
+  @DisplayName("executeSettlementPlan: settled ledger -> throws NOTHING_TO_SETTLE")
+  void executeSettlementPlan_nothingToSettle() {
+    stubExecutableLedger("OWNER", 7L);
+    doReturn(Arrays.asList(balance(10L, 1L, BigDecimal.ZERO)))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+
+    RuntimeException ex =
+        assertThrows(
+            RuntimeException.class, () -> service.executeSettlementPlan(10L, executeReq(7L)));
+    assertEquals("NOTHING_TO_SETTLE", ex.getMessage());
+    verify(settlementBatchMapper, never()).insert(any(SettlementBatch.class));
+  }
+
+  @Test
+  @DisplayName("executeSettlementPlan: EDITOR -> throws ROLE_INSUFFICIENT")
+  void executeSettlementPlan_editorForbidden() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(member(10L, 1L, "EDITOR"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+
+    RuntimeException ex =
+        assertThrows(
+            RuntimeException.class, () -> service.executeSettlementPlan(10L, executeReq(7L)));
+    assertTrue(ex.getMessage().contains("ROLE_INSUFFICIENT"));
+    verify(ledgerMapper, never()).selectByIdForUpdate(anyLong());
+  }
+
+  // ===== Settlement plan cache =====
+
+  private LedgerServiceImpl cachingService(SimpleMeterRegistry registry) {
+    return spy(
+        new LedgerServiceImpl(
+            ledgerMemberMapper,
+            userMapper,
+            debtEdgeMapper,
+            currencyRegistry,
+            categoryMapper,
+            ledgerUserBalanceMapper,
+            new SettlementPlanCache(registry, 16),
+            new UserNameCache(userMapper, registry, 16),
+            membershipCache,
+            zeroSumSubsetSolver,
+            settlementMapper,
+            settlementBatchMapper,
+            settlementExecutor,
+            incrementalSettlementPlanner,
+            exchangeRateRegistry,
+            changeFeedService));
+  }
+
+  private static Ledger ledgerAtVersion(long id, long version) {
+    Ledger l = seeded(ledger(id, "Family"));
+    l.setPlanVersion(version);
+    return l;
+  }
+
+  private static double cacheGets(SimpleMeterRegistry registry, String result) {
+    return registry
+        .get("cache.gets")
+        .tag("cache", SettlementPlanCache.CACHE_NAME)
+        .tag("result", result)
+        .functionCounter()
+        .count();
+  }
+
+  private void stubSimplePlan() {
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("25.00")),
+                balance(10L, 2L, new BigDecimal("-25.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    doReturn(Arrays.asList(user(1L, "Alice"), user(2L, "Bob")))
+        .when(userMapper)
+        .selectBatchIds(any());
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: repeat call at same version -> served from cache")
+  void getSettlementPlan_sameVersion_cacheHit() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    LedgerServiceImpl caching = cachingService(registry);
+    doReturn(ledgerAtVersion(10L, 3L)).when(caching).getById(10L);
+    stubSimplePlan();
+
+    SettlementPlanResponse first = caching.getSettlementPlan(10L);
+    SettlementPlanResponse second = caching.getSettlementPlan(10L);
+
+    assertEquals(first, second);
+    assertNotSame(first, second);
+    assertEquals(1, second.getTransferCount());
+    verify(ledgerUserBalanceMapper, times(1)).findByLedgerId(10L);
+    verify(userMapper, times(1)).selectBatchIds(any());
+    verify(currencyRegistry, times(1)).exponentOf("USD");
+    assertEquals(1.0, cacheGets(registry, "hit"));
+    assertEquals(1.0, cacheGets(registry, "miss"));
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: version bumped between calls -> recomputed")
+  void getSettlementPlan_versionBumped_cacheMiss() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    LedgerServiceImpl caching = cachingService(registry);
+    doReturn(ledgerAtVersion(10L, 3L))
+        .doReturn(ledgerAtVersion(10L, 4L))
+        .when(caching)
+        .getById(10L);
+    stubSimplePlan();
+
+    caching.getSettlementPlan(10L);
+    caching.getSettlementPlan(10L);
+
+    verify(ledgerUserBalanceMapper, times(2)).findByLedgerId(10L);
+    assertEquals(0.0, cacheGets(registry, "hit"));
+    assertEquals(2.0, cacheGets(registry, "miss"));
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: different config at same version -> separate cache entries")
+  void getSettlementPlan_differentConfig_cacheMiss() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    LedgerServiceImpl caching = cachingService(registry);
+    doReturn(ledgerAtVersion(10L, 3L)).when(caching).getById(10L);
+    stubSimplePlan();
+    SettlementConfig capped = new SettlementConfig();
+    capped.setMaxTransferAmount(new BigDecimal("10.00"));
+
+    SettlementPlanResponse uncapped = caching.getSettlementPlan(10L, new SettlementConfig());
+    SettlementPlanResponse split = caching.getSettlementPlan(10L, capped);
+    SettlementPlanResponse again = caching.getSettlementPlan(10L, null);
+
+    assertEquals(1, uncapped.getTransferCount());
+    assertEquals(3, split.getTransferCount());
+    assertEquals(uncapped, again);
+    assertNotSame(uncapped, again);
+    assertEquals(1.0, cacheGets(registry, "hit"));
+    assertEquals(2.0, cacheGets(registry, "miss"));
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: cache hit -> membership still checked")
+  void getSettlementPlan_cacheHit_stillChecksMembership() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    LedgerServiceImpl caching = cachingService(registry);
+    doReturn(ledgerAtVersion(10L, 3L)).when(caching).getById(10L);
+    stubSimplePlan();
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    caching.getSettlementPlan(10L);
+
+    CurrentUserContext.set(new UserView(99L, "Mallory"));
+    doReturn(null)
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+
+    assertThrows(RuntimeException.class, () -> caching.getSettlementPlan(10L));
+  }
+
+  // ===== Settlement plan comparison =====
+
+  private static SettlementComparisonRequest compareReq(SettlementConfig... configs) {
+    SettlementComparisonRequest req = new SettlementComparisonRequest();
+    req.setConfigs(Arrays.asList(configs));
+    return req;
+  }
+
+  @Test
+  @DisplayName("compareSettlementPlans: several configs -> balances loaded once, plans in order")
+  void compareSettlementPlans_loadsBalancesOnce() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(ledgerAtVersion(10L, 5L)).when(service).getById(10L);
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("25.00")),
+                balance(10L, 2L, new BigDecimal("-25.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"));
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    SettlementConfig capped = new SettlementConfig();
+    capped.setMaxTransferAmount(new BigDecimal("10.00"));
+    SettlementConfig flow = new SettlementConfig();
+    flow.setForceMinCostFlow(true);
+
+    SettlementComparisonResponse resp =
+        service.compareSettlementPlans(10L, compareReq(new SettlementConfig(), capped, flow));
+
+    assertEquals(5L, resp.getPlanVersion());
+    assertEquals("USD", resp.getCurrency());
+    assertEquals(3, resp.getVariants().size());
+    assertEquals(1, resp.getVariants().get(0).getTransferCount());
+    assertEquals(3, resp.getVariants().get(1).getTransferCount());
+    assertTrue(resp.getVariants().get(1).getConfig() == capped);
+    assertEquals(1, resp.getVariants().get(2).getTransferCount());
+    for (SettlementComparisonResponse.Variant variant : resp.getVariants()) {
+      assertEquals(0, new BigDecimal("25.00").compareTo(variant.getTotalVolume()));
+      assertTrue(variant.getSolveTimeMs().signum() >= 0);
+    }
+    verify(ledgerUserBalanceMapper, times(1)).findByLedgerId(10L);
+    verify(settlementExecutor, times(3)).execute(any(Runnable.class));
+  }
+
+  @Test
+  @DisplayName("compareSettlementPlans: configs with currency rates -> edges folded once per map")
+  void compareSettlementPlans_balancesPerRateMap() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(ledgerAtVersion(10L, 5L)).when(service).getById(10L);
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    stubEdges(10L, List.of(debtEdge(10L, 1L, 1L, 2L, new BigDecimal("100.00"), "EUR")));
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"));
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    SettlementConfig eur = new SettlementConfig();
+    eur.setCurrencyRates(Map.of("EUR-USD", new BigDecimal("1.1")));
+    SettlementConfig eurCapped = new SettlementConfig();
+    eurCapped.setCurrencyRates(Map.of("EUR-USD", new BigDecimal("1.1")));
+    eurCapped.setMaxTransferAmount(new BigDecimal("50.00"));
+
+    SettlementComparisonResponse resp =
+        service.compareSettlementPlans(10L, compareReq(eur, eurCapped));
+
+    assertEquals(new BigDecimal("110.00"), resp.getVariants().get(0).getTotalVolume());
+    assertEquals(3, resp.getVariants().get(1).getTransferCount());
+    verify(debtEdgeMapper, times(1)).sumNetByLedgerId(10L);
+  }
+
+  @Test
+  @DisplayName("compareSettlementPlans: non-member -> throws before loading balances")
+  void compareSettlementPlans_nonMember_throws() {
+    CurrentUserContext.set(new UserView(99L, "Mallory"));
+    doReturn(ledgerAtVersion(10L, 5L)).when(service).getById(10L);
+
+    assertThrows(
+        RuntimeException.class,
+        () -> service.compareSettlementPlans(10L, compareReq(new SettlementConfig())));
+    verify(ledgerUserBalanceMapper, never()).findByLedgerId(anyLong());
+  }
+
+  // ===== Incremental settlement plans =====
+
+  @Test
+  @DisplayName("getSettlementPlan: planner holds next version -> repaired plan, no balance read")
+  void getSettlementPlan_incremental_servesRepairedPlan() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    IncrementalSettlementPlanner planner = new IncrementalSettlementPlanner(registry, 16, 2);
+    LedgerServiceImpl incremental =
+        spy(
+            new LedgerServiceImpl(
+                ledgerMemberMapper,
+                userMapper,
+                debtEdgeMapper,
+                currencyRegistry,
+                categoryMapper,
+                ledgerUserBalanceMapper,
+                new SettlementPlanCache(registry, 16),
+                new UserNameCache(userMapper, registry, 16),
+                membershipCache,
+                zeroSumSubsetSolver,
+                settlementMapper,
+                settlementBatchMapper,
+                settlementExecutor,
+                planner,
+                exchangeRateRegistry,
+                changeFeedService));
+    ReflectionTestUtils.setField(incremental, "baseMapper", ledgerMapper);
+    doReturn(ledgerAtVersion(10L, 3L))
+        .doReturn(ledgerAtVersion(10L, 4L))
+        .when(incremental)
+        .getById(10L);
+    doReturn(3L).when(ledgerMapper).selectPlanVersion(10L);
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("25.00")),
+                balance(10L, 2L, new BigDecimal("-25.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    doReturn(Arrays.asList(user(1L, "Alice"), user(2L, "Bob")))
+        .doReturn(List.of(user(3L, "Carol")))
+        .when(userMapper)
+        .selectBatchIds(any());
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+
+    SettlementPlanResponse seeded = incremental.getSettlementPlan(10L);
+    // Carol pays 10.00 for Bob: the transfer to Alice stays, one to Carol is added
+    planner.applyDelta(10L, 4L, Map.of(3L, new BigDecimal("10.00"), 2L, new BigDecimal("-10.00")));
+    SettlementPlanResponse repaired = incremental.getSettlementPlan(10L);
+
+    assertEquals(1, seeded.getTransferCount());
+    assertEquals(4L, repaired.getPlanVersion());
+    assertEquals(2, repaired.getTransferCount());
+    assertEquals("Bob", repaired.getTransfers().get(0).getFromUserName());
+    assertEquals("Alice", repaired.getTransfers().get(0).getToUserName());
+    assertEquals(new BigDecimal("25.00"), repaired.getTransfers().get(0).getAmount());
+    assertEquals("Carol", repaired.getTransfers().get(1).getToUserName());
+    assertEquals(new BigDecimal("10.00"), repaired.getTransfers().get(1).getAmount());
+    verify(ledgerUserBalanceMapper, times(1)).findByLedgerId(10L);
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: version moved while reading balances -> plan not kept")
+  void getSettlementPlan_incremental_racingWrite_notSeeded() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    IncrementalSettlementPlanner planner = new IncrementalSettlementPlanner(registry, 16, 2);
+    LedgerServiceImpl incremental =
+        spy(
+            new LedgerServiceImpl(
+                ledgerMemberMapper,
+                userMapper,
+                debtEdgeMapper,
+                currencyRegistry,
+                categoryMapper,
+                ledgerUserBalanceMapper,
+                new SettlementPlanCache(registry, 16),
+                new UserNameCache(userMapper, registry, 16),
+                membershipCache,
+                zeroSumSubsetSolver,
+                settlementMapper,
+                settlementBatchMapper,
+                settlementExecutor,
+                planner,
+                exchangeRateRegistry,
+                changeFeedService));
+    ReflectionTestUtils.setField(incremental, "baseMapper", ledgerMapper);
+    doReturn(ledgerAtVersion(10L, 3L)).when(incremental).getById(10L);
+    doReturn(4L).when(ledgerMapper).selectPlanVersion(10L);
+    stubSimplePlan();
+
+    incremental.getSettlementPlan(10L);
+
+    assertNull(planner.plan(10L, 3L, 2));
+  }
+
+  @Test
+  @DisplayName("executeSettlementPlan: default config -> executes the incremental planner's plan")
+  void executeSettlementPlan_incremental_executesRepairedPlan() {
+    IncrementalSettlementPlanner planner =
+        new IncrementalSettlementPlanner(new SimpleMeterRegistry(), 16, 2);
+    ReflectionTestUtils.setField(service, "incrementalSettlementPlanner", planner);
+    planner.seed(
+        10L,
+        7L,
+        Map.of(1L, new BigDecimal("30.00"), 2L, new BigDecimal("-30.00")),
+        List.of(
+            new SettlementPlanResponse.TransferItem(2L, null, 1L, null, new BigDecimal("30.00"))),
+        2);
+    stubExecutableLedger("OWNER", 7L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"));
+
+    SettlementExecutionResponse resp = service.executeSettlementPlan(10L, executeReq(7L));
+
+    assertEquals(1, resp.getTransfers().size());
+    assertEquals(new BigDecimal("30.00"), resp.getTransfers().get(0).getAmount());
+    // The kept plan is used as is; nothing re-reads the balances to solve it again
+    verify(ledgerUserBalanceMapper, never()).findByLedgerId(10L);
+  }
+
+  @Test
+  @DisplayName("getGlobalSettleUp: fresh default-config solve -> kept for incremental repair")
+  void getGlobalSettleUp_incremental_seedsPlanner() {
+    IncrementalSettlementPlanner planner =
+        new IncrementalSettlementPlanner(new SimpleMeterRegistry(), 16, 2);
+    ReflectionTestUtils.setField(service, "incrementalSettlementPlanner", planner);
+    stubGlobalLedgers(ledgerIn(10L, "USD"));
+    doReturn(2).when(currencyRegistry).exponentOf(any());
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"));
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("30.00")),
+                balance(10L, 2L, new BigDecimal("-30.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    doReturn(0L).when(ledgerMapper).selectPlanVersion(10L);
+
+    service.getGlobalSettleUp(settleUpReq("USD"));
+
+    List<SettlementPlanResponse.TransferItem> kept = planner.plan(10L, 0L, 2);
+    assertNotNull(kept);
+    assertEquals(1, kept.size());
+    assertEquals(new BigDecimal("30.00"), kept.get(0).getAmount());
+  }
+
+  // ===== Query count =====
+
+  @Test
+  @DisplayName("getSettlementPlan: round trips stay constant as the member count grows")
+  void getSettlementPlan_queryCountIndependentOfMemberCount() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    Object[] mappers = {ledgerMemberMapper, userMapper, debtEdgeMapper, ledgerUserBalanceMapper};
+
+    for (int members : new int[] {3, 30, 300}) {
+      LedgerServiceImpl counted =
+          spy(
+              new LedgerServiceImpl(
+                  ledgerMemberMapper,
+                  userMapper,
+                  debtEdgeMapper,
+                  currencyRegistry,
+                  categoryMapper,
+                  ledgerUserBalanceMapper,
+                  new SettlementPlanCache(registry, 0),
+                  new UserNameCache(userMapper, registry, 1000),
+                  membershipCache,
+                  zeroSumSubsetSolver,
+                  settlementMapper,
+                  settlementBatchMapper,
+                  settlementExecutor,
+                  incrementalSettlementPlanner,
+                  exchangeRateRegistry,
+                  changeFeedService));
+      doReturn(seeded(ledger(10L, "Family"))).when(counted).getById(10L);
+      doReturn(member(10L, 1L, "OWNER"))
+          .when(ledgerMemberMapper)
+          .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+      List<LedgerUserBalance> rows = new ArrayList<>();
+      List<User> users = new ArrayList<>();
+      for (long id = 1; id <= members; id++) {
+        BigDecimal amount = id < members ? new BigDecimal("-1.00") : new BigDecimal(members - 1);
+        rows.add(balance(10L, id, amount));
+        users.add(user(id, "User" + id));
+      }
+      doReturn(rows).when(ledgerUserBalanceMapper).findByLedgerId(10L);
+      doReturn(users).when(userMapper).selectBatchIds(any());
+      doReturn(2).when(currencyRegistry).exponentOf("USD");
+      clearInvocations(mappers);
+
+      SettlementPlanResponse resp = counted.getSettlementPlan(10L);
+
+      assertEquals(members - 1, resp.getTransferCount());
+      int queries = 0;
+      for (Object mapper : mappers) {
+        queries += mockingDetails(mapper).getInvocations().size();
+      }
+      // membership, balance snapshot, one batched name lookup; the currency comes from memory
+      assertEquals(3, queries);
+      verify(userMapper, never()).selectById(any());
+    }
+  }
+
+  // ===== Constraint-indexed matching =====
+
+  @Test
+  @DisplayName("getSettlementPlan: blocked channel with no way around -> reported as unsettled")
+  void getSettlementPlan_blockedChannel_reportsUnsettled() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(seeded(ledger(10L, "Family"))).when(service).getById(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("55.00")),
+                balance(10L, 2L, new BigDecimal("-25.00")),
+                balance(10L, 3L, new BigDecimal("-30.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"), user(3L, "Charlie"));
+    SettlementConfig config = new SettlementConfig();
+    config.setPaymentChannels(Map.of("2-1", Collections.emptySet(), "x-1", Set.of()));
+
+    SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
+
+    assertEquals(1, resp.getTransferCount());
+    assertEquals(3L, resp.getTransfers().get(0).getFromUserId());
+    assertEquals(new BigDecimal("30.00"), resp.getTransfers().get(0).getAmount());
+    assertEquals(2, resp.getUnsettled().size());
+    Map<Long, BigDecimal> open = new HashMap<>();
+    for (SettlementPlanResponse.UnsettledItem item : resp.getUnsettled()) {
+      open.put(item.getUserId(), item.getAmount());
+    }
+    assertEquals(Map.of(1L, new BigDecimal("25.00"), 2L, new BigDecimal("-25.00")), open);
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: blocked head pair -> next largest allowed debtor is used")
+  void getSettlementPlan_blockedHeadPair_usesNextDebtor() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(seeded(ledger(10L, "Family"))).when(service).getById(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    // Alice +60, Bob +40; Charlie -40 may not pay Alice, Dave -60 may pay anyone
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("60.00")),
+                balance(10L, 2L, new BigDecimal("40.00")),
+                balance(10L, 3L, new BigDecimal("-40.00")),
+                balance(10L, 4L, new BigDecimal("-60.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"), user(3L, "Charlie"), user(4L, "Dave"));
+    SettlementConfig config = new SettlementConfig();
+    config.setPaymentChannels(Map.of("3-1", Collections.emptySet()));
+
+    SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
+
+    assertEquals(2, resp.getTransferCount());
+    assertTrue(resp.getUnsettled().isEmpty());
+    for (SettlementPlanResponse.TransferItem t : resp.getTransfers()) {
+      if (t.getFromUserId() == 3L) {
+        assertEquals(2L, t.getToUserId());
+        assertEquals(new BigDecimal("40.00"), t.getAmount());
+      } else {
+        assertEquals(4L, t.getFromUserId());
+        assertEquals(1L, t.getToUserId());
+        assertEquals(new BigDecimal("60.00"), t.getAmount());
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: creditor blocks several debtors -> skipped debtors pay others")
+  void getSettlementPlan_blockedDebtorsSkipped_returnToQueue() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(seeded(ledger(10L, "Family"))).when(service).getById(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    // Alice +100 may only be paid by Erin; Charlie and Dave must wait for Bob
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("100.00")),
+                balance(10L, 2L, new BigDecimal("50.00")),
+                balance(10L, 3L, new BigDecimal("-20.00")),
+                balance(10L, 4L, new BigDecimal("-30.00")),
+                balance(10L, 5L, new BigDecimal("-100.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    stubUsers(
+        user(1L, "Alice"),
+        user(2L, "Bob"),
+        user(3L, "Charlie"),
+        user(4L, "Dave"),
+        user(5L, "Erin"));
+    SettlementConfig config = new SettlementConfig();
+    config.setPaymentChannels(Map.of("3-1", Collections.emptySet(), "4-1", Collections.emptySet()));
+
+    SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
+
+    assertTrue(resp.getUnsettled().isEmpty());
+    Map<String, BigDecimal> paid = new HashMap<>();
+    for (SettlementPlanResponse.TransferItem t : resp.getTransfers()) {
+      paid.put(t.getFromUserId() + "-" + t.getToUserId(), t.getAmount());
+    }
+    assertEquals(
+        Map.of(
+            "5-1", new BigDecimal("100.00"),
+            "3-2", new BigDecimal("20.00"),
+            "4-2", new BigDecimal("30.00")),
+        paid);
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: cap needing more than 1000 transfers -> plan is still complete")
+  void getSettlementPlan_manyCappedTransfers_complete() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(seeded(ledger(10L, "Family"))).when(service).getById(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("2500.00")),
+                balance(10L, 2L, new BigDecimal("-2500.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"));
+    SettlementConfig config = new SettlementConfig();
+    config.setMaxTransferAmount(BigDecimal.ONE);
+
+    SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
+
+    assertEquals(2500, resp.getTransferCount());
+    assertTrue(resp.getUnsettled().isEmpty());
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: cap below one currency unit -> everything reported unsettled")
+  void getSettlementPlan_capBelowUnit_reportsUnsettled() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(seeded(ledger(10L, "Family"))).when(service).getById(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("5.00")),
+                balance(10L, 2L, new BigDecimal("-5.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"));
+    SettlementConfig config = new SettlementConfig();
+    config.setRoundingStrategy("TRIM_TO_UNIT");
+    config.setMaxTransferAmount(new BigDecimal("0.001"));
+
+    SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
+
+    assertEquals(0, resp.getTransferCount());
+    assertEquals(2, resp.getUnsettled().size());
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: min-cost flow with unroutable debt -> reported as unsettled")
+  void getSettlementPlan_minCostFlowBlocked_reportsUnsettled() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(seeded(ledger(10L, "Family"))).when(service).getById(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("10.00")),
+                balance(10L, 2L, new BigDecimal("-10.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    stubUsers(user(1L, "Alice"), user(2L, "Bob"));
+    SettlementConfig config = new SettlementConfig();
+    config.setForceMinCostFlow(true);
+    config.setPaymentChannels(Map.of("2-1", Collections.emptySet()));
+
+    SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
+
+    assertEquals(0, resp.getTransferCount());
+    assertEquals(2, resp.getUnsettled().size());
+  }
+
+  // ===== EXACT settlement algorithm =====
+
+  private void stubExactLedger() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(seeded(ledger(10L, "Family"))).when(service).getById(10L);
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    // {1: +6, 3: -3, 4: -3} and {2: +4, 5: -4} settle with three transfers
+    doReturn(
+            Arrays.asList(
+                balance(10L, 1L, new BigDecimal("6.00")),
+                balance(10L, 2L, new BigDecimal("4.00")),
+                balance(10L, 3L, new BigDecimal("-3.00")),
+                balance(10L, 4L, new BigDecimal("-3.00")),
+                balance(10L, 5L, new BigDecimal("-4.00"))))
+        .when(ledgerUserBalanceMapper)
+        .findByLedgerId(10L);
+    stubUsers(
+        user(1L, "Alice"), user(2L, "Bob"), user(3L, "Carol"), user(4L, "Dave"), user(5L, "Eve"));
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: EXACT -> minimum number of transfers, every balance settled")
+  void getSettlementPlan_exact_minimumTransfers() {
+    stubExactLedger();
+    SettlementConfig config = new SettlementConfig();
+    config.setAlgorithm("EXACT");
+
+    SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
+
+    assertEquals(3, resp.getTransferCount());
+    Map<Long, BigDecimal> net = new HashMap<>();
+    for (SettlementPlanResponse.TransferItem t : resp.getTransfers()) {
+      net.merge(t.getFromUserId(), t.getAmount(), BigDecimal::add);
+      net.merge(t.getToUserId(), t.getAmount().negate(), BigDecimal::add);
+    }
+    assertEquals(0, net.get(1L).compareTo(new BigDecimal("-6.00")));
+    assertEquals(0, net.get(2L).compareTo(new BigDecimal("-4.00")));
+    assertEquals(0, net.get(3L).compareTo(new BigDecimal("3.00")));
+    assertEquals(0, net.get(4L).compareTo(new BigDecimal("3.00")));
+    assertEquals(0, net.get(5L).compareTo(new BigDecimal("4.00")));
+    for (SettlementPlanResponse.TransferItem t : resp.getTransfers()) {
+      // Bob's group never pays into Alice's group
+      assertEquals(t.getToUserId() == 2L, t.getFromUserId() == 5L);
+    }
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: EXACT beats the default heap-greedy plan")
+  void getSettlementPlan_exact_fewerTransfersThanGreedy() {
+    stubExactLedger();
+    SettlementConfig exact = new SettlementConfig();
+    exact.setAlgorithm("EXACT");
+
+    int greedyCount = service.getSettlementPlan(10L, new SettlementConfig()).getTransferCount();
+    int exactCount = service.getSettlementPlan(10L, exact).getTransferCount();
+
+    assertEquals(4, greedyCount);
+    assertEquals(3, exactCount);
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: EXACT above the member limit -> falls back to heap-greedy")
+  void getSettlementPlan_exact_tooManyMembersFallsBack() {
+    stubExactLedger();
+    doReturn(4).when(zeroSumSubsetSolver).maxMembers();
+    SettlementConfig config = new SettlementConfig();
+    config.setAlgorithm("EXACT");
+
+    SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
+
+    assertEquals(4, resp.getTransferCount());
+    verify(zeroSumSubsetSolver, never()).partition(any());
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: EXACT solver out of time -> falls back to heap-greedy")
+  void getSettlementPlan_exact_timeoutFallsBack() {
+    stubExactLedger();
+    doReturn(null).when(zeroSumSubsetSolver).partition(any());
+    SettlementConfig config = new SettlementConfig();
+    config.setAlgorithm("EXACT");
+
+    SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
+
+    assertEquals(4, resp.getTransferCount());
+  }
+
+  @Test
+  @DisplayName("getSettlementPlan: EXACT with a cap -> groups still settle within the cap")
+  void getSettlementPlan_exact_respectsCap() {
+    stubExactLedger();
+    SettlementConfig config = new SettlementConfig();
+    config.setAlgorithm("EXACT");
+    config.setMaxTransferAmount(new BigDecimal("2.50"));
+
+    SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
+
+    BigDecimal total = BigDecimal.ZERO;
+    for (SettlementPlanResponse.TransferItem t : resp.getTransfers()) {
+      assertTrue(t.getAmount().compareTo(new BigDecimal("2.50")) <= 0);
+      total = total.add(t.getAmount());
+    }
+    assertEquals(0, total.compareTo(new BigDecimal("10.00")));
+  }
+
+  // ===== Minor-unit heap-greedy vs BigDecimal reference =====
+
+  @Test
+  @DisplayName(
+      "getSettlementPlan: random ledgers -> minor-unit greedy matches BigDecimal reference")
+  void getSettlementPlan_randomLedgers_matchBigDecimalReference() {
+    CurrentUserContext.set(new UserView(1L, "Alice"));
+    doReturn(ledger(10L, "USD")).when(service).getById(10L);
+    doReturn(member(10L, 1L, "OWNER"))
+        .when(ledgerMemberMapper)
+        .selectOne(any(com.baomidou.mybatisplus.core.conditions.Wrapper.class));
+    doAnswer(
+            inv -> {
+              Map<Long, String> names = new HashMap<>();
+              for (Long id : (Collection<Long>) inv.getArgument(0)) {
+                names.put(id, "U" + id);
+              }
+              return names;
+            })
+        .when(userNameCache)
+        .getNames(any());
+    int[] currentExponent = new int[1];
+    doAnswer(inv -> currentExponent[0]).when(currencyRegistry).exponentOf("USD");
+    List<DebtEdge> edges = new ArrayList<>();
+
+    String[] strategies = {"ROUND_HALF_UP", "TRIM_TO_UNIT", "NONE"};
+    Random random = new Random(4156);
+
+    for (int round = 0; round < 500; round++) {
+      int exponent = new int[] {0, 2, 3}[random.nextInt(3)];
+      currentExponent[0] = exponent;
+      edges.clear();
+      int users = 2 + random.nextInt(7);
+      int edgeCount = 1 + random.nextInt(10);
+      for (int e = 0; e < edgeCount; e++) {
+        long from = 1 + random.nextInt(users);
+        long to = 1 + (from + random.nextInt(users - 1)) % users;
+        edges.add(
+            debtEdge(
+                10L,
+                e,
+                from,
+                to,
+                BigDecimal.valueOf(1 + random.nextInt(1_000_000), 2 + random.nextInt(7))));
+      }
+      stubEdges(10L, edges);
+
+      SettlementConfig config = new SettlementConfig();
+      config.setRoundingStrategy(strategies[random.nextInt(strategies.length)]);
+      if (random.nextBoolean()) {
+        config.setMaxTransferAmount(BigDecimal.valueOf(1 + random.nextInt(500_000), 2));
+      }
+
+      SettlementPlanResponse resp = service.getSettlementPlan(10L, config);
+
+      List<SettlementPlanResponse.TransferItem> expected =
+          referenceHeapGreedy(edges, config, exponent);
+      assertEquals(expected.size(), resp.getTransferCount(), "round " + round);
+      for (int k = 0; k < expected.size(); k++) {
+        SettlementPlanResponse.TransferItem want = expected.get(k);
+        SettlementPlanResponse.TransferItem got = resp.getTransfers().get(k);
+        assertEquals(want.getFromUserId(), got.getFromUserId(), "round " + round);
+        assertEquals(want.getToUserId(), got.getToUserId(), "round " + round);
+        assertEquals(0, want.getAmount().compareTo(got.getAmount()), "round " + round);
+      }
+    }
+  }
+
+  /** The BigDecimal heap-greedy the minor-unit engine replaced, kept as the oracle. */
+  private static List<SettlementPlanResponse.TransferItem> referenceHeapGreedy(
+      List<DebtEdge> edges, SettlementConfig config, int exponent) {
+    Map<Long, BigDecimal> balances = new HashMap<>();
+    for (DebtEdge edge : edges) {
+      balances.merge(edge.getFromUserId(), edge.getAmount(), BigDecimal::add);
+      balances.merge(edge.getToUserId(), edge.getAmount().negate(), BigDecimal::add);
+    }
+    PriorityQueue<Object[]> creditors =
+        new PriorityQueue<>((a, b) -> ((BigDecimal) b[1]).compareTo((BigDecimal) a[1]));
+    PriorityQueue<Object[]> debtors =
+        new PriorityQueue<>((a, b) -> ((BigDecimal) a[1]).compareTo((BigDecimal) b[1]));
+    for (Map.Entry<Long, BigDecimal> entry : balances.entrySet()) {
+      if (entry.getValue().signum() > 0) {
+        creditors.offer(new Object[] {entry.getKey(), entry.getValue()});
+      } else if (entry.getValue().signum() < 0) {
+        debtors.offer(new Object[] {entry.getKey(), entry.getValue().abs()});
+      }
+    }
+
+    List<SettlementPlanResponse.TransferItem> transfers = new ArrayList<>();
+    while (!creditors.isEmpty() && !debtors.isEmpty()) {
+      Object[] creditor = creditors.poll();
+      Object[] debtor = debtors.poll();
+      BigDecimal amount = ((BigDecimal) creditor[1]).min((BigDecimal) debtor[1]);
+      boolean capped =
+          config.getMaxTransferAmount() != null
+              && amount.compareTo(config.getMaxTransferAmount()) > 0;
+      if (capped) {
+        amount = config.getMaxTransferAmount();
+      }
+      switch (config.getRoundingStrategy()) {
+        case "TRIM_TO_UNIT":
+          amount = amount.setScale(exponent, RoundingMode.DOWN);
+          break;
+        case "NONE":
+          break;
+        default:
+          amount = amount.setScale(exponent, RoundingMode.HALF_UP);
+      }
+      if (amount.signum() <= 0) {
+        // A cap below one unit strands the creditor; otherwise the smaller side is residue
+        if (capped) {
+          debtors.offer(debtor);
+        } else if (((BigDecimal) debtor[1]).compareTo((BigDecimal) creditor[1]) < 0) {
+          creditors.offer(creditor);
+        } else {
+          debtors.offer(debtor);
+        }
+        continue;
+      }
+      transfers.add(
+          new SettlementPlanResponse.TransferItem(
+              (Long) debtor[0], null, (Long) creditor[0], null, amount));
+      BigDecimal creditorLeft = ((BigDecimal) creditor[1]).subtract(amount);
+      BigDecimal debtorLeft = ((BigDecimal) debtor[1]).subtract(amount);
+      if (creditorLeft.signum() > 0) {
+        creditors.offer(new Object[] {creditor[0], creditorLeft});
+      }
+      if (debtorLeft.signum() > 0) {
+        debtors.offer(new Object[] {debtor[0], debtorLeft});
+      }
+    }
+    return transfers;
+  }
+
+  /** Runs submitted tasks on the calling thread so fan-out code stays deterministic in tests. */
+  static class CallerRunsExecutor extends AbstractExecutorService {
+    private boolean shutdown;
+
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+
+    @Override
+    public void shutdown() {
+      shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      shutdown = true;
+      return List.of();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return shutdown;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return true;
+    }
+  }
 }
@@ -6,50 +6,73 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import dev.coms4156.project.groupproject.dto.BulkDeleteTransactionsResponse;
 import dev.coms4156.project.groupproject.dto.CreateTransactionRequest;
 import dev.coms4156.project.groupproject.dto.CreateTransactionResponse;
 import dev.coms4156.project.groupproject.dto.ListTransactionsResponse;
 import dev.coms4156.project.groupproject.dto.SplitItem;
 import dev.coms4156.project.groupproject.dto.TransactionResponse;
+import dev.coms4156.project.groupproject.dto.UpdateTransactionRequest;
+import dev.coms4156.project.groupproject.dto.UpdateTransactionResponse;
 import dev.coms4156.project.groupproject.dto.UserView;
-import dev.coms4156.project.groupproject.entity.Currency;
 import dev.coms4156.project.groupproject.entity.DebtEdge;
 import dev.coms4156.project.groupproject.entity.Ledger;
 import dev.coms4156.project.groupproject.entity.LedgerMember;
 import dev.coms4156.project.groupproject.entity.Transaction;
 import dev.coms4156.project.groupproject.entity.TransactionSplit;
-import dev.coms4156.project.groupproject.mapper.CurrencyMapper;
 import dev.coms4156.project.groupproject.mapper.DebtEdgeMapper;
 import dev.coms4156.project.groupproject.mapper.LedgerMapper;
 import dev.coms4156.project.groupproject.mapper.LedgerMemberMapper;
+import dev.coms4156.project.groupproject.mapper.LedgerUserBalanceMapper;
 import dev.coms4156.project.groupproject.mapper.TransactionMapper;
 import dev.coms4156.project.groupproject.mapper.TransactionSplitMapper;
+import dev.coms4156.project.groupproject.search.TransactionNoteIndex;
+import dev.coms4156.project.groupproject.service.ChangeFeedService;
+import dev.coms4156.project.groupproject.settlement.IncrementalSettlementPlanner;
+import dev.coms4156.project.groupproject.utils.CurrencyRegistry;
 import dev.coms4156.project.groupproject.utils.CurrentUserContext;
+import dev.coms4156.project.groupproject.utils.LedgerMembershipCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Unit tests for {@link TransactionServiceImpl} with all external mappers mocked. Internal helper
@@ -64,8 +87,18 @@ class TransactionServiceImplTest {
   @Mock private DebtEdgeMapper debtEdgeMapper;
   @Mock private LedgerMapper ledgerMapper;
   @Mock private LedgerMemberMapper ledgerMemberMapper;
-  @Mock private CurrencyMapper currencyMapper;
+  @Mock private CurrencyRegistry currencyRegistry;
   @Mock private dev.coms4156.project.groupproject.service.BudgetService budgetService;
+  @Mock private LedgerUserBalanceMapper ledgerUserBalanceMapper;
+  @Mock private IncrementalSettlementPlanner incrementalSettlementPlanner;
+  @Mock private TransactionTemplate transactionTemplate;
+  @Mock private ChangeFeedService changeFeedService;
+  @Mock private TransactionNoteIndex transactionNoteIndex;
+  @Mock private dev.coms4156.project.groupproject.service.LedgerService ledgerService;
+
+  @Spy
+  private LedgerMembershipCache membershipCache =
+      new LedgerMembershipCache(new SimpleMeterRegistry(), mock(StringRedisTemplate.class), 0, 300);
 
   @InjectMocks private TransactionServiceImpl service;
 
@@ -138,10 +171,7 @@ class TransactionServiceImplTest {
             })
         .when(transactionMapper)
         .insert(any(Transaction.class));
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     // Payer is userId=1, split is userId=2, so a debt edge should be generated
     CreateTransactionRequest req = reqExpenseEqual(1L, 2L, new BigDecimal("120.00"));
@@ -165,6 +195,16 @@ class TransactionServiceImplTest {
                             == 0));
 
     verify(debtEdgeMapper, times(1)).insertBatch(argThat(list -> list != null && list.size() == 1));
+    verify(ledgerMapper, times(1)).bumpPlanVersion(10L);
+    verify(changeFeedService)
+        .record(
+            eq(10L),
+            argThat(
+                changes ->
+                    changes.size() == 1
+                        && "UPSERT".equals(changes.get(0).op())
+                        && changes.get(0).entityId().equals(77L)));
+    verify(transactionNoteIndex).update(10L, 77L, null, "Dinner");
   }
 
   @Test
@@ -331,7 +371,7 @@ class TransactionServiceImplTest {
     t.setLedgerId(10L);
     t.setCurrency("USD");
     t.setType("EXPENSE");
-    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(100L, 3L);
+    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(100L, 3L, false, null);
     doReturn(Collections.emptyList()).when(transactionSplitMapper).findByTransactionId(100L);
     doReturn(Collections.emptyList()).when(debtEdgeMapper).findByTransactionId(100L);
 
@@ -352,7 +392,7 @@ class TransactionServiceImplTest {
     Transaction t = new Transaction();
     t.setId(100L);
     t.setLedgerId(11L);
-    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(100L, 3L);
+    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(100L, 3L, false, null);
     assertThrows(RuntimeException.class, () -> service.getTransaction(10L, 100L));
   }
 
@@ -383,11 +423,14 @@ class TransactionServiceImplTest {
             any(),
             any(),
             any(),
-            eq(4L));
+            eq(4L),
+            anyBoolean(),
+            any());
     doReturn(records).when(page).getRecords();
     doReturn(1L).when(page).getTotal();
 
-    ListTransactionsResponse resp = service.listTransactions(10L, 1, 10, null, null, null, null);
+    ListTransactionsResponse resp =
+        service.listTransactions(10L, 1, 10, null, null, null, null, null);
     assertEquals(1, resp.getItems().size());
     assertEquals(1, resp.getTotal());
     assertEquals(1, resp.getPage());
@@ -406,13 +449,14 @@ class TransactionServiceImplTest {
     Transaction t = new Transaction();
     t.setId(9L);
     t.setLedgerId(10L);
-    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(9L, 5L);
+    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(9L, 5L, false, null);
 
     service.deleteTransaction(10L, 9L);
 
     verify(debtEdgeMapper, times(1)).deleteByTransactionId(9L);
     verify(transactionSplitMapper, times(1)).deleteByTransactionId(9L);
     verify(transactionMapper, times(1)).deleteById(9L);
+    verify(ledgerMapper, times(1)).bumpPlanVersion(10L);
   }
 
   // ===== Additional Tests for Complete Coverage =====
@@ -429,10 +473,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     CreateTransactionRequest req = reqExpensePercent();
     service.createTransaction(1L, req);
@@ -453,10 +494,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     CreateTransactionRequest req = reqExpenseWeight();
     service.createTransaction(1L, req);
@@ -477,10 +515,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     CreateTransactionRequest req = reqExpenseExact();
     service.createTransaction(1L, req);
@@ -496,7 +531,7 @@ class TransactionServiceImplTest {
     doReturn(ledger(1L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(1L);
     doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
 
-    doReturn(null).when(transactionMapper).findTransactionByIdWithVisibility(999L, 1L);
+    doReturn(null).when(transactionMapper).findTransactionByIdWithVisibility(999L, 1L, false, null);
 
     RuntimeException ex =
         assertThrows(RuntimeException.class, () -> service.getTransaction(1L, 999L));
@@ -526,16 +561,16 @@ class TransactionServiceImplTest {
     doReturn(page)
         .when(transactionMapper)
         .findTransactionsByLedger(
-            any(), eq(1L), any(), any(), eq("EXPENSE"), eq(1L), any(), eq(1L));
+            any(), eq(1L), any(), any(), eq("EXPENSE"), eq(1L), any(), eq(1L), anyBoolean(), any());
 
     ListTransactionsResponse resp =
         service.listTransactions(
-            1L, 1, 10, "2025-01-01T00:00:00", "2025-12-31T23:59:59", "EXPENSE", 1L);
+            1L, 1, 10, "2025-01-01T00:00:00", "2025-12-31T23:59:59", "EXPENSE", 1L, null);
 
     assertNotNull(resp);
     verify(transactionMapper, times(1))
         .findTransactionsByLedger(
-            any(), eq(1L), any(), any(), eq("EXPENSE"), eq(1L), any(), eq(1L));
+            any(), eq(1L), any(), any(), eq("EXPENSE"), eq(1L), any(), eq(1L), anyBoolean(), any());
   }
 
   @Test
@@ -548,10 +583,305 @@ class TransactionServiceImplTest {
     RuntimeException ex =
         assertThrows(
             RuntimeException.class,
-            () -> service.listTransactions(1L, 1, 10, null, null, null, null));
+            () -> service.listTransactions(1L, 1, 10, null, null, null, null, null));
     assertEquals("User not a member of this ledger", ex.getMessage());
   }
 
+  private static Transaction txnAt(long id, LocalDateTime at) {
+    Transaction t = new Transaction();
+    t.setId(id);
+    t.setLedgerId(10L);
+    t.setTxnAt(at);
+    return t;
+  }
+
+  @Test
+  @DisplayName("listTransactionsAfter: full page -> next cursor, one extra row fetched, no count")
+  void listTransactionsAfter_firstPage_returnsCursor() {
+    CurrentUserContext.set(new UserView(4L, "D"));
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+    LocalDateTime at = LocalDateTime.of(2025, 10, 10, 20, 15);
+    doReturn(List.of(txnAt(9L, at), txnAt(8L, at), txnAt(3L, at.minusDays(1))))
+        .when(transactionMapper)
+        .findTransactionsByLedgerAfter(10L, null, null, null, null, 4L, false, null, null, null, 3);
+
+    ListTransactionsResponse first =
+        service.listTransactionsAfter(10L, "", 2, null, null, null, null, false, null);
+
+    assertEquals(2, first.getItems().size());
+    assertEquals(8L, first.getItems().get(1).getTransactionId());
+    assertNotNull(first.getNextCursor());
+    assertNull(first.getTotal());
+    assertNull(first.getPage());
+    verify(transactionMapper, never())
+        .countTransactionsByLedger(any(), any(), any(), any(), any(), any(), anyBoolean(), any());
+
+    // The cursor seeks past the last row returned
+    doReturn(List.of(txnAt(3L, at.minusDays(1))))
+        .when(transactionMapper)
+        .findTransactionsByLedgerAfter(10L, null, null, null, null, 4L, false, null, at, 8L, 3);
+    doReturn(5L)
+        .when(transactionMapper)
+        .countTransactionsByLedger(10L, null, null, null, null, 4L, false, null);
+
+    ListTransactionsResponse second =
+        service.listTransactionsAfter(
+            10L, first.getNextCursor(), 2, null, null, null, null, true, null);
+
+    assertEquals(1, second.getItems().size());
+    assertNull(second.getNextCursor());
+    assertEquals(5L, second.getTotal());
+  }
+
+  @Test
+  @DisplayName("listTransactionsAfter: role and share start date resolved once, passed to queries")
+  void listTransactionsAfter_passesResolvedVisibility() {
+    CurrentUserContext.set(new UserView(4L, "D"));
+    Ledger ledger = ledger(10L, "USD", "GROUP_BALANCE");
+    ledger.setShareStartDate(LocalDate.of(2025, 1, 1));
+    doReturn(ledger).when(ledgerMapper).selectById(10L);
+    doReturn(ledgerMember(4L, "EDITOR")).when(ledgerMemberMapper).selectOne(any());
+    doReturn(List.of())
+        .when(transactionMapper)
+        .findTransactionsByLedgerAfter(
+            10L, null, null, null, null, 4L, false, LocalDate.of(2025, 1, 1), null, null, 3);
+
+    service.listTransactionsAfter(10L, null, 2, null, null, null, null, false, null);
+
+    // OWNERs and ADMINs skip the privacy and share start filters
+    doReturn(ledgerMember(4L, "ADMIN")).when(ledgerMemberMapper).selectOne(any());
+    doReturn(List.of())
+        .when(transactionMapper)
+        .findTransactionsByLedgerAfter(
+            10L, null, null, null, null, 4L, true, LocalDate.of(2025, 1, 1), null, null, 3);
+
+    service.listTransactionsAfter(10L, null, 2, null, null, null, null, false, null);
+
+    verify(ledgerMapper, times(2)).selectById(10L);
+    verify(ledgerMemberMapper, times(2)).selectOne(any());
+  }
+
+  private static TransactionSplit splitOf(long transactionId, long userId) {
+    TransactionSplit split = new TransactionSplit();
+    split.setTransactionId(transactionId);
+    split.setUserId(userId);
+    return split;
+  }
+
+  private static DebtEdge edgeOf(long transactionId, long fromUserId, long toUserId) {
+    DebtEdge edge = new DebtEdge();
+    edge.setTransactionId(transactionId);
+    edge.setFromUserId(fromUserId);
+    edge.setToUserId(toUserId);
+    return edge;
+  }
+
+  @Test
+  @DisplayName("listTransactionsAfter: include=splits,edges -> one IN query each for the page")
+  void listTransactionsAfter_includeDetails_batchesQueries() {
+    CurrentUserContext.set(new UserView(4L, "D"));
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+    LocalDateTime at = LocalDateTime.of(2025, 10, 10, 20, 15);
+    doReturn(List.of(txnAt(9L, at), txnAt(8L, at), txnAt(7L, at)))
+        .when(transactionMapper)
+        .findTransactionsByLedgerAfter(10L, null, null, null, null, 4L, false, null, null, null, 4);
+    doReturn(List.of(splitOf(8L, 1L), splitOf(8L, 2L), splitOf(9L, 1L)))
+        .when(transactionSplitMapper)
+        .findByTransactionIds(List.of(9L, 8L, 7L));
+    doReturn(List.of(edgeOf(8L, 1L, 2L)))
+        .when(debtEdgeMapper)
+        .findByLedgerAndTransactionIds(10L, List.of(9L, 8L, 7L));
+
+    ListTransactionsResponse resp =
+        service.listTransactionsAfter(
+            10L, null, 3, null, null, null, null, false, List.of("splits", "edges"));
+
+    assertEquals(1, resp.getItems().get(0).getSplits().size());
+    assertEquals(2, resp.getItems().get(1).getSplits().size());
+    assertEquals(2L, resp.getItems().get(1).getSplits().get(1).getUserId());
+    assertTrue(resp.getItems().get(2).getSplits().isEmpty());
+    assertTrue(resp.getItems().get(0).getEdgesPreview().isEmpty());
+    assertEquals(2L, resp.getItems().get(1).getEdgesPreview().get(0).getToUserId());
+    verify(transactionSplitMapper, never()).findByTransactionId(any());
+    verify(debtEdgeMapper, never()).findByTransactionId(any());
+  }
+
+  @Test
+  @DisplayName("searchTransactions: index candidates -> one keyset query over their IDs")
+  void searchTransactions_queriesCandidateIds() {
+    CurrentUserContext.set(new UserView(4L, "D"));
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(ledgerMember(4L, "EDITOR")).when(ledgerMemberMapper).selectOne(any());
+    doReturn(new long[] {3L, 8L, 9L}).when(transactionNoteIndex).search(10L, "coffee");
+    LocalDateTime at = LocalDateTime.of(2025, 10, 10, 20, 15);
+    LocalDateTime from = LocalDateTime.of(2025, 10, 1, 0, 0);
+    doReturn(List.of(txnAt(9L, at), txnAt(8L, at), txnAt(3L, at.minusDays(1))))
+        .when(transactionMapper)
+        .findTransactionsByIdsAfter(
+            10L, List.of(3L, 8L, 9L), from, null, "EXPENSE", null, 4L, false, null, null, null, 3);
+
+    ListTransactionsResponse resp =
+        service.searchTransactions(
+            10L, "coffee", null, 2, "2025-10-01T00:00:00", null, "EXPENSE", null, null);
+
+    assertEquals(2, resp.getItems().size());
+    assertEquals(9L, resp.getItems().get(0).getTransactionId());
+    assertNotNull(resp.getNextCursor());
+    verify(transactionMapper, never())
+        .findTransactionsByLedgerAfter(
+            any(), any(), any(), any(), any(), any(), anyBoolean(), any(), any(), any(), anyInt());
+  }
+
+  @Test
+  @DisplayName("searchTransactions: no candidates -> empty page without a query")
+  void searchTransactions_noMatches_skipsQuery() {
+    CurrentUserContext.set(new UserView(4L, "D"));
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+    doReturn(new long[0]).when(transactionNoteIndex).search(10L, "zzz");
+
+    ListTransactionsResponse resp =
+        service.searchTransactions(10L, "zzz", null, 20, null, null, null, null, null);
+
+    assertTrue(resp.getItems().isEmpty());
+    assertNull(resp.getNextCursor());
+    verify(transactionMapper, never())
+        .findTransactionsByIdsAfter(
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            anyBoolean(),
+            any(),
+            any(),
+            any(),
+            anyInt());
+  }
+
+  @Test
+  @DisplayName("searchTransactions: candidates over one chunk -> chunks merged newest first")
+  @SuppressWarnings("unchecked")
+  void searchTransactions_manyCandidates_mergesChunks() {
+    CurrentUserContext.set(new UserView(4L, "D"));
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+    long[] candidates = new long[TransactionServiceImpl.SEARCH_ID_CHUNK_SIZE + 5];
+    for (int i = 0; i < candidates.length; i++) {
+      candidates[i] = i + 1;
+    }
+    doReturn(candidates).when(transactionNoteIndex).search(10L, "rent");
+    LocalDateTime at = LocalDateTime.of(2025, 10, 10, 20, 15);
+    // The first chunk holds older rows than the second
+    doAnswer(
+            inv -> {
+              List<Long> ids = inv.getArgument(1);
+              return ids.get(0) == 1L
+                  ? List.of(txnAt(900L, at.minusDays(2)), txnAt(800L, at.minusDays(3)))
+                  : List.of(txnAt(1004L, at), txnAt(1002L, at.minusDays(1)));
+            })
+        .when(transactionMapper)
+        .findTransactionsByIdsAfter(
+            eq(10L),
+            any(List.class),
+            any(),
+            any(),
+            any(),
+            any(),
+            eq(4L),
+            eq(false),
+            any(),
+            any(),
+            any(),
+            eq(3));
+
+    ListTransactionsResponse resp =
+        service.searchTransactions(10L, "rent", null, 2, null, null, null, null, null);
+
+    assertEquals(2, resp.getItems().size());
+    assertEquals(1004L, resp.getItems().get(0).getTransactionId());
+    assertEquals(1002L, resp.getItems().get(1).getTransactionId());
+    assertNotNull(resp.getNextCursor());
+    verify(transactionMapper, times(2))
+        .findTransactionsByIdsAfter(
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            anyBoolean(),
+            any(),
+            any(),
+            any(),
+            anyInt());
+  }
+
+  @Test
+  @DisplayName("listTransactions: include=edges on a SINGLE ledger -> empty edges, no query")
+  void listTransactions_includeEdges_singleLedger_skipsQuery() {
+    CurrentUserContext.set(new UserView(4L, "D"));
+    doReturn(ledger(10L, "USD", "SINGLE")).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+    final IPage<Transaction> page = org.mockito.Mockito.mock(IPage.class);
+    doReturn(List.of(txnAt(5L, LocalDateTime.of(2025, 10, 10, 20, 15)))).when(page).getRecords();
+    doReturn(page)
+        .when(transactionMapper)
+        .findTransactionsByLedger(
+            any(), eq(10L), any(), any(), any(), any(), any(), eq(4L), anyBoolean(), any());
+
+    ListTransactionsResponse resp =
+        service.listTransactions(10L, 1, 10, null, null, null, null, List.of("edges"));
+
+    assertTrue(resp.getItems().get(0).getEdgesPreview().isEmpty());
+    assertNull(resp.getItems().get(0).getSplits());
+    verify(debtEdgeMapper, never()).findByLedgerAndTransactionIds(any(), any());
+    verify(transactionSplitMapper, never()).findByTransactionIds(any());
+  }
+
+  @Test
+  @DisplayName("listTransactions: unknown include -> Unsupported include, nothing queried")
+  void listTransactions_unknownInclude_throws() {
+    CurrentUserContext.set(new UserView(4L, "D"));
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+
+    RuntimeException ex =
+        assertThrows(
+            RuntimeException.class,
+            () -> service.listTransactions(10L, 1, 10, null, null, null, null, List.of("notes")));
+
+    assertEquals("Unsupported include: notes", ex.getMessage());
+    verify(transactionMapper, never())
+        .findTransactionsByLedger(
+            any(), any(), any(), any(), any(), any(), any(), any(), anyBoolean(), any());
+  }
+
+  @Test
+  @DisplayName("listTransactionsAfter: tampered cursor -> Invalid cursor")
+  void listTransactionsAfter_invalidCursor_throws() {
+    CurrentUserContext.set(new UserView(4L, "D"));
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+
+    RuntimeException ex =
+        assertThrows(
+            RuntimeException.class,
+            () ->
+                service.listTransactionsAfter(
+                    10L, "bm90LWEtY3Vyc29y", 2, null, null, null, null, false, null));
+
+    assertEquals("Invalid cursor", ex.getMessage());
+    verify(transactionMapper, never())
+        .findTransactionsByLedgerAfter(
+            any(), any(), any(), any(), any(), any(), anyBoolean(), any(), any(), any(), anyInt());
+  }
+
   @Test
   @DisplayName("deleteTransaction: invalid not found -> throws")
   void deleteTransaction_notFound() {
@@ -559,7 +889,7 @@ class TransactionServiceImplTest {
     doReturn(ledger(1L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(1L);
     doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
 
-    doReturn(null).when(transactionMapper).findTransactionByIdWithVisibility(999L, 1L);
+    doReturn(null).when(transactionMapper).findTransactionByIdWithVisibility(999L, 1L, false, null);
 
     RuntimeException ex =
         assertThrows(RuntimeException.class, () -> service.deleteTransaction(1L, 999L));
@@ -578,6 +908,258 @@ class TransactionServiceImplTest {
     assertEquals("User not a member of this ledger", ex.getMessage());
   }
 
+  private static final LocalDateTime STORED_AT = LocalDateTime.of(2025, 3, 1, 19, 30);
+
+  /** Stored 100.00 EXPENSE paid by user 1, split equally between users 1 and 2. */
+  private void stubStoredTransaction(long currentUserId, String role) {
+    CurrentUserContext.set(new UserView(currentUserId, "U"));
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(ledgerMember(currentUserId, role)).when(ledgerMemberMapper).selectOne(any());
+
+    Transaction t = new Transaction();
+    t.setId(9L);
+    t.setLedgerId(10L);
+    t.setCreatedBy(1L);
+    t.setTxnAt(STORED_AT);
+    t.setType("EXPENSE");
+    t.setPayerId(1L);
+    t.setAmountTotal(new BigDecimal("100.00000000"));
+    t.setCurrency("USD");
+    t.setNote("Dinner");
+    t.setIsPrivate(false);
+    t.setRoundingStrategy("ROUND_HALF_UP");
+    t.setTailAllocation("PAYER");
+    doReturn(t)
+        .when(transactionMapper)
+        .findTransactionByIdWithVisibility(9L, currentUserId, "OWNER".equals(role), null);
+  }
+
+  private void stubStoredSplitsAndEdges() {
+    List<TransactionSplit> splits = new ArrayList<>();
+    for (long userId = 1; userId <= 2; userId++) {
+      TransactionSplit split = splitOf(9L, userId);
+      split.setSplitMethod("EQUAL");
+      split.setShareValue(new BigDecimal("0E-8"));
+      split.setIncluded(true);
+      split.setComputedAmount(new BigDecimal("50.00000000"));
+      splits.add(split);
+    }
+    doReturn(splits).when(transactionSplitMapper).findByTransactionId(9L);
+    doReturn(Arrays.asList(ledgerMember(1L, "OWNER"), ledgerMember(2L, "EDITOR")))
+        .when(ledgerMemberMapper)
+        .selectList(any());
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
+
+    DebtEdge edge = edgeOf(9L, 1L, 2L);
+    edge.setId(500L);
+    edge.setAmount(new BigDecimal("50.00000000"));
+    edge.setEdgeCurrency("USD");
+    doReturn(List.of(edge)).when(debtEdgeMapper).findByTransactionId(9L);
+  }
+
+  @Test
+  @DisplayName("updateTransaction: note only -> row updated, no split/edge writes, no version bump")
+  void updateTransaction_noteOnly_writesOnlyRow() {
+    stubStoredTransaction(1L, "EDITOR");
+    stubStoredSplitsAndEdges();
+    UpdateTransactionRequest req = new UpdateTransactionRequest();
+    req.setNote("Team dinner");
+
+    UpdateTransactionResponse resp = service.updateTransaction(10L, 9L, req);
+
+    assertEquals(0, resp.getSplitsWritten());
+    assertEquals(0, resp.getEdgesWritten());
+    assertEquals(0, resp.getEdgesDeleted());
+    verify(transactionMapper)
+        .updateById(argThat((Transaction t) -> "Team dinner".equals(t.getNote())));
+    verify(transactionSplitMapper, never()).upsertBatch(any());
+    verify(debtEdgeMapper, never()).upsertBatch(any());
+    verify(ledgerUserBalanceMapper, never()).applyDeltas(any());
+    verify(ledgerMapper, never()).bumpPlanVersion(anyLong());
+    verify(budgetService, never()).checkBudgetAfterTransaction(any(), any(), any());
+  }
+
+  @Test
+  @DisplayName("updateTransaction: amount 100 -> 120 -> upserts splits and edge, balances by +/-10")
+  void updateTransaction_amountChange_appliesBalanceDifference() {
+    doReturn(true).when(ledgerMapper).selectBalancesInitializedForUpdate(10L);
+    stubStoredTransaction(1L, "EDITOR");
+    stubStoredSplitsAndEdges();
+    UpdateTransactionRequest req = new UpdateTransactionRequest();
+    req.setAmountTotal(new BigDecimal("120.00"));
+
+    UpdateTransactionResponse resp = service.updateTransaction(10L, 9L, req);
+
+    assertEquals(2, resp.getSplitsWritten());
+    assertEquals(1, resp.getEdgesWritten());
+    verify(debtEdgeMapper)
+        .upsertBatch(
+            argThat(
+                edges ->
+                    edges.size() == 1
+                        && edges.get(0).getAmount().compareTo(new BigDecimal("60")) == 0));
+    verify(debtEdgeMapper, never()).deleteByTransactionIdAndIds(any(), any());
+    verify(ledgerUserBalanceMapper)
+        .applyDeltas(
+            argThat(
+                rows ->
+                    rows.size() == 2
+                        && rows.get(0).getUserId() == 1L
+                        && rows.get(0).getNetAmountBase().compareTo(new BigDecimal("10")) == 0
+                        && rows.get(1).getNetAmountBase().compareTo(new BigDecimal("-10")) == 0));
+    verify(ledgerMapper).bumpPlanVersion(10L);
+    verify(budgetService).checkBudgetAfterTransaction(10L, null, STORED_AT);
+  }
+
+  @Test
+  @DisplayName(
+      "updateTransaction: participant removed -> split and edge deleted, balances reversed")
+  void updateTransaction_participantRemoved_deletesRows() {
+    doReturn(true).when(ledgerMapper).selectBalancesInitializedForUpdate(10L);
+    stubStoredTransaction(2L, "OWNER");
+    stubStoredSplitsAndEdges();
+    SplitItem only = new SplitItem();
+    only.setUserId(1L);
+    only.setSplitMethod("EQUAL");
+    only.setShareValue(BigDecimal.ZERO);
+    only.setIncluded(true);
+    UpdateTransactionRequest req = new UpdateTransactionRequest();
+    req.setSplits(List.of(only));
+
+    UpdateTransactionResponse resp = service.updateTransaction(10L, 9L, req);
+
+    assertEquals(1, resp.getSplitsWritten());
+    assertEquals(1, resp.getSplitsDeleted());
+    assertEquals(0, resp.getEdgesWritten());
+    assertEquals(1, resp.getEdgesDeleted());
+    verify(transactionMapper, never()).updateById(any(Transaction.class));
+    verify(transactionSplitMapper).deleteByTransactionIdAndUserIds(9L, java.util.Set.of(2L));
+    verify(debtEdgeMapper).deleteByTransactionIdAndIds(9L, List.of(500L));
+    verify(ledgerUserBalanceMapper)
+        .applyDeltas(
+            argThat(
+                rows ->
+                    rows.size() == 2
+                        && rows.get(0).getNetAmountBase().compareTo(new BigDecimal("-50")) == 0
+                        && rows.get(1).getNetAmountBase().compareTo(new BigDecimal("50")) == 0));
+    verify(ledgerMapper).bumpPlanVersion(10L);
+    verify(budgetService, never()).checkBudgetAfterTransaction(any(), any(), any());
+  }
+
+  @Test
+  @DisplayName("updateTransaction: neither creator nor OWNER/ADMIN -> throws before any write")
+  void updateTransaction_notCreator_throws() {
+    stubStoredTransaction(2L, "EDITOR");
+
+    RuntimeException ex =
+        assertThrows(
+            RuntimeException.class,
+            () -> service.updateTransaction(10L, 9L, new UpdateTransactionRequest()));
+
+    assertEquals("Only the creator or an OWNER/ADMIN can update a transaction", ex.getMessage());
+    verify(transactionSplitMapper, never()).findByTransactionId(anyLong());
+  }
+
+  private void runChunksInline() {
+    doAnswer(inv -> ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null))
+        .when(transactionTemplate)
+        .execute(any());
+  }
+
+  private static List<Long> idRange(long first, int count) {
+    List<Long> ids = new ArrayList<>(count);
+    for (long id = first; id < first + count; id++) {
+      ids.add(id);
+    }
+    return ids;
+  }
+
+  @Test
+  @DisplayName("deleteTransactions: 503 matches -> full chunk then remainder, set-based deletes")
+  void deleteTransactions_twoChunks_deletesInBoundedBatches() {
+    doReturn(true).when(ledgerMapper).selectBalancesInitializedForUpdate(10L);
+    CurrentUserContext.set(new UserView(1L, "A"));
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(ledgerMember(1L, "OWNER")).when(ledgerMemberMapper).selectOne(any());
+    runChunksInline();
+    List<Long> first = idRange(1, TransactionServiceImpl.BULK_DELETE_CHUNK_SIZE);
+    List<Long> second = idRange(1_000, 3);
+    doReturn(first, second)
+        .when(transactionMapper)
+        .findTransactionIdsByLedger(
+            eq(10L), any(), any(), eq("EXPENSE"), isNull(), eq(1L), eq(true), isNull(), eq(500));
+    DebtEdge edge = edgeOf(1_000L, 1L, 2L);
+    edge.setAmount(new BigDecimal("30.00"));
+    doReturn(List.of(), List.of(edge))
+        .when(debtEdgeMapper)
+        .findByLedgerAndTransactionIds(eq(10L), any());
+
+    BulkDeleteTransactionsResponse resp =
+        service.deleteTransactions(10L, "2025-01-01T00:00:00", null, "EXPENSE", null);
+
+    assertEquals(503L, resp.getDeleted());
+    assertEquals(2, resp.getChunks());
+    verify(transactionTemplate, times(2)).execute(any());
+    verify(transactionSplitMapper).deleteByTransactionIds(first);
+    verify(transactionSplitMapper).deleteByTransactionIds(second);
+    verify(transactionMapper).deleteByIds(second);
+    verify(debtEdgeMapper, times(1)).deleteByLedgerAndTransactionIds(10L, second);
+    verify(ledgerUserBalanceMapper)
+        .applyDeltas(
+            argThat(
+                rows ->
+                    rows.size() == 2
+                        && rows.get(0).getNetAmountBase().compareTo(new BigDecimal("-30")) == 0));
+    verify(ledgerMapper, times(2)).bumpPlanVersion(10L);
+  }
+
+  @Test
+  @DisplayName("deleteTransactions: non-admin -> scoped to own rows; nothing matched -> no writes")
+  void deleteTransactions_nonPrivileged_scopedToOwnRows() {
+    CurrentUserContext.set(new UserView(2L, "B"));
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(ledgerMember(2L, "EDITOR")).when(ledgerMemberMapper).selectOne(any());
+    runChunksInline();
+    doReturn(List.of())
+        .when(transactionMapper)
+        .findTransactionIdsByLedger(
+            eq(10L),
+            isNull(),
+            isNull(),
+            eq("INCOME"),
+            eq(2L),
+            eq(2L),
+            eq(false),
+            isNull(),
+            eq(500));
+
+    BulkDeleteTransactionsResponse resp =
+        service.deleteTransactions(10L, null, null, "INCOME", null);
+
+    assertEquals(0L, resp.getDeleted());
+    assertEquals(0, resp.getChunks());
+    verify(transactionMapper, never()).deleteByIds(any());
+    verify(ledgerMapper, never()).bumpPlanVersion(anyLong());
+  }
+
+  @Test
+  @DisplayName("deleteTransactions: no filter, or non-admin targeting others -> throws")
+  void deleteTransactions_invalid_throws() {
+    CurrentUserContext.set(new UserView(2L, "B"));
+    RuntimeException noFilter =
+        assertThrows(
+            RuntimeException.class, () -> service.deleteTransactions(10L, null, null, null, null));
+    assertEquals("Bulk delete needs at least one filter", noFilter.getMessage());
+
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(ledgerMember(2L, "EDITOR")).when(ledgerMemberMapper).selectOne(any());
+    RuntimeException others =
+        assertThrows(
+            RuntimeException.class, () -> service.deleteTransactions(10L, null, null, null, 3L));
+    assertEquals("Only OWNER/ADMIN can delete other members' transactions", others.getMessage());
+    verify(transactionTemplate, never()).execute(any());
+  }
+
   // Helper methods for new test data
   private CreateTransactionRequest reqExpensePercent() {
     CreateTransactionRequest req = new CreateTransactionRequest();
@@ -632,10 +1214,7 @@ class TransactionServiceImplTest {
         .when(transactionMapper)
         .insert(any(Transaction.class));
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doReturn(1).when(transactionSplitMapper).insertBatch(any(List.class));
 
@@ -682,10 +1261,7 @@ class TransactionServiceImplTest {
         .when(transactionMapper)
         .insert(any(Transaction.class));
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doReturn(1).when(transactionSplitMapper).insertBatch(any(List.class));
 
@@ -731,10 +1307,7 @@ class TransactionServiceImplTest {
         .when(transactionMapper)
         .insert(any(Transaction.class));
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doReturn(1).when(transactionSplitMapper).insertBatch(any(List.class));
 
@@ -777,10 +1350,7 @@ class TransactionServiceImplTest {
         .when(transactionMapper)
         .insert(any(Transaction.class));
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doReturn(1).when(transactionSplitMapper).insertBatch(any(List.class));
 
@@ -826,10 +1396,7 @@ class TransactionServiceImplTest {
         .when(transactionMapper)
         .insert(any(Transaction.class));
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doReturn(1).when(transactionSplitMapper).insertBatch(any(List.class));
 
@@ -920,7 +1487,7 @@ class TransactionServiceImplTest {
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
     // Currency not found - returns null
-    doReturn(null).when(currencyMapper).selectById("UNKNOWN");
+    doReturn(null).when(currencyRegistry).exponentOf("UNKNOWN");
 
     doAnswer(
             inv -> {
@@ -954,10 +1521,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -988,10 +1552,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1025,10 +1586,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1059,10 +1617,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1093,10 +1648,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1130,10 +1682,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1165,10 +1714,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(1L, "OWNER"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1236,10 +1782,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1277,10 +1820,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1310,7 +1850,7 @@ class TransactionServiceImplTest {
     doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
 
     // Transaction not found
-    doReturn(null).when(transactionMapper).findTransactionByIdWithVisibility(999L, 1L);
+    doReturn(null).when(transactionMapper).findTransactionByIdWithVisibility(999L, 1L, false, null);
 
     assertThrows(RuntimeException.class, () -> service.getTransaction(1L, 999L));
   }
@@ -1325,7 +1865,7 @@ class TransactionServiceImplTest {
     Transaction t = new Transaction();
     t.setId(500L);
     t.setLedgerId(999L); // Different ledger ID
-    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(500L, 1L);
+    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(500L, 1L, false, null);
 
     assertThrows(RuntimeException.class, () -> service.getTransaction(1L, 500L));
   }
@@ -1340,7 +1880,7 @@ class TransactionServiceImplTest {
     Transaction t = new Transaction();
     t.setId(501L);
     t.setLedgerId(1L);
-    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(501L, 1L);
+    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(501L, 1L, false, null);
 
     // No splits
     doReturn(Collections.emptyList()).when(transactionSplitMapper).findByTransactionId(501L);
@@ -1368,9 +1908,11 @@ class TransactionServiceImplTest {
     page.setTotal(0L);
     doReturn(page)
         .when(transactionMapper)
-        .findTransactionsByLedger(any(), eq(1L), isNull(), isNull(), any(), any(), any(), eq(1L));
+        .findTransactionsByLedger(
+            any(), eq(1L), isNull(), isNull(), any(), any(), any(), eq(1L), anyBoolean(), any());
 
-    ListTransactionsResponse resp = service.listTransactions(1L, 1, 10, null, null, null, null);
+    ListTransactionsResponse resp =
+        service.listTransactions(1L, 1, 10, null, null, null, null, null);
 
     assertNotNull(resp);
     assertEquals(0, resp.getItems().size());
@@ -1384,7 +1926,7 @@ class TransactionServiceImplTest {
     doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
 
     // Transaction not found
-    doReturn(null).when(transactionMapper).findTransactionByIdWithVisibility(999L, 1L);
+    doReturn(null).when(transactionMapper).findTransactionByIdWithVisibility(999L, 1L, false, null);
 
     assertThrows(RuntimeException.class, () -> service.deleteTransaction(1L, 999L));
   }
@@ -1399,7 +1941,7 @@ class TransactionServiceImplTest {
     Transaction t = new Transaction();
     t.setId(600L);
     t.setLedgerId(999L); // Different ledger ID
-    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(600L, 1L);
+    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(600L, 1L, false, null);
 
     assertThrows(RuntimeException.class, () -> service.deleteTransaction(1L, 600L));
   }
@@ -1486,10 +2028,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(1L, "OWNER"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1525,7 +2064,8 @@ class TransactionServiceImplTest {
     CurrentUserContext.set(null);
 
     assertThrows(
-        RuntimeException.class, () -> service.listTransactions(1L, 1, 10, null, null, null, null));
+        RuntimeException.class,
+        () -> service.listTransactions(1L, 1, 10, null, null, null, null, null));
   }
 
   @Test
@@ -1548,12 +2088,13 @@ class TransactionServiceImplTest {
     page.setTotal(0L);
     doReturn(page)
         .when(transactionMapper)
-        .findTransactionsByLedger(any(), eq(1L), any(), any(), any(), any(), any(), eq(1L));
+        .findTransactionsByLedger(
+            any(), eq(1L), any(), any(), any(), any(), any(), eq(1L), anyBoolean(), any());
 
     String fromDate = "2024-01-01T00:00:00";
     String toDate = "2024-12-31T23:59:59";
     ListTransactionsResponse resp =
-        service.listTransactions(1L, 1, 10, fromDate, toDate, null, null);
+        service.listTransactions(1L, 1, 10, fromDate, toDate, null, null, null);
 
     assertNotNull(resp);
     assertEquals(0, resp.getItems().size());
@@ -1571,10 +2112,12 @@ class TransactionServiceImplTest {
     page.setTotal(0L);
     doReturn(page)
         .when(transactionMapper)
-        .findTransactionsByLedger(any(), eq(1L), any(), isNull(), any(), any(), any(), eq(1L));
+        .findTransactionsByLedger(
+            any(), eq(1L), any(), isNull(), any(), any(), any(), eq(1L), anyBoolean(), any());
 
     String fromDate = "2024-01-01T00:00:00";
-    ListTransactionsResponse resp = service.listTransactions(1L, 1, 10, fromDate, null, null, null);
+    ListTransactionsResponse resp =
+        service.listTransactions(1L, 1, 10, fromDate, null, null, null, null);
 
     assertNotNull(resp);
     assertEquals(0, resp.getItems().size());
@@ -1592,10 +2135,12 @@ class TransactionServiceImplTest {
     page.setTotal(0L);
     doReturn(page)
         .when(transactionMapper)
-        .findTransactionsByLedger(any(), eq(1L), isNull(), any(), any(), any(), any(), eq(1L));
+        .findTransactionsByLedger(
+            any(), eq(1L), isNull(), any(), any(), any(), any(), eq(1L), anyBoolean(), any());
 
     String toDate = "2024-12-31T23:59:59";
-    ListTransactionsResponse resp = service.listTransactions(1L, 1, 10, null, toDate, null, null);
+    ListTransactionsResponse resp =
+        service.listTransactions(1L, 1, 10, null, toDate, null, null, null);
 
     assertNotNull(resp);
     assertEquals(0, resp.getItems().size());
@@ -1634,10 +2179,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1669,10 +2211,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1706,10 +2245,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1741,10 +2277,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1777,10 +2310,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1812,10 +2342,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1847,10 +2374,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1883,10 +2407,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1919,10 +2440,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1952,10 +2470,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -1986,10 +2501,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2021,10 +2533,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2056,10 +2565,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2090,10 +2596,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(5L, "EDITOR")); // Creator is member
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2126,10 +2629,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(3L, "VIEWER"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2172,10 +2672,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(3L, "VIEWER"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2225,10 +2722,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2259,7 +2753,7 @@ class TransactionServiceImplTest {
     t.setCurrency("USD");
     t.setType("EXPENSE");
     t.setAmountTotal(new BigDecimal("100.00"));
-    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(2000L, 1L);
+    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(2000L, 1L, false, null);
 
     TransactionSplit split = new TransactionSplit();
     split.setUserId(2L);
@@ -2293,7 +2787,7 @@ class TransactionServiceImplTest {
     Transaction t = new Transaction();
     t.setId(2002L);
     t.setLedgerId(1L);
-    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(2002L, 1L);
+    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(2002L, 1L, false, null);
 
     doReturn(Collections.emptyList()).when(transactionSplitMapper).findByTransactionId(2002L);
     doReturn(null).when(debtEdgeMapper).findByTransactionId(2002L);
@@ -2313,10 +2807,11 @@ class TransactionServiceImplTest {
     page.setTotal(0L);
     doReturn(page)
         .when(transactionMapper)
-        .findTransactionsByLedger(any(), eq(1L), any(), any(), eq("EXPENSE"), any(), any(), eq(1L));
+        .findTransactionsByLedger(
+            any(), eq(1L), any(), any(), eq("EXPENSE"), any(), any(), eq(1L), anyBoolean(), any());
 
     ListTransactionsResponse resp =
-        service.listTransactions(1L, 1, 10, null, null, "EXPENSE", null);
+        service.listTransactions(1L, 1, 10, null, null, "EXPENSE", null, null);
 
     assertNotNull(resp);
     assertEquals(0, resp.getItems().size());
@@ -2334,9 +2829,10 @@ class TransactionServiceImplTest {
     page.setTotal(0L);
     doReturn(page)
         .when(transactionMapper)
-        .findTransactionsByLedger(any(), eq(1L), any(), any(), any(), eq(5L), any(), eq(1L));
+        .findTransactionsByLedger(
+            any(), eq(1L), any(), any(), any(), eq(5L), any(), eq(1L), anyBoolean(), any());
 
-    ListTransactionsResponse resp = service.listTransactions(1L, 1, 10, null, null, null, 5L);
+    ListTransactionsResponse resp = service.listTransactions(1L, 1, 10, null, null, null, 5L, null);
 
     assertNotNull(resp);
     assertEquals(0, resp.getItems().size());
@@ -2356,10 +2852,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2391,10 +2884,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2426,10 +2916,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2463,10 +2950,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2518,7 +3002,7 @@ class TransactionServiceImplTest {
     Transaction t = new Transaction();
     t.setId(4000L);
     t.setLedgerId(1L);
-    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(4000L, 1L);
+    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(4000L, 1L, false, null);
 
     service.deleteTransaction(1L, 4000L);
 
@@ -2548,9 +3032,11 @@ class TransactionServiceImplTest {
     page.setTotal(1L);
     doReturn(page)
         .when(transactionMapper)
-        .findTransactionsByLedger(any(), eq(1L), any(), any(), any(), any(), any(), eq(1L));
+        .findTransactionsByLedger(
+            any(), eq(1L), any(), any(), any(), any(), any(), eq(1L), anyBoolean(), any());
 
-    ListTransactionsResponse resp = service.listTransactions(1L, 1, 10, null, null, null, null);
+    ListTransactionsResponse resp =
+        service.listTransactions(1L, 1, 10, null, null, null, null, null);
 
     assertNotNull(resp);
     assertEquals(1, resp.getItems().size());
@@ -2572,10 +3058,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(5L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2606,10 +3089,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2660,10 +3140,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2695,10 +3172,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2730,10 +3204,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(1L, "OWNER"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2765,10 +3236,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(1L, "OWNER"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2800,10 +3268,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2840,10 +3305,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2874,10 +3336,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2949,10 +3408,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -2985,7 +3441,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    doReturn(null).when(currencyMapper).selectById("XYZ"); // Currency not found
+    doReturn(null).when(currencyRegistry).exponentOf("XYZ"); // Currency not found
 
     doAnswer(
             inv -> {
@@ -3016,10 +3472,7 @@ class TransactionServiceImplTest {
     members.add(ledgerMember(2L, "EDITOR"));
     doReturn(members).when(ledgerMemberMapper).selectList(any());
 
-    Currency usd = new Currency();
-    usd.setCode("USD");
-    usd.setExponent(2);
-    doReturn(usd).when(currencyMapper).selectById("USD");
+    doReturn(2).when(currencyRegistry).exponentOf("USD");
 
     doAnswer(
             inv -> {
@@ -3058,4 +3511,459 @@ class TransactionServiceImplTest {
         assertThrows(RuntimeException.class, () -> service.createTransaction(1L, req));
     assertTrue(ex.getMessage().contains("not members of the ledger"));
   }
+
+  // ===== Materialized member balances =====
+
+  @Test
+  @DisplayName("createTransaction: GROUP_BALANCE -> applies per-member balance deltas")
+  void createTransaction_appliesBalanceDeltas() {
+    doReturn(true).when(ledgerMapper).selectBalancesInitializedForUpdate(10L);
+    CurrentUserContext.set(new UserView(1L, "A"));
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+    doReturn(Arrays.asList(ledgerMember(1L, "OWNER"), ledgerMember(2L, "EDITOR")))
+        .when(ledgerMemberMapper)
+        .selectList(any());
+
+    CreateTransactionRequest req = reqExpenseEqual(1L, 2L, new BigDecimal("120.00"));
+    service.createTransaction(10L, req);
+
+    verify(ledgerUserBalanceMapper, times(1))
+        .applyDeltas(
+            argThat(
+                rows ->
+                    rows.size() == 2
+                        && rows.get(0).getUserId().equals(1L)
+                        && rows.get(0).getNetAmountBase().compareTo(new BigDecimal("120.00")) == 0
+                        && rows.get(1).getUserId().equals(2L)
+                        && rows.get(1).getNetAmountBase().compareTo(new BigDecimal("-120.00"))
+                            == 0));
+  }
+
+  @Test
+  @DisplayName("deleteTransaction: edges present -> reverses balance deltas")
+  void deleteTransaction_reversesBalanceDeltas() {
+    doReturn(true).when(ledgerMapper).selectBalancesInitializedForUpdate(10L);
+    CurrentUserContext.set(new UserView(1L, "A"));
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+
+    Transaction t = new Transaction();
+    t.setId(9L);
+    t.setLedgerId(10L);
+    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(9L, 1L, false, null);
+
+    DebtEdge e1 = new DebtEdge();
+    e1.setFromUserId(1L);
+    e1.setToUserId(2L);
+    e1.setAmount(new BigDecimal("30.00"));
+    DebtEdge e2 = new DebtEdge();
+    e2.setFromUserId(1L);
+    e2.setToUserId(3L);
+    e2.setAmount(new BigDecimal("10.00"));
+    doReturn(Arrays.asList(e1, e2)).when(debtEdgeMapper).findByTransactionId(9L);
+
+    service.deleteTransaction(10L, 9L);
+
+    verify(ledgerUserBalanceMapper, times(1))
+        .applyDeltas(
+            argThat(
+                rows ->
+                    rows.size() == 3
+                        && rows.get(0).getNetAmountBase().compareTo(new BigDecimal("-40.00")) == 0
+                        && rows.get(1).getNetAmountBase().compareTo(new BigDecimal("30.00")) == 0
+                        && rows.get(2).getNetAmountBase().compareTo(new BigDecimal("10.00")) == 0));
+    // Edges go first, so a seed of the snapshot would already see them gone
+    InOrder order = inOrder(debtEdgeMapper, ledgerMapper);
+    order.verify(debtEdgeMapper).deleteByTransactionId(9L);
+    order.verify(ledgerMapper).selectBalancesInitializedForUpdate(10L);
+  }
+
+  @Test
+  @DisplayName("createTransaction: snapshot not seeded -> seeded from all edges, no deltas")
+  void createTransaction_unseededSnapshot_seedsInsteadOfDeltas() {
+    CurrentUserContext.set(new UserView(1L, "A"));
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+    doReturn(Arrays.asList(ledgerMember(1L, "OWNER"), ledgerMember(2L, "EDITOR")))
+        .when(ledgerMemberMapper)
+        .selectList(any());
+    doReturn(false).when(ledgerMapper).selectBalancesInitializedForUpdate(10L);
+
+    service.createTransaction(10L, reqExpenseEqual(1L, 2L, new BigDecimal("120.00")));
+
+    InOrder order = inOrder(debtEdgeMapper, ledgerService);
+    order.verify(debtEdgeMapper).insertBatch(any());
+    order.verify(ledgerService).reconcileBalances(10L, true);
+    verify(ledgerUserBalanceMapper, never()).applyDeltas(any());
+  }
+
+  @Test
+  @DisplayName("createTransaction: planner enabled -> publishes deltas at the bumped version")
+  void createTransaction_publishesDeltasToIncrementalPlanner() {
+    CurrentUserContext.set(new UserView(1L, "A"));
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+    doReturn(Arrays.asList(ledgerMember(1L, "OWNER"), ledgerMember(2L, "EDITOR")))
+        .when(ledgerMemberMapper)
+        .selectList(any());
+    doReturn(true).when(incrementalSettlementPlanner).enabled();
+    doReturn(7L).when(ledgerMapper).selectPlanVersion(10L);
+
+    service.createTransaction(10L, reqExpenseEqual(1L, 2L, new BigDecimal("120.00")));
+
+    verify(incrementalSettlementPlanner, times(1))
+        .applyDelta(
+            eq(10L),
+            eq(7L),
+            argThat(
+                deltas ->
+                    deltas.size() == 2
+                        && deltas.get(1L).compareTo(new BigDecimal("120.00")) == 0
+                        && deltas.get(2L).compareTo(new BigDecimal("-120.00")) == 0));
+  }
+
+  @Test
+  @DisplayName("deleteTransaction: planner enabled, no edges -> publishes an empty delta")
+  void deleteTransaction_noEdges_publishesEmptyDelta() {
+    CurrentUserContext.set(new UserView(1L, "A"));
+    doReturn(ledger(10L, "USD", "SINGLE")).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+    Transaction t = new Transaction();
+    t.setId(9L);
+    t.setLedgerId(10L);
+    doReturn(t).when(transactionMapper).findTransactionByIdWithVisibility(9L, 1L, false, null);
+    doReturn(true).when(incrementalSettlementPlanner).enabled();
+    doReturn(8L).when(ledgerMapper).selectPlanVersion(10L);
+
+    service.deleteTransaction(10L, 9L);
+
+    verify(incrementalSettlementPlanner, times(1)).applyDelta(10L, 8L, Map.of());
+  }
+
+  @Test
+  @DisplayName("createTransaction: planner disabled -> version is not read")
+  void createTransaction_plannerDisabled_skipsPublish() {
+    CurrentUserContext.set(new UserView(1L, "A"));
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+    doReturn(Arrays.asList(ledgerMember(1L, "OWNER"), ledgerMember(2L, "EDITOR")))
+        .when(ledgerMemberMapper)
+        .selectList(any());
+
+    service.createTransaction(10L, reqExpenseEqual(1L, 2L, new BigDecimal("120.00")));
+
+    verify(ledgerMapper, never()).selectPlanVersion(any());
+    verify(incrementalSettlementPlanner, never()).applyDelta(any(), anyLong(), any());
+  }
+
+  // ===== Bulk import =====
+
+  @Test
+  @DisplayName(
+      "importTransactions: mixed rows -> valid rows in one batch per table, bad rows reported")
+  void importTransactions_mixedRows_batchesValidRows() {
+    doReturn(true).when(ledgerMapper).selectBalancesInitializedForUpdate(10L);
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+    doReturn(Arrays.asList(ledgerMember(1L, "OWNER"), ledgerMember(2L, "EDITOR")))
+        .when(ledgerMemberMapper)
+        .selectList(any());
+    doAnswer(
+            inv -> {
+              List<Transaction> txns = inv.getArgument(0);
+              for (int i = 0; i < txns.size(); i++) {
+                txns.get(i).setId(100L + i);
+              }
+              return txns.size();
+            })
+        .when(transactionMapper)
+        .insertBatch(any());
+    CreateTransactionRequest wrongCurrency = reqExpenseEqual(1L, 2L, new BigDecimal("5.00"));
+    wrongCurrency.setCurrency("EUR");
+    CreateTransactionRequest stranger = reqExpenseEqual(1L, 3L, new BigDecimal("5.00"));
+
+    Map<Integer, String> rejected =
+        service.importTransactions(
+            10L,
+            1L,
+            List.of(
+                reqExpenseEqual(1L, 2L, new BigDecimal("10.00")),
+                wrongCurrency,
+                stranger,
+                reqExpenseEqual(2L, 1L, new BigDecimal("4.00"))));
+
+    assertEquals("Currency mismatch", rejected.get(1));
+    assertEquals("One or more users in the split are not members of the ledger.", rejected.get(2));
+    assertEquals(2, rejected.size());
+    verify(transactionMapper, never()).insert(any(Transaction.class));
+    verify(transactionMapper, times(1))
+        .insertBatch(argThat(txns -> txns.size() == 2 && txns.get(0).getCreatedBy() == 1L));
+    verify(transactionSplitMapper, times(1))
+        .insertBatch(
+            argThat(
+                splits ->
+                    splits.size() == 2
+                        && splits.get(0).getTransactionId() == 100L
+                        && splits.get(1).getTransactionId() == 101L));
+    verify(debtEdgeMapper, times(1)).insertBatch(argThat(edges -> edges.size() == 2));
+    // Net: user 1 is owed 10.00 and owes 4.00
+    verify(ledgerUserBalanceMapper, times(1))
+        .applyDeltas(
+            argThat(
+                rows ->
+                    rows.size() == 2
+                        && rows.get(0).getNetAmountBase().compareTo(new BigDecimal("6.00")) == 0));
+    verify(ledgerMapper, times(1)).bumpPlanVersion(10L);
+    verify(budgetService, never()).checkBudgetAfterTransaction(any(), any(), any());
+  }
+
+  @Test
+  @DisplayName("importTransactions: every row rejected -> nothing written, version unchanged")
+  void importTransactions_allRejected_writesNothing() {
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+    doReturn(Arrays.asList(ledgerMember(1L, "OWNER"))).when(ledgerMemberMapper).selectList(any());
+
+    Map<Integer, String> rejected =
+        service.importTransactions(
+            10L, 1L, List.of(reqExpenseEqual(1L, 2L, new BigDecimal("10.00"))));
+
+    assertEquals(1, rejected.size());
+    verify(transactionMapper, never()).insertBatch(any());
+    verify(transactionSplitMapper, never()).insertBatch(any());
+    verify(ledgerMapper, never()).bumpPlanVersion(any());
+  }
+
+  @Test
+  @DisplayName("importTransactions: not a member -> whole chunk rejected")
+  void importTransactions_notMember_throws() {
+    doReturn(ledger(10L, "USD", "GROUP_BALANCE")).when(ledgerMapper).selectById(10L);
+    doReturn(null).when(ledgerMemberMapper).selectOne(any());
+
+    RuntimeException ex =
+        assertThrows(
+            RuntimeException.class,
+            () ->
+                service.importTransactions(
+                    10L, 9L, List.of(reqExpenseEqual(1L, 2L, new BigDecimal("10.00")))));
+
+    assertEquals("User not a member of this ledger", ex.getMessage());
+    verify(transactionMapper, never()).insertBatch(any());
+  }
+
+  // ===== Minor-unit split engine vs BigDecimal reference =====
+
+  @Test
+  @DisplayName("createTransaction: random splits -> minor-unit amounts match BigDecimal reference")
+  void createTransaction_randomSplits_matchBigDecimalReference() {
+    CurrentUserContext.set(new UserView(1L, "U1"));
+    doReturn(ledger(1L, "USD", "PERSONAL")).when(ledgerMapper).selectById(1L);
+    doReturn(new LedgerMember()).when(ledgerMemberMapper).selectOne(any());
+    List<LedgerMember> members = new ArrayList<>();
+    for (long id = 1; id <= 12; id++) {
+      members.add(ledgerMember(id, "EDITOR"));
+    }
+    doReturn(members).when(ledgerMemberMapper).selectList(any());
+    List<List<TransactionSplit>> inserted = new ArrayList<>();
+    doAnswer(
+            inv -> {
+              inserted.add(inv.getArgument(0));
+              return 1;
+            })
+        .when(transactionSplitMapper)
+        .insertBatch(any());
+
+    String[] methods = {"EQUAL", "PERCENT", "WEIGHT", "EXACT"};
+    String[] strategies = {"ROUND_HALF_UP", "TRIM_TO_UNIT", "NONE"};
+    String[] tails = {"PAYER", "LARGEST_SHARE", "CREATOR"};
+    Random random = new Random(4156);
+    int[] currentExponent = new int[1];
+    doAnswer(inv -> currentExponent[0]).when(currencyRegistry).exponentOf("USD");
+
+    for (int round = 0; round < 500; round++) {
+      int exponent = new int[] {0, 2, 3}[random.nextInt(3)];
+      currentExponent[0] = exponent;
+      int count = 1 + random.nextInt(12);
+      BigDecimal total = BigDecimal.valueOf(1 + random.nextInt(10_000_000), exponent);
+
+      CreateTransactionRequest req = new CreateTransactionRequest();
+      req.setTxnAt(LocalDateTime.now());
+      req.setType("EXPENSE");
+      req.setCurrency("USD");
+      req.setAmountTotal(total);
+      req.setPayerId(1L + random.nextInt(count));
+      req.setIsPrivate(false);
+      req.setRoundingStrategy(strategies[random.nextInt(strategies.length)]);
+      req.setTailAllocation(tails[random.nextInt(tails.length)]);
+      req.setSplits(randomSplits(random, methods[random.nextInt(methods.length)], count, total));
+
+      service.createTransaction(1L, req);
+
+      Map<Long, BigDecimal> expected = referenceSplitAmounts(req, exponent, 1L);
+      List<TransactionSplit> actual = inserted.get(inserted.size() - 1);
+      assertEquals(count, actual.size());
+      for (TransactionSplit split : actual) {
+        BigDecimal want = expected.get(split.getUserId());
+        assertEquals(
+            0,
+            want.compareTo(split.getComputedAmount()),
+            "round "
+                + round
+                + " user "
+                + split.getUserId()
+                + ": "
+                + want
+                + " vs "
+                + split.getComputedAmount());
+      }
+    }
+  }
+
+  private static List<SplitItem> randomSplits(
+      Random random, String method, int count, BigDecimal total) {
+    BigDecimal[] values = new BigDecimal[count];
+    switch (method) {
+      case "PERCENT":
+        long left = 10_000;
+        for (int i = 0; i < count - 1; i++) {
+          long pct = left == 0 ? 0 : random.nextInt((int) left + 1);
+          values[i] = BigDecimal.valueOf(pct, 2);
+          left -= pct;
+        }
+        values[count - 1] = BigDecimal.valueOf(left, 2);
+        break;
+      case "WEIGHT":
+        for (int i = 0; i < count; i++) {
+          values[i] = BigDecimal.valueOf(1 + random.nextInt(5_000), random.nextInt(4));
+        }
+        break;
+      case "EXACT":
+        BigDecimal remaining = total;
+        for (int i = 0; i < count - 1; i++) {
+          BigDecimal part =
+              remaining
+                  .multiply(BigDecimal.valueOf(random.nextInt(100)))
+                  .divide(BigDecimal.valueOf(100), total.scale(), RoundingMode.DOWN);
+          values[i] = part;
+          remaining = remaining.subtract(part);
+        }
+        values[count - 1] = remaining;
+        break;
+      default:
+        for (int i = 0; i < count; i++) {
+          values[i] = BigDecimal.ZERO;
+        }
+    }
+    List<SplitItem> splits = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      SplitItem item = new SplitItem();
+      item.setUserId(i + 1L);
+      item.setSplitMethod(method);
+      item.setShareValue(values[i]);
+      item.setIncluded(true);
+      splits.add(item);
+    }
+    return splits;
+  }
+
+  /**
+   * BigDecimal split calculation kept as the oracle: exact largest-remainder raw shares at scale 8,
+   * then the same per-share rounding and tail allocation the service has always applied.
+   */
+  private static Map<Long, BigDecimal> referenceSplitAmounts(
+      CreateTransactionRequest request, int exponent, Long creatorId) {
+    List<SplitItem> included = request.getSplits();
+    BigDecimal total = request.getAmountTotal();
+    List<BigDecimal> weights = new ArrayList<>();
+    BigDecimal divisor;
+    switch (included.get(0).getSplitMethod()) {
+      case "EQUAL":
+        included.forEach(s -> weights.add(BigDecimal.ONE));
+        divisor = BigDecimal.valueOf(included.size());
+        break;
+      case "PERCENT":
+        included.forEach(s -> weights.add(s.getShareValue()));
+        divisor = new BigDecimal("100");
+        break;
+      case "WEIGHT":
+        included.forEach(s -> weights.add(s.getShareValue()));
+        divisor = weights.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        break;
+      default:
+        included.forEach(s -> weights.add(s.getShareValue()));
+        divisor = null;
+    }
+    List<BigDecimal> shares =
+        divisor == null ? weights : referenceLargestRemainder(total, weights, divisor);
+    Map<Long, BigDecimal> raw = new HashMap<>();
+    for (int i = 0; i < included.size(); i++) {
+      raw.put(included.get(i).getUserId(), shares.get(i));
+    }
+
+    Map<Long, BigDecimal> rounded = new HashMap<>();
+    BigDecimal sum = BigDecimal.ZERO;
+    for (Map.Entry<Long, BigDecimal> e : raw.entrySet()) {
+      BigDecimal value;
+      switch (request.getRoundingStrategy()) {
+        case "TRIM_TO_UNIT":
+          value = e.getValue().setScale(exponent, RoundingMode.DOWN);
+          break;
+        case "NONE":
+          value = e.getValue();
+          break;
+        default:
+          value = e.getValue().setScale(exponent, RoundingMode.HALF_UP);
+      }
+      rounded.put(e.getKey(), value);
+      sum = sum.add(value);
+    }
+
+    BigDecimal tail = total.subtract(sum);
+    if (tail.compareTo(BigDecimal.ZERO) != 0) {
+      Long target;
+      switch (request.getTailAllocation()) {
+        case "LARGEST_SHARE":
+          target =
+              rounded.entrySet().stream()
+                  .max(Map.Entry.comparingByValue())
+                  .map(Map.Entry::getKey)
+                  .orElse(null);
+          break;
+        case "CREATOR":
+          target = creatorId;
+          break;
+        default:
+          target = request.getPayerId();
+      }
+      rounded.put(target, rounded.get(target).add(tail));
+    }
+    return rounded;
+  }
+
+  private static List<BigDecimal> referenceLargestRemainder(
+      BigDecimal total, List<BigDecimal> weights, BigDecimal divisor) {
+    BigDecimal unit = new BigDecimal("0.00000001");
+    List<BigDecimal> shares = new ArrayList<>();
+    List<BigDecimal> remainders = new ArrayList<>();
+    BigDecimal left = total;
+    for (BigDecimal weight : weights) {
+      BigDecimal product = total.multiply(weight);
+      BigDecimal floor = product.divide(divisor, 8, RoundingMode.DOWN);
+      shares.add(floor);
+      remainders.add(product.subtract(floor.multiply(divisor)));
+      left = left.subtract(floor);
+    }
+    List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < weights.size(); i++) {
+      order.add(i);
+    }
+    order.sort((a, b) -> remainders.get(b).compareTo(remainders.get(a)));
+    int units = left.divide(unit).intValueExact();
+    for (int k = 0; k < units; k++) {
+      int i = order.get(k);
+      shares.set(i, shares.get(i).add(unit));
+    }
+    return shares;
+  }
 }
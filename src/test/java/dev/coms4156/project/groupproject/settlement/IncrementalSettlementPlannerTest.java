@@ -0,0 +1,308 @@
+package dev.coms4156.project.groupproject.settlement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.coms4156.project.groupproject.dto.SettlementPlanResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link IncrementalSettlementPlanner}. */
+class IncrementalSettlementPlannerTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final IncrementalSettlementPlanner planner =
+      new IncrementalSettlementPlanner(registry, 16, 2);
+
+  @Test
+  @DisplayName("delta in the same direction -> existing transfer grows in place")
+  void applyDelta_sameDirection_merges() {
+    seedAliceOwedByBob(3L);
+
+    planner.applyDelta(10L, 4L, Map.of(1L, amount("5.00"), 2L, amount("-5.00")));
+
+    List<SettlementPlanResponse.TransferItem> plan = planner.plan(10L, 4L, 2);
+    assertEquals(1, plan.size());
+    assertTransfer(plan.get(0), 2L, 1L, "30.00");
+    assertEquals(1.0, outcomes("repaired"));
+  }
+
+  @Test
+  @DisplayName("opposite delta -> transfer shrinks, flips or disappears")
+  void applyDelta_oppositeDirection_nets() {
+    seedAliceOwedByBob(3L);
+
+    planner.applyDelta(10L, 4L, Map.of(1L, amount("-10.00"), 2L, amount("10.00")));
+    assertTransfer(planner.plan(10L, 4L, 2).get(0), 2L, 1L, "15.00");
+
+    planner.applyDelta(10L, 5L, Map.of(1L, amount("-20.00"), 2L, amount("20.00")));
+    assertTransfer(planner.plan(10L, 5L, 2).get(0), 1L, 2L, "5.00");
+
+    planner.applyDelta(10L, 6L, Map.of(1L, amount("5.00"), 2L, amount("-5.00")));
+    assertTrue(planner.plan(10L, 6L, 2).isEmpty());
+  }
+
+  @Test
+  @DisplayName("empty delta -> plan moves to the new version unchanged")
+  void applyDelta_empty_advancesVersion() {
+    seedAliceOwedByBob(3L);
+
+    planner.applyDelta(10L, 4L, Map.of());
+
+    assertNull(planner.plan(10L, 3L, 2));
+    assertTransfer(planner.plan(10L, 4L, 2).get(0), 2L, 1L, "25.00");
+  }
+
+  @Test
+  @DisplayName("version gap -> plan dropped")
+  void applyDelta_versionGap_drops() {
+    seedAliceOwedByBob(3L);
+
+    planner.applyDelta(10L, 5L, Map.of(1L, amount("5.00"), 2L, amount("-5.00")));
+
+    assertNull(planner.plan(10L, 5L, 2));
+    assertNull(planner.plan(10L, 3L, 2));
+    assertEquals(1.0, outcomes("dropped"));
+  }
+
+  @Test
+  @DisplayName("already applied version -> ignored")
+  void applyDelta_oldVersion_ignored() {
+    seedAliceOwedByBob(3L);
+
+    planner.applyDelta(10L, 3L, Map.of(1L, amount("5.00"), 2L, amount("-5.00")));
+
+    assertTransfer(planner.plan(10L, 3L, 2).get(0), 2L, 1L, "25.00");
+    assertEquals(0.0, outcomes("dropped"));
+  }
+
+  @Test
+  @DisplayName("repaired plan beyond the transfer bound -> dropped for a full re-solve")
+  void applyDelta_tooManyTransfers_resolves() {
+    IncrementalSettlementPlanner strict = new IncrementalSettlementPlanner(registry, 16, 0);
+    // A +10, B -10, C +10, D -10 settled as B -> A and D -> C
+    strict.seed(
+        10L,
+        1L,
+        Map.of(1L, amount("10"), 2L, amount("-10"), 3L, amount("10"), 4L, amount("-10")),
+        List.of(transfer(2L, 1L, "10"), transfer(4L, 3L, "10")),
+        2);
+
+    // B -> C and D -> A on top: still two members owed, but four transfers
+    strict.applyDelta(10L, 2L, Map.of(2L, amount("-5"), 3L, amount("5")));
+    strict.applyDelta(10L, 3L, Map.of(4L, amount("-5"), 1L, amount("5")));
+
+    assertNull(strict.plan(10L, 3L, 2));
+    assertEquals(1.0, outcomes("repaired"));
+    assertEquals(1.0, outcomes("resolved"));
+  }
+
+  @Test
+  @DisplayName("seed at an older version -> newer kept plan wins")
+  void seed_olderVersion_keepsNewer() {
+    seedAliceOwedByBob(3L);
+    planner.applyDelta(10L, 4L, Map.of(1L, amount("5.00"), 2L, amount("-5.00")));
+
+    seedAliceOwedByBob(3L);
+
+    assertNotNull(planner.plan(10L, 4L, 2));
+    assertNull(planner.plan(10L, 3L, 2));
+  }
+
+  @Test
+  @DisplayName("max-ledgers 0 -> disabled and nothing is kept")
+  void disabled_keepsNothing() {
+    IncrementalSettlementPlanner disabled = new IncrementalSettlementPlanner(registry, 0, 2);
+
+    disabled.seed(10L, 3L, Map.of(1L, amount("1"), 2L, amount("-1")), List.of(), 2);
+
+    assertFalse(disabled.enabled());
+    assertNull(disabled.plan(10L, 3L, 2));
+  }
+
+  @Test
+  @DisplayName("random deltas -> every repaired plan settles the balances exactly")
+  void applyDelta_random_settlesBalances() {
+    Random random = new Random(4156);
+    Map<Long, BigDecimal> balances = new HashMap<>();
+    planner.seed(10L, 0L, balances, List.of(), 2);
+    long version = 0;
+    for (int round = 0; round < 500; round++) {
+      // One expense: a payer fronts the shares of up to four participants
+      Map<Long, BigDecimal> deltas = new HashMap<>();
+      long payer = 1 + random.nextInt(8);
+      int participants = 1 + random.nextInt(4);
+      for (int i = 0; i < participants; i++) {
+        long debtor = 1 + random.nextInt(8);
+        if (debtor == payer) {
+          continue;
+        }
+        BigDecimal share = BigDecimal.valueOf(1 + random.nextInt(10_000), 2);
+        deltas.merge(payer, share, BigDecimal::add);
+        deltas.merge(debtor, share.negate(), BigDecimal::add);
+      }
+      deltas.forEach((user, delta) -> balances.merge(user, delta, BigDecimal::add));
+      planner.applyDelta(10L, ++version, deltas);
+
+      List<SettlementPlanResponse.TransferItem> plan = planner.plan(10L, version, 2);
+      if (plan == null) {
+        // Re-solved: reseed the way a fresh read would, from the current balances
+        planner.seed(10L, version, balances, greedy(balances), 2);
+        plan = planner.plan(10L, version, 2);
+      }
+      assertNotNull(plan, "round " + round);
+      Map<Long, BigDecimal> left = new HashMap<>(balances);
+      for (SettlementPlanResponse.TransferItem transfer : plan) {
+        left.merge(transfer.getFromUserId(), transfer.getAmount(), BigDecimal::add);
+        left.merge(transfer.getToUserId(), transfer.getAmount().negate(), BigDecimal::add);
+      }
+      for (Map.Entry<Long, BigDecimal> entry : left.entrySet()) {
+        assertEquals(0, entry.getValue().signum(), "round " + round + " user " + entry.getKey());
+      }
+    }
+    assertTrue(outcomes("repaired") > 0);
+  }
+
+  @Test
+  @DisplayName("sub-unit deltas -> every repaired plan settles the rounded balances exactly")
+  void applyDelta_subUnitDeltas_settlesRoundedBalances() {
+    Random random = new Random(4156);
+    Map<Long, BigDecimal> balances = new HashMap<>();
+    planner.seed(10L, 0L, balances, List.of(), 2);
+    long version = 0;
+    for (int round = 0; round < 500; round++) {
+      // One expense at storage scale: a payer fronts shares carrying digits below the cent
+      Map<Long, BigDecimal> deltas = new HashMap<>();
+      long payer = 1 + random.nextInt(8);
+      int participants = 1 + random.nextInt(4);
+      for (int i = 0; i < participants; i++) {
+        long debtor = 1 + random.nextInt(8);
+        if (debtor == payer) {
+          continue;
+        }
+        BigDecimal share = BigDecimal.valueOf(1 + random.nextInt(10_000_000), 6);
+        deltas.merge(payer, share, BigDecimal::add);
+        deltas.merge(debtor, share.negate(), BigDecimal::add);
+      }
+      deltas.forEach((user, delta) -> balances.merge(user, delta, BigDecimal::add));
+      planner.applyDelta(10L, ++version, deltas);
+
+      Map<Long, BigDecimal> rounded = new HashMap<>();
+      BigDecimal net = BigDecimal.ZERO;
+      for (Map.Entry<Long, BigDecimal> entry : balances.entrySet()) {
+        BigDecimal value = entry.getValue().setScale(2, RoundingMode.HALF_UP);
+        rounded.put(entry.getKey(), value);
+        net = net.add(value);
+      }
+      List<SettlementPlanResponse.TransferItem> plan = planner.plan(10L, version, 2);
+      if (plan == null) {
+        // A fresh read only keeps plans that settle everything, i.e. rounded balances netting out
+        if (net.signum() == 0) {
+          planner.seed(10L, version, balances, greedy(rounded), 2);
+        }
+        continue;
+      }
+      Map<Long, BigDecimal> left = new HashMap<>(rounded);
+      for (SettlementPlanResponse.TransferItem transfer : plan) {
+        assertEquals(2, transfer.getAmount().scale(), "round " + round);
+        left.merge(transfer.getFromUserId(), transfer.getAmount(), BigDecimal::add);
+        left.merge(transfer.getToUserId(), transfer.getAmount().negate(), BigDecimal::add);
+      }
+      for (Map.Entry<Long, BigDecimal> entry : left.entrySet()) {
+        assertEquals(0, entry.getValue().signum(), "round " + round + " user " + entry.getKey());
+      }
+    }
+    assertTrue(outcomes("repaired") > 0);
+  }
+
+  @Test
+  @DisplayName("rounded delta does not net to zero -> plan dropped")
+  void applyDelta_roundedDeltaUnbalanced_drops() {
+    seedAliceOwedByBob(3L);
+
+    // 10.00 split three ways: the rounded changes are +6.67, -3.33 and -3.33
+    planner.applyDelta(
+        10L, 4L, Map.of(1L, amount("6.666667"), 2L, amount("-3.333333"), 3L, amount("-3.333334")));
+
+    assertNull(planner.plan(10L, 4L, 2));
+    assertEquals(1.0, outcomes("dropped"));
+  }
+
+  @Test
+  @DisplayName("plan kept at another exponent -> not served")
+  void plan_otherExponent_null() {
+    seedAliceOwedByBob(3L);
+
+    assertNull(planner.plan(10L, 3L, 0));
+    assertNotNull(planner.plan(10L, 3L, 2));
+  }
+
+  private void seedAliceOwedByBob(long version) {
+    planner.seed(
+        10L,
+        version,
+        Map.of(1L, amount("25.00"), 2L, amount("-25.00")),
+        List.of(transfer(2L, 1L, "25.00")),
+        2);
+  }
+
+  private double outcomes(String outcome) {
+    return registry
+        .get(IncrementalSettlementPlanner.METRIC_NAME)
+        .tag("outcome", outcome)
+        .counter()
+        .count();
+  }
+
+  /** Plain largest-first greedy settlement of exact balances. */
+  private static List<SettlementPlanResponse.TransferItem> greedy(Map<Long, BigDecimal> balances) {
+    Map<Long, BigDecimal> left = new HashMap<>(balances);
+    List<SettlementPlanResponse.TransferItem> transfers = new ArrayList<>();
+    while (true) {
+      Long creditor = null;
+      Long debtor = null;
+      for (Map.Entry<Long, BigDecimal> entry : left.entrySet()) {
+        BigDecimal value = entry.getValue();
+        if (value.signum() > 0 && (creditor == null || value.compareTo(left.get(creditor)) > 0)) {
+          creditor = entry.getKey();
+        }
+        if (value.signum() < 0 && (debtor == null || value.compareTo(left.get(debtor)) < 0)) {
+          debtor = entry.getKey();
+        }
+      }
+      if (creditor == null || debtor == null) {
+        return transfers;
+      }
+      BigDecimal amount = left.get(creditor).min(left.get(debtor).negate());
+      transfers.add(new SettlementPlanResponse.TransferItem(debtor, null, creditor, null, amount));
+      left.merge(creditor, amount.negate(), BigDecimal::add);
+      left.merge(debtor, amount, BigDecimal::add);
+    }
+  }
+
+  private static void assertTransfer(
+      SettlementPlanResponse.TransferItem transfer, long from, long to, String amount) {
+    assertEquals(from, transfer.getFromUserId());
+    assertEquals(to, transfer.getToUserId());
+    assertEquals(new BigDecimal(amount), transfer.getAmount());
+  }
+
+  private static SettlementPlanResponse.TransferItem transfer(long from, long to, String amount) {
+    return new SettlementPlanResponse.TransferItem(from, null, to, null, amount(amount));
+  }
+
+  private static BigDecimal amount(String value) {
+    return new BigDecimal(value);
+  }
+}
@@ -0,0 +1,257 @@
+package dev.coms4156.project.groupproject.settlement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link MinCostFlowSolver}. */
+class MinCostFlowSolverTest {
+
+  @Test
+  @DisplayName("single debtor and creditor -> one transfer for the full amount")
+  void solve_singlePair() {
+    MinCostFlowSolver.Plan plan =
+        MinCostFlowSolver.solve(new long[] {5000}, new long[] {5000}, null, 0);
+
+    assertEquals(1, plan.size());
+    assertEquals(0, plan.debtor(0));
+    assertEquals(0, plan.creditor(0));
+    assertEquals(5000, plan.amount(0));
+    assertEquals(0, plan.unsettled());
+  }
+
+  @Test
+  @DisplayName("blocked pair -> flow is routed through the remaining channels")
+  void solve_blockedPairRoutesAround() {
+    // Debtor 0 may only pay creditor 1, debtor 1 may pay anyone.
+    long[] debts = {100, 100};
+    long[] credits = {100, 100};
+
+    MinCostFlowSolver.Plan plan =
+        MinCostFlowSolver.solve(debts, credits, (i, j) -> i != 0 || j == 1, 0);
+
+    assertEquals(0, plan.unsettled());
+    for (int k = 0; k < plan.size(); k++) {
+      assertTrue(plan.debtor(k) != 0 || plan.creditor(k) == 1);
+    }
+    assertBalanced(plan, debts, credits);
+  }
+
+  @Test
+  @DisplayName("cap -> every transfer stays within the cap and the debt is fully settled")
+  void solve_capSplitsTransfers() {
+    long[] debts = {10000};
+    long[] credits = {10000};
+
+    MinCostFlowSolver.Plan plan = MinCostFlowSolver.solve(debts, credits, null, 3000);
+
+    assertEquals(4, plan.size());
+    for (int k = 0; k < plan.size(); k++) {
+      assertTrue(plan.amount(k) <= 3000);
+    }
+    assertBalanced(plan, debts, credits);
+  }
+
+  @Test
+  @DisplayName("equal debt and credit -> paired directly, one transfer each")
+  void solve_exactMatchesPreferred() {
+    // Equal costs could also route 500 as 300 + 200 and need three transfers
+    long[] debts = {500, 300};
+    long[] credits = {300, 500};
+
+    MinCostFlowSolver.Plan plan = MinCostFlowSolver.solve(debts, credits, null, 0);
+
+    assertEquals(2, plan.size());
+    for (int k = 0; k < plan.size(); k++) {
+      assertEquals(debts[plan.debtor(k)], credits[plan.creditor(k)]);
+      assertEquals(debts[plan.debtor(k)], plan.amount(k));
+    }
+  }
+
+  @Test
+  @DisplayName(
+      "random capped ledgers with blocked pairs -> capped plan settles as much as uncapped")
+  void solve_randomCappedMatchesUncapped() {
+    Random random = new Random(2718);
+    for (int round = 0; round < 50; round++) {
+      int d = 1 + random.nextInt(8);
+      int c = 1 + random.nextInt(8);
+      long[] debts = new long[d];
+      long[] credits = new long[c];
+      for (int i = 0; i < d; i++) {
+        debts[i] = 1 + random.nextInt(5_000);
+      }
+      for (int j = 0; j < c; j++) {
+        credits[j] = 1 + random.nextInt(5_000);
+      }
+      long cap = 1 + random.nextInt(2_000);
+      boolean[][] blocked = new boolean[d][c];
+      for (int i = 0; i < d; i++) {
+        for (int j = 0; j < c; j++) {
+          blocked[i][j] = random.nextInt(4) == 0;
+        }
+      }
+
+      MinCostFlowSolver.Plan plan =
+          MinCostFlowSolver.solve(debts, credits, (i, j) -> !blocked[i][j], cap);
+
+      long[] paid = new long[d];
+      long[] received = new long[c];
+      for (int k = 0; k < plan.size(); k++) {
+        assertTrue(plan.amount(k) > 0 && plan.amount(k) <= cap, "round " + round);
+        assertTrue(!blocked[plan.debtor(k)][plan.creditor(k)], "round " + round);
+        paid[plan.debtor(k)] += plan.amount(k);
+        received[plan.creditor(k)] += plan.amount(k);
+      }
+      long unsettled = 0;
+      for (int i = 0; i < d; i++) {
+        assertTrue(paid[i] <= debts[i], "round " + round);
+        unsettled += debts[i] - paid[i];
+      }
+      for (int j = 0; j < c; j++) {
+        assertTrue(received[j] <= credits[j], "round " + round);
+      }
+      assertEquals(unsettled, plan.unsettled(), "round " + round);
+      // The cap only splits transfers, so it never strands debt the channels could move
+      assertEquals(
+          MinCostFlowSolver.solve(debts, credits, (i, j) -> !blocked[i][j], 0).unsettled(),
+          unsettled,
+          "round " + round);
+    }
+  }
+
+  @Test
+  @DisplayName("all channels blocked -> nothing moves and debt is reported as unsettled")
+  void solve_allBlocked() {
+    MinCostFlowSolver.Plan plan =
+        MinCostFlowSolver.solve(new long[] {700}, new long[] {700}, (i, j) -> false, 0);
+
+    assertEquals(0, plan.size());
+    assertEquals(700, plan.unsettled());
+  }
+
+  @Test
+  @DisplayName("random ledgers -> plan conserves every balance and stays sparse")
+  void solve_randomLedgersConserveBalances() {
+    Random random = new Random(4156);
+    for (int round = 0; round < 50; round++) {
+      int d = 1 + random.nextInt(20);
+      int c = 1 + random.nextInt(20);
+      long[] debts = new long[d];
+      long[] credits = new long[c];
+      long total = 0;
+      for (int i = 0; i < d; i++) {
+        debts[i] = 1 + random.nextInt(100_000);
+        total += debts[i];
+      }
+      long left = total;
+      for (int j = 0; j < c - 1; j++) {
+        credits[j] = 1 + (left - (c - j)) / (c - j);
+        left -= credits[j];
+      }
+      credits[c - 1] = left;
+
+      MinCostFlowSolver.Plan plan = MinCostFlowSolver.solve(debts, credits, null, 0);
+
+      assertEquals(0, plan.unsettled());
+      assertTrue(plan.size() <= d + c - 1);
+      assertBalanced(plan, debts, credits);
+    }
+  }
+
+  @Test
+  @DisplayName("remainders that match -> as few transfers as greedy")
+  void solve_remaindersMatch_fewTransfers() {
+    // Greedy: 7 -> 6, 3 -> 5, 2 -> 5, 1 -> 1. A tree over all six members needs five.
+    long[] debts = {3, 7, 2};
+    long[] credits = {6, 1, 5};
+
+    MinCostFlowSolver.Plan plan = MinCostFlowSolver.solve(debts, credits, null, 0);
+
+    assertEquals(4, plan.size());
+    assertBalanced(plan, debts, credits);
+  }
+
+  @Test
+  @DisplayName("random ledgers -> no more transfers than heap greedy overall")
+  void solve_randomLedgers_comparedWithGreedy() {
+    Random random = new Random(31);
+    int flowTransfers = 0;
+    int greedyTransfers = 0;
+    for (int round = 0; round < 500; round++) {
+      int d = 2 + random.nextInt(8);
+      int c = 2 + random.nextInt(8);
+      long[] debts = new long[d];
+      long[] credits = new long[c];
+      long total = 0;
+      for (int i = 0; i < d; i++) {
+        // Small amounts make equal remainders common, which is where greedy gains
+        debts[i] = 1 + random.nextInt(random.nextBoolean() ? 5 : 5_000);
+        total += debts[i];
+      }
+      long left = total;
+      for (int j = 0; j < c - 1; j++) {
+        credits[j] = 1 + (left - (c - j)) / (c - j);
+        left -= credits[j];
+      }
+      credits[c - 1] = left;
+
+      MinCostFlowSolver.Plan plan = MinCostFlowSolver.solve(debts, credits, null, 0);
+
+      assertBalanced(plan, debts, credits);
+      assertTrue(plan.size() <= d + c - 1, "round " + round);
+      flowTransfers += plan.size();
+      greedyTransfers += greedyTransfers(debts, credits);
+    }
+    assertTrue(
+        flowTransfers <= greedyTransfers,
+        "min-cost flow " + flowTransfers + " vs greedy " + greedyTransfers);
+  }
+
+  /** Transfer count of the largest-debtor-to-largest-creditor greedy settlement. */
+  private static int greedyTransfers(long[] debts, long[] credits) {
+    long[] owes = debts.clone();
+    long[] owed = credits.clone();
+    int transfers = 0;
+    while (true) {
+      int i = largest(owes);
+      int j = largest(owed);
+      if (i < 0 || j < 0) {
+        return transfers;
+      }
+      long amount = Math.min(owes[i], owed[j]);
+      owes[i] -= amount;
+      owed[j] -= amount;
+      transfers++;
+    }
+  }
+
+  private static int largest(long[] amounts) {
+    int best = -1;
+    for (int k = 0; k < amounts.length; k++) {
+      if (amounts[k] > 0 && (best < 0 || amounts[k] > amounts[best])) {
+        best = k;
+      }
+    }
+    return best;
+  }
+
+  private static void assertBalanced(MinCostFlowSolver.Plan plan, long[] debts, long[] credits) {
+    long[] paid = new long[debts.length];
+    long[] received = new long[credits.length];
+    for (int k = 0; k < plan.size(); k++) {
+      assertTrue(plan.amount(k) > 0);
+      paid[plan.debtor(k)] += plan.amount(k);
+      received[plan.creditor(k)] += plan.amount(k);
+    }
+    for (int i = 0; i < debts.length; i++) {
+      assertEquals(debts[i], paid[i]);
+    }
+    for (int j = 0; j < credits.length; j++) {
+      assertEquals(credits[j], received[j]);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package dev.coms4156.project.groupproject.settlement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dev.coms4156.project.groupproject.dto.SettlementConfig;
+import dev.coms4156.project.groupproject.dto.SettlementPlanResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link SettlementPlanCache}. */
+class SettlementPlanCacheTest {
+
+  private SettlementPlanCache cache;
+  private AtomicInteger loads;
+
+  @BeforeEach
+  void setUp() {
+    cache = new SettlementPlanCache(new SimpleMeterRegistry(), 16);
+    loads = new AtomicInteger();
+  }
+
+  private Supplier<SettlementPlanResponse> loader() {
+    return () -> {
+      loads.incrementAndGet();
+      List<SettlementPlanResponse.TransferItem> transfers = new ArrayList<>();
+      transfers.add(
+          new SettlementPlanResponse.TransferItem(2L, "Bob", 1L, "Alice", new BigDecimal("25.00")));
+      return new SettlementPlanResponse(10L, "USD", 3L, 1, transfers, new ArrayList<>());
+    };
+  }
+
+  @Test
+  @DisplayName("get: caller edits the returned plan -> cached plan unchanged")
+  void get_returnsCopy() {
+    SettlementConfig config = new SettlementConfig();
+    SettlementPlanResponse first = cache.get(10L, 3L, config, loader());
+    first.getTransfers().get(0).setAmount(BigDecimal.ONE);
+    first.getTransfers().clear();
+
+    SettlementPlanResponse second = cache.get(10L, 3L, config, loader());
+
+    assertEquals(1, loads.get());
+    assertEquals(1, second.getTransfers().size());
+    assertEquals(new BigDecimal("25.00"), second.getTransfers().get(0).getAmount());
+  }
+
+  @Test
+  @DisplayName("get: config edited after caching -> edit does not reach the stored key")
+  void get_keyCopiesConfig() {
+    Set<String> channels = new HashSet<>(Set.of("BANK"));
+    SettlementConfig config = new SettlementConfig();
+    config.setPaymentChannels(new HashMap<>(Map.of("2-1", channels)));
+    cache.get(10L, 3L, config, loader());
+
+    channels.clear();
+    config.setAlgorithm("EXACT");
+    cache.get(10L, 3L, config, loader());
+
+    SettlementConfig original = new SettlementConfig();
+    original.setPaymentChannels(Map.of("2-1", Set.of("BANK")));
+    cache.get(10L, 3L, original, loader());
+
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  @DisplayName("get: loader throws -> same exception propagates and nothing is cached")
+  void get_loaderFailure_propagatesUnwrapped() {
+    IllegalStateException failure = new IllegalStateException("CURRENCY_RATE_MISSING");
+    SettlementConfig config = new SettlementConfig();
+
+    RuntimeException thrown =
+        assertThrows(
+            RuntimeException.class,
+            () ->
+                cache.get(
+                    10L,
+                    3L,
+                    config,
+                    () -> {
+                      throw failure;
+                    }));
+
+    assertSame(failure, thrown);
+    cache.get(10L, 3L, config, loader());
+    assertEquals(1, loads.get());
+  }
+}
@@ -0,0 +1,217 @@
+package dev.coms4156.project.groupproject.settlement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link ZeroSumSubsetSolver}. */
+class ZeroSumSubsetSolverTest {
+
+  private final ZeroSumSubsetSolver solver = new ZeroSumSubsetSolver(24, 10_000);
+
+  @Test
+  @DisplayName("opposite pairs -> each pair is its own group")
+  void partition_oppositePairs() {
+    long[] balances = {500, -300, -500, 300};
+
+    int[][] groups = solver.partition(balances);
+
+    assertEquals(2, groups.length);
+    assertPartition(balances, groups, true);
+  }
+
+  @Test
+  @DisplayName("greedy-unfriendly ledger -> splits into the maximum number of zero-sum groups")
+  void partition_findsHiddenSubsets() {
+    // {+6, -3, -3} and {+4, -4}: greedy pairs +6 with -4 and needs four transfers, two groups
+    // need three
+    long[] balances = {600, 400, -300, -300, -400};
+
+    int[][] groups = solver.partition(balances);
+
+    assertEquals(2, groups.length);
+    assertPartition(balances, groups, true);
+  }
+
+  @Test
+  @DisplayName("non-zero total -> leftover members form one extra group")
+  void partition_nonZeroTotal() {
+    long[] balances = {100, -100, 50, -20};
+
+    int[][] groups = solver.partition(balances);
+
+    assertEquals(2, groups.length);
+    assertPartition(balances, groups, false);
+  }
+
+  @Test
+  @DisplayName("random ledgers -> group count matches brute force")
+  void partition_matchesBruteForce() {
+    Random random = new Random(4156);
+    for (int round = 0; round < 200; round++) {
+      int n = 2 + random.nextInt(9);
+      long[] balances = new long[n];
+      long sum = 0;
+      for (int i = 0; i < n - 1; i++) {
+        long units = 1 + random.nextInt(6);
+        balances[i] = random.nextBoolean() ? units : -units;
+        sum += balances[i];
+      }
+      if (sum == 0) {
+        // Keep the last balance non-zero by growing the first one away from zero
+        long step = balances[0] > 0 ? 1 : -1;
+        balances[0] += step;
+        sum += step;
+      }
+      balances[n - 1] = -sum;
+
+      int[][] groups = solver.partition(balances);
+
+      assertNotNull(groups);
+      assertPartition(balances, groups, true);
+      assertEquals(bruteForce(balances, (1 << n) - 1), groups.length, "round " + round);
+    }
+  }
+
+  @Test
+  @DisplayName("24 members -> solved within the budget")
+  void partition_largestLedger() {
+    Random random = new Random(24);
+    long[] balances = new long[24];
+    long sum = 0;
+    for (int i = 0; i < 23; i++) {
+      balances[i] = (random.nextBoolean() ? 1 : -1) * (1 + random.nextInt(1_000_000));
+      sum += balances[i];
+    }
+    balances[23] = sum == 0 ? 1 : -sum;
+
+    int[][] groups = solver.partition(balances);
+
+    assertNotNull(groups);
+    assertPartition(balances, groups, sum != 0);
+  }
+
+  @Test
+  @DisplayName("24 members in eight hidden groups -> solved within the default 250 ms budget")
+  void partition_largestLedgerWithinDefaultBudget() {
+    ZeroSumSubsetSolver defaults = new ZeroSumSubsetSolver(24, 250);
+    Random random = new Random(250);
+    long[] balances = new long[24];
+    // Eight {+a, +b, -(a + b)} triples, shuffled; no opposite pairs to peel off first
+    for (int g = 0; g < 8; g++) {
+      long a = 1 + random.nextInt(1_000_000);
+      long b = 1 + random.nextInt(1_000_000);
+      balances[3 * g] = a;
+      balances[3 * g + 1] = b;
+      balances[3 * g + 2] = -(a + b);
+    }
+    for (int i = balances.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      long swap = balances[i];
+      balances[i] = balances[j];
+      balances[j] = swap;
+    }
+
+    long start = System.nanoTime();
+    int[][] groups = defaults.partition(balances);
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+    assertNotNull(groups, "declined after " + elapsedMillis + " ms");
+    assertEquals(8, groups.length);
+    assertPartition(balances, groups, true);
+  }
+
+  @Test
+  @DisplayName("24 small balances with millions of zero-sum subsets -> bitset levels find 8 groups")
+  void partition_manyZeroSumSubsets() {
+    // Sixteen +1 and eight -2: every {+1, +1, -2} is a group, and so is any union of them
+    long[] balances = new long[24];
+    for (int i = 0; i < 24; i++) {
+      balances[i] = i % 3 == 2 ? -2 : 1;
+    }
+
+    int[][] groups = solver.partition(balances);
+
+    assertNotNull(groups);
+    assertEquals(8, groups.length);
+    assertPartition(balances, groups, true);
+  }
+
+  @Test
+  @DisplayName("more members than the limit -> declined")
+  void partition_tooManyMembers() {
+    ZeroSumSubsetSolver small = new ZeroSumSubsetSolver(3, 10_000);
+
+    assertNull(small.partition(new long[] {1, 2, 3, -6}));
+  }
+
+  @Test
+  @DisplayName("exhausted time budget -> declined")
+  void partition_timeBudgetExceeded() {
+    ZeroSumSubsetSolver impatient = new ZeroSumSubsetSolver(24, 0);
+
+    assertNull(impatient.partition(new long[] {1, 2, 3, -6}));
+  }
+
+  @Test
+  @DisplayName("limit above the hard cap -> clamped")
+  void constructor_clampsMemberLimit() {
+    assertEquals(
+        ZeroSumSubsetSolver.HARD_MEMBER_LIMIT, new ZeroSumSubsetSolver(40, 10).maxMembers());
+  }
+
+  /** Every index appears once and, when required, every group sums to zero. */
+  private static void assertPartition(long[] balances, int[][] groups, boolean allZero) {
+    boolean[] seen = new boolean[balances.length];
+    int nonZeroGroups = 0;
+    for (int[] group : groups) {
+      assertTrue(group.length > 0);
+      long sum = 0;
+      for (int member : group) {
+        assertTrue(!seen[member], "member " + member + " in two groups");
+        seen[member] = true;
+        sum += balances[member];
+      }
+      if (sum != 0) {
+        nonZeroGroups++;
+      }
+    }
+    for (boolean s : seen) {
+      assertTrue(s);
+    }
+    assertEquals(0, allZero ? nonZeroGroups : Math.max(0, nonZeroGroups - 1));
+  }
+
+  /** Maximum number of zero-sum groups a zero-sum member set splits into, by exhaustive search. */
+  private static int bruteForce(long[] balances, int mask) {
+    if (mask == 0) {
+      return 0;
+    }
+    int lowest = mask & -mask;
+    int rest = mask ^ lowest;
+    int best = 1;
+    // The group holding the lowest member is any zero-sum subset containing it
+    for (int sub = rest; sub != 0; sub = (sub - 1) & rest) {
+      int group = sub | lowest;
+      if (group != mask && sum(balances, group) == 0) {
+        best = Math.max(best, 1 + bruteForce(balances, mask ^ group));
+      }
+    }
+    return best;
+  }
+
+  private static long sum(long[] balances, int mask) {
+    long sum = 0;
+    for (int i = 0; i < balances.length; i++) {
+      if ((mask & (1 << i)) != 0) {
+        sum += balances[i];
+      }
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,179 @@
+package dev.coms4156.project.groupproject.split;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dev.coms4156.project.groupproject.utils.MinorUnits;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link SplitEngine}, checked against an exact BigDecimal largest-remainder split. */
+class SplitEngineTest {
+
+  private static final long UNIT = MinorUnits.pow10(MinorUnits.STORAGE_SCALE);
+
+  private final SplitEngine engine = new SplitEngine();
+
+  @Test
+  @DisplayName("shares: EQUAL 10.00 / 3 -> leftover unit goes to the first participant")
+  void shares_equal_leftoverToEarliest() {
+    long[] out = new long[3];
+    engine.shares("EQUAL", 10 * UNIT, new long[3], 3, out);
+
+    assertArrayEquals(new long[] {333_333_334L, 333_333_333L, 333_333_333L}, out);
+  }
+
+  @Test
+  @DisplayName("shares: WEIGHT -> leftover units go to the largest remainders, not the first")
+  void shares_weight_leftoverToLargestRemainder() {
+    // 1.00 split 1:1:2:2 over 6 -> exact 0.1666..., 0.1666..., 0.3333..., 0.3333...
+    long[] weights = {UNIT, UNIT, 2 * UNIT, 2 * UNIT};
+    long[] out = new long[4];
+    engine.shares("WEIGHT", UNIT, weights, 4, out);
+
+    assertArrayEquals(new long[] {16_666_667L, 16_666_667L, 33_333_333L, 33_333_333L}, out);
+  }
+
+  @Test
+  @DisplayName("shares: output may reuse the input array")
+  void shares_inPlace() {
+    long[] shares = {25 * UNIT, 75 * UNIT};
+    engine.shares("PERCENT", 3 * UNIT, shares, 2, shares);
+
+    assertArrayEquals(new long[] {75_000_000L, 225_000_000L}, shares);
+  }
+
+  @Test
+  @DisplayName("shares: PERCENT not summing to 100 or unknown method -> throws")
+  void shares_invalid_throws() {
+    long[] out = new long[2];
+    RuntimeException percent =
+        assertThrows(
+            RuntimeException.class,
+            () -> engine.shares("PERCENT", UNIT, new long[] {50 * UNIT, 49 * UNIT}, 2, out));
+    assertEquals("PERCENT splits must sum to 100", percent.getMessage());
+    assertThrows(RuntimeException.class, () -> engine.shares("RANDOM", UNIT, out, 2, out));
+  }
+
+  @Test
+  @DisplayName("shares: random splits up to 500 participants -> exact and equal to BigDecimal")
+  void shares_random_matchBigDecimalLargestRemainder() {
+    Random random = new Random(2020);
+    String[] methods = {"EQUAL", "PERCENT", "WEIGHT"};
+    for (int round = 0; round < 2_000; round++) {
+      String method = methods[random.nextInt(methods.length)];
+      int count = 1 + random.nextInt(round % 10 == 0 ? 500 : 20);
+      // Up to ~10^11 currency units, so total * share overflows a long regularly
+      long total = (1 + (random.nextLong() >>> (24 + random.nextInt(40)))) * 1_000_000L;
+      long[] shares = randomShares(random, method, count);
+
+      long[] out = new long[count];
+      engine.shares(method, total, shares, count, out);
+
+      long[] expected = referenceShares(method, total, shares, count);
+      assertArrayEquals(expected, out, "round " + round + " " + method + " x" + count);
+      long sum = 0;
+      for (long share : out) {
+        sum += share;
+      }
+      assertEquals(total, sum, "round " + round);
+    }
+  }
+
+  @Test
+  @DisplayName("round: HALF_UP to cents -> per-share rounding, tail returned at currency scale")
+  void round_halfUp_returnsTail() {
+    long total = 10 * UNIT;
+    long[] amounts = {333_333_334L, 333_333_333L, 333_333_333L};
+
+    int scale = SplitEngine.scaleFor(total, 2, RoundingMode.HALF_UP);
+    long tail = SplitEngine.round(amounts, 3, total, 2, RoundingMode.HALF_UP, scale);
+
+    assertEquals(2, scale);
+    assertArrayEquals(new long[] {333, 333, 333}, amounts);
+    assertEquals(1, tail);
+  }
+
+  @Test
+  @DisplayName("round: NONE or a total with sub-unit digits -> stays at storage scale")
+  void round_noneOrFractionalTotal_keepsStorageScale() {
+    assertEquals(MinorUnits.STORAGE_SCALE, SplitEngine.scaleFor(10 * UNIT, 2, null));
+    assertEquals(
+        MinorUnits.STORAGE_SCALE, SplitEngine.scaleFor(10 * UNIT + 1, 2, RoundingMode.HALF_UP));
+
+    long[] amounts = {333_333_334L, 333_333_333L, 333_333_333L};
+    long tail = SplitEngine.round(amounts, 3, 10 * UNIT, 2, null, MinorUnits.STORAGE_SCALE);
+    assertEquals(0, tail);
+    assertArrayEquals(new long[] {333_333_334L, 333_333_333L, 333_333_333L}, amounts);
+  }
+
+  @Test
+  @DisplayName("largestShare / indexOf -> ties to the lowest user ID; -1 when absent")
+  void largestShareAndIndexOf() {
+    long[] amounts = {5, 9, 9, 1};
+    long[] userIds = {4, 7, 3, 1};
+
+    assertEquals(2, SplitEngine.largestShare(amounts, userIds, 4));
+    assertEquals(1, SplitEngine.indexOf(userIds, 4, 7));
+    assertEquals(-1, SplitEngine.indexOf(userIds, 4, 8));
+  }
+
+  private static long[] randomShares(Random random, String method, int count) {
+    long[] shares = new long[count];
+    switch (method) {
+      case "PERCENT":
+        long left = 100 * UNIT;
+        for (int i = 0; i < count - 1; i++) {
+          long pct = left == 0 ? 0 : (long) (random.nextDouble() * left / 2);
+          shares[i] = pct - pct % MinorUnits.pow10(random.nextInt(9));
+          left -= shares[i];
+        }
+        shares[count - 1] = left;
+        break;
+      case "WEIGHT":
+        for (int i = 0; i < count; i++) {
+          shares[i] = (1 + random.nextInt(5_000)) * MinorUnits.pow10(4 + random.nextInt(5));
+        }
+        break;
+      default:
+        break;
+    }
+    return shares;
+  }
+
+  private static long[] referenceShares(String method, long total, long[] shares, int count) {
+    List<BigDecimal> weights = new ArrayList<>();
+    BigDecimal divisor = BigDecimal.ZERO;
+    for (int i = 0; i < count; i++) {
+      BigDecimal weight = "EQUAL".equals(method) ? BigDecimal.ONE : BigDecimal.valueOf(shares[i]);
+      weights.add(weight);
+      divisor = divisor.add(weight);
+    }
+    BigDecimal exactTotal = BigDecimal.valueOf(total);
+    long[] out = new long[count];
+    BigDecimal[] remainders = new BigDecimal[count];
+    long left = total;
+    for (int i = 0; i < count; i++) {
+      BigDecimal product = exactTotal.multiply(weights.get(i));
+      BigDecimal floor = product.divide(divisor, 0, RoundingMode.DOWN);
+      out[i] = floor.longValueExact();
+      remainders[i] = product.subtract(floor.multiply(divisor));
+      left -= out[i];
+    }
+    List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      order.add(i);
+    }
+    order.sort((a, b) -> remainders[b].compareTo(remainders[a]));
+    for (int k = 0; k < left; k++) {
+      out[order.get(k)]++;
+    }
+    return out;
+  }
+}
@@ -0,0 +1,160 @@
+package dev.coms4156.project.groupproject.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import dev.coms4156.project.groupproject.entity.Currency;
+import dev.coms4156.project.groupproject.mapper.CurrencyMapper;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/** Unit tests for {@link CurrencyRegistry}. */
+@ExtendWith(MockitoExtension.class)
+class CurrencyRegistryTest {
+
+  @Mock private CurrencyMapper currencyMapper;
+
+  private CurrencyRegistry registry;
+
+  @BeforeEach
+  void setUp() {
+    registry = new CurrencyRegistry(currencyMapper);
+  }
+
+  private static Currency currency(String code, Integer exponent) {
+    Currency c = new Currency();
+    c.setCode(code);
+    c.setExponent(exponent);
+    return c;
+  }
+
+  @Test
+  @DisplayName("exponentOf: loads lazily once and serves later lookups from memory")
+  void exponentOf_lazyLoad_queriesOnce() {
+    doReturn(List.of(currency("USD", 2), currency("JPY", 0), currency("KWD", 3)))
+        .when(currencyMapper)
+        .selectList(isNull());
+
+    assertEquals(2, registry.exponentOf("USD"));
+    assertEquals(0, registry.exponentOf("JPY"));
+    assertEquals(3, registry.exponentOf("KWD"));
+    assertEquals(2, registry.exponentOf("USD"));
+
+    verify(currencyMapper, times(1)).selectList(isNull());
+  }
+
+  @Test
+  @DisplayName("exponentOf: unknown, lower-case, null and null-exponent codes -> null")
+  void exponentOf_unknownCodes_returnNull() {
+    doReturn(List.of(currency("USD", 2), currency("XXX", null)))
+        .when(currencyMapper)
+        .selectList(isNull());
+
+    assertNull(registry.exponentOf("EUR"));
+    assertNull(registry.exponentOf("usd"));
+    assertNull(registry.exponentOf(null));
+    assertNull(registry.exponentOf("XXX"));
+  }
+
+  @Test
+  @DisplayName("exponentOf: codes outside three upper-case letters are still resolved")
+  void exponentOf_irregularCode_resolved() {
+    doReturn(List.of(currency("USDT", 6), currency("X1", 4)))
+        .when(currencyMapper)
+        .selectList(isNull());
+
+    assertEquals(6, registry.exponentOf("USDT"));
+    assertEquals(4, registry.exponentOf("X1"));
+    assertNull(registry.exponentOf("USD"));
+  }
+
+  @Test
+  @DisplayName("refresh: replaces the snapshot with the current table contents")
+  void refresh_swapsSnapshot() {
+    doReturn(List.of(currency("USD", 2)))
+        .doReturn(List.of(currency("USD", 3), currency("EUR", 2)))
+        .when(currencyMapper)
+        .selectList(isNull());
+
+    assertEquals(1, registry.refresh());
+    assertEquals(2, registry.exponentOf("USD"));
+    assertNull(registry.exponentOf("EUR"));
+
+    assertEquals(2, registry.refresh());
+    assertEquals(3, registry.exponentOf("USD"));
+    assertEquals(2, registry.exponentOf("EUR"));
+  }
+
+  @Test
+  @DisplayName("scheduledRefresh: failure keeps the previous snapshot")
+  void scheduledRefresh_failure_keepsSnapshot() {
+    doReturn(List.of(currency("USD", 2)))
+        .doThrow(new RuntimeException("db down"))
+        .when(currencyMapper)
+        .selectList(isNull());
+    registry.preload();
+
+    registry.scheduledRefresh();
+
+    assertEquals(2, registry.exponentOf("USD"));
+    verify(currencyMapper, times(2)).selectList(isNull());
+  }
+
+  @Test
+  @DisplayName("preload: failure is swallowed and the first lookup loads instead")
+  void preload_failure_fallsBackToLazyLoad() {
+    doThrow(new RuntimeException("db down"))
+        .doReturn(List.of(currency("USD", 2)))
+        .when(currencyMapper)
+        .selectList(isNull());
+
+    registry.preload();
+
+    assertEquals(2, registry.exponentOf("USD"));
+    verify(currencyMapper, times(2)).selectList(isNull());
+  }
+
+  @Test
+  @DisplayName("exponentOf: load failure without a snapshot propagates")
+  void exponentOf_initialLoadFails_propagates() {
+    doThrow(new RuntimeException("db down")).when(currencyMapper).selectList(isNull());
+
+    assertThrows(RuntimeException.class, () -> registry.exponentOf("USD"));
+  }
+
+  @Test
+  @DisplayName("entries: keeps table order and null exponents")
+  void entries_preserveTableOrder() {
+    doReturn(List.of(currency("USD", 2), currency("XXX", null), currency("JPY", 0)))
+        .when(currencyMapper)
+        .selectList(isNull());
+    registry.preload();
+
+    assertEquals(
+        List.of(
+            new CurrencyRegistry.Entry("USD", 2),
+            new CurrencyRegistry.Entry("XXX", null),
+            new CurrencyRegistry.Entry("JPY", 0)),
+        registry.entries());
+    registry.entries();
+    verify(currencyMapper, times(1)).selectList(isNull());
+  }
+
+  @Test
+  @DisplayName("constructor: nothing is loaded until first use")
+  void constructor_doesNotQuery() {
+    verify(currencyMapper, never()).selectList(isNull());
+  }
+}
@@ -0,0 +1,165 @@
+package dev.coms4156.project.groupproject.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import dev.coms4156.project.groupproject.entity.ExchangeRate;
+import dev.coms4156.project.groupproject.mapper.ExchangeRateMapper;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/** Unit tests for {@link ExchangeRateRegistry}. */
+@ExtendWith(MockitoExtension.class)
+class ExchangeRateRegistryTest {
+
+  @Mock private ExchangeRateMapper exchangeRateMapper;
+
+  private ExchangeRateRegistry registry;
+
+  @BeforeEach
+  void setUp() {
+    registry = new ExchangeRateRegistry(exchangeRateMapper);
+  }
+
+  private static ExchangeRate rate(String base, String quote, String rate) {
+    ExchangeRate r = new ExchangeRate();
+    r.setBaseCurrency(base);
+    r.setQuoteCurrency(quote);
+    r.setRate(new BigDecimal(rate));
+    return r;
+  }
+
+  @Test
+  @DisplayName("rate: stored pair -> stored rate, loaded once")
+  void rate_storedPair() {
+    doReturn(List.of(rate("EUR", "USD", "1.10"))).when(exchangeRateMapper).findEffectiveAt(any());
+
+    assertEquals(new BigDecimal("1.10"), registry.rate("EUR", "USD"));
+    assertEquals(new BigDecimal("1.10"), registry.rate("EUR", "USD"));
+
+    verify(exchangeRateMapper, times(1)).findEffectiveAt(any());
+  }
+
+  @Test
+  @DisplayName("rate: only the opposite pair stored -> reciprocal")
+  void rate_reversePair() {
+    doReturn(List.of(rate("USD", "JPY", "150"))).when(exchangeRateMapper).findEffectiveAt(any());
+
+    assertEquals(
+        0,
+        new BigDecimal("1000.00000000")
+            .compareTo(registry.convert(new BigDecimal("150000"), "JPY", "USD")));
+  }
+
+  @Test
+  @DisplayName("rate: pair connected through other currencies -> triangulated")
+  void rate_crossRate() {
+    doReturn(
+            List.of(
+                rate("EUR", "USD", "1.10"), rate("USD", "JPY", "150"), rate("GBP", "EUR", "1.20")))
+        .when(exchangeRateMapper)
+        .findEffectiveAt(any());
+
+    // 1 GBP = 1.2 EUR = 1.32 USD = 198 JPY
+    assertEquals(0, new BigDecimal("198").compareTo(registry.rate("GBP", "JPY")));
+    assertEquals(
+        new BigDecimal("50.50505051"), registry.convert(new BigDecimal("10000"), "JPY", "GBP"));
+  }
+
+  @Test
+  @DisplayName("rate: stored rate wins over the reciprocal of the opposite pair")
+  void rate_bothDirectionsStored() {
+    doReturn(List.of(rate("EUR", "USD", "1.10"), rate("USD", "EUR", "0.90")))
+        .when(exchangeRateMapper)
+        .findEffectiveAt(any());
+
+    assertEquals(new BigDecimal("1.10"), registry.rate("EUR", "USD"));
+    assertEquals(new BigDecimal("0.90"), registry.rate("USD", "EUR"));
+  }
+
+  @Test
+  @DisplayName("rate: unconnected or unknown currencies -> CURRENCY_RATE_MISSING")
+  void rate_missing_throws() {
+    doReturn(List.of(rate("EUR", "USD", "1.10"), rate("GBP", "CHF", "1.12")))
+        .when(exchangeRateMapper)
+        .findEffectiveAt(any());
+
+    RuntimeException ex =
+        assertThrows(
+            RuntimeException.class, () -> registry.convert(new BigDecimal("1"), "EUR", "GBP"));
+    assertEquals("CURRENCY_RATE_MISSING: EUR-GBP", ex.getMessage());
+    assertFalse(registry.hasRate("EUR", "GBP"));
+    assertFalse(registry.hasRate("AUD", "USD"));
+    assertTrue(registry.hasRate("USD", "EUR"));
+  }
+
+  @Test
+  @DisplayName("convert: same currency -> amount unchanged without loading")
+  void convert_sameCurrency_noLoad() {
+    BigDecimal amount = new BigDecimal("12.345");
+
+    assertEquals(amount, registry.convert(amount, "USD", "USD"));
+    assertTrue(registry.hasRate("XYZ", "XYZ"));
+    verify(exchangeRateMapper, never()).findEffectiveAt(any());
+  }
+
+  @Test
+  @DisplayName("rate: next effective date passed -> reloaded on the next lookup")
+  void rate_scheduledRateTakesOver_reloads() {
+    doReturn(List.of(rate("EUR", "USD", "1.10")))
+        .doReturn(List.of(rate("EUR", "USD", "1.20")))
+        .when(exchangeRateMapper)
+        .findEffectiveAt(any());
+    doReturn(LocalDateTime.now().minusSeconds(1))
+        .doReturn(null)
+        .when(exchangeRateMapper)
+        .findNextEffectiveAfter(any());
+    registry.refresh();
+
+    assertEquals(new BigDecimal("1.20"), registry.rate("EUR", "USD"));
+    assertEquals(new BigDecimal("1.20"), registry.rate("EUR", "USD"));
+    verify(exchangeRateMapper, times(2)).findEffectiveAt(any());
+  }
+
+  @Test
+  @DisplayName("scheduledRefresh: failure keeps the previous snapshot")
+  void scheduledRefresh_failure_keepsSnapshot() {
+    doReturn(List.of(rate("EUR", "USD", "1.10")))
+        .doThrow(new RuntimeException("db down"))
+        .when(exchangeRateMapper)
+        .findEffectiveAt(any());
+    registry.preload();
+
+    registry.scheduledRefresh();
+
+    assertEquals(new BigDecimal("1.10"), registry.rate("EUR", "USD"));
+  }
+
+  @Test
+  @DisplayName("preload: failure does not propagate; first use retries")
+  void preload_failure_retriedOnFirstUse() {
+    doThrow(new RuntimeException("db down"))
+        .doReturn(List.of(rate("EUR", "USD", "1.10")))
+        .when(exchangeRateMapper)
+        .findEffectiveAt(any());
+
+    registry.preload();
+
+    assertEquals(new BigDecimal("1.10"), registry.rate("EUR", "USD"));
+  }
+}
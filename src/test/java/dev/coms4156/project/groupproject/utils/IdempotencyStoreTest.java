@@ -0,0 +1,163 @@
+package dev.coms4156.project.groupproject.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import dev.coms4156.project.groupproject.dto.CreateTransactionResponse;
+import dev.coms4156.project.groupproject.dto.UserView;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+/** Unit tests for {@link IdempotencyStore} against an in-memory stand-in for Redis. */
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+
+  private static final String KEY = "idem:7:transactions:1:retry-1";
+
+  @Mock private StringRedisTemplate redis;
+  @Mock private ValueOperations<String, String> ops;
+
+  private final Map<String, String> values = new HashMap<>();
+  private IdempotencyStore store;
+
+  @BeforeEach
+  void setUp() {
+    store = new IdempotencyStore(redis, 60, 24);
+    CurrentUserContext.set(new UserView(7L, "U7"));
+  }
+
+  @AfterEach
+  void tearDown() {
+    CurrentUserContext.clear();
+  }
+
+  private void backRedisWithMap() {
+    doReturn(ops).when(redis).opsForValue();
+    doAnswer(inv -> values.putIfAbsent(inv.getArgument(0), inv.getArgument(1)) == null)
+        .when(ops)
+        .setIfAbsent(anyString(), anyString(), any(Duration.class));
+  }
+
+  private void storeResultsInMap() {
+    doAnswer(inv -> values.put(inv.getArgument(0), inv.getArgument(1)))
+        .when(ops)
+        .set(anyString(), anyString(), any(Duration.class));
+  }
+
+  private static CreateTransactionResponse response(long id) {
+    CreateTransactionResponse resp = new CreateTransactionResponse();
+    resp.setTransactionId(id);
+    resp.setBudgetAlert("Budget warning");
+    return resp;
+  }
+
+  private CreateTransactionResponse run(String fingerprint, Supplier<CreateTransactionResponse> a) {
+    return store.execute(
+        "transactions:1", "retry-1", fingerprint, CreateTransactionResponse.class, a);
+  }
+
+  @Test
+  @DisplayName("execute: retry with the same key -> stored response, action runs once")
+  void execute_retry_replaysStoredResponse() {
+    backRedisWithMap();
+    storeResultsInMap();
+    doAnswer(inv -> values.get(inv.getArgument(0))).when(ops).get(KEY);
+    AtomicInteger runs = new AtomicInteger();
+
+    CreateTransactionResponse first = run("req", () -> response(100L + runs.incrementAndGet()));
+    CreateTransactionResponse retry = run("req", () -> response(100L + runs.incrementAndGet()));
+
+    assertEquals(1, runs.get());
+    assertEquals(101L, first.getTransactionId());
+    assertEquals(first, retry);
+    verify(ops).set(eq(KEY), anyString(), eq(Duration.ofHours(24)));
+  }
+
+  @Test
+  @DisplayName("execute: same key, different request -> rejected without running")
+  void execute_differentRequest_throws() {
+    backRedisWithMap();
+    storeResultsInMap();
+    doAnswer(inv -> values.get(inv.getArgument(0))).when(ops).get(KEY);
+    run("req", () -> response(1L));
+
+    RuntimeException ex =
+        assertThrows(RuntimeException.class, () -> run("other", () -> response(2L)));
+
+    assertEquals("Idempotency-Key was already used for a different request", ex.getMessage());
+  }
+
+  @Test
+  @DisplayName("execute: key claimed by a request still running -> in-progress error")
+  void execute_inFlight_throws() {
+    backRedisWithMap();
+    doAnswer(inv -> values.get(inv.getArgument(0))).when(ops).get(KEY);
+
+    RuntimeException ex =
+        assertThrows(
+            RuntimeException.class, () -> run("req", () -> run("req", () -> response(1L))));
+
+    assertEquals("A request with this Idempotency-Key is still in progress", ex.getMessage());
+  }
+
+  @Test
+  @DisplayName("execute: action fails -> key released so the client can retry")
+  void execute_failure_releasesKey() {
+    backRedisWithMap();
+    storeResultsInMap();
+    doAnswer(inv -> values.remove(inv.getArgument(0)) != null).when(redis).delete(KEY);
+
+    assertThrows(
+        RuntimeException.class,
+        () ->
+            run(
+                "req",
+                () -> {
+                  throw new RuntimeException("Currency mismatch");
+                }));
+    CreateTransactionResponse retry = run("req", () -> response(5L));
+
+    assertEquals(5L, retry.getTransactionId());
+    verify(ops, never()).get(anyString());
+  }
+
+  @Test
+  @DisplayName("execute: blank or oversized key -> rejected before Redis is touched")
+  void execute_invalidKey_throws() {
+    assertThrows(
+        RuntimeException.class,
+        () ->
+            store.execute(
+                "transactions:1", " ", "req", CreateTransactionResponse.class, () -> null));
+    assertThrows(
+        RuntimeException.class,
+        () ->
+            store.execute(
+                "transactions:1",
+                "k".repeat(IdempotencyStore.MAX_KEY_LENGTH + 1),
+                "req",
+                CreateTransactionResponse.class,
+                () -> null));
+    verifyNoInteractions(redis);
+  }
+}
@@ -0,0 +1,150 @@
+package dev.coms4156.project.groupproject.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import dev.coms4156.project.groupproject.entity.LedgerMember;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/** Unit tests for {@link LedgerMembershipCache}. */
+@ExtendWith(MockitoExtension.class)
+class LedgerMembershipCacheTest {
+
+  @Mock private StringRedisTemplate redis;
+  @Mock private Supplier<LedgerMember> loader;
+
+  private SimpleMeterRegistry registry;
+  private LedgerMembershipCache cache;
+
+  @BeforeEach
+  void setUp() {
+    registry = new SimpleMeterRegistry();
+    cache = new LedgerMembershipCache(registry, redis, 100, 300);
+  }
+
+  private static LedgerMember member(String role) {
+    LedgerMember m = new LedgerMember();
+    m.setLedgerId(10L);
+    m.setUserId(2L);
+    m.setRole(role);
+    return m;
+  }
+
+  private double gets(String result) {
+    return registry
+        .get("cache.gets")
+        .tag("cache", LedgerMembershipCache.CACHE_NAME)
+        .tag("result", result)
+        .functionCounter()
+        .count();
+  }
+
+  @Test
+  @DisplayName("get: member loaded once, then served from cache with hit/miss metrics")
+  void get_member_cachedAfterFirstLoad() {
+    doReturn(member("ADMIN")).when(loader).get();
+
+    cache.get(10L, 2L, loader);
+    LedgerMember hit = cache.get(10L, 2L, loader);
+
+    assertEquals("ADMIN", hit.getRole());
+    assertEquals(10L, hit.getLedgerId());
+    assertEquals(2L, hit.getUserId());
+    verify(loader, times(1)).get();
+    assertEquals(1.0, gets("hit"));
+    assertEquals(1.0, gets("miss"));
+  }
+
+  @Test
+  @DisplayName("get: non-member -> null and not cached, so a later join is seen at once")
+  void get_nonMember_notCached() {
+    doReturn(null).doReturn(member("EDITOR")).when(loader).get();
+
+    assertNull(cache.get(10L, 2L, loader));
+    assertEquals("EDITOR", cache.get(10L, 2L, loader).getRole());
+
+    verify(loader, times(2)).get();
+  }
+
+  @Test
+  @DisplayName("invalidate: no DB transaction -> evicted and broadcast at once")
+  void invalidate_noTransaction_evictsAndPublishes() {
+    doReturn(member("ADMIN")).when(loader).get();
+    cache.get(10L, 2L, loader);
+
+    cache.invalidate(10L, 2L);
+    cache.get(10L, 2L, loader);
+
+    verify(loader, times(2)).get();
+    verify(redis).convertAndSend(LedgerMembershipCache.INVALIDATION_CHANNEL, "10:2");
+  }
+
+  @Test
+  @DisplayName("invalidate: inside a DB transaction -> deferred until commit")
+  void invalidate_inTransaction_deferredToCommit() {
+    doReturn(member("ADMIN")).when(loader).get();
+    cache.get(10L, 2L, loader);
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      cache.invalidate(10L, 2L);
+      cache.get(10L, 2L, loader);
+      verify(loader, times(1)).get();
+      verify(redis, never()).convertAndSend(any(), any());
+
+      TransactionSynchronizationManager.getSynchronizations()
+          .forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    cache.get(10L, 2L, loader);
+    verify(loader, times(2)).get();
+    verify(redis).convertAndSend(LedgerMembershipCache.INVALIDATION_CHANNEL, "10:2");
+  }
+
+  @Test
+  @DisplayName("onInvalidation: message from another instance evicts; malformed ones are ignored")
+  void onInvalidation_evictsKey() {
+    doReturn(member("ADMIN")).when(loader).get();
+    cache.get(10L, 2L, loader);
+
+    cache.onInvalidation("not-a-key");
+    cache.onInvalidation("10:x");
+    cache.get(10L, 2L, loader);
+    verify(loader, times(1)).get();
+
+    cache.onInvalidation("10:2");
+    cache.get(10L, 2L, loader);
+    verify(loader, times(2)).get();
+  }
+
+  @Test
+  @DisplayName("invalidate: Redis unavailable -> still evicted locally, no exception")
+  void invalidate_publishFails_stillEvicts() {
+    doReturn(member("ADMIN")).when(loader).get();
+    doThrow(new RuntimeException("redis down")).when(redis).convertAndSend(any(), any());
+    cache.get(10L, 2L, loader);
+
+    cache.invalidate(10L, 2L);
+    cache.get(10L, 2L, loader);
+
+    verify(loader, times(2)).get();
+  }
+}
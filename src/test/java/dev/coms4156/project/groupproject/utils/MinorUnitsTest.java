@@ -0,0 +1,98 @@
+package dev.coms4156.project.groupproject.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Property tests checking {@link MinorUnits} against the equivalent BigDecimal operations. */
+class MinorUnitsTest {
+
+  private static final RoundingMode[] MODES = {RoundingMode.HALF_UP, RoundingMode.DOWN};
+
+  @Test
+  @DisplayName("divide -> matches BigDecimal.divide(divisor, 0, mode)")
+  void divide_matchesBigDecimal() {
+    Random random = new Random(1);
+    for (int i = 0; i < 20_000; i++) {
+      long dividend = random.nextLong() >> random.nextInt(63);
+      long divisor = (random.nextLong() >> random.nextInt(63)) | 1;
+      for (RoundingMode mode : MODES) {
+        BigDecimal expected =
+            BigDecimal.valueOf(dividend).divide(BigDecimal.valueOf(divisor), 0, mode);
+        assertEquals(expected.longValueExact(), MinorUnits.divide(dividend, divisor, mode));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("mulDiv -> matches BigDecimal multiply then divide, including overflowing products")
+  void mulDiv_matchesBigDecimal() {
+    Random random = new Random(2);
+    for (int i = 0; i < 20_000; i++) {
+      long value = random.nextLong() >> (8 + random.nextInt(55));
+      long multiplier = random.nextLong() >> (8 + random.nextInt(55));
+      long divisor = Math.max(1, Math.abs(multiplier) >> random.nextInt(8)) + random.nextInt(1000);
+      for (RoundingMode mode : MODES) {
+        BigDecimal expected =
+            BigDecimal.valueOf(value)
+                .multiply(BigDecimal.valueOf(multiplier))
+                .divide(BigDecimal.valueOf(divisor), 0, mode);
+        assertEquals(
+            expected.longValueExact(), MinorUnits.mulDiv(value, multiplier, divisor, mode));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("round -> matches setScale(exponent, mode) on the decimal amount")
+  void round_matchesSetScale() {
+    Random random = new Random(3);
+    for (int i = 0; i < 20_000; i++) {
+      long units = random.nextLong() >> (10 + random.nextInt(53));
+      int exponent = random.nextInt(MinorUnits.STORAGE_SCALE + 1);
+      for (RoundingMode mode : MODES) {
+        BigDecimal expected =
+            BigDecimal.valueOf(units, MinorUnits.STORAGE_SCALE).setScale(exponent, mode);
+        long rounded = MinorUnits.round(units, MinorUnits.STORAGE_SCALE, exponent, mode);
+        assertEquals(
+            0, expected.compareTo(MinorUnits.toDecimal(rounded, MinorUnits.STORAGE_SCALE)));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("of/toDecimal -> round trip preserves value and scale")
+  void of_roundTrip() {
+    BigDecimal amount = new BigDecimal("1234.56");
+
+    long units = MinorUnits.of(amount, 2, RoundingMode.UNNECESSARY);
+
+    assertEquals(123456L, units);
+    assertEquals(amount, MinorUnits.toDecimal(units, 2));
+    assertEquals(123457L, MinorUnits.of(new BigDecimal("1234.565"), 2, RoundingMode.HALF_UP));
+  }
+
+  @Test
+  @DisplayName("exact -> too many decimal places throws")
+  void exact_tooPrecise_throws() {
+    assertEquals(150_000_000L, MinorUnits.exact(new BigDecimal("1.5000000000"), 8));
+    assertThrows(RuntimeException.class, () -> MinorUnits.exact(new BigDecimal("0.000000001"), 8));
+  }
+
+  @Test
+  @DisplayName("rescale -> widening is exact and narrowing rounds")
+  void rescale_bothDirections() {
+    assertEquals(1_234_000_000L, MinorUnits.rescale(1234, 2, 8, RoundingMode.UNNECESSARY));
+    assertEquals(1235L, MinorUnits.rescale(1_234_500_000L, 8, 2, RoundingMode.HALF_UP));
+    assertEquals(-1235L, MinorUnits.rescale(-1_234_500_000L, 8, 2, RoundingMode.HALF_UP));
+    assertEquals(1234L, MinorUnits.rescale(1_234_999_999L, 8, 2, RoundingMode.DOWN));
+    assertThrows(
+        ArithmeticException.class,
+        () -> MinorUnits.rescale(1_234_500_000L, 8, 2, RoundingMode.UNNECESSARY));
+  }
+}
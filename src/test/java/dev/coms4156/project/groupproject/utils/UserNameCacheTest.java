@@ -0,0 +1,96 @@
+package dev.coms4156.project.groupproject.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import dev.coms4156.project.groupproject.entity.User;
+import dev.coms4156.project.groupproject.mapper.UserMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/** Unit tests for {@link UserNameCache}. */
+@ExtendWith(MockitoExtension.class)
+class UserNameCacheTest {
+
+  @Mock private UserMapper userMapper;
+
+  private UserNameCache cache;
+
+  @BeforeEach
+  void setUp() {
+    cache = new UserNameCache(userMapper, new SimpleMeterRegistry(), 100);
+  }
+
+  private static User user(long id, String name) {
+    User u = new User();
+    u.setId(id);
+    u.setName(name);
+    return u;
+  }
+
+  @Test
+  @DisplayName("getNames: cold cache -> one batch query for all ids")
+  void getNames_coldCache_singleBatchQuery() {
+    doReturn(List.of(user(1L, "Alice"), user(2L, "Bob")))
+        .when(userMapper)
+        .selectBatchIds(List.of(1L, 2L));
+
+    Map<Long, String> names = cache.getNames(List.of(1L, 2L));
+
+    assertEquals(Map.of(1L, "Alice", 2L, "Bob"), names);
+    verify(userMapper, times(1)).selectBatchIds(List.of(1L, 2L));
+  }
+
+  @Test
+  @DisplayName("getNames: partly warm cache -> only missing ids are queried")
+  void getNames_partlyWarm_queriesMissingOnly() {
+    doReturn(List.of(user(1L, "Alice"))).when(userMapper).selectBatchIds(List.of(1L));
+    doReturn(List.of(user(3L, "Carol"))).when(userMapper).selectBatchIds(List.of(3L));
+    cache.getNames(List.of(1L));
+
+    Map<Long, String> names = cache.getNames(List.of(1L, 3L));
+
+    assertEquals(Map.of(1L, "Alice", 3L, "Carol"), names);
+    verify(userMapper, times(1)).selectBatchIds(List.of(1L));
+    verify(userMapper, times(1)).selectBatchIds(List.of(3L));
+  }
+
+  @Test
+  @DisplayName("getNames: fully warm cache -> no query")
+  void getNames_warm_noQuery() {
+    doReturn(List.of(user(1L, "Alice"))).when(userMapper).selectBatchIds(List.of(1L));
+    cache.getNames(List.of(1L));
+
+    cache.getNames(List.of(1L));
+
+    verify(userMapper, times(1)).selectBatchIds(List.of(1L));
+  }
+
+  @Test
+  @DisplayName("getNames: unknown user -> absent from result")
+  void getNames_unknownUser_absent() {
+    doReturn(List.of()).when(userMapper).selectBatchIds(List.of(9L));
+
+    Map<Long, String> names = cache.getNames(List.of(9L));
+
+    assertFalse(names.containsKey(9L));
+  }
+
+  @Test
+  @DisplayName("getNames: empty input -> no query")
+  void getNames_empty_noQuery() {
+    assertEquals(Map.of(), cache.getNames(List.of()));
+    verify(userMapper, never()).selectBatchIds(List.of());
+  }
+}